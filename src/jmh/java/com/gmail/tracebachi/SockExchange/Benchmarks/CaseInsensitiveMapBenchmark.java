@@ -0,0 +1,88 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Benchmarks;
+
+import com.gmail.tracebachi.SockExchange.Utilities.CaseInsensitiveMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares looking up a server (or player) name in a {@link CaseInsensitiveMap}
+ * with looking it up in a plain {@link HashMap}, for names that are found and
+ * names that are not
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaseInsensitiveMapBenchmark
+{
+  @Param({"8", "1024"})
+  private int size;
+
+  private CaseInsensitiveMap<Object> caseInsensitiveMap;
+  private HashMap<String, Object> hashMap;
+  private String presentName;
+  private String missingName;
+
+  @Setup
+  public void setup()
+  {
+    caseInsensitiveMap = new CaseInsensitiveMap<>(new HashMap<>());
+    hashMap = new HashMap<>();
+
+    for (int i = 0; i < size; i++)
+    {
+      caseInsensitiveMap.put("Server" + i, i);
+      hashMap.put("Server" + i, i);
+    }
+
+    presentName = "Server" + (size / 2);
+    missingName = "Missing" + (size / 2);
+  }
+
+  @Benchmark
+  public Object caseInsensitiveHit()
+  {
+    return caseInsensitiveMap.get(presentName);
+  }
+
+  @Benchmark
+  public Object caseInsensitiveMiss()
+  {
+    return caseInsensitiveMap.get(missingName);
+  }
+
+  @Benchmark
+  public Object hashMapHit()
+  {
+    return hashMap.get(presentName);
+  }
+
+  @Benchmark
+  public Object hashMapMiss()
+  {
+    return hashMap.get(missingName);
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Benchmarks;
+
+import com.gmail.tracebachi.SockExchange.Netty.CompressionType;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.AbstractPacket;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeChannelNames;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeRegister;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToSpigotChannelIds;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToSpigotRegister;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Measures writing and reading each registration and channel ID packet, for
+ * a few and for many channel names
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControlPacketCodecBenchmark
+{
+  public enum PacketType
+  {
+    BUNGEE_REGISTER(PacketToBungeeRegister::new, (channelNames) ->
+    {
+      PacketToBungeeRegister packet = new PacketToBungeeRegister();
+      packet.setPassword("FreshSocks");
+      packet.setServerName("survival");
+      packet.setChannelNames(channelNames);
+      packet.setCompressionType(CompressionType.DEFLATE);
+      return packet;
+    }),
+
+    SPIGOT_REGISTER(PacketToSpigotRegister::new, (channelNames) ->
+    {
+      PacketToSpigotRegister packet = new PacketToSpigotRegister();
+      packet.setResult(PacketToSpigotRegister.Result.SUCCESS);
+      packet.setChannelNames(channelNames);
+      packet.setCompressionType(CompressionType.DEFLATE);
+      return packet;
+    }),
+
+    BUNGEE_CHANNEL_NAMES(PacketToBungeeChannelNames::new, (channelNames) ->
+    {
+      PacketToBungeeChannelNames packet = new PacketToBungeeChannelNames();
+      packet.setChannelNames(channelNames);
+      return packet;
+    }),
+
+    SPIGOT_CHANNEL_IDS(PacketToSpigotChannelIds::new, (channelNames) ->
+    {
+      PacketToSpigotChannelIds packet = new PacketToSpigotChannelIds();
+      packet.setFirstChannelId(1);
+      packet.setChannelNames(channelNames);
+      return packet;
+    });
+
+    private final Supplier<AbstractPacket> emptyPacketSupplier;
+    private final Function<List<String>, AbstractPacket> packetFactory;
+
+    PacketType(
+      Supplier<AbstractPacket> emptyPacketSupplier,
+      Function<List<String>, AbstractPacket> packetFactory)
+    {
+      this.emptyPacketSupplier = emptyPacketSupplier;
+      this.packetFactory = packetFactory;
+    }
+  }
+
+  @Param
+  private PacketType packetType;
+
+  @Param({"4", "64"})
+  private int channelCount;
+
+  private AbstractPacket packet;
+  private ByteBuf encoded;
+  private ByteBuf buffer;
+
+  @Setup
+  public void setup()
+  {
+    List<String> channelNames = new ArrayList<>(channelCount);
+    for (int i = 0; i < channelCount; i++)
+    {
+      channelNames.add("BenchmarkChannel" + i);
+    }
+
+    packet = packetType.packetFactory.apply(channelNames);
+    buffer = PooledByteBufAllocator.DEFAULT.heapBuffer(channelCount * 32 + 64);
+    encoded = PooledByteBufAllocator.DEFAULT.heapBuffer(channelCount * 32 + 64);
+    packet.write(encoded);
+  }
+
+  @TearDown
+  public void tearDown()
+  {
+    packet.release();
+    buffer.release();
+    encoded.release();
+  }
+
+  @Benchmark
+  public int encode()
+  {
+    buffer.clear();
+    packet.write(buffer);
+    return buffer.writerIndex();
+  }
+
+  @Benchmark
+  public boolean decode()
+  {
+    encoded.readerIndex(0);
+
+    AbstractPacket decoded = packetType.emptyPacketSupplier.get();
+    decoded.read(encoded);
+    return decoded.release();
+  }
+}
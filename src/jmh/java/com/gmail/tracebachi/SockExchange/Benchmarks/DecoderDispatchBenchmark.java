@@ -0,0 +1,171 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Benchmarks;
+
+import com.gmail.tracebachi.SockExchange.Benchmarks.MessagePacketCodecBenchmark.PacketType;
+import com.gmail.tracebachi.SockExchange.Netty.AbstractPacketHandler;
+import com.gmail.tracebachi.SockExchange.Netty.BungeePacketDecoder;
+import com.gmail.tracebachi.SockExchange.Netty.SpigotPacketDecoder;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.AbstractPacket;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToAnyResponse;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeForward;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeRequest;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToSpigotRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading the packet ID of a frame and dispatching the packet to its
+ * handler through the Bungee and Spigot decoders (without a channel)
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoderDispatchBenchmark
+{
+  public enum FrameType
+  {
+    BUNGEE_REQUEST(PacketType.BUNGEE_REQUEST, true),
+    BUNGEE_FORWARD(PacketType.BUNGEE_FORWARD, true),
+    BUNGEE_RESPONSE(PacketType.ANY_RESPONSE, true),
+    SPIGOT_REQUEST(PacketType.SPIGOT_REQUEST, false),
+    SPIGOT_RESPONSE(PacketType.ANY_RESPONSE, false);
+
+    private final PacketType packetType;
+    private final boolean toBungee;
+
+    FrameType(PacketType packetType, boolean toBungee)
+    {
+      this.packetType = packetType;
+      this.toBungee = toBungee;
+    }
+  }
+
+  @Param
+  private FrameType frameType;
+
+  @Param({"128"})
+  private int payloadSize;
+
+  private final CountingPacketHandler packetHandler = new CountingPacketHandler();
+  private final List<Object> decoderOutput = new ArrayList<>(0);
+  private BenchmarkBungeeDecoder bungeeDecoder;
+  private BenchmarkSpigotDecoder spigotDecoder;
+  private ByteBuf frame;
+
+  @Setup
+  public void setup()
+  {
+    AbstractPacket packet = frameType.packetType.newPacket(
+      Unpooled.wrappedBuffer(new byte[payloadSize]));
+    frame = packet.encodeFrame(PooledByteBufAllocator.DEFAULT);
+    packet.release();
+
+    bungeeDecoder = new BenchmarkBungeeDecoder(packetHandler);
+    spigotDecoder = new BenchmarkSpigotDecoder(packetHandler);
+  }
+
+  @TearDown
+  public void tearDown()
+  {
+    frame.release();
+  }
+
+  @Benchmark
+  public long decodeAndDispatch() throws Exception
+  {
+    frame.readerIndex(0);
+
+    if (frameType.toBungee)
+    {
+      bungeeDecoder.decode(frame, decoderOutput);
+    }
+    else
+    {
+      spigotDecoder.decode(frame, decoderOutput);
+    }
+
+    return packetHandler.handledCount;
+  }
+
+  private static class BenchmarkBungeeDecoder extends BungeePacketDecoder
+  {
+    private BenchmarkBungeeDecoder(AbstractPacketHandler packetHandler)
+    {
+      super(packetHandler);
+    }
+
+    private void decode(ByteBuf in, List<Object> out) throws Exception
+    {
+      decode(null, in, out);
+    }
+  }
+
+  private static class BenchmarkSpigotDecoder extends SpigotPacketDecoder
+  {
+    private BenchmarkSpigotDecoder(AbstractPacketHandler packetHandler)
+    {
+      super(packetHandler);
+    }
+
+    private void decode(ByteBuf in, List<Object> out) throws Exception
+    {
+      decode(null, in, out);
+    }
+  }
+
+  private static class CountingPacketHandler extends AbstractPacketHandler
+  {
+    private long handledCount;
+
+    @Override
+    public void handle(PacketToBungeeRequest packet)
+    {
+      handledCount += packet.getMessageBuffer().readableBytes();
+    }
+
+    @Override
+    public void handle(PacketToSpigotRequest packet)
+    {
+      handledCount += packet.getMessageBuffer().readableBytes();
+    }
+
+    @Override
+    public void handle(PacketToBungeeForward packet)
+    {
+      handledCount += packet.getMessageBuffer().readableBytes();
+    }
+
+    @Override
+    public void handle(PacketToAnyResponse packet)
+    {
+      handledCount += packet.getMessageBuffer().readableBytes();
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Benchmarks;
+
+import com.gmail.tracebachi.SockExchange.Messages.ResponseStatus;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.AbstractPacket;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToAnyResponse;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeForward;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeMulticastRequest;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeRequest;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeRequest.DestinationType;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToSpigotRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Measures writing and reading each packet that carries message bytes, for
+ * message sizes from empty to 64 KiB
+ * <p>
+ * Packets are written to (and read from) a pooled heap buffer, so the numbers
+ * are the cost of the codec without a channel. Run with {@code -prof gc} to
+ * also compare {@code gc.alloc.rate.norm}.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessagePacketCodecBenchmark
+{
+  private static final String CHANNEL_NAME = "BenchmarkChannel";
+  private static final List<String> SERVER_NAMES = Arrays.asList("hub", "survival", "creative");
+
+  public enum PacketType
+  {
+    BUNGEE_REQUEST(PacketToBungeeRequest::newInstance, (payload) ->
+    {
+      PacketToBungeeRequest packet = PacketToBungeeRequest.newInstance();
+      packet.setDestinationType(DestinationType.SERVER_NAME);
+      packet.setServerOrPlayerName("survival");
+      packet.setChannelName(CHANNEL_NAME);
+      packet.setMessageBuffer(payload);
+      packet.setConsumerId(42L);
+      packet.setTimeoutInMillis(1000);
+      return packet;
+    }),
+
+    SPIGOT_REQUEST(PacketToSpigotRequest::newInstance, (payload) ->
+    {
+      PacketToSpigotRequest packet = PacketToSpigotRequest.newInstance();
+      packet.setChannelName(CHANNEL_NAME);
+      packet.setMessageBuffer(payload);
+      packet.setConsumerId(42L);
+      return packet;
+    }),
+
+    ANY_RESPONSE(PacketToAnyResponse::newInstance, (payload) ->
+    {
+      PacketToAnyResponse packet = PacketToAnyResponse.newInstance();
+      packet.setConsumerId(42L);
+      packet.setResponseStatus(ResponseStatus.OK);
+      packet.setMessageBuffer(payload);
+      return packet;
+    }),
+
+    BUNGEE_FORWARD(PacketToBungeeForward::newInstance, (payload) ->
+    {
+      PacketToBungeeForward packet = PacketToBungeeForward.newInstance();
+      packet.setServerNames(SERVER_NAMES);
+      packet.setChannelName(CHANNEL_NAME);
+      packet.setMessageBuffer(payload);
+      return packet;
+    }),
+
+    BUNGEE_MULTICAST_REQUEST(PacketToBungeeMulticastRequest::new, (payload) ->
+    {
+      PacketToBungeeMulticastRequest packet = new PacketToBungeeMulticastRequest();
+      packet.setServerNames(SERVER_NAMES);
+      packet.setChannelName(CHANNEL_NAME);
+      packet.setMessageBuffer(payload);
+      packet.setConsumerId(42L);
+      packet.setTimeoutInMillis(1000);
+      packet.setQuorum(2);
+      return packet;
+    });
+
+    private final Supplier<AbstractPacket> emptyPacketSupplier;
+    private final Function<ByteBuf, AbstractPacket> packetFactory;
+
+    PacketType(
+      Supplier<AbstractPacket> emptyPacketSupplier, Function<ByteBuf, AbstractPacket> packetFactory)
+    {
+      this.emptyPacketSupplier = emptyPacketSupplier;
+      this.packetFactory = packetFactory;
+    }
+
+    /**
+     * @param payload Message bytes which the packet takes ownership of
+     *
+     * @return New packet of this type with the message bytes
+     */
+    AbstractPacket newPacket(ByteBuf payload)
+    {
+      return packetFactory.apply(payload);
+    }
+  }
+
+  @Param
+  private PacketType packetType;
+
+  @Param({"0", "128", "4096", "65536"})
+  private int payloadSize;
+
+  private AbstractPacket packet;
+  private ByteBuf encoded;
+  private ByteBuf buffer;
+
+  @Setup
+  public void setup()
+  {
+    byte[] payload = new byte[payloadSize];
+    ThreadLocalRandom.current().nextBytes(payload);
+
+    packet = packetType.newPacket(Unpooled.wrappedBuffer(payload));
+    buffer = PooledByteBufAllocator.DEFAULT.heapBuffer(payloadSize + 256);
+    encoded = PooledByteBufAllocator.DEFAULT.heapBuffer(payloadSize + 256);
+    packet.write(encoded);
+  }
+
+  @TearDown
+  public void tearDown()
+  {
+    packet.release();
+    buffer.release();
+    encoded.release();
+  }
+
+  @Benchmark
+  public int encode()
+  {
+    buffer.clear();
+    packet.write(buffer);
+    return buffer.writerIndex();
+  }
+
+  @Benchmark
+  public boolean decode()
+  {
+    encoded.readerIndex(0);
+
+    AbstractPacket decoded = packetType.emptyPacketSupplier.get();
+    decoded.read(encoded);
+    return decoded.release();
+  }
+}
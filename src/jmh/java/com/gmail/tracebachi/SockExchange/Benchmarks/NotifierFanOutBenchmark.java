@@ -0,0 +1,89 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Benchmarks;
+
+import com.gmail.tracebachi.SockExchange.Messages.DispatchMode;
+import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessage;
+import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures notifying the consumers of a channel of one message, for each
+ * dispatch mode and a number of consumers
+ * <p>
+ * The notifier runs its tasks on the calling thread, so the numbers are the
+ * cost of the fan-out (retaining the message, creating and queueing the tasks)
+ * without the cost of handing the tasks to other threads.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotifierFanOutBenchmark
+{
+  private static final String CHANNEL_NAME = "BenchmarkChannel";
+
+  @Param
+  private DispatchMode dispatchMode;
+
+  @Param({"1", "8", "64"})
+  private int consumerCount;
+
+  private final LongAdder consumedBytes = new LongAdder();
+  private ReceivedMessageNotifier notifier;
+  private ByteBuf payloadBuffer;
+
+  @Setup
+  public void setup()
+  {
+    notifier = new ReceivedMessageNotifier(Runnable::run);
+    notifier.setDispatchMode(CHANNEL_NAME, dispatchMode);
+
+    for (int i = 0; i < consumerCount; i++)
+    {
+      // Every consumer is a different instance, so none of them are deduplicated
+      notifier.register(CHANNEL_NAME,
+        (message) -> consumedBytes.add(message.getMessageBuffer().readableBytes()));
+    }
+
+    payloadBuffer = Unpooled.wrappedBuffer(new byte[128]);
+  }
+
+  @TearDown
+  public void tearDown()
+  {
+    payloadBuffer.release();
+  }
+
+  @Benchmark
+  public long notifyConsumers()
+  {
+    notifier.notify(CHANNEL_NAME,
+      new ReceivedMessage(CHANNEL_NAME, payloadBuffer.duplicate().retain(), null));
+    return consumedBytes.sum();
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Benchmarks;
+
+import com.gmail.tracebachi.SockExchange.Netty.ChannelNameTable;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToSpigotRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures the allocations of writing and reading one request when packets
+ * are created for every message and when they are taken from a pool (with the
+ * channel sent by name or by ID)
+ * <p>
+ * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} (bytes per message).
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketAllocationBenchmark
+{
+  private static final String CHANNEL_NAME = "BenchmarkChannel";
+  private static final int CHANNEL_ID = 1;
+  private static final long CONSUMER_ID = 42L;
+
+  @Param({"16", "1024"})
+  private int payloadSize;
+
+  @Param({"false", "true"})
+  private boolean channelIds;
+
+  private ByteBuf payloadBuffer;
+  private ByteBuf frame;
+
+  @Setup
+  public void setup()
+  {
+    byte[] payload = new byte[payloadSize];
+    ThreadLocalRandom.current().nextBytes(payload);
+
+    payloadBuffer = Unpooled.wrappedBuffer(payload);
+    frame = PooledByteBufAllocator.DEFAULT.heapBuffer(payloadSize + 64);
+  }
+
+  @TearDown
+  public void tearDown()
+  {
+    payloadBuffer.release();
+    frame.release();
+  }
+
+  @Benchmark
+  public int roundTripNewPackets()
+  {
+    return roundTrip(PacketToSpigotRequest::new);
+  }
+
+  @Benchmark
+  public int roundTripPooledPackets()
+  {
+    return roundTrip(PacketToSpigotRequest::newInstance);
+  }
+
+  private int roundTrip(Supplier<PacketToSpigotRequest> packetSupplier)
+  {
+    frame.clear();
+
+    PacketToSpigotRequest outgoing = packetSupplier.get();
+    outgoing.setChannelId(channelIds ? CHANNEL_ID : ChannelNameTable.NO_ID);
+    outgoing.setChannelName(CHANNEL_NAME);
+    outgoing.setMessageBuffer(payloadBuffer.retain());
+    outgoing.setConsumerId(CONSUMER_ID);
+    outgoing.write(frame);
+    outgoing.release();
+
+    PacketToSpigotRequest incoming = packetSupplier.get();
+    incoming.read(frame);
+    int readableBytes = incoming.getMessageBuffer().readableBytes();
+    incoming.release();
+
+    return readableBytes;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Benchmarks;
+
+import com.gmail.tracebachi.SockExchange.Utilities.LongIdCounterMap;
+import com.gmail.tracebachi.SockExchange.Utilities.LongIdSlotMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares saving and removing a pending response in the boxed
+ * {@link LongIdCounterMap} and the slot-based {@link LongIdSlotMap} (with a
+ * number of responses already pending, from one thread and from four)
+ * <p>
+ * Run with {@code -prof gc} to also compare {@code gc.alloc.rate.norm}.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PendingResponseMapBenchmark
+{
+  private static final Object VALUE = new Object();
+
+  @Param({"0", "1000"})
+  private int pendingCount;
+
+  private LongIdCounterMap<Object> counterMap;
+  private LongIdSlotMap<Object> slotMap;
+
+  @Setup
+  public void setup()
+  {
+    counterMap = new LongIdCounterMap<>();
+    slotMap = new LongIdSlotMap<>();
+
+    for (int i = 0; i < pendingCount; i++)
+    {
+      counterMap.put(VALUE);
+      slotMap.put(VALUE);
+    }
+  }
+
+  @Benchmark
+  public Object putRemoveCounterMap()
+  {
+    return counterMap.remove(counterMap.put(VALUE));
+  }
+
+  @Benchmark
+  public Object putRemoveSlotMap()
+  {
+    return slotMap.remove(slotMap.put(VALUE));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Object putRemoveCounterMapContended()
+  {
+    return counterMap.remove(counterMap.put(VALUE));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Object putRemoveSlotMapContended()
+  {
+    return slotMap.remove(slotMap.put(VALUE));
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Benchmarks;
+
+import com.gmail.tracebachi.SockExchange.Netty.Packets.AbstractPacket;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the var int and string codecs that every packet is built from,
+ * for a one and a five byte var int and for short and long strings
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveCodecBenchmark
+{
+  @State(Scope.Thread)
+  public static class VarIntState
+  {
+    @Param({"1", "2147483647"})
+    private int varIntValue;
+
+    private ByteBuf buffer;
+
+    @Setup
+    public void setup()
+    {
+      buffer = PooledByteBufAllocator.DEFAULT.heapBuffer(16);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+      buffer.release();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class StringState
+  {
+    @Param({"8", "256"})
+    private int stringLength;
+
+    private String string;
+    private ByteBuf buffer;
+
+    @Setup
+    public void setup()
+    {
+      StringBuilder builder = new StringBuilder(stringLength);
+      for (int i = 0; i < stringLength; i++)
+      {
+        builder.append((char) ('a' + (i % 26)));
+      }
+
+      string = builder.toString();
+      buffer = PooledByteBufAllocator.DEFAULT.heapBuffer(stringLength * 3 + 16);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+      buffer.release();
+    }
+  }
+
+  @Benchmark
+  public int varIntRoundTrip(VarIntState state)
+  {
+    state.buffer.clear();
+    Codec.encodeVarInt(state.buffer, state.varIntValue);
+    return Codec.decodeVarInt(state.buffer);
+  }
+
+  @Benchmark
+  public String stringRoundTrip(StringState state)
+  {
+    state.buffer.clear();
+    Codec.encodeString(state.buffer, state.string);
+    return Codec.decodeString(state.buffer);
+  }
+
+  /**
+   * Gives the benchmark access to the codecs of {@link AbstractPacket}
+   */
+  private static class Codec extends AbstractPacket
+  {
+    @Override
+    public void read(ByteBuf in)
+    {
+    }
+
+    @Override
+    public void write(ByteBuf out)
+    {
+    }
+
+    private static void encodeVarInt(ByteBuf out, int value)
+    {
+      AbstractPacket.writeVarInt(out, value);
+    }
+
+    private static int decodeVarInt(ByteBuf in)
+    {
+      return AbstractPacket.readVarInt(in);
+    }
+
+    private static void encodeString(ByteBuf out, String str)
+    {
+      AbstractPacket.writeString(out, str);
+    }
+
+    private static String decodeString(ByteBuf in)
+    {
+      return AbstractPacket.readString(in);
+    }
+  }
+}
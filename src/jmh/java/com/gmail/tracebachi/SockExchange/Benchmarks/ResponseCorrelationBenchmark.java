@@ -0,0 +1,79 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Benchmarks;
+
+import com.gmail.tracebachi.SockExchange.Messages.ResponseConsumerMap;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Measures correlating a response with its consumer: saving the consumer
+ * (which schedules its timeout) and removing it (which cancels the timeout),
+ * from one thread and from four
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseCorrelationBenchmark
+{
+  private static final Consumer<ResponseMessage> CONSUMER = (responseMessage) -> {};
+  private static final long TIMEOUT_IN_MILLIS = 30000;
+
+  @Param({"0", "1000"})
+  private int pendingCount;
+
+  private ResponseConsumerMap responseConsumerMap;
+
+  @Setup
+  public void setup()
+  {
+    responseConsumerMap = new ResponseConsumerMap(Runnable::run);
+
+    for (int i = 0; i < pendingCount; i++)
+    {
+      responseConsumerMap.put(CONSUMER, TIMEOUT_IN_MILLIS);
+    }
+  }
+
+  @TearDown
+  public void tearDown()
+  {
+    responseConsumerMap.shutdown();
+  }
+
+  @Benchmark
+  public Object putRemove()
+  {
+    return responseConsumerMap.remove(responseConsumerMap.put(CONSUMER, TIMEOUT_IN_MILLIS));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Object putRemoveContended()
+  {
+    return responseConsumerMap.remove(responseConsumerMap.put(CONSUMER, TIMEOUT_IN_MILLIS));
+  }
+}
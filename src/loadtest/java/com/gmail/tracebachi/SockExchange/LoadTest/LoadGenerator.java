@@ -0,0 +1,509 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.LoadTest;
+
+import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessage;
+import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseConsumerMap;
+import com.gmail.tracebachi.SockExchange.Metrics.SockExchangeMetrics;
+import com.gmail.tracebachi.SockExchange.Netty.BungeeToSpigotConnection;
+import com.gmail.tracebachi.SockExchange.Netty.ChannelSettings;
+import com.gmail.tracebachi.SockExchange.Netty.FlushStatistics;
+import com.gmail.tracebachi.SockExchange.Netty.SockExchangeServer;
+import com.gmail.tracebachi.SockExchange.Scheduler.AwaitableExecutor;
+import com.gmail.tracebachi.SockExchange.Scheduler.ScheduledExecutorServiceWrapper;
+import com.gmail.tracebachi.SockExchange.Scheduler.WorkerPoolSettings;
+import com.gmail.tracebachi.SockExchange.Spigot.SockExchangeApi;
+import com.gmail.tracebachi.SockExchange.Utilities.BasicLogger;
+import com.gmail.tracebachi.SockExchange.Utilities.JulBasicLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.buffer.ByteBuf;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Load test which runs an embedded proxy ({@link SockExchangeServer} with a stub
+ * BungeeTieIn) and simulated servers (a client, connection and API with a stub
+ * SpigotTieIn each) on localhost, drives a mix of messages through them and
+ * reports the throughput, latencies and allocation rate
+ * <p>
+ * Every message starts with the time it was scheduled and its type, so the
+ * receiver (or the response consumer) can record the latency of the message.
+ * The senders run at a fixed total rate (an open-loop load), which should be
+ * raised until the latencies or failures are no longer acceptable.
+ * <p>
+ * Run with: {@code mvn -P load-test test -Dload.args="--servers=16 --rate=50000"}
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class LoadGenerator
+{
+  static final String CHANNEL_NAME = "LoadTest";
+  static final int HEADER_SIZE = 9;
+
+  private static final String REGISTRATION_PASSWORD = "LoadTest";
+  private static final long CONNECT_TIMEOUT_IN_MILLIS = 30000;
+  private static final long DRAIN_TIME_IN_MILLIS = 1000;
+
+  private final LoadTestSettings settings;
+  private final LoadRecorder recorder = new LoadRecorder();
+  private final BasicLogger basicLogger;
+  private final List<SimulatedServer> servers = new ArrayList<>();
+  private final List<String> playerNames = new ArrayList<>();
+  private final MessageType[] mixTable;
+
+  private ScheduledThreadPoolExecutor timerExecutor;
+  private ExecutorService bungeeWorkerPool;
+  private ExecutorService spigotWorkerPool;
+  private ResponseConsumerMap bungeeResponseConsumerMap;
+  private FlushStatistics bungeeFlushStatistics;
+  private SockExchangeServer sockExchangeServer;
+  private volatile boolean running;
+
+  public static void main(String[] args) throws Exception
+  {
+    new LoadGenerator(LoadTestSettings.parse(args)).run();
+  }
+
+  LoadGenerator(LoadTestSettings settings)
+  {
+    this.settings = settings;
+    this.basicLogger = new JulBasicLogger(Logger.getLogger("SockExchange-LoadTest"), false);
+
+    // Expand the weights into a table, so picking a message type is one random index
+    List<MessageType> table = new ArrayList<>();
+    for (Map.Entry<MessageType, Integer> entry : settings.mix.entrySet())
+    {
+      table.addAll(Collections.nCopies(entry.getValue(), entry.getKey()));
+    }
+    this.mixTable = table.toArray(new MessageType[0]);
+  }
+
+  void run() throws Exception
+  {
+    try
+    {
+      startProxy();
+      startServers();
+      awaitConnections();
+      runLoad();
+    }
+    finally
+    {
+      shutdown();
+    }
+  }
+
+  private void startProxy() throws Exception
+  {
+    ChannelSettings channelSettings = newChannelSettings();
+    WorkerPoolSettings workerPoolSettings = new WorkerPoolSettings();
+
+    bungeeWorkerPool = workerPoolSettings.newWorkerPool(new ThreadFactoryBuilder()
+      .setNameFormat("SockExchange-Bungee-Worker-Thread-%d").build());
+    AwaitableExecutor awaitableExecutor = new AwaitableExecutor(bungeeWorkerPool);
+
+    ReceivedMessageNotifier messageNotifier = new ReceivedMessageNotifier(awaitableExecutor);
+    bungeeResponseConsumerMap = new ResponseConsumerMap(awaitableExecutor);
+    StubBungeeTieIn bungeeTieIn = new StubBungeeTieIn(REGISTRATION_PASSWORD);
+    SockExchangeMetrics metrics = new SockExchangeMetrics();
+
+    for (int i = 0; i < settings.servers; i++)
+    {
+      String serverName = "Server-" + i;
+      BungeeToSpigotConnection connection = new BungeeToSpigotConnection(serverName,
+        awaitableExecutor, messageNotifier, bungeeResponseConsumerMap, basicLogger, bungeeTieIn,
+        metrics);
+      connection.setWriteLimitPolicy(channelSettings.getWriteLimitPolicy(),
+        channelSettings.getWriteBlockTimeoutInMillis());
+      bungeeTieIn.addConnection(connection);
+
+      for (int j = 0; j < settings.playersPerServer; j++)
+      {
+        String playerName = "Player-" + i + "-" + j;
+        bungeeTieIn.addPlayer(playerName, serverName);
+        playerNames.add(playerName);
+      }
+    }
+
+    // Assign IDs to channels registered on Bungee (and send them to connected servers)
+    messageNotifier.addChannelListener((channelName) ->
+      BungeeToSpigotConnection.assignChannelIds(bungeeTieIn.getChannelNameTable(),
+        Collections.singletonList(channelName), bungeeTieIn.getConnections()));
+    messageNotifier.register(CHANNEL_NAME, this::onMessage);
+
+    bungeeFlushStatistics = new FlushStatistics();
+    sockExchangeServer = new SockExchangeServer(settings.port, settings.connectionThreads,
+      bungeeTieIn, channelSettings, bungeeFlushStatistics);
+    sockExchangeServer.start();
+
+    // The simulated servers share one timer and worker pool, so the threads of
+    // the load test do not grow with the number of servers
+    timerExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+      .setNameFormat("SockExchange-Timer-Thread-%d").build());
+    timerExecutor.setRemoveOnCancelPolicy(true);
+    spigotWorkerPool = workerPoolSettings.newWorkerPool(new ThreadFactoryBuilder()
+      .setNameFormat("SockExchange-Spigot-Worker-Thread-%d").build());
+
+    System.out.printf("Proxy listening on port %d (%s transport)%n", settings.port,
+      sockExchangeServer.getTransport());
+
+    for (int i = 0; i < settings.servers; i++)
+    {
+      String serverName = "Server-" + i;
+      List<String> serverPlayerNames = playerNames.subList(i * settings.playersPerServer,
+        (i + 1) * settings.playersPerServer);
+
+      servers.add(new SimulatedServer(serverName, REGISTRATION_PASSWORD, settings.port,
+        new StubSpigotTieIn(serverName, bungeeTieIn, serverPlayerNames),
+        new ScheduledExecutorServiceWrapper(timerExecutor, spigotWorkerPool),
+        new AwaitableExecutor(spigotWorkerPool), channelSettings, this::onMessage, basicLogger));
+    }
+  }
+
+  private void startServers() throws Exception
+  {
+    for (SimulatedServer server : servers)
+    {
+      server.start();
+    }
+  }
+
+  private void awaitConnections() throws InterruptedException
+  {
+    long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_IN_MILLIS;
+
+    while (!servers.stream().allMatch(SimulatedServer::hasChannel))
+    {
+      if (System.currentTimeMillis() > deadline)
+      {
+        throw new IllegalStateException("Simulated servers did not connect in time");
+      }
+
+      Thread.sleep(100);
+    }
+
+    // Give the servers time to finish registering and receive the channel IDs
+    Thread.sleep(1000);
+    System.out.printf("Connected %d simulated servers with %d players%n", servers.size(),
+      playerNames.size());
+  }
+
+  private void runLoad() throws InterruptedException
+  {
+    long intervalInNanos = settings.messagesPerSecond == 0 ? 0 :
+      TimeUnit.SECONDS.toNanos(settings.senderThreads) / settings.messagesPerSecond;
+    List<Thread> senderThreads = new ArrayList<>(settings.senderThreads);
+
+    running = true;
+    for (int i = 0; i < settings.senderThreads; i++)
+    {
+      Thread thread = new Thread(() -> runSender(intervalInNanos),
+        "SockExchange-LoadTest-Sender-" + i);
+      thread.start();
+      senderThreads.add(thread);
+    }
+
+    System.out.printf("Warming up for %d seconds%n", settings.warmupSeconds);
+    Thread.sleep(TimeUnit.SECONDS.toMillis(settings.warmupSeconds));
+
+    recorder.reset();
+    long startFlushCount = bungeeFlushStatistics.getFlushCount();
+    long startFlushMessageCount = bungeeFlushStatistics.getMessageCount();
+    long startAllocatedBytes = getAllocatedBytes();
+    long startGcCount = getGcCount();
+    long startGcTime = getGcTimeInMillis();
+    long startNanos = System.nanoTime();
+
+    System.out.printf("Measuring for %d seconds%n", settings.durationSeconds);
+    Thread.sleep(TimeUnit.SECONDS.toMillis(settings.durationSeconds));
+
+    running = false;
+    for (Thread thread : senderThreads)
+    {
+      thread.join();
+    }
+
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    long allocatedBytes = getAllocatedBytes() - startAllocatedBytes;
+    long gcCount = getGcCount() - startGcCount;
+    long gcTime = getGcTimeInMillis() - startGcTime;
+    long flushCount = bungeeFlushStatistics.getFlushCount() - startFlushCount;
+    long flushMessageCount = bungeeFlushStatistics.getMessageCount() - startFlushMessageCount;
+
+    // Let messages in flight arrive, so they are not counted as lost
+    Thread.sleep(DRAIN_TIME_IN_MILLIS);
+
+    long sent = recorder.getTotalSent();
+    System.out.println();
+    recorder.report(System.out, seconds);
+    System.out.println();
+    System.out.printf("Throughput: %.1f messages/s sent, %.1f deliveries/s%n", sent / seconds,
+      recorder.getTotalDelivered() / seconds);
+
+    if (startAllocatedBytes >= 0)
+    {
+      System.out.printf("Allocation: %.1f MB/s, %.0f bytes per sent message%n",
+        allocatedBytes / seconds / (1024 * 1024), sent == 0 ? 0.0 : (double) allocatedBytes / sent);
+    }
+    else
+    {
+      System.out.println("Allocation: not supported by this JVM");
+    }
+
+    System.out.printf("GC: %d collections, %d ms%n", gcCount, gcTime);
+    if (flushCount > 0)
+    {
+      System.out.printf("Proxy flushes: %.1f messages per flush%n",
+        (double) flushMessageCount / flushCount);
+    }
+  }
+
+  private void runSender(long intervalInNanos)
+  {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long nextNanos = System.nanoTime();
+
+    while (running)
+    {
+      long scheduledNanos;
+
+      if (intervalInNanos > 0)
+      {
+        // Messages keep their scheduled time when the sender falls behind
+        nextNanos += intervalInNanos;
+        long waitNanos = nextNanos - System.nanoTime();
+        if (waitNanos > 0)
+        {
+          LockSupport.parkNanos(waitNanos);
+        }
+        scheduledNanos = nextNanos;
+      }
+      else
+      {
+        scheduledNanos = System.nanoTime();
+      }
+
+      MessageType messageType = mixTable[random.nextInt(mixTable.length)];
+      SimulatedServer source = servers.get(random.nextInt(servers.size()));
+      send(messageType, source, scheduledNanos, random);
+    }
+  }
+
+  private void send(
+    MessageType messageType, SimulatedServer source, long scheduledNanos,
+    ThreadLocalRandom random)
+  {
+    SockExchangeApi api = source.getApi();
+    byte[] messageBytes = newMessageBytes(messageType, scheduledNanos);
+    long timeout = settings.responseTimeoutInMillis;
+
+    recorder.recordSent(messageType);
+
+    switch (messageType)
+    {
+      case TO_BUNGEE:
+        api.sendToBungee(CHANNEL_NAME, messageBytes);
+        break;
+      case TO_BUNGEE_WITH_RESPONSE:
+        api.sendToBungee(CHANNEL_NAME, messageBytes, (response) ->
+          recorder.recordResponse(messageType, scheduledNanos, response.getResponseStatus()),
+          timeout);
+        break;
+      case TO_SERVER:
+        api.sendToServer(CHANNEL_NAME, messageBytes, pickOtherServer(source, random));
+        break;
+      case TO_SERVER_WITH_RESPONSE:
+        api.sendToServer(CHANNEL_NAME, messageBytes, pickOtherServer(source, random),
+          (response) ->
+            recorder.recordResponse(messageType, scheduledNanos, response.getResponseStatus()),
+          timeout);
+        break;
+      case TO_PLAYER:
+        api.sendToServerOfPlayer(CHANNEL_NAME, messageBytes, pickPlayer(random));
+        break;
+      case TO_PLAYER_WITH_RESPONSE:
+        api.sendToServerOfPlayer(CHANNEL_NAME, messageBytes, pickPlayer(random),
+          (response) ->
+            recorder.recordResponse(messageType, scheduledNanos, response.getResponseStatus()),
+          timeout);
+        break;
+      case BROADCAST:
+        api.sendToServers(CHANNEL_NAME, messageBytes);
+        break;
+      case BROADCAST_WITH_RESPONSE:
+        api.sendToServers(CHANNEL_NAME, messageBytes, Collections.emptyList(), 0,
+          (response) ->
+            recorder.recordResponse(messageType, scheduledNanos, response.getResponseStatus()),
+          timeout);
+        break;
+    }
+  }
+
+  private void onMessage(ReceivedMessage receivedMessage)
+  {
+    ByteBuf messageBuffer = receivedMessage.getMessageBuffer();
+    long scheduledNanos = messageBuffer.getLong(0);
+    MessageType messageType = MessageType.fromOrdinal(messageBuffer.getByte(8));
+
+    recorder.recordDelivery(messageType, scheduledNanos);
+
+    if (receivedMessage.canRespond())
+    {
+      receivedMessage.respond();
+    }
+  }
+
+  private byte[] newMessageBytes(MessageType messageType, long scheduledNanos)
+  {
+    // The API assumes the bytes are not modified after sending, so every
+    // message gets its own array (as it would in a plugin)
+    byte[] messageBytes = new byte[settings.payloadSize];
+
+    for (int i = 0; i < 8; i++)
+    {
+      messageBytes[i] = (byte) (scheduledNanos >>> (56 - i * 8));
+    }
+    messageBytes[8] = (byte) messageType.ordinal();
+
+    return messageBytes;
+  }
+
+  private String pickOtherServer(SimulatedServer source, ThreadLocalRandom random)
+  {
+    SimulatedServer destination = servers.get(random.nextInt(servers.size() - 1));
+
+    // Skip over the source, so messages always go through the proxy
+    if (destination == source)
+    {
+      destination = servers.get(servers.size() - 1);
+    }
+
+    return destination.getServerName();
+  }
+
+  private String pickPlayer(ThreadLocalRandom random)
+  {
+    return playerNames.get(random.nextInt(playerNames.size()));
+  }
+
+  private ChannelSettings newChannelSettings()
+  {
+    ChannelSettings channelSettings = new ChannelSettings();
+    channelSettings.setNativeTransport(settings.nativeTransport);
+    channelSettings.setFlushConsolidation(settings.flushConsolidation);
+    return channelSettings;
+  }
+
+  private void shutdown()
+  {
+    running = false;
+
+    for (SimulatedServer server : servers)
+    {
+      server.shutdown();
+    }
+
+    if (sockExchangeServer != null)
+    {
+      sockExchangeServer.shutdown();
+    }
+
+    if (bungeeResponseConsumerMap != null)
+    {
+      bungeeResponseConsumerMap.shutdown();
+    }
+
+    if (timerExecutor != null)
+    {
+      timerExecutor.shutdownNow();
+    }
+
+    if (bungeeWorkerPool != null)
+    {
+      bungeeWorkerPool.shutdownNow();
+    }
+
+    if (spigotWorkerPool != null)
+    {
+      spigotWorkerPool.shutdownNow();
+    }
+  }
+
+  private static long getAllocatedBytes()
+  {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    if (!(threadMXBean instanceof com.sun.management.ThreadMXBean))
+    {
+      return -1;
+    }
+
+    com.sun.management.ThreadMXBean sunThreadMXBean =
+      (com.sun.management.ThreadMXBean) threadMXBean;
+
+    if (!sunThreadMXBean.isThreadAllocatedMemorySupported() ||
+      !sunThreadMXBean.isThreadAllocatedMemoryEnabled())
+    {
+      return -1;
+    }
+
+    // Threads that exit during the run take their bytes with them, which is
+    // why the pools of the load test keep their threads alive
+    long total = 0;
+    for (long allocatedBytes : sunThreadMXBean.getThreadAllocatedBytes(
+      threadMXBean.getAllThreadIds()))
+    {
+      total += Math.max(0, allocatedBytes);
+    }
+
+    return total;
+  }
+
+  private static long getGcCount()
+  {
+    long total = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+    {
+      total += Math.max(0, bean.getCollectionCount());
+    }
+    return total;
+  }
+
+  private static long getGcTimeInMillis()
+  {
+    long total = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+    {
+      total += Math.max(0, bean.getCollectionTime());
+    }
+    return total;
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.LoadTest;
+
+import com.gmail.tracebachi.SockExchange.Messages.ResponseStatus;
+import com.gmail.tracebachi.SockExchange.Utilities.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the messages of every message type and records their latencies
+ * <p>
+ * Latencies are measured from the time the message was scheduled to be sent
+ * (not the time it was actually sent), so a sender that falls behind the target
+ * rate shows up as higher latencies instead of being hidden by fewer samples.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+class LoadRecorder
+{
+  private final LatencyHistogram[] histograms = new LatencyHistogram[MessageType.values().length];
+  private final LongAdder[] sentCounts = new LongAdder[histograms.length];
+  private final LongAdder[] deliveredCounts = new LongAdder[histograms.length];
+  private final LongAdder[] failedCounts = new LongAdder[histograms.length];
+
+  LoadRecorder()
+  {
+    for (int i = 0; i < histograms.length; i++)
+    {
+      histograms[i] = new LatencyHistogram();
+      sentCounts[i] = new LongAdder();
+      deliveredCounts[i] = new LongAdder();
+      failedCounts[i] = new LongAdder();
+    }
+  }
+
+  void recordSent(MessageType messageType)
+  {
+    sentCounts[messageType.ordinal()].increment();
+  }
+
+  /**
+   * Records a message arriving at its destination
+   *
+   * @param messageType Type of the message
+   * @param scheduledNanos {@link System#nanoTime()} at which the message was scheduled
+   */
+  void recordDelivery(MessageType messageType, long scheduledNanos)
+  {
+    deliveredCounts[messageType.ordinal()].increment();
+
+    // Messages with a response are measured up to the response instead
+    if (!messageType.isWithResponse())
+    {
+      histograms[messageType.ordinal()].record(System.nanoTime() - scheduledNanos);
+    }
+  }
+
+  /**
+   * Records a response (or a failure) arriving at the sender
+   *
+   * @param messageType Type of the message
+   * @param scheduledNanos {@link System#nanoTime()} at which the message was scheduled
+   * @param responseStatus Status of the response
+   */
+  void recordResponse(MessageType messageType, long scheduledNanos, ResponseStatus responseStatus)
+  {
+    if (responseStatus.isOk())
+    {
+      histograms[messageType.ordinal()].record(System.nanoTime() - scheduledNanos);
+    }
+    else
+    {
+      failedCounts[messageType.ordinal()].increment();
+    }
+  }
+
+  long getTotalSent()
+  {
+    long total = 0;
+    for (LongAdder sentCount : sentCounts)
+    {
+      total += sentCount.sum();
+    }
+    return total;
+  }
+
+  long getTotalDelivered()
+  {
+    long total = 0;
+    for (LongAdder deliveredCount : deliveredCounts)
+    {
+      total += deliveredCount.sum();
+    }
+    return total;
+  }
+
+  void reset()
+  {
+    for (int i = 0; i < histograms.length; i++)
+    {
+      histograms[i].reset();
+      sentCounts[i].reset();
+      deliveredCounts[i].reset();
+      failedCounts[i].reset();
+    }
+  }
+
+  void report(PrintStream out, double seconds)
+  {
+    out.printf("%-20s %10s %10s %8s %12s %10s %10s %10s %10s%n", "type", "sent",
+      "delivered", "failed", "sent/s", "p50(us)", "p99(us)", "p99.9(us)", "max(us)");
+
+    for (MessageType messageType : MessageType.values())
+    {
+      int i = messageType.ordinal();
+      long sent = sentCounts[i].sum();
+
+      if (sent == 0)
+      {
+        continue;
+      }
+
+      LatencyHistogram histogram = histograms[i];
+      out.printf("%-20s %10d %10d %8d %12.1f %10.1f %10.1f %10.1f %10.1f%n",
+        messageType.getMixName(), sent, deliveredCounts[i].sum(), failedCounts[i].sum(),
+        sent / seconds, toMicros(histogram.getValueAtPercentile(50)),
+        toMicros(histogram.getValueAtPercentile(99)),
+        toMicros(histogram.getValueAtPercentile(99.9)), toMicros(histogram.getMax()));
+    }
+  }
+
+  private static double toMicros(long nanos)
+  {
+    return nanos / 1000.0;
+  }
+}
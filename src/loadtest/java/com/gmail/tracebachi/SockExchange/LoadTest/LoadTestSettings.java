@@ -0,0 +1,150 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.LoadTest;
+
+import com.google.common.base.Preconditions;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Options of a load test which are parsed from arguments in the form
+ * {@code --name=value}
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+class LoadTestSettings
+{
+  static final String DEFAULT_MIX = "to-server=4,to-server-response=2,to-player=2," +
+    "to-player-response=1,to-bungee=1,to-bungee-response=1,broadcast=1";
+
+  int port = 20555;
+  int connectionThreads = 2;
+  boolean nativeTransport = true;
+  boolean flushConsolidation = false;
+  int servers = 8;
+  int playersPerServer = 100;
+  int senderThreads = 4;
+  int messagesPerSecond = 20000;
+  int payloadSize = 256;
+  int warmupSeconds = 5;
+  int durationSeconds = 30;
+  long responseTimeoutInMillis = 5000;
+  Map<MessageType, Integer> mix = parseMix(DEFAULT_MIX);
+
+  static LoadTestSettings parse(String[] args)
+  {
+    LoadTestSettings settings = new LoadTestSettings();
+
+    for (String arg : args)
+    {
+      int separator = arg.indexOf('=');
+      Preconditions.checkArgument(arg.startsWith("--") && separator > 2,
+        "Expected an argument in the form --name=value: " + arg);
+
+      String name = arg.substring(2, separator);
+      String value = arg.substring(separator + 1);
+
+      switch (name)
+      {
+        case "port":
+          settings.port = Integer.parseInt(value);
+          break;
+        case "connection-threads":
+          settings.connectionThreads = Integer.parseInt(value);
+          break;
+        case "native-transport":
+          settings.nativeTransport = Boolean.parseBoolean(value);
+          break;
+        case "flush-consolidation":
+          settings.flushConsolidation = Boolean.parseBoolean(value);
+          break;
+        case "servers":
+          settings.servers = Integer.parseInt(value);
+          break;
+        case "players-per-server":
+          settings.playersPerServer = Integer.parseInt(value);
+          break;
+        case "sender-threads":
+          settings.senderThreads = Integer.parseInt(value);
+          break;
+        case "rate":
+          settings.messagesPerSecond = Integer.parseInt(value);
+          break;
+        case "payload":
+          settings.payloadSize = Integer.parseInt(value);
+          break;
+        case "warmup":
+          settings.warmupSeconds = Integer.parseInt(value);
+          break;
+        case "duration":
+          settings.durationSeconds = Integer.parseInt(value);
+          break;
+        case "response-timeout":
+          settings.responseTimeoutInMillis = Long.parseLong(value);
+          break;
+        case "mix":
+          settings.mix = parseMix(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+
+    Preconditions.checkArgument(settings.servers >= 2, "servers must be >= 2");
+    Preconditions.checkArgument(settings.playersPerServer >= 1, "players-per-server must be >= 1");
+    Preconditions.checkArgument(settings.senderThreads >= 1, "sender-threads must be >= 1");
+    Preconditions.checkArgument(settings.messagesPerSecond >= 0, "rate must be >= 0");
+    Preconditions.checkArgument(settings.payloadSize >= LoadGenerator.HEADER_SIZE,
+      "payload must be >= " + LoadGenerator.HEADER_SIZE);
+    Preconditions.checkArgument(settings.durationSeconds >= 1, "duration must be >= 1");
+    Preconditions.checkArgument(settings.warmupSeconds >= 0, "warmup must be >= 0");
+    Preconditions.checkArgument(settings.responseTimeoutInMillis > 0,
+      "response-timeout must be > 0");
+
+    return settings;
+  }
+
+  /**
+   * @param mix Comma separated weights in the form {@code type=weight}
+   *
+   * @return Map of message types to their weights
+   */
+  static Map<MessageType, Integer> parseMix(String mix)
+  {
+    Map<MessageType, Integer> result = new EnumMap<>(MessageType.class);
+
+    for (String entry : mix.split(","))
+    {
+      String[] nameAndWeight = entry.trim().split("=");
+      Preconditions.checkArgument(nameAndWeight.length == 2,
+        "Expected a mix entry in the form type=weight: " + entry);
+
+      int weight = Integer.parseInt(nameAndWeight[1].trim());
+      Preconditions.checkArgument(weight >= 0, "Mix weights must be >= 0: " + entry);
+
+      if (weight > 0)
+      {
+        result.put(MessageType.fromMixName(nameAndWeight[0].trim()), weight);
+      }
+    }
+
+    Preconditions.checkArgument(!result.isEmpty(), "The mix has no message types");
+    return result;
+  }
+}
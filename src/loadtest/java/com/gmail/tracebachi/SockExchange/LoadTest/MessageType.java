@@ -0,0 +1,81 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.LoadTest;
+
+/**
+ * Kinds of messages that can be part of the message mix of a load test
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+enum MessageType
+{
+  TO_BUNGEE("to-bungee", false),
+  TO_BUNGEE_WITH_RESPONSE("to-bungee-response", true),
+  TO_SERVER("to-server", false),
+  TO_SERVER_WITH_RESPONSE("to-server-response", true),
+  TO_PLAYER("to-player", false),
+  TO_PLAYER_WITH_RESPONSE("to-player-response", true),
+  BROADCAST("broadcast", false),
+  BROADCAST_WITH_RESPONSE("broadcast-response", true);
+
+  private static final MessageType[] VALUES = values();
+
+  private final String mixName;
+  private final boolean withResponse;
+
+  MessageType(String mixName, boolean withResponse)
+  {
+    this.mixName = mixName;
+    this.withResponse = withResponse;
+  }
+
+  /**
+   * @return Name of the message type in the mix option
+   */
+  String getMixName()
+  {
+    return mixName;
+  }
+
+  /**
+   * @return True if the sender waits for a response (and the latency is measured
+   * up to the response) or false if the latency is measured up to the delivery
+   */
+  boolean isWithResponse()
+  {
+    return withResponse;
+  }
+
+  static MessageType fromMixName(String mixName)
+  {
+    for (MessageType messageType : VALUES)
+    {
+      if (messageType.mixName.equalsIgnoreCase(mixName))
+      {
+        return messageType;
+      }
+    }
+
+    throw new IllegalArgumentException("Unknown message type in mix: " + mixName);
+  }
+
+  static MessageType fromOrdinal(int ordinal)
+  {
+    return VALUES[ordinal];
+  }
+}
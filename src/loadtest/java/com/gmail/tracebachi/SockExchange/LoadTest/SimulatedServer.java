@@ -0,0 +1,108 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.LoadTest;
+
+import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessage;
+import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseConsumerMap;
+import com.gmail.tracebachi.SockExchange.Metrics.SockExchangeMetrics;
+import com.gmail.tracebachi.SockExchange.Netty.ChannelSettings;
+import com.gmail.tracebachi.SockExchange.Netty.FlushStatistics;
+import com.gmail.tracebachi.SockExchange.Netty.SockExchangeClient;
+import com.gmail.tracebachi.SockExchange.Netty.SpigotToBungeeConnection;
+import com.gmail.tracebachi.SockExchange.Scheduler.AwaitableExecutor;
+import com.gmail.tracebachi.SockExchange.Spigot.SockExchangeApi;
+import com.gmail.tracebachi.SockExchange.Spigot.SpigotTieIn;
+import com.gmail.tracebachi.SockExchange.Utilities.BasicLogger;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Spigot server simulated by the pieces the Spigot plugin creates on enable
+ * (a message notifier, a response map, a connection and a client) without the
+ * commands and listeners of the plugin
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+class SimulatedServer
+{
+  private final String serverName;
+  private final ResponseConsumerMap responseConsumerMap;
+  private final SpigotToBungeeConnection connection;
+  private final SockExchangeApi api;
+  private final SockExchangeClient client;
+
+  SimulatedServer(
+    String serverName, String registrationPassword, int port, SpigotTieIn spigotTieIn,
+    ScheduledExecutorService scheduledExecutorService, AwaitableExecutor awaitableExecutor,
+    ChannelSettings channelSettings, Consumer<ReceivedMessage> channelConsumer,
+    BasicLogger basicLogger)
+  {
+    this.serverName = serverName;
+
+    // Register the channel before connecting, so it is sent with the registration
+    ReceivedMessageNotifier messageNotifier = new ReceivedMessageNotifier(awaitableExecutor);
+    messageNotifier.register(LoadGenerator.CHANNEL_NAME, channelConsumer);
+
+    responseConsumerMap = new ResponseConsumerMap(awaitableExecutor);
+    SockExchangeMetrics metrics = new SockExchangeMetrics();
+
+    connection = new SpigotToBungeeConnection(serverName, registrationPassword,
+      awaitableExecutor, messageNotifier, responseConsumerMap, basicLogger, metrics);
+    connection.setWriteLimitPolicy(channelSettings.getWriteLimitPolicy(),
+      channelSettings.getWriteBlockTimeoutInMillis());
+
+    FlushStatistics flushStatistics = new FlushStatistics();
+
+    // The constructor of the API is only visible to the plugin (and subclasses)
+    api = new SockExchangeApi(spigotTieIn, scheduledExecutorService, messageNotifier,
+      connection, flushStatistics, metrics)
+    {
+    };
+
+    client = new SockExchangeClient("127.0.0.1", port, connection, channelSettings,
+      flushStatistics);
+  }
+
+  String getServerName()
+  {
+    return serverName;
+  }
+
+  SockExchangeApi getApi()
+  {
+    return api;
+  }
+
+  boolean hasChannel()
+  {
+    return connection.hasChannel();
+  }
+
+  void start() throws Exception
+  {
+    client.start();
+  }
+
+  void shutdown()
+  {
+    client.shutdown();
+    responseConsumerMap.shutdown();
+  }
+}
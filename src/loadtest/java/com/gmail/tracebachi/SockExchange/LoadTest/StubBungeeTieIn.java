@@ -0,0 +1,131 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.LoadTest;
+
+import com.gmail.tracebachi.SockExchange.Bungee.BungeeTieIn;
+import com.gmail.tracebachi.SockExchange.Netty.BungeeToSpigotConnection;
+import com.gmail.tracebachi.SockExchange.Netty.ChannelNameTable;
+import com.gmail.tracebachi.SockExchange.SpigotServerInfo;
+import com.gmail.tracebachi.SockExchange.Utilities.CaseInsensitiveMap;
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BungeeTieIn of the embedded proxy which knows the simulated servers and the
+ * server every simulated player is on
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+class StubBungeeTieIn implements BungeeTieIn
+{
+  private final String registrationPassword;
+  private final ChannelNameTable channelNameTable = new ChannelNameTable();
+  private final CaseInsensitiveMap<BungeeToSpigotConnection> spigotConnectionMap =
+    new CaseInsensitiveMap<>(new ConcurrentHashMap<>());
+  private final CaseInsensitiveMap<String> playerServerMap =
+    new CaseInsensitiveMap<>(new ConcurrentHashMap<>());
+
+  StubBungeeTieIn(String registrationPassword)
+  {
+    this.registrationPassword = Preconditions.checkNotNull(registrationPassword,
+      "registrationPassword");
+  }
+
+  void addConnection(BungeeToSpigotConnection connection)
+  {
+    spigotConnectionMap.put(connection.getServerName(), connection);
+  }
+
+  void addPlayer(String playerName, String serverName)
+  {
+    playerServerMap.put(playerName, serverName);
+  }
+
+  @Override
+  public boolean doesRegistrationPasswordMatch(String password)
+  {
+    return registrationPassword.equals(password);
+  }
+
+  @Override
+  public BungeeToSpigotConnection getConnection(String spigotServerName)
+  {
+    return spigotConnectionMap.get(spigotServerName);
+  }
+
+  @Override
+  public Collection<BungeeToSpigotConnection> getConnections()
+  {
+    return Collections.unmodifiableCollection(spigotConnectionMap.values());
+  }
+
+  @Override
+  public ChannelNameTable getChannelNameTable()
+  {
+    return channelNameTable;
+  }
+
+  @Override
+  public SpigotServerInfo getServerInfo(String serverName)
+  {
+    BungeeToSpigotConnection connection = spigotConnectionMap.get(serverName);
+
+    if (connection == null)
+    {
+      return null;
+    }
+
+    return new SpigotServerInfo(connection.getServerName(), connection.hasChannel(), false);
+  }
+
+  @Override
+  public List<SpigotServerInfo> getServerInfos()
+  {
+    List<SpigotServerInfo> result = new ArrayList<>(spigotConnectionMap.size());
+
+    for (BungeeToSpigotConnection connection : spigotConnectionMap.values())
+    {
+      result.add(new SpigotServerInfo(connection.getServerName(), connection.hasChannel(), false));
+    }
+
+    return result;
+  }
+
+  @Override
+  public String getServerNameForPlayer(String playerName)
+  {
+    return playerServerMap.get(playerName);
+  }
+
+  @Override
+  public void sendChatMessagesToPlayer(String playerName, List<String> messages)
+  {
+    // Simulated players have no chat
+  }
+
+  @Override
+  public void sendChatMessagesToConsole(List<String> messages)
+  {
+    // The load test only reports its own results
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.LoadTest;
+
+import com.gmail.tracebachi.SockExchange.Bungee.BungeeTieIn;
+import com.gmail.tracebachi.SockExchange.OnlinePlayerInfo;
+import com.gmail.tracebachi.SockExchange.SpigotServerInfo;
+import com.gmail.tracebachi.SockExchange.Spigot.SpigotTieIn;
+import com.gmail.tracebachi.SockExchange.Utilities.CaseInsensitiveMap;
+import com.google.common.base.Preconditions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * SpigotTieIn of a simulated server which answers server lookups from the
+ * embedded proxy and knows the simulated players on the server
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+class StubSpigotTieIn implements SpigotTieIn
+{
+  private final String serverName;
+  private final BungeeTieIn bungeeTieIn;
+  private final CaseInsensitiveMap<OnlinePlayerInfo> playerMap =
+    new CaseInsensitiveMap<>(new HashMap<>());
+
+  StubSpigotTieIn(String serverName, BungeeTieIn bungeeTieIn, List<String> playerNames)
+  {
+    this.serverName = Preconditions.checkNotNull(serverName, "serverName");
+    this.bungeeTieIn = Preconditions.checkNotNull(bungeeTieIn, "bungeeTieIn");
+
+    for (String playerName : playerNames)
+    {
+      UUID playerUuid = UUID.nameUUIDFromBytes(playerName.getBytes(StandardCharsets.UTF_8));
+      playerMap.put(playerName, new OnlinePlayerInfo(playerName, playerUuid, serverName));
+    }
+  }
+
+  @Override
+  public SpigotServerInfo getServerInfo(String serverName)
+  {
+    return bungeeTieIn.getServerInfo(serverName);
+  }
+
+  @Override
+  public Collection<SpigotServerInfo> getServerInfos()
+  {
+    return bungeeTieIn.getServerInfos();
+  }
+
+  @Override
+  public Set<String> getOnlinePlayerNames()
+  {
+    return Collections.unmodifiableSet(playerMap.keySet());
+  }
+
+  @Override
+  public OnlinePlayerInfo getOnlinePlayer(String playerName)
+  {
+    return playerMap.get(playerName);
+  }
+
+  @Override
+  public OnlinePlayerInfo getOnlinePlayer(UUID playerUuid)
+  {
+    for (OnlinePlayerInfo playerInfo : playerMap.values())
+    {
+      if (playerInfo.getPlayerUuid().equals(playerUuid))
+      {
+        return playerInfo;
+      }
+    }
+
+    return null;
+  }
+
+  @Override
+  public Collection<OnlinePlayerInfo> getOnlinePlayers()
+  {
+    return Collections.unmodifiableCollection(playerMap.values());
+  }
+
+  @Override
+  public void sendChatMessagesToConsole(List<String> messages)
+  {
+    // The load test only reports its own results
+  }
+
+  @Override
+  public void isPlayerOnServer(String playerName, Consumer<Boolean> consumer)
+  {
+    consumer.accept(serverName.equalsIgnoreCase(bungeeTieIn.getServerNameForPlayer(playerName)));
+  }
+}
@@ -18,6 +18,7 @@
 package com.gmail.tracebachi.SockExchange.Bungee;
 
 import com.gmail.tracebachi.SockExchange.Netty.BungeeToSpigotConnection;
+import com.gmail.tracebachi.SockExchange.Netty.ChannelNameTable;
 import com.gmail.tracebachi.SockExchange.SpigotServerInfo;
 
 import java.util.Collection;
@@ -34,6 +35,8 @@ public interface BungeeTieIn
 
   Collection<BungeeToSpigotConnection> getConnections();
 
+  ChannelNameTable getChannelNameTable();
+
   SpigotServerInfo getServerInfo(String serverName);
 
   List<SpigotServerInfo> getServerInfos();
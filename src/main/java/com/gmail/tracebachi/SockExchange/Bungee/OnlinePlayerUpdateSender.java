@@ -17,69 +17,291 @@
  */
 package com.gmail.tracebachi.SockExchange.Bungee;
 
+import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessage;
 import com.gmail.tracebachi.SockExchange.SockExchangeConstants.Channels;
+import com.gmail.tracebachi.SockExchange.SockExchangeConstants.PlayerUpdates;
+import com.gmail.tracebachi.SockExchange.Utilities.CaseInsensitiveMap;
 import com.gmail.tracebachi.SockExchange.Utilities.Registerable;
 import com.google.common.base.Preconditions;
 import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.connection.Server;
+import net.md_5.bungee.api.event.PlayerDisconnectEvent;
+import net.md_5.bungee.api.event.PostLoginEvent;
+import net.md_5.bungee.api.event.ServerConnectedEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.event.EventHandler;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
+ * Sends the online players (with their UUIDs and servers) to every server as a
+ * stream of join, server and leave deltas (batched every delta period) and a
+ * full snapshot every snapshot period
+ * <p>
+ * Every delta has the next sequence number of the stream and every snapshot has
+ * the sequence number of the last delta, so a server that sees a gap (or a new
+ * stream after a restart) asks for a snapshot on
+ * {@link Channels#PLAYER_UPDATE_RESYNC}. Messages are sent while holding the
+ * lock of this sender, so each server receives them in sequence order.
+ * <p>
+ * Snapshots are built from the players known to this sender, which are updated
+ * as deltas are sent, instead of from the players of the proxy. BungeeCord fires
+ * the server connected and disconnect events before it updates the player, so a
+ * snapshot of the proxy could undo the delta that was sent right before it.
+ *
  * @author GeeItsZee (tracebachi@gmail.com)
  */
-public class OnlinePlayerUpdateSender implements Registerable
+public class OnlinePlayerUpdateSender implements Registerable, Listener
 {
   private final SockExchangePlugin plugin;
   private final SockExchangeApi api;
-  private final long updatePeriodMillis;
-  private ScheduledFuture<?> updateFuture;
+  private final long deltaPeriodMillis;
+  private final long snapshotPeriodMillis;
+  private final long streamId = ThreadLocalRandom.current().nextLong();
+  private final ConcurrentLinkedQueue<PlayerChange> pendingChanges = new ConcurrentLinkedQueue<>();
+  private final ArrayList<PlayerChange> drainedChanges = new ArrayList<>();
+  private final CaseInsensitiveMap<OnlinePlayer> onlinePlayers =
+    new CaseInsensitiveMap<>(new HashMap<>());
+  private final Consumer<ReceivedMessage> onResyncChannelMessage;
+  private long sequence;
+  private ScheduledFuture<?> deltaFuture;
+  private ScheduledFuture<?> snapshotFuture;
 
   public OnlinePlayerUpdateSender(
-    SockExchangePlugin plugin, SockExchangeApi api, long updatePeriodMillis)
+    SockExchangePlugin plugin, SockExchangeApi api, long deltaPeriodMillis,
+    long snapshotPeriodMillis)
   {
     Preconditions.checkNotNull(plugin, "plugin");
     Preconditions.checkNotNull(api, "api");
-    Preconditions.checkArgument(updatePeriodMillis > 0, "updatePeriodMillis");
+    Preconditions.checkArgument(deltaPeriodMillis > 0, "deltaPeriodMillis");
+    Preconditions.checkArgument(snapshotPeriodMillis > 0, "snapshotPeriodMillis");
 
     this.plugin = plugin;
     this.api = api;
-    this.updatePeriodMillis = updatePeriodMillis;
+    this.deltaPeriodMillis = deltaPeriodMillis;
+    this.snapshotPeriodMillis = snapshotPeriodMillis;
+    this.onResyncChannelMessage = this::onResyncChannelMessage;
   }
 
   @Override
   public void register()
   {
-    updateFuture = api.getScheduledExecutorService().scheduleAtFixedRate(
-      this::sendPlayerUpdate, updatePeriodMillis, updatePeriodMillis,
+    plugin.getProxy().getPluginManager().registerListener(plugin, this);
+    addConnectedPlayers();
+    api.getMessageNotifier().register(Channels.PLAYER_UPDATE_RESYNC, onResyncChannelMessage);
+
+    deltaFuture = api.getScheduledExecutorService().scheduleAtFixedRate(
+      this::sendDelta, deltaPeriodMillis, deltaPeriodMillis,
+      TimeUnit.MILLISECONDS);
+    snapshotFuture = api.getScheduledExecutorService().scheduleAtFixedRate(
+      () -> sendSnapshot(null), snapshotPeriodMillis, snapshotPeriodMillis,
       TimeUnit.MILLISECONDS);
   }
 
   @Override
   public void unregister()
   {
-    if (updateFuture != null)
+    if (deltaFuture != null)
     {
-      updateFuture.cancel(false);
-      updateFuture = null;
+      deltaFuture.cancel(false);
+      deltaFuture = null;
     }
+
+    if (snapshotFuture != null)
+    {
+      snapshotFuture.cancel(false);
+      snapshotFuture = null;
+    }
+
+    api.getMessageNotifier().unregister(Channels.PLAYER_UPDATE_RESYNC, onResyncChannelMessage);
+    plugin.getProxy().getPluginManager().unregisterListener(this);
   }
 
-  private void sendPlayerUpdate()
+  @EventHandler
+  public void onPostLogin(PostLoginEvent event)
   {
-    ByteArrayDataOutput out = ByteStreams.newDataOutput(1024);
-    Collection<ProxiedPlayer> players = plugin.getProxy().getPlayers();
+    ProxiedPlayer player = event.getPlayer();
+    pendingChanges.add(new PlayerChange(PlayerUpdates.JOIN, player.getName(),
+      player.getUniqueId(), null));
+  }
 
-    out.writeInt(players.size());
+  @EventHandler
+  public void onServerConnected(ServerConnectedEvent event)
+  {
+    pendingChanges.add(new PlayerChange(PlayerUpdates.SERVER, event.getPlayer().getName(),
+      null, event.getServer().getInfo().getName()));
+  }
+
+  @EventHandler
+  public void onPlayerDisconnect(PlayerDisconnectEvent event)
+  {
+    ProxiedPlayer player = event.getPlayer();
+    pendingChanges.add(new PlayerChange(PlayerUpdates.LEAVE, player.getName(),
+      player.getUniqueId(), null));
+  }
 
-    for (ProxiedPlayer proxiedPlayer : players)
+  /**
+   * Adds the players that are already connected (if the plugin is reloaded)
+   * <p>
+   * The listener is registered first, so the deltas of players that join or
+   * leave meanwhile are applied after them.
+   */
+  private synchronized void addConnectedPlayers()
+  {
+    for (ProxiedPlayer proxiedPlayer : plugin.getProxy().getPlayers())
     {
-      out.writeUTF(proxiedPlayer.getName());
+      Server server = proxiedPlayer.getServer();
+      String serverName = server == null ? "" : server.getInfo().getName();
+
+      onlinePlayers.put(proxiedPlayer.getName(), new OnlinePlayer(proxiedPlayer.getName(),
+        proxiedPlayer.getUniqueId(), serverName));
+    }
+  }
+
+  private void onResyncChannelMessage(ReceivedMessage receivedMessage)
+  {
+    String serverName = receivedMessage.getDataInput().readUTF();
+
+    sendSnapshot(serverName);
+  }
+
+  private synchronized void sendDelta()
+  {
+    PlayerChange change;
+    while ((change = pendingChanges.poll()) != null)
+    {
+      drainedChanges.add(change);
+    }
+
+    if (drainedChanges.isEmpty())
+    {
+      return;
+    }
+
+    ByteArrayDataOutput out = ByteStreams.newDataOutput(32 + drainedChanges.size() * 40);
+    out.writeByte(PlayerUpdates.DELTA);
+    out.writeLong(streamId);
+    out.writeLong(++sequence);
+    out.writeInt(drainedChanges.size());
+
+    for (PlayerChange drainedChange : drainedChanges)
+    {
+      applyChange(drainedChange);
+
+      out.writeByte(drainedChange.type);
+      out.writeUTF(drainedChange.playerName);
+
+      if (drainedChange.type == PlayerUpdates.JOIN || drainedChange.type == PlayerUpdates.LEAVE)
+      {
+        out.writeLong(drainedChange.playerUuid.getMostSignificantBits());
+        out.writeLong(drainedChange.playerUuid.getLeastSignificantBits());
+      }
+      else if (drainedChange.type == PlayerUpdates.SERVER)
+      {
+        out.writeUTF(drainedChange.serverName);
+      }
     }
 
+    drainedChanges.clear();
     api.sendToServers(Channels.PLAYER_UPDATE, out.toByteArray());
   }
+
+  /**
+   * @param serverName Name of the server to send the snapshot to or null to
+   * send it to every server
+   */
+  private synchronized void sendSnapshot(String serverName)
+  {
+    // Changes that happened before the snapshot are sent first, so the
+    // sequence number of the snapshot covers them
+    sendDelta();
+
+    ByteArrayDataOutput out = ByteStreams.newDataOutput(32 + onlinePlayers.size() * 48);
+    out.writeByte(PlayerUpdates.SNAPSHOT);
+    out.writeLong(streamId);
+    out.writeLong(sequence);
+    out.writeInt(onlinePlayers.size());
+
+    for (OnlinePlayer onlinePlayer : onlinePlayers.values())
+    {
+      out.writeUTF(onlinePlayer.playerName);
+      out.writeLong(onlinePlayer.playerUuid.getMostSignificantBits());
+      out.writeLong(onlinePlayer.playerUuid.getLeastSignificantBits());
+      out.writeUTF(onlinePlayer.serverName);
+    }
+
+    if (serverName == null)
+    {
+      api.sendToServers(Channels.PLAYER_UPDATE, out.toByteArray());
+    }
+    else
+    {
+      api.sendToServer(Channels.PLAYER_UPDATE, out.toByteArray(), serverName);
+    }
+  }
+
+  private void applyChange(PlayerChange change)
+  {
+    if (change.type == PlayerUpdates.JOIN)
+    {
+      onlinePlayers.put(change.playerName,
+        new OnlinePlayer(change.playerName, change.playerUuid, ""));
+    }
+    else if (change.type == PlayerUpdates.SERVER)
+    {
+      OnlinePlayer onlinePlayer = onlinePlayers.get(change.playerName);
+      if (onlinePlayer != null)
+      {
+        onlinePlayer.serverName = change.serverName;
+      }
+    }
+    else if (change.type == PlayerUpdates.LEAVE)
+    {
+      // A player kicked by a login with the same name leaves after the new player joined
+      OnlinePlayer onlinePlayer = onlinePlayers.get(change.playerName);
+      if (onlinePlayer != null && onlinePlayer.playerUuid.equals(change.playerUuid))
+      {
+        onlinePlayers.remove(change.playerName);
+      }
+    }
+  }
+
+  private static class OnlinePlayer
+  {
+    private final String playerName;
+    private final UUID playerUuid;
+    private String serverName;
+
+    private OnlinePlayer(String playerName, UUID playerUuid, String serverName)
+    {
+      this.playerName = playerName;
+      this.playerUuid = playerUuid;
+      this.serverName = serverName;
+    }
+  }
+
+  private static class PlayerChange
+  {
+    private final byte type;
+    private final String playerName;
+    private final UUID playerUuid;
+    private final String serverName;
+
+    private PlayerChange(byte type, String playerName, UUID playerUuid, String serverName)
+    {
+      this.type = type;
+      this.playerName = playerName;
+      this.playerUuid = playerUuid;
+      this.serverName = serverName;
+    }
+  }
 }
@@ -17,9 +17,13 @@
  */
 package com.gmail.tracebachi.SockExchange.Bungee;
 
+import com.gmail.tracebachi.SockExchange.Messages.MulticastResponse;
 import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseFuture;
 import com.gmail.tracebachi.SockExchange.Messages.ResponseMessage;
+import com.gmail.tracebachi.SockExchange.Metrics.SockExchangeMetrics;
 import com.gmail.tracebachi.SockExchange.Netty.BungeeToSpigotConnection;
+import com.gmail.tracebachi.SockExchange.Netty.FlushStatistics;
 import com.gmail.tracebachi.SockExchange.SockExchangeConstants.Channels;
 import com.gmail.tracebachi.SockExchange.SpigotServerInfo;
 import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
@@ -27,9 +31,12 @@ import com.google.common.base.Preconditions;
 import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 
@@ -57,18 +64,25 @@ public class SockExchangeApi
   private final BungeeTieIn bungeeTieIn;
   private final ScheduledExecutorService scheduledExecutorService;
   private final ReceivedMessageNotifier messageNotifier;
+  private final FlushStatistics flushStatistics;
+  private final SockExchangeMetrics metrics;
 
   protected SockExchangeApi(
     BungeeTieIn bungeeTieIn, ScheduledExecutorService scheduledExecutorService,
-    ReceivedMessageNotifier messageNotifier)
+    ReceivedMessageNotifier messageNotifier, FlushStatistics flushStatistics,
+    SockExchangeMetrics metrics)
   {
     Preconditions.checkNotNull(bungeeTieIn, "bungeeTieIn");
     Preconditions.checkNotNull(scheduledExecutorService, "scheduledExecutorService");
     Preconditions.checkNotNull(messageNotifier, "messageNotifier");
+    Preconditions.checkNotNull(flushStatistics, "flushStatistics");
+    Preconditions.checkNotNull(metrics, "metrics");
 
     this.bungeeTieIn = bungeeTieIn;
     this.scheduledExecutorService = scheduledExecutorService;
     this.messageNotifier = messageNotifier;
+    this.flushStatistics = flushStatistics;
+    this.metrics = metrics;
   }
 
   /**
@@ -92,7 +106,24 @@ public class SockExchangeApi
   }
 
   /**
-   * @return {@link ScheduledExecutorService} managed by SockExchange
+   * Checks if messages can be sent to a server without exceeding the write limit
+   * of its connection, which plugins can use to throttle what they send
+   *
+   * @param serverName Name of the server to check
+   *
+   * @return True if the server is online and its connection is writable or false if not
+   */
+  public boolean isWritable(String serverName)
+  {
+    BungeeToSpigotConnection connection = bungeeTieIn.getConnection(serverName);
+
+    return connection != null && connection.isWritable();
+  }
+
+  /**
+   * @return {@link ScheduledExecutorService} managed by SockExchange whose
+   * delayed and periodic tasks run on a single timer thread (keep them short)
+   * and whose other tasks run on the worker pool
    */
   public ScheduledExecutorService getScheduledExecutorService()
   {
@@ -108,6 +139,24 @@ public class SockExchangeApi
     return messageNotifier;
   }
 
+  /**
+   * @return {@link FlushStatistics} of SockExchange connections (which are only
+   * counted if flush consolidation is enabled)
+   */
+  public FlushStatistics getFlushStatistics()
+  {
+    return flushStatistics;
+  }
+
+  /**
+   * @return {@link SockExchangeMetrics} of the channels, connections, responses
+   * and executors of SockExchange
+   */
+  public SockExchangeMetrics getMetrics()
+  {
+    return metrics;
+  }
+
   /**
    * Sends bytes to one server (if online)
    * <p>
@@ -145,6 +194,51 @@ public class SockExchangeApi
     connection.sendToServer(channelName, messageBytes, consumer, timeoutInMillis);
   }
 
+  /**
+   * Sends bytes to one server (if online) and returns a future of the response
+   * <p>
+   * To avoid extra memory usage, the API assumes the following parameters
+   * are not modified after this method is called: messageBytes
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param serverName Name of the server to send to
+   * @param timeoutInMillis Milliseconds to wait for a response before completing with a timeout response
+   *
+   * @return Future which completes on the SockExchange executor with the response
+   * (or a failure) and removes the pending response if it is cancelled
+   */
+  public CompletableFuture<ResponseMessage> sendToServer(
+    String channelName, byte[] messageBytes, String serverName, long timeoutInMillis)
+  {
+    return sendToServer(channelName, messageBytes, serverName, timeoutInMillis, null);
+  }
+
+  /**
+   * Sends bytes to one server (if online) and returns a future of the response
+   * <p>
+   * To avoid extra memory usage, the API assumes the following parameters
+   * are not modified after this method is called: messageBytes
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param serverName Name of the server to send to
+   * @param timeoutInMillis Milliseconds to wait for a response before completing with a timeout response
+   * @param completionExecutor Executor to complete the future on (such as one that
+   * runs tasks on the main thread) or null for the SockExchange executor
+   *
+   * @return Future which completes with the response (or a failure) and removes
+   * the pending response if it is cancelled
+   */
+  public CompletableFuture<ResponseMessage> sendToServer(
+    String channelName, byte[] messageBytes, String serverName, long timeoutInMillis,
+    Executor completionExecutor)
+  {
+    ResponseFuture future = new ResponseFuture(completionExecutor);
+    sendToServer(channelName, messageBytes, serverName, future, timeoutInMillis);
+    return future;
+  }
+
   /**
    * Sends bytes to all online servers
    * <p>
@@ -177,30 +271,76 @@ public class SockExchangeApi
 
     if (serverNames == null || serverNames.isEmpty())
     {
-      for (BungeeToSpigotConnection connection : bungeeTieIn.getConnections())
-      {
-        connection.sendToServer(channelName, messageBytes, null, 0);
-      }
+      BungeeToSpigotConnection.sendToServers(channelName, messageBytes,
+        bungeeTieIn.getConnections(), bungeeTieIn.getChannelNameTable());
+      return;
     }
-    else
+
+    List<BungeeToSpigotConnection> connections = new ArrayList<>(serverNames.size());
+
+    for (String serverName : serverNames)
     {
-      for (String serverName : serverNames)
+      if (serverName == null || serverName.isEmpty())
+      {
+        continue;
+      }
+
+      BungeeToSpigotConnection connection = bungeeTieIn.getConnection(serverName);
+
+      if (connection == null)
       {
-        if (serverName == null || serverName.isEmpty())
-        {
-          continue;
-        }
+        continue;
+      }
+
+      connections.add(connection);
+    }
+
+    BungeeToSpigotConnection.sendToServers(channelName, messageBytes, connections,
+      bungeeTieIn.getChannelNameTable());
+  }
 
-        BungeeToSpigotConnection connection = bungeeTieIn.getConnection(serverName);
+  /**
+   * Sends bytes to a list of servers (if online) and collects their responses
+   * <p>
+   * The consumer runs once every server has responded (servers that did not
+   * respond in time have a timeout response) or once the quorum of OK responses
+   * is reached. Unknown server names have a SERVER_NOT_FOUND response.
+   * <p>
+   * To avoid extra memory usage, the API assumes the following parameters
+   * are not modified after this method is called: messageBytes, serverNames
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param serverNames List of server names to send bytes to (or null or empty for all servers)
+   * @param quorum Number of OK responses to run the consumer with or 0 to wait for all servers
+   * @param consumer Consumer to run with the aggregated responses
+   * @param timeoutInMillis Milliseconds to wait for the responses before using timeout responses
+   */
+  public void sendToServers(
+    String channelName, byte[] messageBytes, List<String> serverNames, int quorum,
+    Consumer<MulticastResponse> consumer, long timeoutInMillis)
+  {
+    List<String> destServerNames;
 
-        if (connection == null)
-        {
-          continue;
-        }
+    if (serverNames == null || serverNames.isEmpty())
+    {
+      destServerNames = new ArrayList<>();
 
-        connection.sendToServer(channelName, messageBytes, null, 0);
+      for (BungeeToSpigotConnection connection : bungeeTieIn.getConnections())
+      {
+        destServerNames.add(connection.getServerName());
       }
     }
+    else
+    {
+      ExtraPreconditions.checkElements(serverNames, (str) -> str != null && !str.isEmpty(),
+        "Null or empty string in serverNames");
+
+      destServerNames = serverNames;
+    }
+
+    BungeeToSpigotConnection.sendToServers(channelName, messageBytes, destServerNames,
+      bungeeTieIn, quorum, consumer, timeoutInMillis);
   }
 
   /**
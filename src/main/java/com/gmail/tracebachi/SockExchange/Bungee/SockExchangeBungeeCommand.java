@@ -0,0 +1,87 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Bungee;
+
+import com.gmail.tracebachi.SockExchange.Metrics.MetricsReport;
+import com.gmail.tracebachi.SockExchange.SockExchangeConstants.FormatNames;
+import com.gmail.tracebachi.SockExchange.Utilities.MessageFormatMap;
+import com.gmail.tracebachi.SockExchange.Utilities.Registerable;
+import com.google.common.base.Preconditions;
+import net.md_5.bungee.api.CommandSender;
+import net.md_5.bungee.api.plugin.Command;
+
+/**
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class SockExchangeBungeeCommand extends Command implements Registerable
+{
+  private static final String COMMAND_NAME = "sockexchangebungee";
+  private static final String STATS_PERM = "SockExchange.Command.Stats";
+  private static final String[] COMMAND_ALIASES = new String[] { "sxbungee" };
+
+  private final SockExchangePlugin plugin;
+  private final MessageFormatMap formatMap;
+  private final SockExchangeApi api;
+
+  SockExchangeBungeeCommand(
+    SockExchangePlugin plugin, MessageFormatMap formatMap, SockExchangeApi api)
+  {
+    super(COMMAND_NAME, null, COMMAND_ALIASES);
+
+    Preconditions.checkNotNull(plugin, "plugin");
+    Preconditions.checkNotNull(formatMap, "formatMap");
+    Preconditions.checkNotNull(api, "api");
+
+    this.plugin = plugin;
+    this.formatMap = formatMap;
+    this.api = api;
+  }
+
+  @Override
+  public void register()
+  {
+    plugin.getProxy().getPluginManager().registerCommand(plugin, this);
+  }
+
+  @Override
+  public void unregister()
+  {
+    plugin.getProxy().getPluginManager().unregisterCommand(this);
+  }
+
+  @Override
+  public void execute(CommandSender sender, String[] args)
+  {
+    if (args.length < 1 || !args[0].equalsIgnoreCase("stats"))
+    {
+      sender.sendMessage(formatMap.format(FormatNames.USAGE, "/sockexchangebungee stats"));
+      return;
+    }
+
+    if (!sender.hasPermission(STATS_PERM))
+    {
+      sender.sendMessage(formatMap.format(FormatNames.NO_PERM, STATS_PERM));
+      return;
+    }
+
+    for (String line : MetricsReport.toLines(api.getMetrics(), api.getMessageNotifier()))
+    {
+      sender.sendMessage(formatMap.format(FormatNames.STATS, line));
+    }
+  }
+}
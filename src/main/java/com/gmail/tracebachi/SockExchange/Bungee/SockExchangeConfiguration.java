@@ -17,6 +17,11 @@
  */
 package com.gmail.tracebachi.SockExchange.Bungee;
 
+import com.gmail.tracebachi.SockExchange.Netty.ChannelSettings;
+import com.gmail.tracebachi.SockExchange.Netty.CompressionType;
+import com.gmail.tracebachi.SockExchange.Netty.WriteLimitPolicy;
+import com.gmail.tracebachi.SockExchange.Scheduler.RejectionPolicy;
+import com.gmail.tracebachi.SockExchange.Scheduler.WorkerPoolSettings;
 import com.gmail.tracebachi.SockExchange.Utilities.CaseInsensitiveSet;
 import com.gmail.tracebachi.SockExchange.Utilities.MessageFormatMap;
 import net.md_5.bungee.api.ChatColor;
@@ -32,9 +37,15 @@ class SockExchangeConfiguration
 {
   private int port;
   private int connectionThreads;
+  private ChannelSettings channelSettings;
+  private WorkerPoolSettings workerPoolSettings;
   private String registrationPassword;
   private MessageFormatMap messageFormatMap;
+  private boolean prometheusEnabled;
+  private String prometheusHost;
+  private int prometheusPort;
   private boolean debugMode;
+  private int maxDebugMessagesPerSecond;
   private CaseInsensitiveSet privateServers = new CaseInsensitiveSet(new HashSet<>());
 
   void read(Configuration configuration)
@@ -42,7 +53,14 @@ class SockExchangeConfiguration
     port = configuration.getInt("SockExchangeServer.Port", 20000);
     connectionThreads = configuration.getInt("SockExchangeServer.Threads", 2);
     registrationPassword = configuration.getString("SockExchangeServer.Password", "FreshSocks");
+    channelSettings = readChannelSettings(configuration);
+    workerPoolSettings = readWorkerPoolSettings(configuration);
+    prometheusEnabled = configuration.getBoolean("Prometheus.Enabled", false);
+    prometheusHost = configuration.getString("Prometheus.Host", "127.0.0.1");
+    prometheusPort = configuration.getInt("Prometheus.Port", 9225);
     debugMode = configuration.getBoolean("DebugMode", false);
+    maxDebugMessagesPerSecond = Math.max(0,
+      configuration.getInt("DebugMaxMessagesPerSecond", 0));
     messageFormatMap = new MessageFormatMap();
 
     privateServers.clear();
@@ -69,6 +87,16 @@ class SockExchangeConfiguration
     return connectionThreads;
   }
 
+  ChannelSettings getChannelSettings()
+  {
+    return channelSettings;
+  }
+
+  WorkerPoolSettings getWorkerPoolSettings()
+  {
+    return workerPoolSettings;
+  }
+
   boolean doesRegistrationPasswordMatch(String input)
   {
     return Objects.equals(registrationPassword, input);
@@ -79,13 +107,130 @@ class SockExchangeConfiguration
     return messageFormatMap;
   }
 
+  boolean isPrometheusEnabled()
+  {
+    return prometheusEnabled;
+  }
+
+  String getPrometheusHost()
+  {
+    return prometheusHost;
+  }
+
+  int getPrometheusPort()
+  {
+    return prometheusPort;
+  }
+
   boolean inDebugMode()
   {
     return debugMode;
   }
 
+  int getMaxDebugMessagesPerSecond()
+  {
+    return maxDebugMessagesPerSecond;
+  }
+
   boolean isPrivateServer(String serverName)
   {
     return privateServers.contains(serverName);
   }
+
+  private static ChannelSettings readChannelSettings(Configuration configuration)
+  {
+    ChannelSettings settings = new ChannelSettings();
+    settings.setNativeTransport(
+      configuration.getBoolean("SockExchangeServer.Transport.Native", true));
+    settings.setTcpNoDelay(
+      configuration.getBoolean("SockExchangeServer.Transport.TcpNoDelay", true));
+    settings.setReusePort(
+      configuration.getBoolean("SockExchangeServer.Transport.ReusePort", false));
+    settings.setSendBufferSize(Math.max(0,
+      configuration.getInt("SockExchangeServer.Transport.SendBufferSize", 0)));
+    settings.setReceiveBufferSize(Math.max(0,
+      configuration.getInt("SockExchangeServer.Transport.ReceiveBufferSize", 0)));
+
+    settings.setFlushConsolidation(
+      configuration.getBoolean("SockExchangeServer.FlushConsolidation.Enabled", false));
+    settings.setMaxMessagesPerFlush(Math.max(1,
+      configuration.getInt("SockExchangeServer.FlushConsolidation.MaxMessagesPerFlush", 64)));
+    settings.setMaxFlushDelayInMicros(Math.max(0,
+      configuration.getLong("SockExchangeServer.FlushConsolidation.MaxDelayInMicros", 0)));
+
+    int lowWaterMark = configuration.getInt("SockExchangeServer.WriteBuffer.LowWaterMark", 1048576);
+    int highWaterMark = configuration.getInt("SockExchangeServer.WriteBuffer.HighWaterMark", 4194304);
+    settings.setWriteBufferWaterMarks(Math.max(0, lowWaterMark),
+      Math.max(Math.max(0, lowWaterMark), highWaterMark));
+    settings.setWriteLimitPolicy(readWriteLimitPolicy(
+      configuration.getString("SockExchangeServer.WriteBuffer.Policy", "FAIL_FAST")));
+    settings.setWriteBlockTimeoutInMillis(Math.max(1,
+      configuration.getLong("SockExchangeServer.WriteBuffer.BlockTimeoutInMillis", 1000)));
+
+    settings.setCompressionType(readCompressionType(
+      configuration.getString("SockExchangeServer.Compression.Type", "NONE")));
+    settings.setCompressionThreshold(Math.max(0,
+      configuration.getInt("SockExchangeServer.Compression.Threshold", 1024)));
+    settings.setCompressionLevel(Math.min(9, Math.max(1,
+      configuration.getInt("SockExchangeServer.Compression.Level", 1))));
+    return settings;
+  }
+
+  private static WorkerPoolSettings readWorkerPoolSettings(Configuration configuration)
+  {
+    WorkerPoolSettings settings = new WorkerPoolSettings();
+    int coreThreads = Math.max(1, configuration.getInt("SockExchangeServer.WorkerPool.CoreThreads", 2));
+    int maxThreads = configuration.getInt("SockExchangeServer.WorkerPool.MaxThreads", 8);
+    settings.setThreads(coreThreads, Math.max(coreThreads, maxThreads));
+    settings.setQueueCapacity(Math.max(0,
+      configuration.getInt("SockExchangeServer.WorkerPool.QueueCapacity", 8192)));
+    settings.setKeepAliveInSeconds(Math.max(1,
+      configuration.getLong("SockExchangeServer.WorkerPool.KeepAliveInSeconds", 60)));
+    settings.setCoreThreadTimeout(
+      configuration.getBoolean("SockExchangeServer.WorkerPool.CoreThreadTimeout", false));
+    settings.setRejectionPolicy(readRejectionPolicy(
+      configuration.getString("SockExchangeServer.WorkerPool.RejectionPolicy", "CALLER_RUNS")));
+    settings.setVirtualThreads(
+      configuration.getBoolean("SockExchangeServer.WorkerPool.VirtualThreads", false));
+    return settings;
+  }
+
+  private static WriteLimitPolicy readWriteLimitPolicy(String policyName)
+  {
+    for (WriteLimitPolicy policy : WriteLimitPolicy.values())
+    {
+      if (policy.name().replace("_", "").equalsIgnoreCase(policyName.replace("_", "")))
+      {
+        return policy;
+      }
+    }
+
+    return WriteLimitPolicy.FAIL_FAST;
+  }
+
+  private static CompressionType readCompressionType(String typeName)
+  {
+    for (CompressionType type : CompressionType.values())
+    {
+      if (type.name().equalsIgnoreCase(typeName))
+      {
+        return type;
+      }
+    }
+
+    return CompressionType.NONE;
+  }
+
+  private static RejectionPolicy readRejectionPolicy(String policyName)
+  {
+    for (RejectionPolicy policy : RejectionPolicy.values())
+    {
+      if (policy.name().replace("_", "").equalsIgnoreCase(policyName.replace("_", "")))
+      {
+        return policy;
+      }
+    }
+
+    return RejectionPolicy.CALLER_RUNS;
+  }
 }
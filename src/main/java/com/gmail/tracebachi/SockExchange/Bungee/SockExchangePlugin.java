@@ -17,14 +17,20 @@
  */
 package com.gmail.tracebachi.SockExchange.Bungee;
 
-import com.gmail.tracebachi.SockExchange.ExpirableConsumer;
 import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
-import com.gmail.tracebachi.SockExchange.Messages.ResponseMessage;
-import com.gmail.tracebachi.SockExchange.Messages.ResponseStatus;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseConsumerMap;
+import com.gmail.tracebachi.SockExchange.Metrics.PrometheusExporter;
+import com.gmail.tracebachi.SockExchange.Metrics.SockExchangeMetrics;
 import com.gmail.tracebachi.SockExchange.Netty.BungeeToSpigotConnection;
+import com.gmail.tracebachi.SockExchange.Netty.ChannelNameTable;
+import com.gmail.tracebachi.SockExchange.Netty.Transport;
+import com.gmail.tracebachi.SockExchange.Netty.ChannelSettings;
+import com.gmail.tracebachi.SockExchange.Netty.FlushStatistics;
 import com.gmail.tracebachi.SockExchange.Netty.SockExchangeServer;
 import com.gmail.tracebachi.SockExchange.Scheduler.AwaitableExecutor;
 import com.gmail.tracebachi.SockExchange.Scheduler.ScheduledExecutorServiceWrapper;
+import com.gmail.tracebachi.SockExchange.Scheduler.VirtualThreads;
+import com.gmail.tracebachi.SockExchange.Scheduler.WorkerPoolSettings;
 import com.gmail.tracebachi.SockExchange.SpigotServerInfo;
 import com.gmail.tracebachi.SockExchange.Utilities.*;
 import com.google.common.base.Preconditions;
@@ -53,17 +59,22 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
   private final SockExchangeConfiguration configuration = new SockExchangeConfiguration();
 
   private BasicLogger basicLogger;
-  private ScheduledThreadPoolExecutor threadPoolExecutor;
+  private ScheduledThreadPoolExecutor timerExecutor;
+  private ExecutorService workerPool;
   private AwaitableExecutor awaitableExecutor;
   private ReceivedMessageNotifier messageNotifier;
-  private LongIdCounterMap<ExpirableConsumer<ResponseMessage>> responseConsumerMap;
-  private ScheduledFuture<?> consumerTimeoutCleanupFuture;
+  private ChannelNameTable channelNameTable;
+  private ResponseConsumerMap responseConsumerMap;
   private CaseInsensitiveMap<BungeeToSpigotConnection> spigotConnectionMap;
+  private FlushStatistics flushStatistics;
+  private SockExchangeMetrics metrics;
+  private PrometheusExporter prometheusExporter;
   private SockExchangeServer sockExchangeServer;
 
   private OnlinePlayerUpdateSender onlinePlayerUpdateSender;
   private BungeeKeepAliveSender bungeeKeepAliveSender;
   private RunCmdBungeeCommand runCmdBungeeCommand;
+  private SockExchangeBungeeCommand sockExchangeBungeeCommand;
   private MovePlayersChannelListener movePlayersChannelListener;
   private RunCmdChannelListener runCmdChannelListener;
   private ChatMessageChannelListener chatMessageChannelListener;
@@ -79,44 +90,66 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
     boolean debugMode = configuration.inDebugMode();
     int port = configuration.getPort();
     int connectionThreads = configuration.getConnectionThreads();
+    ChannelSettings channelSettings = configuration.getChannelSettings();
+    WorkerPoolSettings workerPoolSettings = configuration.getWorkerPoolSettings();
     MessageFormatMap messageFormatMap = configuration.getMessageFormatMap();
 
     // Create the logger based on Java.Util.Logging
-    basicLogger = new JulBasicLogger(getLogger(), debugMode);
+    JulBasicLogger julBasicLogger = new JulBasicLogger(getLogger(), debugMode);
+    julBasicLogger.setMaxDebugMessagesPerSecond(configuration.getMaxDebugMessagesPerSecond());
+    basicLogger = julBasicLogger;
 
-    // Create the shared thread pool executor
-    buildThreadPoolExecutor();
+    // Create the timer for periodic tasks and the pool for everything else
+    buildExecutors(workerPoolSettings);
     ScheduledExecutorServiceWrapper wrappedThreadPool =
-      new ScheduledExecutorServiceWrapper(threadPoolExecutor);
+      new ScheduledExecutorServiceWrapper(timerExecutor, workerPool);
 
     // Create the AwaitableExecutor
-    awaitableExecutor = new AwaitableExecutor(wrappedThreadPool);
+    awaitableExecutor = new AwaitableExecutor(workerPool);
 
     // Create the message notifier which will run consumers on SockExchange messages
     messageNotifier = new ReceivedMessageNotifier(awaitableExecutor);
 
-    // Create the map that manages consumers for responses to sent message
-    responseConsumerMap = new LongIdCounterMap<>();
+    // Create the map that manages consumers for responses to sent message (and their timeouts)
+    responseConsumerMap = new ResponseConsumerMap(awaitableExecutor);
 
-    // Schedule a task to clean up the responseConsumerMap (handling timeouts)
-    consumerTimeoutCleanupFuture = threadPoolExecutor.scheduleWithFixedDelay(
-      this::checkForConsumerTimeouts, 5, 5, TimeUnit.SECONDS);
+    // Create the table of channel IDs shared by all connections
+    channelNameTable = new ChannelNameTable();
+
+    // Create the metrics that all connections record to
+    metrics = new SockExchangeMetrics();
 
     // Create the map of known spigot servers that can connect to Bungee
     spigotConnectionMap = new CaseInsensitiveMap<>(new ConcurrentHashMap<>());
     for (String serverName : getProxy().getServers().keySet())
     {
       BungeeToSpigotConnection connection = new BungeeToSpigotConnection(
-        serverName, awaitableExecutor, messageNotifier, responseConsumerMap, basicLogger, this);
+        serverName, awaitableExecutor, messageNotifier, responseConsumerMap, basicLogger, this,
+        metrics);
+      connection.setWriteLimitPolicy(channelSettings.getWriteLimitPolicy(),
+        channelSettings.getWriteBlockTimeoutInMillis());
 
       spigotConnectionMap.put(serverName, connection);
+      metrics.addConnectionState(serverName, connection::hasChannel);
     }
 
+    // Assign IDs to channels registered on Bungee (and send them to connected servers)
+    messageNotifier.addChannelListener((channelName) ->
+      BungeeToSpigotConnection.assignChannelIds(channelNameTable,
+        Collections.singletonList(channelName), getConnections()));
+
+    // Create the statistics shared by all connections
+    flushStatistics = new FlushStatistics();
+
+    // Add the gauges and counters that are read when the metrics are displayed
+    addGauges();
+
     // Create the API
-    SockExchangeApi api = new SockExchangeApi(this, wrappedThreadPool, messageNotifier);
+    SockExchangeApi api = new SockExchangeApi(this, wrappedThreadPool, messageNotifier,
+      flushStatistics, metrics);
     SockExchangeApi.setInstance(api);
 
-    onlinePlayerUpdateSender = new OnlinePlayerUpdateSender(this, api, 5000);
+    onlinePlayerUpdateSender = new OnlinePlayerUpdateSender(this, api, 250, 60000);
     onlinePlayerUpdateSender.register();
 
     bungeeKeepAliveSender = new BungeeKeepAliveSender(this, api, 2000);
@@ -125,6 +158,9 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
     runCmdBungeeCommand = new RunCmdBungeeCommand(this, messageFormatMap, api);
     runCmdBungeeCommand.register();
 
+    sockExchangeBungeeCommand = new SockExchangeBungeeCommand(this, messageFormatMap, api);
+    sockExchangeBungeeCommand.register();
+
     movePlayersChannelListener = new MovePlayersChannelListener(this, api);
     movePlayersChannelListener.register();
 
@@ -136,7 +172,9 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
 
     try
     {
-      sockExchangeServer = new SockExchangeServer(port, connectionThreads, this);
+      sockExchangeServer = new SockExchangeServer(port, connectionThreads, this,
+        channelSettings, flushStatistics);
+      logTransport(sockExchangeServer.getTransport(), channelSettings);
       sockExchangeServer.start();
     }
     catch (Exception e)
@@ -146,6 +184,11 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
       e.printStackTrace();
       getLogger().severe("============================================================");
     }
+
+    if (configuration.isPrometheusEnabled())
+    {
+      startPrometheusExporter();
+    }
   }
 
   @Override
@@ -165,6 +208,12 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
       sockExchangeServer = null;
     }
 
+    if (prometheusExporter != null)
+    {
+      prometheusExporter.shutdown();
+      prometheusExporter = null;
+    }
+
     if (chatMessageChannelListener != null)
     {
       chatMessageChannelListener.unregister();
@@ -183,6 +232,12 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
       movePlayersChannelListener = null;
     }
 
+    if (sockExchangeBungeeCommand != null)
+    {
+      sockExchangeBungeeCommand.unregister();
+      sockExchangeBungeeCommand = null;
+    }
+
     if (runCmdBungeeCommand != null)
     {
       runCmdBungeeCommand.unregister();
@@ -209,24 +264,27 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
       spigotConnectionMap = null;
     }
 
-    if (consumerTimeoutCleanupFuture != null)
+    if (responseConsumerMap != null)
     {
-      consumerTimeoutCleanupFuture.cancel(false);
-      consumerTimeoutCleanupFuture = null;
+      responseConsumerMap.shutdown();
+      responseConsumerMap = null;
     }
 
-    if (responseConsumerMap != null)
+    if (timerExecutor != null)
     {
-      responseConsumerMap.clear();
-      responseConsumerMap = null;
+      shutdownExecutor(timerExecutor, "Timer");
+      timerExecutor = null;
     }
 
-    if (threadPoolExecutor != null)
+    if (workerPool != null)
     {
-      shutdownThreadPoolExecutor();
-      threadPoolExecutor = null;
+      shutdownExecutor(workerPool, "Worker pool");
+      workerPool = null;
     }
 
+    flushStatistics = null;
+    metrics = null;
+    channelNameTable = null;
     messageNotifier = null;
     basicLogger = null;
   }
@@ -251,6 +309,12 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
     return Collections.unmodifiableCollection(spigotConnectionMap.values());
   }
 
+  @Override
+  public ChannelNameTable getChannelNameTable()
+  {
+    return channelNameTable;
+  }
+
   @Override
   public SpigotServerInfo getServerInfo(String serverName)
   {
@@ -357,29 +421,55 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
     return false;
   }
 
-  private void checkForConsumerTimeouts()
+  private void addGauges()
   {
-    long currentTimeMillis = System.currentTimeMillis();
+    Collection<BungeeToSpigotConnection> connections = getConnections();
+
+    metrics.addGauge("ConnectedServers", "Servers with an open connection", () ->
+      connections.stream().filter(BungeeToSpigotConnection::hasChannel).count());
+    metrics.addGauge("PendingResponses", "Requests that are waiting for a response",
+      responseConsumerMap::getPendingCount);
+    metrics.addGauge("ExecutorTasks", "Submitted tasks that have not finished",
+      awaitableExecutor::getSubmittedTaskCount);
+    metrics.addCounter("Flushes", "Flushes of the connections", flushStatistics::getFlushCount);
+    metrics.addCounter("FlushedMessages", "Messages written by the flushes of the connections",
+      flushStatistics::getMessageCount);
+    metrics.addWorkerPoolGauges(workerPool);
+  }
 
-    responseConsumerMap.removeIf((entry) ->
-    {
-      ExpirableConsumer<ResponseMessage> responseConsumer = entry.getValue();
+  private void startPrometheusExporter()
+  {
+    String host = configuration.getPrometheusHost();
+    int port = configuration.getPrometheusPort();
 
-      if (responseConsumer.getExpiresAtMillis() > currentTimeMillis)
-      {
-        // Keep the entry
-        return false;
-      }
+    try
+    {
+      PrometheusExporter exporter = new PrometheusExporter(host, port, metrics, messageNotifier);
+      exporter.start();
+      prometheusExporter = exporter;
 
-      awaitableExecutor.execute(() ->
-      {
-        ResponseMessage responseMessage = new ResponseMessage(ResponseStatus.TIMED_OUT);
-        responseConsumer.accept(responseMessage);
-      });
+      getLogger().info("Serving Prometheus metrics at http://" + host + ":" + port + "/metrics");
+    }
+    catch (Exception e)
+    {
+      getLogger().severe("============================================================");
+      getLogger().severe("The Prometheus exporter could not be started. Refer to the stacktrace below.");
+      e.printStackTrace();
+      getLogger().severe("============================================================");
+    }
+  }
 
-      // Remove the entry
-      return true;
-    });
+  private void logTransport(Transport transport, ChannelSettings channelSettings)
+  {
+    if (transport == Transport.NIO && channelSettings.isNativeTransport())
+    {
+      basicLogger.info("Using the %s transport (native transport is not available: %s)",
+        transport, Transport.getNativeUnavailabilityReason());
+    }
+    else
+    {
+      basicLogger.info("Using the %s transport", transport);
+    }
   }
 
   private void shutdownAwaitableExecutor()
@@ -387,7 +477,7 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
     try
     {
       awaitableExecutor.setAcceptingTasks(false);
-      awaitableExecutor.awaitTasksWithSleep(10, 1000);
+      awaitableExecutor.awaitTasks(10, TimeUnit.SECONDS);
       awaitableExecutor.shutdown();
     }
     catch (InterruptedException ex)
@@ -396,53 +486,71 @@ public class SockExchangePlugin extends Plugin implements BungeeTieIn
     }
   }
 
-  private void buildThreadPoolExecutor()
+  private void buildExecutors(WorkerPoolSettings workerPoolSettings)
   {
-    ThreadFactoryBuilder factoryBuilder = new ThreadFactoryBuilder();
-    factoryBuilder.setNameFormat("SockExchange-Scheduler-Thread-%d");
+    ThreadFactoryBuilder timerFactoryBuilder = new ThreadFactoryBuilder();
+    timerFactoryBuilder.setNameFormat("SockExchange-Timer-Thread-%d");
+
+    timerExecutor = new ScheduledThreadPoolExecutor(1, timerFactoryBuilder.build());
+    timerExecutor.setRemoveOnCancelPolicy(true);
+    timerExecutor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+    timerExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
 
-    ThreadFactory threadFactory = factoryBuilder.build();
-    threadPoolExecutor = new ScheduledThreadPoolExecutor(2, threadFactory);
+    ThreadFactoryBuilder workerFactoryBuilder = new ThreadFactoryBuilder();
+    workerFactoryBuilder.setNameFormat("SockExchange-Worker-Thread-%d");
 
-    threadPoolExecutor.setMaximumPoolSize(8);
-    threadPoolExecutor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
-    threadPoolExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    workerPool = workerPoolSettings.newWorkerPool(workerFactoryBuilder.build());
+
+    if (!workerPoolSettings.isVirtualThreads())
+    {
+      return;
+    }
+
+    if (VirtualThreads.isAvailable())
+    {
+      basicLogger.info("Running tasks on virtual threads");
+    }
+    else
+    {
+      basicLogger.info("Running tasks on the worker pool (virtual threads are not available: %s)",
+        VirtualThreads.getUnavailabilityReason());
+    }
   }
 
-  private void shutdownThreadPoolExecutor()
+  private void shutdownExecutor(ExecutorService executor, String name)
   {
-    if (!threadPoolExecutor.isShutdown())
+    if (!executor.isShutdown())
     {
       // Disable new tasks from being submitted to service
-      threadPoolExecutor.shutdown();
+      executor.shutdown();
 
-      getLogger().info("ScheduledThreadPoolExecutor being shutdown()");
+      getLogger().info(name + " being shutdown()");
 
       try
       {
         // Await termination for a minute
-        if (!threadPoolExecutor.awaitTermination(60, TimeUnit.SECONDS))
+        if (!executor.awaitTermination(60, TimeUnit.SECONDS))
         {
           // Force shutdown
-          threadPoolExecutor.shutdownNow();
+          executor.shutdownNow();
 
-          getLogger().severe("ScheduledThreadPoolExecutor being shutdownNow()");
+          getLogger().severe(name + " being shutdownNow()");
 
           // Await termination again for another minute
-          if (!threadPoolExecutor.awaitTermination(60, TimeUnit.SECONDS))
+          if (!executor.awaitTermination(60, TimeUnit.SECONDS))
           {
-            getLogger().severe("ScheduledThreadPoolExecutor not shutdown after shutdownNow()");
+            getLogger().severe(name + " not shutdown after shutdownNow()");
           }
         }
       }
       catch (InterruptedException ex)
       {
-        getLogger().severe("ScheduledThreadPoolExecutor shutdown interrupted");
+        getLogger().severe(name + " shutdown interrupted");
 
         // Re-cancel if current thread also interrupted
-        threadPoolExecutor.shutdownNow();
+        executor.shutdownNow();
 
-        getLogger().severe("ScheduledThreadPoolExecutor being shutdownNow()");
+        getLogger().severe(name + " being shutdownNow()");
 
         // Preserve interrupt status
         Thread.currentThread().interrupt();
@@ -17,7 +17,10 @@
  */
 package com.gmail.tracebachi.SockExchange;
 
+import com.gmail.tracebachi.SockExchange.Messages.ResponseStatus;
+import com.gmail.tracebachi.SockExchange.Metrics.ResponseStatistics;
 import com.google.common.base.Preconditions;
+import io.netty.util.Timeout;
 
 import java.util.function.Consumer;
 
@@ -28,13 +31,29 @@ public class ExpirableConsumer<T> implements Consumer<T>
 {
   private final Consumer<T> innerConsumer;
   private final long expiresAtMillis;
+  private final ResponseStatistics statistics;
+  private final long createdAtNanos;
+  private volatile Timeout timeout;
 
   public ExpirableConsumer(Consumer<T> innerConsumer, long expiresAtMillis)
+  {
+    this(innerConsumer, expiresAtMillis, null);
+  }
+
+  /**
+   * @param innerConsumer Consumer to run
+   * @param expiresAtMillis Time at which the consumer expires
+   * @param statistics Statistics to record the response to or null
+   */
+  public ExpirableConsumer(
+    Consumer<T> innerConsumer, long expiresAtMillis, ResponseStatistics statistics)
   {
     Preconditions.checkNotNull(innerConsumer, "innerConsumer");
 
     this.innerConsumer = innerConsumer;
     this.expiresAtMillis = expiresAtMillis;
+    this.statistics = statistics;
+    this.createdAtNanos = statistics == null ? 0 : System.nanoTime();
   }
 
   public long getExpiresAtMillis()
@@ -42,6 +61,39 @@ public class ExpirableConsumer<T> implements Consumer<T>
     return expiresAtMillis;
   }
 
+  /**
+   * @param timeout Scheduled timeout of this consumer which is cancelled by
+   * {@link #cancelTimeout()}
+   */
+  public void setTimeout(Timeout timeout)
+  {
+    this.timeout = timeout;
+  }
+
+  public void cancelTimeout()
+  {
+    Timeout timeout = this.timeout;
+
+    if (timeout != null)
+    {
+      timeout.cancel();
+      this.timeout = null;
+    }
+  }
+
+  /**
+   * Records the time since the consumer was created (if it has statistics)
+   *
+   * @param responseStatus Status of the response the consumer is removed for
+   */
+  public void recordResponse(ResponseStatus responseStatus)
+  {
+    if (statistics != null)
+    {
+      statistics.recordResponse(System.nanoTime() - createdAtNanos, responseStatus);
+    }
+  }
+
   @Override
   public void accept(T responseMessage)
   {
@@ -0,0 +1,195 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Messages;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs the consumers of one channel using the {@link DispatchMode} of the channel
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+class ChannelDispatcher
+{
+  private final ChannelStatistics statistics = new ChannelStatistics();
+  private final Queue<DispatchTask> serialQueue = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean serialDrainScheduled = new AtomicBoolean(false);
+  private final Runnable serialDrain = this::drainSerialQueue;
+  private volatile DispatchMode dispatchMode;
+  private volatile Executor executor;
+
+  ChannelDispatcher(DispatchMode dispatchMode, Executor executor)
+  {
+    setDispatchMode(dispatchMode, executor);
+  }
+
+  DispatchMode getDispatchMode()
+  {
+    return dispatchMode;
+  }
+
+  void setDispatchMode(DispatchMode dispatchMode, Executor executor)
+  {
+    Preconditions.checkNotNull(dispatchMode, "dispatchMode");
+    Preconditions.checkNotNull(executor, "executor");
+
+    this.executor = executor;
+    this.dispatchMode = dispatchMode;
+  }
+
+  ChannelStatistics getStatistics()
+  {
+    return statistics;
+  }
+
+  /**
+   * Runs the consumer with the message and then releases the message
+   *
+   * @param consumer Consumer to run
+   * @param receivedMessage Message which is released once the consumer has run
+   * (or if it can not be run)
+   */
+  void dispatch(Consumer<ReceivedMessage> consumer, ReceivedMessage receivedMessage)
+  {
+    DispatchMode dispatchMode = this.dispatchMode;
+
+    if (dispatchMode == DispatchMode.INLINE)
+    {
+      new DispatchTask(consumer, receivedMessage, false).run();
+      return;
+    }
+
+    DispatchTask task = new DispatchTask(consumer, receivedMessage, true);
+    statistics.recordQueued();
+
+    if (dispatchMode == DispatchMode.SERIAL)
+    {
+      serialQueue.offer(task);
+      scheduleSerialDrain();
+      return;
+    }
+
+    try
+    {
+      executor.execute(task);
+    }
+    catch (RejectedExecutionException ex)
+    {
+      task.discard();
+    }
+  }
+
+  private void scheduleSerialDrain()
+  {
+    if (!serialDrainScheduled.compareAndSet(false, true))
+    {
+      return;
+    }
+
+    try
+    {
+      executor.execute(serialDrain);
+    }
+    catch (RejectedExecutionException ex)
+    {
+      // Nothing will run the queued tasks, so their messages are released
+      DispatchTask task;
+      while ((task = serialQueue.poll()) != null)
+      {
+        task.discard();
+      }
+
+      serialDrainScheduled.set(false);
+    }
+  }
+
+  private void drainSerialQueue()
+  {
+    DispatchTask task;
+    while ((task = serialQueue.poll()) != null)
+    {
+      task.run();
+    }
+
+    serialDrainScheduled.set(false);
+
+    // A task may have been queued after the last poll but before the flag was cleared
+    if (!serialQueue.isEmpty())
+    {
+      scheduleSerialDrain();
+    }
+  }
+
+  private class DispatchTask implements Runnable
+  {
+    private final Consumer<ReceivedMessage> consumer;
+    private final ReceivedMessage receivedMessage;
+    private final boolean queued;
+
+    DispatchTask(
+      Consumer<ReceivedMessage> consumer, ReceivedMessage receivedMessage, boolean queued)
+    {
+      this.consumer = consumer;
+      this.receivedMessage = receivedMessage;
+      this.queued = queued;
+    }
+
+    @Override
+    public void run()
+    {
+      if (queued)
+      {
+        statistics.recordDequeued();
+      }
+
+      long startNanos = System.nanoTime();
+
+      try
+      {
+        consumer.accept(receivedMessage);
+      }
+      catch (Exception ex)
+      {
+        ex.printStackTrace();
+      }
+      finally
+      {
+        receivedMessage.release();
+        statistics.recordHandled(System.nanoTime() - startNanos);
+      }
+    }
+
+    void discard()
+    {
+      if (queued)
+      {
+        statistics.recordDequeued();
+      }
+
+      statistics.recordDropped();
+      receivedMessage.release();
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Messages;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the consumers run for a channel by the {@link ReceivedMessageNotifier}
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class ChannelStatistics
+{
+  private final AtomicInteger queueDepth = new AtomicInteger(0);
+  private final LongAdder handledCount = new LongAdder();
+  private final LongAdder droppedCount = new LongAdder();
+  private final LongAdder handlerNanos = new LongAdder();
+  private final AtomicLong maxHandlerNanos = new AtomicLong(0);
+
+  /**
+   * @return Number of consumer runs that are waiting to start
+   */
+  public int getQueueDepth()
+  {
+    return queueDepth.get();
+  }
+
+  /**
+   * @return Number of consumer runs that have finished
+   */
+  public long getHandledCount()
+  {
+    return handledCount.sum();
+  }
+
+  /**
+   * @return Number of consumer runs that were dropped (and never ran) because
+   * the executor rejected them
+   */
+  public long getDroppedCount()
+  {
+    return droppedCount.sum();
+  }
+
+  /**
+   * @return Total time the consumers took to run (in nanoseconds)
+   */
+  public long getTotalHandlerNanos()
+  {
+    return handlerNanos.sum();
+  }
+
+  /**
+   * @return Average time a consumer took to run (in microseconds)
+   */
+  public long getAverageHandlerMicros()
+  {
+    long count = handledCount.sum();
+    return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(handlerNanos.sum() / count);
+  }
+
+  /**
+   * @return Longest time a consumer took to run (in microseconds)
+   */
+  public long getMaxHandlerMicros()
+  {
+    return TimeUnit.NANOSECONDS.toMicros(maxHandlerNanos.get());
+  }
+
+  void recordQueued()
+  {
+    queueDepth.incrementAndGet();
+  }
+
+  void recordDequeued()
+  {
+    queueDepth.decrementAndGet();
+  }
+
+  void recordDropped()
+  {
+    droppedCount.increment();
+  }
+
+  void recordHandled(long nanos)
+  {
+    handledCount.increment();
+    handlerNanos.add(nanos);
+
+    long max = maxHandlerNanos.get();
+    while (nanos > max && !maxHandlerNanos.compareAndSet(max, nanos))
+    {
+      max = maxHandlerNanos.get();
+    }
+  }
+}
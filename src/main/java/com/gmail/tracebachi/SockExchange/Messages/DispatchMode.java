@@ -0,0 +1,43 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Messages;
+
+/**
+ * How the consumers of a channel are run by the {@link ReceivedMessageNotifier}
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public enum DispatchMode
+{
+  /**
+   * Consumers run on the thread that received the message (a Netty I/O thread),
+   * which is only suitable for consumers that are cheap and never block
+   */
+  INLINE,
+
+  /**
+   * Consumers run one at a time, in the order the messages were received, on the
+   * executor of the channel
+   */
+  SERIAL,
+
+  /**
+   * Consumers run concurrently on the executor of the channel (the default)
+   */
+  POOL
+}
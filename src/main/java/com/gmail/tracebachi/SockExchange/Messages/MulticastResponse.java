@@ -0,0 +1,162 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Messages;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregated response of a request sent to many servers
+ * <p>
+ * Every server that responded (or failed) before the request completed has a
+ * {@link ResponseMessage} in the map of responses. A request completes once every
+ * server has a response (servers that did not respond in time have
+ * {@link ResponseStatus#TIMED_OUT}) or once the quorum of OK responses is reached,
+ * in which case servers that have not responded yet are missing from the map.
+ * <p>
+ * Unlike a single {@link ResponseMessage}, the responses keep their own copy of
+ * the bytes, so they can be used after the consumer has run.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class MulticastResponse
+{
+  private final ResponseStatus responseStatus;
+  private final Map<String, ResponseMessage> responses;
+  private final boolean quorumReached;
+
+  /**
+   * @param responseStatus Status of sending the request (which is OK if it
+   * reached Bungee, even if no server responded)
+   * @param responses Responses by server name
+   * @param quorumReached True if enough servers responded with OK
+   */
+  public MulticastResponse(
+    ResponseStatus responseStatus, Map<String, ResponseMessage> responses, boolean quorumReached)
+  {
+    Preconditions.checkNotNull(responseStatus, "responseStatus");
+    Preconditions.checkNotNull(responses, "responses");
+
+    this.responseStatus = responseStatus;
+    this.responses = Collections.unmodifiableMap(responses);
+    this.quorumReached = quorumReached;
+  }
+
+  /**
+   * @return Status of sending the request which is only OK if the request
+   * reached Bungee (the status of each server is in its response)
+   */
+  public ResponseStatus getResponseStatus()
+  {
+    return responseStatus;
+  }
+
+  /**
+   * @return Unmodifiable map of responses by server name (in the order the
+   * servers were requested)
+   */
+  public Map<String, ResponseMessage> getResponses()
+  {
+    return responses;
+  }
+
+  /**
+   * @return True if the quorum of OK responses was reached (or, if there was no
+   * quorum, every server responded with OK)
+   */
+  public boolean isQuorumReached()
+  {
+    return quorumReached;
+  }
+
+  /**
+   * @return Bytes of this response to send as the message of a single response
+   */
+  public byte[] toBytes()
+  {
+    ByteArrayDataOutput out = ByteStreams.newDataOutput();
+    out.writeBoolean(quorumReached);
+    out.writeInt(responses.size());
+
+    for (Map.Entry<String, ResponseMessage> entry : responses.entrySet())
+    {
+      ResponseMessage responseMessage = entry.getValue();
+      byte[] messageBytes = responseMessage.getMessageBytes();
+
+      out.writeUTF(entry.getKey());
+      out.writeByte(responseMessage.getResponseStatus().ordinal());
+      out.writeInt(messageBytes == null ? -1 : messageBytes.length);
+      if (messageBytes != null)
+      {
+        out.write(messageBytes);
+      }
+    }
+
+    return out.toByteArray();
+  }
+
+  /**
+   * Reads the response of a request sent to many servers through Bungee
+   *
+   * @param responseMessage Single response which contains the bytes from
+   * {@link #toBytes()} if it is OK
+   *
+   * @return Aggregated response (without any responses if the single response
+   * is not OK)
+   */
+  public static MulticastResponse fromResponse(ResponseMessage responseMessage)
+  {
+    Preconditions.checkNotNull(responseMessage, "responseMessage");
+
+    ResponseStatus responseStatus = responseMessage.getResponseStatus();
+
+    if (!responseStatus.isOk())
+    {
+      return new MulticastResponse(responseStatus, Collections.emptyMap(), false);
+    }
+
+    ByteArrayDataInput in = responseMessage.getDataInput();
+    boolean quorumReached = in.readBoolean();
+    int count = in.readInt();
+    Map<String, ResponseMessage> responses = new LinkedHashMap<>(count * 2);
+
+    for (int i = 0; i < count; i++)
+    {
+      String serverName = in.readUTF();
+      ResponseStatus serverStatus = ResponseStatus.fromOrdinal(in.readByte());
+      int length = in.readInt();
+      byte[] messageBytes = null;
+
+      if (length >= 0)
+      {
+        messageBytes = new byte[length];
+        in.readFully(messageBytes);
+      }
+
+      responses.put(serverName, new ResponseMessage(serverStatus, messageBytes));
+    }
+
+    return new MulticastResponse(ResponseStatus.OK, responses, quorumReached);
+  }
+}
@@ -17,15 +17,30 @@
  */
 package com.gmail.tracebachi.SockExchange.Messages;
 
+import com.gmail.tracebachi.SockExchange.Utilities.BufferUtil;
 import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
 import com.google.common.base.Preconditions;
 import com.google.common.io.ByteArrayDataInput;
 import com.google.common.io.ByteStreams;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
+ * A message received on a channel
+ * <p>
+ * The message bytes are backed by a reference counted buffer which is usually a
+ * slice of the received network frame (no copy is made). The buffer is only
+ * guaranteed to be readable while a consumer registered with
+ * {@link ReceivedMessageNotifier} is running. Consumers that need the bytes
+ * after returning (for example, from another thread) must either call
+ * {@link #retain()} and later {@link #release()}, or call {@link #getMessageBytes()}
+ * before returning. Reading the bytes of a message whose buffer has been released
+ * throws an {@link IllegalStateException}.
+ *
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class ReceivedMessage
@@ -33,18 +48,35 @@ public class ReceivedMessage
   private static final byte[] SINGLE_BYTE_RESPONSE = { 0 };
 
   private final String channelName;
-  private final byte[] messageBytes;
+  private final ByteBuf messageBuffer;
   private final Consumer<byte[]> onResponseConsumer;
   private final AtomicBoolean canRespond;
+  private final AtomicInteger refCnt = new AtomicInteger(1);
+  private volatile byte[] messageBytes;
 
   public ReceivedMessage(
     String channelName, byte[] messageBytes, Consumer<byte[]> onResponseConsumer)
+  {
+    this(channelName, Unpooled.wrappedBuffer(
+      Preconditions.checkNotNull(messageBytes, "messageBytes")), onResponseConsumer);
+
+    this.messageBytes = messageBytes;
+  }
+
+  /**
+   * @param channelName Name of the channel the message was received on
+   * @param messageBuffer Buffer of the message bytes which this message will take
+   * ownership of (and release when the message is released)
+   * @param onResponseConsumer Consumer to run with the response bytes or null
+   */
+  public ReceivedMessage(
+    String channelName, ByteBuf messageBuffer, Consumer<byte[]> onResponseConsumer)
   {
     ExtraPreconditions.checkNotEmpty(channelName, "channelName");
-    Preconditions.checkNotNull(messageBytes, "messageBytes");
+    Preconditions.checkNotNull(messageBuffer, "messageBuffer");
 
     this.channelName = channelName;
-    this.messageBytes = messageBytes;
+    this.messageBuffer = messageBuffer;
     this.onResponseConsumer = onResponseConsumer;
     this.canRespond = new AtomicBoolean(onResponseConsumer != null);
   }
@@ -54,19 +86,83 @@ public class ReceivedMessage
     return channelName;
   }
 
+  /**
+   * @return Read-only view of the message bytes with its own reader index
+   * (a new view is returned on every call)
+   *
+   * @throws IllegalStateException If the message buffer has been released
+   */
+  public ByteBuf getMessageBuffer()
+  {
+    checkNotReleased();
+
+    return Unpooled.unmodifiableBuffer(messageBuffer);
+  }
+
+  /**
+   * The bytes are copied out of the message buffer on the first call and
+   * remain usable after the message is released.
+   *
+   * @return Message bytes
+   *
+   * @throws IllegalStateException If the bytes were not read before the message
+   * buffer was released
+   */
   public byte[] getMessageBytes()
   {
-    return messageBytes;
+    byte[] result = messageBytes;
+
+    if (result == null)
+    {
+      checkNotReleased();
+      result = BufferUtil.toByteArray(messageBuffer);
+      messageBytes = result;
+    }
+
+    return result;
   }
 
+  /**
+   * @return {@link ByteArrayDataInput} of message bytes
+   *
+   * @throws IllegalStateException If the bytes were not read before the message
+   * buffer was released
+   */
   public ByteArrayDataInput getDataInput()
   {
-    if (messageBytes == null)
+    return ByteStreams.newDataInput(getMessageBytes());
+  }
+
+  /**
+   * Increases the reference count of the message
+   *
+   * @return This message
+   *
+   * @throws IllegalStateException If the message has already been released
+   */
+  public ReceivedMessage retain()
+  {
+    retainReference();
+    return this;
+  }
+
+  /**
+   * Decreases the reference count of the message and releases the message
+   * buffer once it reaches 0
+   *
+   * @return True if the reference count reached 0 and the buffer was released
+   *
+   * @throws IllegalStateException If the message has already been released
+   */
+  public boolean release()
+  {
+    if (releaseReference())
     {
-      return ByteStreams.newDataInput(new byte[0]);
+      messageBuffer.release();
+      return true;
     }
 
-    return ByteStreams.newDataInput(messageBytes);
+    return false;
   }
 
   /**
@@ -111,4 +207,50 @@ public class ReceivedMessage
 
     return false;
   }
+
+  private void retainReference()
+  {
+    int count;
+    do
+    {
+      count = refCnt.get();
+      if (count == 0)
+      {
+        throw new IllegalStateException("Message has already been released");
+      }
+    }
+    while (!refCnt.compareAndSet(count, count + 1));
+  }
+
+  /**
+   * @return True if the last reference was released
+   */
+  private boolean releaseReference()
+  {
+    int count;
+    do
+    {
+      count = refCnt.get();
+      if (count == 0)
+      {
+        throw new IllegalStateException("Message has already been released");
+      }
+    }
+    while (!refCnt.compareAndSet(count, count - 1));
+
+    return count == 1;
+  }
+
+  private void checkNotReleased()
+  {
+    // The buffer is a slice that shares the reference count of the received frame,
+    // whose (pooled) buffer may already hold another frame, so only the count of
+    // this message tells if it has been released
+    if (refCnt.get() == 0)
+    {
+      throw new IllegalStateException("Message on channel '" + channelName +
+        "' was released after its consumer returned. Read the bytes with getMessageBytes()" +
+        " or call retain() before returning from the consumer.");
+    }
+  }
 }
@@ -34,13 +34,103 @@ public class ReceivedMessageNotifier
 {
   private final Executor executor;
   private final ConcurrentHashMap<String, CopyOnWriteArraySet<Consumer<ReceivedMessage>>> channelToConsumerSetMap;
-
+  private final CopyOnWriteArraySet<Consumer<String>> channelListeners;
+  private final ConcurrentHashMap<String, ChannelDispatcher> channelToDispatcherMap;
+
+  /**
+   * @param executor Executor for the consumers of channels that use
+   * {@link DispatchMode#POOL} or {@link DispatchMode#SERIAL} without an executor
+   * of their own
+   */
   public ReceivedMessageNotifier(Executor executor)
   {
     Preconditions.checkNotNull(executor, "executor");
 
     this.executor = executor;
     this.channelToConsumerSetMap = new ConcurrentHashMap<>();
+    this.channelListeners = new CopyOnWriteArraySet<>();
+    this.channelToDispatcherMap = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * @return Unmodifiable view of the names of all channels with a consumer
+   */
+  public Set<String> getChannelNames()
+  {
+    return Collections.unmodifiableSet(channelToConsumerSetMap.keySet());
+  }
+
+  /**
+   * Adds a listener that is run (on the registering thread) with the name of
+   * a channel whenever a channel without consumers gets its first consumer
+   *
+   * @param channelListener Listener to add
+   */
+  public void addChannelListener(Consumer<String> channelListener)
+  {
+    Preconditions.checkNotNull(channelListener, "channelListener");
+
+    channelListeners.add(channelListener);
+  }
+
+  public void removeChannelListener(Consumer<String> channelListener)
+  {
+    Preconditions.checkNotNull(channelListener, "channelListener");
+
+    channelListeners.remove(channelListener);
+  }
+
+  /**
+   * Sets how the consumers of a channel are run (using the executor of the notifier)
+   *
+   * @param channelName Name of the channel
+   * @param dispatchMode Mode to run the consumers with
+   */
+  public void setDispatchMode(String channelName, DispatchMode dispatchMode)
+  {
+    setDispatchMode(channelName, dispatchMode, executor);
+  }
+
+  /**
+   * Sets how the consumers of a channel are run and the executor they run on
+   * (which is not used by {@link DispatchMode#INLINE})
+   *
+   * @param channelName Name of the channel
+   * @param dispatchMode Mode to run the consumers with
+   * @param executor Executor to run the consumers on
+   */
+  public void setDispatchMode(String channelName, DispatchMode dispatchMode, Executor executor)
+  {
+    ExtraPreconditions.checkNotEmpty(channelName, "channelName");
+
+    getDispatcher(channelName).setDispatchMode(dispatchMode, executor);
+  }
+
+  /**
+   * @param channelName Name of the channel
+   *
+   * @return Mode the consumers of the channel are run with
+   */
+  public DispatchMode getDispatchMode(String channelName)
+  {
+    ExtraPreconditions.checkNotEmpty(channelName, "channelName");
+
+    ChannelDispatcher dispatcher = channelToDispatcherMap.get(channelName);
+    return dispatcher == null ? DispatchMode.POOL : dispatcher.getDispatchMode();
+  }
+
+  /**
+   * @param channelName Name of the channel
+   *
+   * @return Statistics of the consumers run for the channel or null if no
+   * message has been received on the channel (and it has no dispatch mode)
+   */
+  public ChannelStatistics getChannelStatistics(String channelName)
+  {
+    ExtraPreconditions.checkNotEmpty(channelName, "channelName");
+
+    ChannelDispatcher dispatcher = channelToDispatcherMap.get(channelName);
+    return dispatcher == null ? null : dispatcher.getStatistics();
   }
 
   public void register(String channelName, Consumer<ReceivedMessage> consumer)
@@ -59,6 +149,12 @@ public class ReceivedMessageNotifier
     if (existingSet != null)
     {
       existingSet.add(consumer);
+      return;
+    }
+
+    for (Consumer<String> channelListener : channelListeners)
+    {
+      channelListener.accept(channelName);
     }
   }
 
@@ -77,6 +173,17 @@ public class ReceivedMessageNotifier
     });
   }
 
+  /**
+   * Runs all consumers registered for a channel with the received message
+   * (using the {@link DispatchMode} of the channel)
+   * <p>
+   * The notifier takes ownership of the message. It is retained for every consumer
+   * that is run and released once that consumer returns, so the message bytes
+   * are readable for the duration of every consumer.
+   *
+   * @param channelName Name of the channel
+   * @param receivedMessage Message to pass to the consumers
+   */
   public void notify(String channelName, ReceivedMessage receivedMessage)
   {
     ExtraPreconditions.checkNotEmpty(channelName, "channelName");
@@ -84,14 +191,30 @@ public class ReceivedMessageNotifier
 
     Set<Consumer<ReceivedMessage>> consumerSet = channelToConsumerSetMap.get(channelName);
 
-    if (consumerSet == null)
+    if (consumerSet != null)
     {
-      return;
+      ChannelDispatcher dispatcher = getDispatcher(channelName);
+
+      for (Consumer<ReceivedMessage> consumer : consumerSet)
+      {
+        receivedMessage.retain();
+        dispatcher.dispatch(consumer, receivedMessage);
+      }
     }
 
-    for (Consumer<ReceivedMessage> consumer : consumerSet)
+    receivedMessage.release();
+  }
+
+  private ChannelDispatcher getDispatcher(String channelName)
+  {
+    ChannelDispatcher dispatcher = channelToDispatcherMap.get(channelName);
+
+    if (dispatcher != null)
     {
-      executor.execute(() -> consumer.accept(receivedMessage));
+      return dispatcher;
     }
+
+    return channelToDispatcherMap.computeIfAbsent(channelName,
+      (key) -> new ChannelDispatcher(DispatchMode.POOL, executor));
   }
 }
@@ -0,0 +1,184 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Messages;
+
+import com.gmail.tracebachi.SockExchange.ExpirableConsumer;
+import com.gmail.tracebachi.SockExchange.Metrics.ResponseStatistics;
+import com.gmail.tracebachi.SockExchange.Utilities.LongIdSlotMap;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Consumers waiting for a response which time out on a hashed wheel timer
+ * <p>
+ * Each consumer schedules its own timeout when it is saved and the timeout is
+ * cancelled when the consumer is removed for a response, so a timeout costs
+ * O(1) no matter how many consumers are waiting. Consumers that time out are
+ * run with {@link ResponseStatus#TIMED_OUT} on the executor. A saved
+ * {@link ResponseFuture} removes itself when it is cancelled. Consumers saved with
+ * {@link ResponseStatistics} record their timeout to the statistics (the
+ * connections record the other responses).
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class ResponseConsumerMap
+{
+  public static final long TICK_DURATION_IN_MILLIS = 1;
+  public static final int TICKS_PER_WHEEL = 1024;
+
+  private final LongIdSlotMap<ExpirableConsumer<ResponseMessage>> consumerMap =
+    new LongIdSlotMap<>();
+  private final Executor executor;
+  private final HashedWheelTimer timer;
+  private final LongAdder pendingCount = new LongAdder();
+
+  public ResponseConsumerMap(Executor executor)
+  {
+    Preconditions.checkNotNull(executor, "executor");
+
+    ThreadFactory threadFactory = new ThreadFactoryBuilder()
+      .setNameFormat("SockExchange-Timeouts-%d")
+      .setDaemon(true)
+      .build();
+
+    this.executor = executor;
+    this.timer = new HashedWheelTimer(threadFactory, TICK_DURATION_IN_MILLIS,
+      TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+  }
+
+  /**
+   * Saves a consumer and schedules its timeout
+   *
+   * @param consumer Consumer to run with the response
+   * @param timeoutInMillis Milliseconds to wait for the response
+   *
+   * @return ID of the saved consumer (never {@link LongIdSlotMap#NO_ID})
+   */
+  public long put(Consumer<ResponseMessage> consumer, long timeoutInMillis)
+  {
+    return put(consumer, timeoutInMillis, null);
+  }
+
+  /**
+   * Saves a consumer and schedules its timeout
+   *
+   * @param consumer Consumer to run with the response
+   * @param timeoutInMillis Milliseconds to wait for the response
+   * @param statistics Statistics of the destination of the request or null
+   *
+   * @return ID of the saved consumer (never {@link LongIdSlotMap#NO_ID})
+   */
+  public long put(
+    Consumer<ResponseMessage> consumer, long timeoutInMillis, ResponseStatistics statistics)
+  {
+    Preconditions.checkNotNull(consumer, "consumer");
+    Preconditions.checkArgument(timeoutInMillis > 0, "timeoutInMillis must be > 0");
+
+    ExpirableConsumer<ResponseMessage> responseConsumer = new ExpirableConsumer<>(consumer,
+      System.currentTimeMillis() + timeoutInMillis, statistics);
+    long consumerId = consumerMap.put(responseConsumer);
+    pendingCount.increment();
+
+    // If the response arrives before the timeout is set, the timeout finds no
+    // consumer when it expires and does nothing.
+    responseConsumer.setTimeout(timer.newTimeout(
+      (timeout) -> onTimeout(consumerId), timeoutInMillis, TimeUnit.MILLISECONDS));
+
+    if (consumer instanceof ResponseFuture)
+    {
+      ((ResponseFuture) consumer).onSaved(this, consumerId);
+    }
+
+    return consumerId;
+  }
+
+  /**
+   * Removes a consumer (to run it with a response) and cancels its timeout
+   *
+   * @param consumerId ID of the saved consumer
+   *
+   * @return Removed consumer or null if it timed out (or was never saved)
+   */
+  public ExpirableConsumer<ResponseMessage> remove(long consumerId)
+  {
+    ExpirableConsumer<ResponseMessage> responseConsumer = consumerMap.remove(consumerId);
+
+    if (responseConsumer != null)
+    {
+      pendingCount.decrement();
+      responseConsumer.cancelTimeout();
+    }
+
+    return responseConsumer;
+  }
+
+  /**
+   * @return Number of consumers waiting for a response
+   */
+  public long getPendingCount()
+  {
+    return Math.max(0, pendingCount.sum());
+  }
+
+  /**
+   * Removes all consumers without running them and stops the timer
+   */
+  public void shutdown()
+  {
+    timer.stop();
+    consumerMap.clear();
+    pendingCount.reset();
+  }
+
+  private void onTimeout(long consumerId)
+  {
+    ExpirableConsumer<ResponseMessage> responseConsumer = consumerMap.remove(consumerId);
+
+    if (responseConsumer == null)
+    {
+      return;
+    }
+
+    pendingCount.decrement();
+    responseConsumer.recordResponse(ResponseStatus.TIMED_OUT);
+
+    ResponseMessage responseMessage = new ResponseMessage(ResponseStatus.TIMED_OUT);
+
+    try
+    {
+      executor.execute(() -> responseConsumer.accept(responseMessage));
+    }
+    catch (RejectedExecutionException ex)
+    {
+      // The pool rejects tasks once it is full (with the Abort policy) or shut down.
+      // The consumer has already been removed from the map, so it is run on the timer
+      // thread since it would never be called otherwise (and a ResponseFuture would
+      // never complete).
+      responseConsumer.accept(responseMessage);
+    }
+  }
+}
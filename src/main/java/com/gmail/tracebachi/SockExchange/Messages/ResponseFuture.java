@@ -0,0 +1,122 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Messages;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Future of a response which is passed where a response consumer is expected
+ * <p>
+ * The future completes with every response status (including failures such as
+ * {@link ResponseStatus#TIMED_OUT}), so it only completes exceptionally if the
+ * completion executor rejects it. The response it completes with keeps a copy
+ * of the bytes, so it stays readable after the received frame is released.
+ * <p>
+ * Cancelling the future removes it from the {@link ResponseConsumerMap} it was
+ * saved in (and cancels its timeout).
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class ResponseFuture extends CompletableFuture<ResponseMessage>
+  implements Consumer<ResponseMessage>
+{
+  private final Executor completionExecutor;
+  private volatile long consumerId;
+  private volatile ResponseConsumerMap consumerMap;
+
+  /**
+   * Creates a future that completes on the thread that runs response consumers
+   */
+  public ResponseFuture()
+  {
+    this(null);
+  }
+
+  /**
+   * @param completionExecutor Executor to complete the future on (and run the
+   * stages that depend on it) or null to complete it on the thread that runs
+   * response consumers
+   */
+  public ResponseFuture(Executor completionExecutor)
+  {
+    this.completionExecutor = completionExecutor;
+  }
+
+  @Override
+  public void accept(ResponseMessage responseMessage)
+  {
+    ResponseMessage result = new ResponseMessage(responseMessage.getResponseStatus(),
+      responseMessage.getMessageBytes());
+
+    if (completionExecutor == null)
+    {
+      complete(result);
+      return;
+    }
+
+    try
+    {
+      completionExecutor.execute(() -> complete(result));
+    }
+    catch (RejectedExecutionException ex)
+    {
+      completeExceptionally(ex);
+    }
+  }
+
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning)
+  {
+    boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+    if (cancelled)
+    {
+      removeFromConsumerMap();
+    }
+
+    return cancelled;
+  }
+
+  /**
+   * Called by {@link ResponseConsumerMap} once the future is saved
+   */
+  void onSaved(ResponseConsumerMap consumerMap, long consumerId)
+  {
+    this.consumerId = consumerId;
+    this.consumerMap = consumerMap;
+
+    // The future may have been cancelled before it was saved
+    if (isCancelled())
+    {
+      removeFromConsumerMap();
+    }
+  }
+
+  private void removeFromConsumerMap()
+  {
+    ResponseConsumerMap consumerMap = this.consumerMap;
+
+    if (consumerMap != null)
+    {
+      consumerMap.remove(consumerId);
+    }
+  }
+}
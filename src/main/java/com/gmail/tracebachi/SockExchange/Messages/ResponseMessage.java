@@ -17,24 +17,38 @@
  */
 package com.gmail.tracebachi.SockExchange.Messages;
 
+import com.gmail.tracebachi.SockExchange.Utilities.BufferUtil;
 import com.google.common.base.Preconditions;
 import com.google.common.io.ByteArrayDataInput;
 import com.google.common.io.ByteStreams;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * A response (or failure) for a sent message
+ * <p>
+ * The same release rule as {@link ReceivedMessage} applies: the message buffer
+ * is only guaranteed to be readable while the response consumer is running.
+ * Reading the bytes of a response whose buffer has been released throws an
+ * {@link IllegalStateException}.
+ *
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class ResponseMessage
 {
   private final ResponseStatus responseStatus;
-  private final byte[] messageBytes;
+  private final ByteBuf messageBuffer;
+  private final AtomicInteger refCnt = new AtomicInteger(1);
+  private volatile byte[] messageBytes;
 
   /**
    * @param responseStatus Status of sending request
    */
   public ResponseMessage(ResponseStatus responseStatus)
   {
-    this(responseStatus, null);
+    this(responseStatus, (ByteBuf) null);
   }
 
   /**
@@ -42,11 +56,23 @@ public class ResponseMessage
    * @param messageBytes Message bytes
    */
   public ResponseMessage(ResponseStatus responseStatus, byte[] messageBytes)
+  {
+    this(responseStatus, messageBytes == null ? null : Unpooled.wrappedBuffer(messageBytes));
+
+    this.messageBytes = messageBytes;
+  }
+
+  /**
+   * @param responseStatus Status of sending request
+   * @param messageBuffer Buffer of the message bytes which this message will take
+   * ownership of (and release when the message is released)
+   */
+  public ResponseMessage(ResponseStatus responseStatus, ByteBuf messageBuffer)
   {
     Preconditions.checkNotNull(responseStatus, "responseStatus");
 
     this.responseStatus = responseStatus;
-    this.messageBytes = messageBytes;
+    this.messageBuffer = messageBuffer;
   }
 
   /**
@@ -58,11 +84,44 @@ public class ResponseMessage
   }
 
   /**
+   * @return Read-only view of the response bytes with its own reader index
+   * (a new view is returned on every call) or null if there are no bytes
+   *
+   * @throws IllegalStateException If the message buffer has been released
+   */
+  public ByteBuf getMessageBuffer()
+  {
+    if (messageBuffer == null)
+    {
+      return null;
+    }
+
+    checkNotReleased();
+
+    return Unpooled.unmodifiableBuffer(messageBuffer);
+  }
+
+  /**
+   * The bytes are copied out of the message buffer on the first call and
+   * remain usable after the message is released.
+   *
    * @return Raw bytes from response
+   *
+   * @throws IllegalStateException If the bytes were not read before the message
+   * buffer was released
    */
   public byte[] getMessageBytes()
   {
-    return messageBytes;
+    byte[] result = messageBytes;
+
+    if (result == null && messageBuffer != null)
+    {
+      checkNotReleased();
+      result = BufferUtil.toByteArray(messageBuffer);
+      messageBytes = result;
+    }
+
+    return result;
   }
 
   /**
@@ -70,11 +129,90 @@ public class ResponseMessage
    */
   public ByteArrayDataInput getDataInput()
   {
-    if (messageBytes == null)
+    byte[] bytes = getMessageBytes();
+
+    if (bytes == null)
     {
       return ByteStreams.newDataInput(new byte[0]);
     }
 
-    return ByteStreams.newDataInput(messageBytes);
+    return ByteStreams.newDataInput(bytes);
+  }
+
+  /**
+   * Increases the reference count of the message
+   *
+   * @return This message
+   *
+   * @throws IllegalStateException If the message has already been released
+   */
+  public ResponseMessage retain()
+  {
+    retainReference();
+    return this;
+  }
+
+  /**
+   * Decreases the reference count of the message and releases the message
+   * buffer (if there is one) once it reaches 0
+   *
+   * @return True if the reference count reached 0 and a buffer was released
+   *
+   * @throws IllegalStateException If the message has already been released
+   */
+  public boolean release()
+  {
+    if (releaseReference() && messageBuffer != null)
+    {
+      messageBuffer.release();
+      return true;
+    }
+
+    return false;
+  }
+
+  private void retainReference()
+  {
+    int count;
+    do
+    {
+      count = refCnt.get();
+      if (count == 0)
+      {
+        throw new IllegalStateException("Response has already been released");
+      }
+    }
+    while (!refCnt.compareAndSet(count, count + 1));
+  }
+
+  /**
+   * @return True if the last reference was released
+   */
+  private boolean releaseReference()
+  {
+    int count;
+    do
+    {
+      count = refCnt.get();
+      if (count == 0)
+      {
+        throw new IllegalStateException("Response has already been released");
+      }
+    }
+    while (!refCnt.compareAndSet(count, count - 1));
+
+    return count == 1;
+  }
+
+  private void checkNotReleased()
+  {
+    // The buffer is a slice that shares the reference count of the received frame,
+    // whose (pooled) buffer may already hold another frame, so only the count of
+    // this response tells if it has been released
+    if (refCnt.get() == 0)
+    {
+      throw new IllegalStateException("Response was released after its consumer returned." +
+        " Read the bytes with getMessageBytes() or call retain() before returning from the consumer.");
+    }
   }
 }
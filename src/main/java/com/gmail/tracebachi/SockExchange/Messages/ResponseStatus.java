@@ -27,7 +27,8 @@ public enum ResponseStatus
   TIMED_OUT,
   SERVER_OFFLINE,
   SERVER_NOT_FOUND,
-  PLAYER_NOT_FOUND;
+  PLAYER_NOT_FOUND,
+  WRITE_LIMIT_REACHED;
 
   public boolean isOk()
   {
@@ -50,6 +51,8 @@ public enum ResponseStatus
         return SERVER_NOT_FOUND;
       case 5:
         return PLAYER_NOT_FOUND;
+      case 6:
+        return WRITE_LIMIT_REACHED;
     }
 
     throw new IllegalArgumentException("Unknown mapping for ordinal");
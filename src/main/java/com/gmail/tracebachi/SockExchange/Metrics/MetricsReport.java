@@ -0,0 +1,151 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Metrics;
+
+import com.gmail.tracebachi.SockExchange.Messages.ChannelStatistics;
+import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
+import com.gmail.tracebachi.SockExchange.Utilities.LatencyHistogram;
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Formats the metrics of SockExchange into lines for the stats commands
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class MetricsReport
+{
+  private MetricsReport()
+  {
+  }
+
+  /**
+   * @param metrics Metrics to format
+   * @param messageNotifier Notifier to format the consumer statistics of
+   *
+   * @return Lines describing the gauges, counters, channels, connections and responses
+   */
+  public static List<String> toLines(
+    SockExchangeMetrics metrics, ReceivedMessageNotifier messageNotifier)
+  {
+    Preconditions.checkNotNull(metrics, "metrics");
+    Preconditions.checkNotNull(messageNotifier, "messageNotifier");
+
+    List<String> lines = new ArrayList<>();
+
+    StringBuilder builder = new StringBuilder("Gauges:");
+    for (Map.Entry<String, Long> entry : metrics.getGaugeValues().entrySet())
+    {
+      builder.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+    }
+    lines.add(builder.toString());
+
+    builder.setLength(0);
+    builder.append("Counters:");
+    for (Map.Entry<String, Long> entry : metrics.getCounterValues().entrySet())
+    {
+      builder.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+    }
+    lines.add(builder.toString());
+
+    // Channels with consumers but no traffic are listed too
+    Map<String, TrafficStatistics> channelTrafficMap = metrics.getChannelTrafficMap();
+    TreeSet<String> channelNames = new TreeSet<>(channelTrafficMap.keySet());
+    channelNames.addAll(messageNotifier.getChannelNames());
+
+    for (String channelName : channelNames)
+    {
+      TrafficStatistics traffic = channelTrafficMap.get(channelName);
+      ChannelStatistics consumerStatistics = messageNotifier.getChannelStatistics(channelName);
+
+      builder.setLength(0);
+      builder.append("Channel ").append(channelName).append(':');
+      appendTraffic(builder, traffic);
+
+      if (consumerStatistics != null)
+      {
+        builder.append(", queued ").append(consumerStatistics.getQueueDepth())
+          .append(", handled ").append(consumerStatistics.getHandledCount())
+          .append(" (avg ").append(consumerStatistics.getAverageHandlerMicros())
+          .append(" us, max ").append(consumerStatistics.getMaxHandlerMicros()).append(" us)")
+          .append(", dropped ").append(consumerStatistics.getDroppedCount());
+      }
+
+      lines.add(builder.toString());
+    }
+
+    // Connections that never had traffic are listed too
+    Map<String, TrafficStatistics> connectionTrafficMap = metrics.getConnectionTrafficMap();
+    Map<String, Boolean> connectionStates = metrics.getConnectionStates();
+    TreeSet<String> connectionNames = new TreeSet<>(connectionTrafficMap.keySet());
+    connectionNames.addAll(connectionStates.keySet());
+
+    for (String connectionName : connectionNames)
+    {
+      Boolean connected = connectionStates.get(connectionName);
+
+      builder.setLength(0);
+      builder.append("Connection ").append(connectionName);
+      if (connected != null)
+      {
+        builder.append(connected ? " (connected)" : " (disconnected)");
+      }
+      builder.append(':');
+      appendTraffic(builder, connectionTrafficMap.get(connectionName));
+      lines.add(builder.toString());
+    }
+
+    for (Map.Entry<String, ResponseStatistics> entry : metrics.getResponseStatisticsMap().entrySet())
+    {
+      ResponseStatistics statistics = entry.getValue();
+      LatencyHistogram roundTripNanos = statistics.getRoundTripNanos();
+
+      builder.setLength(0);
+      builder.append("Responses ").append(entry.getKey()).append(": ")
+        .append(statistics.getResponseCount()).append(" ok (p50 ")
+        .append(toMillis(roundTripNanos.getValueAtPercentile(50))).append(" ms, p99 ")
+        .append(toMillis(roundTripNanos.getValueAtPercentile(99))).append(" ms, p99.9 ")
+        .append(toMillis(roundTripNanos.getValueAtPercentile(99.9))).append(" ms), ")
+        .append(statistics.getTimeoutCount()).append(" timed out, ")
+        .append(statistics.getFailureCount()).append(" failed");
+      lines.add(builder.toString());
+    }
+
+    return lines;
+  }
+
+  private static void appendTraffic(StringBuilder builder, TrafficStatistics traffic)
+  {
+    long messagesIn = traffic == null ? 0 : traffic.getMessagesIn();
+    long bytesIn = traffic == null ? 0 : traffic.getBytesIn();
+    long messagesOut = traffic == null ? 0 : traffic.getMessagesOut();
+    long bytesOut = traffic == null ? 0 : traffic.getBytesOut();
+
+    builder.append(" in ").append(messagesIn).append(" (").append(bytesIn).append(" B)")
+      .append(", out ").append(messagesOut).append(" (").append(bytesOut).append(" B)");
+  }
+
+  private static String toMillis(long nanos)
+  {
+    return String.format("%.2f", nanos / 1e6);
+  }
+}
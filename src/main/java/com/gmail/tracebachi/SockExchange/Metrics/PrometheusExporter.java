@@ -0,0 +1,111 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Metrics;
+
+import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
+import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
+import com.google.common.base.Preconditions;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+
+/**
+ * HTTP server that exposes the metrics of SockExchange at {@code /metrics} in
+ * the Prometheus text exposition format
+ * <p>
+ * The server runs on its own event loop thread, so scrapes never wait behind
+ * (or delay) the connections of SockExchange.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class PrometheusExporter
+{
+  private static final int MAX_REQUEST_BYTES = 8192;
+
+  private final String host;
+  private final int port;
+  private final ServerBootstrap bootstrap;
+  private final EventLoopGroup eventLoopGroup;
+
+  private boolean started = false;
+
+  public PrometheusExporter(
+    String host, int port, SockExchangeMetrics metrics, ReceivedMessageNotifier messageNotifier)
+  {
+    ExtraPreconditions.checkNotEmpty(host, "host");
+    Preconditions.checkArgument(port > 0, "port");
+    Preconditions.checkNotNull(metrics, "metrics");
+    Preconditions.checkNotNull(messageNotifier, "messageNotifier");
+
+    this.host = host;
+    this.port = port;
+    this.eventLoopGroup = new NioEventLoopGroup(1);
+    this.bootstrap = new ServerBootstrap()
+      .group(eventLoopGroup)
+      .channel(NioServerSocketChannel.class)
+      .childHandler(new ChannelInitializer<SocketChannel>()
+      {
+        @Override
+        protected void initChannel(SocketChannel channel) throws Exception
+        {
+          ChannelPipeline pipeline = channel.pipeline();
+          pipeline.addLast("HttpServerCodec", new HttpServerCodec());
+          pipeline.addLast("HttpObjectAggregator", new HttpObjectAggregator(MAX_REQUEST_BYTES));
+          pipeline.addLast("PrometheusHttpHandler",
+            new PrometheusHttpHandler(metrics, messageNotifier));
+        }
+      })
+      .option(ChannelOption.SO_BACKLOG, 16)
+      .option(ChannelOption.SO_REUSEADDR, true);
+  }
+
+  public synchronized void start() throws Exception
+  {
+    Preconditions.checkState(!started, "PrometheusExporter has been started");
+
+    // Try to bind to the address and await the result
+    ChannelFuture bindFuture = bootstrap.bind(host, port);
+    bindFuture.await();
+
+    // If the bind failed, re-throw the cause of the failure
+    if (!bindFuture.isSuccess())
+    {
+      eventLoopGroup.shutdownGracefully();
+      throw new Exception(bindFuture.cause());
+    }
+    else
+    {
+      started = true;
+    }
+  }
+
+  public synchronized void shutdown()
+  {
+    Preconditions.checkState(started, "PrometheusExporter has not been started");
+
+    eventLoopGroup.shutdownGracefully();
+  }
+}
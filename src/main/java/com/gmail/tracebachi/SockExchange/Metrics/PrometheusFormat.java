@@ -0,0 +1,339 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Metrics;
+
+import com.gmail.tracebachi.SockExchange.Messages.ChannelStatistics;
+import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
+import com.gmail.tracebachi.SockExchange.Utilities.LatencyHistogram;
+import com.google.common.base.Preconditions;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formats the metrics of SockExchange in the Prometheus text exposition format
+ * (version 0.0.4)
+ * <p>
+ * Every value is read from counters, gauges or histogram buckets that already
+ * exist, so the cost of formatting depends on the number of channels, connections
+ * and destinations and not on the number of messages sent.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class PrometheusFormat
+{
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final String PREFIX = "sockexchange_";
+
+  /**
+   * Upper bounds of the response latency buckets (in nanoseconds)
+   */
+  private static final long[] RESPONSE_BUCKET_NANOS = {
+    TimeUnit.MICROSECONDS.toNanos(250),
+    TimeUnit.MICROSECONDS.toNanos(500),
+    TimeUnit.MILLISECONDS.toNanos(1),
+    TimeUnit.MICROSECONDS.toNanos(2500),
+    TimeUnit.MILLISECONDS.toNanos(5),
+    TimeUnit.MILLISECONDS.toNanos(10),
+    TimeUnit.MILLISECONDS.toNanos(25),
+    TimeUnit.MILLISECONDS.toNanos(50),
+    TimeUnit.MILLISECONDS.toNanos(100),
+    TimeUnit.MILLISECONDS.toNanos(250),
+    TimeUnit.MILLISECONDS.toNanos(500),
+    TimeUnit.SECONDS.toNanos(1),
+    TimeUnit.MILLISECONDS.toNanos(2500),
+    TimeUnit.SECONDS.toNanos(5),
+    TimeUnit.SECONDS.toNanos(10)
+  };
+
+  private static final String[] RESPONSE_BUCKET_LABELS = new String[RESPONSE_BUCKET_NANOS.length];
+
+  static
+  {
+    for (int i = 0; i < RESPONSE_BUCKET_NANOS.length; i++)
+    {
+      RESPONSE_BUCKET_LABELS[i] = toSeconds(RESPONSE_BUCKET_NANOS[i]);
+    }
+  }
+
+  private PrometheusFormat()
+  {
+  }
+
+  /**
+   * @param metrics Metrics to format
+   * @param messageNotifier Notifier to format the consumer statistics of
+   *
+   * @return Metrics in the text exposition format
+   */
+  public static String format(SockExchangeMetrics metrics, ReceivedMessageNotifier messageNotifier)
+  {
+    Preconditions.checkNotNull(metrics, "metrics");
+    Preconditions.checkNotNull(messageNotifier, "messageNotifier");
+
+    StringBuilder builder = new StringBuilder(4096);
+
+    appendConnections(builder, metrics);
+    appendChannels(builder, metrics, messageNotifier);
+    appendResponses(builder, metrics);
+    appendSuppliedValues(builder, metrics, metrics.getGaugeValues(), "gauge", "");
+    appendSuppliedValues(builder, metrics, metrics.getCounterValues(), "counter", "_total");
+
+    return builder.toString();
+  }
+
+  private static void appendConnections(StringBuilder builder, SockExchangeMetrics metrics)
+  {
+    Map<String, Boolean> connectionStates = metrics.getConnectionStates();
+    Map<String, TrafficStatistics> connectionTrafficMap = metrics.getConnectionTrafficMap();
+
+    appendHeader(builder, "connection_up", "gauge",
+      "Whether the connection to the server is open (1) or not (0)");
+    for (Map.Entry<String, Boolean> entry : connectionStates.entrySet())
+    {
+      appendSample(builder, "connection_up", "server", entry.getKey(), entry.getValue() ? 1 : 0);
+    }
+
+    appendTraffic(builder, "connection", "server", connectionTrafficMap);
+  }
+
+  private static void appendChannels(
+    StringBuilder builder, SockExchangeMetrics metrics, ReceivedMessageNotifier messageNotifier)
+  {
+    appendTraffic(builder, "channel", "channel", metrics.getChannelTrafficMap());
+
+    TreeSet<String> channelNames = new TreeSet<>(messageNotifier.getChannelNames());
+
+    appendHeader(builder, "consumer_queue_depth", "gauge",
+      "Consumer runs that are waiting to start");
+    for (String channelName : channelNames)
+    {
+      ChannelStatistics statistics = messageNotifier.getChannelStatistics(channelName);
+      if (statistics != null)
+      {
+        appendSample(builder, "consumer_queue_depth", "channel", channelName,
+          statistics.getQueueDepth());
+      }
+    }
+
+    appendHeader(builder, "consumer_runs_total", "counter",
+      "Consumer runs that have finished");
+    for (String channelName : channelNames)
+    {
+      ChannelStatistics statistics = messageNotifier.getChannelStatistics(channelName);
+      if (statistics != null)
+      {
+        appendSample(builder, "consumer_runs_total", "channel", channelName,
+          statistics.getHandledCount());
+      }
+    }
+
+    appendHeader(builder, "consumer_dropped_total", "counter",
+      "Consumer runs that were dropped because the executor rejected them");
+    for (String channelName : channelNames)
+    {
+      ChannelStatistics statistics = messageNotifier.getChannelStatistics(channelName);
+      if (statistics != null)
+      {
+        appendSample(builder, "consumer_dropped_total", "channel", channelName,
+          statistics.getDroppedCount());
+      }
+    }
+
+    appendHeader(builder, "consumer_seconds_total", "counter",
+      "Time the consumers took to run");
+    for (String channelName : channelNames)
+    {
+      ChannelStatistics statistics = messageNotifier.getChannelStatistics(channelName);
+      if (statistics != null)
+      {
+        appendSample(builder, "consumer_seconds_total", "channel", channelName,
+          toSeconds(statistics.getTotalHandlerNanos()));
+      }
+    }
+  }
+
+  private static void appendResponses(StringBuilder builder, SockExchangeMetrics metrics)
+  {
+    Map<String, ResponseStatistics> responseStatisticsMap = metrics.getResponseStatisticsMap();
+
+    appendHeader(builder, "response_seconds", "histogram",
+      "Time from sending a request to receiving an OK response");
+    for (Map.Entry<String, ResponseStatistics> entry : responseStatisticsMap.entrySet())
+    {
+      String destination = entry.getKey();
+      LatencyHistogram roundTripNanos = entry.getValue().getRoundTripNanos();
+      long[] cumulativeCounts = roundTripNanos.getCumulativeCounts(RESPONSE_BUCKET_NANOS);
+
+      for (int i = 0; i < RESPONSE_BUCKET_LABELS.length; i++)
+      {
+        appendBucket(builder, destination, RESPONSE_BUCKET_LABELS[i], cumulativeCounts[i]);
+      }
+
+      long count = cumulativeCounts[RESPONSE_BUCKET_LABELS.length];
+      appendBucket(builder, destination, "+Inf", count);
+      appendSample(builder, "response_seconds_sum", "destination", destination,
+        toSeconds(roundTripNanos.getSum()));
+      appendSample(builder, "response_seconds_count", "destination", destination, count);
+    }
+
+    appendHeader(builder, "response_timeouts_total", "counter",
+      "Requests whose response timed out");
+    for (Map.Entry<String, ResponseStatistics> entry : responseStatisticsMap.entrySet())
+    {
+      appendSample(builder, "response_timeouts_total", "destination", entry.getKey(),
+        entry.getValue().getTimeoutCount());
+    }
+
+    appendHeader(builder, "response_failures_total", "counter",
+      "Requests whose response was neither OK nor timed out");
+    for (Map.Entry<String, ResponseStatistics> entry : responseStatisticsMap.entrySet())
+    {
+      appendSample(builder, "response_failures_total", "destination", entry.getKey(),
+        entry.getValue().getFailureCount());
+    }
+  }
+
+  private static void appendSuppliedValues(
+    StringBuilder builder, SockExchangeMetrics metrics, Map<String, Long> values, String type,
+    String suffix)
+  {
+    for (Map.Entry<String, Long> entry : values.entrySet())
+    {
+      String name = toSnakeCase(entry.getKey()) + suffix;
+      String help = metrics.getHelp(entry.getKey());
+
+      appendHeader(builder, name, type, help != null ? help : entry.getKey());
+      builder.append(PREFIX).append(name).append(' ').append(entry.getValue()).append('\n');
+    }
+  }
+
+  private static void appendTraffic(
+    StringBuilder builder, String kind, String labelName, Map<String, TrafficStatistics> trafficMap)
+  {
+    String messagesName = kind + "_messages_total";
+    String bytesName = kind + "_bytes_total";
+
+    appendHeader(builder, messagesName, "counter", "Messages sent and received per " + labelName);
+    for (Map.Entry<String, TrafficStatistics> entry : trafficMap.entrySet())
+    {
+      appendDirectionSample(builder, messagesName, labelName, entry.getKey(), "in",
+        entry.getValue().getMessagesIn());
+      appendDirectionSample(builder, messagesName, labelName, entry.getKey(), "out",
+        entry.getValue().getMessagesOut());
+    }
+
+    appendHeader(builder, bytesName, "counter", "Message bytes sent and received per " + labelName);
+    for (Map.Entry<String, TrafficStatistics> entry : trafficMap.entrySet())
+    {
+      appendDirectionSample(builder, bytesName, labelName, entry.getKey(), "in",
+        entry.getValue().getBytesIn());
+      appendDirectionSample(builder, bytesName, labelName, entry.getKey(), "out",
+        entry.getValue().getBytesOut());
+    }
+  }
+
+  private static void appendHeader(StringBuilder builder, String name, String type, String help)
+  {
+    builder.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+    builder.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void appendSample(
+    StringBuilder builder, String name, String labelName, String labelValue, Object value)
+  {
+    builder.append(PREFIX).append(name).append('{').append(labelName).append("=\"");
+    appendEscaped(builder, labelValue);
+    builder.append("\"} ").append(value).append('\n');
+  }
+
+  private static void appendDirectionSample(
+    StringBuilder builder, String name, String labelName, String labelValue, String direction,
+    long value)
+  {
+    builder.append(PREFIX).append(name).append('{').append(labelName).append("=\"");
+    appendEscaped(builder, labelValue);
+    builder.append("\",direction=\"").append(direction).append("\"} ").append(value).append('\n');
+  }
+
+  private static void appendBucket(
+    StringBuilder builder, String destination, String upperBound, long count)
+  {
+    builder.append(PREFIX).append("response_seconds_bucket{destination=\"");
+    appendEscaped(builder, destination);
+    builder.append("\",le=\"").append(upperBound).append("\"} ").append(count).append('\n');
+  }
+
+  private static void appendEscaped(StringBuilder builder, String labelValue)
+  {
+    for (int i = 0; i < labelValue.length(); i++)
+    {
+      char c = labelValue.charAt(i);
+
+      if (c == '\\' || c == '"')
+      {
+        builder.append('\\').append(c);
+      }
+      else if (c == '\n')
+      {
+        builder.append("\\n");
+      }
+      else
+      {
+        builder.append(c);
+      }
+    }
+  }
+
+  private static String toSeconds(long nanos)
+  {
+    return BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();
+  }
+
+  private static String toSnakeCase(String name)
+  {
+    StringBuilder builder = new StringBuilder(name.length() + 8);
+
+    for (int i = 0; i < name.length(); i++)
+    {
+      char c = name.charAt(i);
+
+      if (Character.isUpperCase(c))
+      {
+        if (i > 0)
+        {
+          builder.append('_');
+        }
+        builder.append(Character.toLowerCase(c));
+      }
+      else if (Character.isLetterOrDigit(c))
+      {
+        builder.append(c);
+      }
+      else
+      {
+        builder.append('_');
+      }
+    }
+
+    return builder.toString();
+  }
+}
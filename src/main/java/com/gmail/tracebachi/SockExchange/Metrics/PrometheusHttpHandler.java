@@ -0,0 +1,130 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Metrics;
+
+import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Answers {@code GET /metrics} with the formatted metrics and every other
+ * request with an error status
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+class PrometheusHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
+{
+  private static final String METRICS_PATH = "/metrics";
+
+  private final SockExchangeMetrics metrics;
+  private final ReceivedMessageNotifier messageNotifier;
+
+  PrometheusHttpHandler(SockExchangeMetrics metrics, ReceivedMessageNotifier messageNotifier)
+  {
+    this.metrics = metrics;
+    this.messageNotifier = messageNotifier;
+  }
+
+  @Override
+  protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request)
+  {
+    if (!request.getDecoderResult().isSuccess())
+    {
+      sendError(ctx, HttpResponseStatus.BAD_REQUEST, false);
+      return;
+    }
+
+    boolean keepAlive = HttpHeaders.isKeepAlive(request);
+
+    if (!METRICS_PATH.equals(new QueryStringDecoder(request.getUri()).path()))
+    {
+      sendError(ctx, HttpResponseStatus.NOT_FOUND, keepAlive);
+      return;
+    }
+
+    if (request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD)
+    {
+      sendError(ctx, HttpResponseStatus.METHOD_NOT_ALLOWED, keepAlive);
+      return;
+    }
+
+    String body = PrometheusFormat.format(metrics, messageNotifier);
+    ByteBuf content = Unpooled.copiedBuffer(body, CharsetUtil.UTF_8);
+    int contentLength = content.readableBytes();
+
+    if (request.getMethod() == HttpMethod.HEAD)
+    {
+      content.release();
+      content = Unpooled.EMPTY_BUFFER;
+    }
+
+    FullHttpResponse response = new DefaultFullHttpResponse(
+      HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+    response.headers().set(HttpHeaders.Names.CONTENT_TYPE, PrometheusFormat.CONTENT_TYPE);
+    HttpHeaders.setContentLength(response, contentLength);
+
+    send(ctx, response, keepAlive);
+  }
+
+  @Override
+  public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+  {
+    ctx.close();
+  }
+
+  private static void sendError(
+    ChannelHandlerContext ctx, HttpResponseStatus status, boolean keepAlive)
+  {
+    ByteBuf content = Unpooled.copiedBuffer(status.toString() + "\n", CharsetUtil.UTF_8);
+
+    FullHttpResponse response = new DefaultFullHttpResponse(
+      HttpVersion.HTTP_1_1, status, content);
+    response.headers().set(HttpHeaders.Names.CONTENT_TYPE, "text/plain; charset=utf-8");
+    HttpHeaders.setContentLength(response, content.readableBytes());
+
+    send(ctx, response, keepAlive);
+  }
+
+  private static void send(ChannelHandlerContext ctx, FullHttpResponse response, boolean keepAlive)
+  {
+    if (keepAlive)
+    {
+      response.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+    }
+
+    ChannelFuture future = ctx.writeAndFlush(response);
+
+    if (!keepAlive)
+    {
+      future.addListener(ChannelFutureListener.CLOSE);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Metrics;
+
+import com.gmail.tracebachi.SockExchange.Messages.ResponseStatus;
+import com.gmail.tracebachi.SockExchange.Utilities.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Round-trip latencies and failures of the requests (with a response) sent to
+ * a destination
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class ResponseStatistics
+{
+  private final LatencyHistogram roundTripNanos = new LatencyHistogram();
+  private final LongAdder timeoutCount = new LongAdder();
+  private final LongAdder failureCount = new LongAdder();
+
+  /**
+   * @return Histogram of the round-trip time (in nanoseconds) of the requests
+   * with an OK response
+   */
+  public LatencyHistogram getRoundTripNanos()
+  {
+    return roundTripNanos;
+  }
+
+  /**
+   * @return Number of requests with an OK response
+   */
+  public long getResponseCount()
+  {
+    return roundTripNanos.getCount();
+  }
+
+  /**
+   * @return Number of requests that timed out
+   */
+  public long getTimeoutCount()
+  {
+    return timeoutCount.sum();
+  }
+
+  /**
+   * @return Number of requests with a response that is not OK (other than a timeout)
+   */
+  public long getFailureCount()
+  {
+    return failureCount.sum();
+  }
+
+  /**
+   * Called once for every saved response consumer when it is removed with a
+   * response (or a timeout)
+   *
+   * @param roundTripNanos Time since the consumer was saved (in nanoseconds)
+   * @param responseStatus Status of the response
+   */
+  public void recordResponse(long roundTripNanos, ResponseStatus responseStatus)
+  {
+    if (responseStatus == ResponseStatus.OK)
+    {
+      this.roundTripNanos.record(roundTripNanos);
+    }
+    else if (responseStatus == ResponseStatus.TIMED_OUT)
+    {
+      timeoutCount.increment();
+    }
+    else
+    {
+      failureCount.increment();
+    }
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Metrics;
+
+import com.gmail.tracebachi.SockExchange.Utilities.CaseInsensitiveMap;
+import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
+import com.google.common.base.Preconditions;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the metrics of SockExchange on Bungee or on a Spigot server
+ * <p>
+ * Statistics are created the first time they are looked up and are never
+ * removed, so they can be cached by the code that records to them. Gauges and
+ * counters are read when the metrics are displayed (or scraped) instead of being
+ * updated on every message.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class SockExchangeMetrics
+{
+  /**
+   * Name used for Bungee as the connection of a Spigot server and as a destination
+   */
+  public static final String BUNGEE = "Bungee";
+
+  /**
+   * Destination of requests sent to the server of a player
+   */
+  public static final String SERVER_OF_PLAYER = "ServerOfPlayer";
+
+  /**
+   * Destination of requests sent to multiple servers with one aggregated response
+   */
+  public static final String MULTICAST = "Multicast";
+
+  private final ConcurrentHashMap<String, TrafficStatistics> channelTrafficMap =
+    new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, TrafficStatistics> connectionTrafficMap =
+    new ConcurrentHashMap<>();
+  private final Map<String, ResponseStatistics> responseStatisticsMap =
+    new CaseInsensitiveMap<>(new ConcurrentHashMap<>());
+  private final ConcurrentHashMap<String, BooleanSupplier> connectionStateMap =
+    new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, SuppliedValue> gaugeMap = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, SuppliedValue> counterMap = new ConcurrentHashMap<>();
+
+  /**
+   * @param channelName Name of the channel
+   *
+   * @return Traffic of the channel (which is created if it does not exist)
+   */
+  public TrafficStatistics getChannelTraffic(String channelName)
+  {
+    TrafficStatistics statistics = channelTrafficMap.get(channelName);
+
+    if (statistics == null)
+    {
+      ExtraPreconditions.checkNotEmpty(channelName, "channelName");
+      statistics = channelTrafficMap.computeIfAbsent(channelName, (k) -> new TrafficStatistics());
+    }
+
+    return statistics;
+  }
+
+  /**
+   * @param serverName Name of the server of the connection (or {@link #BUNGEE}
+   * for the connection of a Spigot server)
+   *
+   * @return Traffic of the connection (which is created if it does not exist)
+   */
+  public TrafficStatistics getConnectionTraffic(String serverName)
+  {
+    ExtraPreconditions.checkNotEmpty(serverName, "serverName");
+
+    return connectionTrafficMap.computeIfAbsent(serverName, (k) -> new TrafficStatistics());
+  }
+
+  /**
+   * @param destination Name of the server, {@link #BUNGEE}, {@link #SERVER_OF_PLAYER}
+   * or {@link #MULTICAST}
+   *
+   * @return Response statistics of the destination (which are created if they do not exist)
+   */
+  public ResponseStatistics getResponseStatistics(String destination)
+  {
+    ExtraPreconditions.checkNotEmpty(destination, "destination");
+
+    return responseStatisticsMap.computeIfAbsent(destination, (k) -> new ResponseStatistics());
+  }
+
+  /**
+   * @return Sorted copy of the traffic of every channel
+   */
+  public Map<String, TrafficStatistics> getChannelTrafficMap()
+  {
+    return Collections.unmodifiableMap(new TreeMap<>(channelTrafficMap));
+  }
+
+  /**
+   * @return Sorted copy of the traffic of every connection
+   */
+  public Map<String, TrafficStatistics> getConnectionTrafficMap()
+  {
+    return Collections.unmodifiableMap(new TreeMap<>(connectionTrafficMap));
+  }
+
+  /**
+   * @return Sorted copy of the response statistics of every destination (whose
+   * names are in lower case since destinations are matched ignoring case)
+   */
+  public Map<String, ResponseStatistics> getResponseStatisticsMap()
+  {
+    return Collections.unmodifiableMap(new TreeMap<>(responseStatisticsMap));
+  }
+
+  /**
+   * Adds (or replaces) the state of a connection which is read when the
+   * metrics are displayed
+   *
+   * @param serverName Name of the server of the connection (or {@link #BUNGEE}
+   * for the connection of a Spigot server)
+   * @param isConnected Supplier of whether the connection is open which must be
+   * thread-safe
+   */
+  public void addConnectionState(String serverName, BooleanSupplier isConnected)
+  {
+    ExtraPreconditions.checkNotEmpty(serverName, "serverName");
+    Preconditions.checkNotNull(isConnected, "isConnected");
+
+    connectionStateMap.put(serverName, isConnected);
+  }
+
+  /**
+   * @return Sorted map of the names of the connections to whether they are open
+   */
+  public Map<String, Boolean> getConnectionStates()
+  {
+    Map<String, Boolean> result = new TreeMap<>();
+
+    for (Map.Entry<String, BooleanSupplier> entry : connectionStateMap.entrySet())
+    {
+      result.put(entry.getKey(), entry.getValue().getAsBoolean());
+    }
+
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * Adds (or replaces) a value that is read when the metrics are displayed
+   *
+   * @param name Name of the gauge
+   * @param help Description of the gauge
+   * @param supplier Supplier of the current value which must be thread-safe
+   */
+  public void addGauge(String name, String help, LongSupplier supplier)
+  {
+    ExtraPreconditions.checkNotEmpty(name, "name");
+    ExtraPreconditions.checkNotEmpty(help, "help");
+    Preconditions.checkNotNull(supplier, "supplier");
+
+    gaugeMap.put(name, new SuppliedValue(help, supplier));
+  }
+
+  /**
+   * Adds (or replaces) a count that only increases and is read when the metrics
+   * are displayed
+   *
+   * @param name Name of the counter
+   * @param help Description of the counter
+   * @param supplier Supplier of the current count which must be thread-safe
+   */
+  public void addCounter(String name, String help, LongSupplier supplier)
+  {
+    ExtraPreconditions.checkNotEmpty(name, "name");
+    ExtraPreconditions.checkNotEmpty(help, "help");
+    Preconditions.checkNotNull(supplier, "supplier");
+
+    counterMap.put(name, new SuppliedValue(help, supplier));
+  }
+
+  /**
+   * Adds the gauges of a worker pool (if it is a thread pool, since an executor
+   * of virtual threads has no queue or fixed set of threads)
+   *
+   * @param workerPool Pool that runs the tasks of SockExchange
+   */
+  public void addWorkerPoolGauges(ExecutorService workerPool)
+  {
+    Preconditions.checkNotNull(workerPool, "workerPool");
+
+    if (!(workerPool instanceof ThreadPoolExecutor))
+    {
+      return;
+    }
+
+    ThreadPoolExecutor threadPool = (ThreadPoolExecutor) workerPool;
+    addGauge("WorkerQueueDepth", "Tasks waiting in the queue of the worker pool",
+      () -> threadPool.getQueue().size());
+    addGauge("WorkerActiveThreads", "Threads of the worker pool that are running a task",
+      threadPool::getActiveCount);
+    addGauge("WorkerPoolSize", "Threads in the worker pool", threadPool::getPoolSize);
+    addGauge("WorkerMaxPoolSize", "Maximum number of threads in the worker pool",
+      threadPool::getMaximumPoolSize);
+    addGauge("WorkerQueueRemainingCapacity", "Tasks the queue of the worker pool has room for",
+      () -> threadPool.getQueue().remainingCapacity());
+  }
+
+  public void removeGauge(String name)
+  {
+    gaugeMap.remove(name);
+  }
+
+  public void removeCounter(String name)
+  {
+    counterMap.remove(name);
+  }
+
+  /**
+   * @return Sorted map of the names of the gauges to their current values
+   */
+  public Map<String, Long> getGaugeValues()
+  {
+    return getValues(gaugeMap);
+  }
+
+  /**
+   * @return Sorted map of the names of the counters to their current counts
+   */
+  public Map<String, Long> getCounterValues()
+  {
+    return getValues(counterMap);
+  }
+
+  /**
+   * @param name Name of a gauge or counter
+   *
+   * @return Description of the gauge or counter or null if it does not exist
+   */
+  public String getHelp(String name)
+  {
+    SuppliedValue value = gaugeMap.get(name);
+
+    if (value == null)
+    {
+      value = counterMap.get(name);
+    }
+
+    return value != null ? value.help : null;
+  }
+
+  private static Map<String, Long> getValues(Map<String, SuppliedValue> valueMap)
+  {
+    Map<String, Long> result = new TreeMap<>();
+
+    for (Map.Entry<String, SuppliedValue> entry : valueMap.entrySet())
+    {
+      result.put(entry.getKey(), entry.getValue().supplier.getAsLong());
+    }
+
+    return Collections.unmodifiableMap(result);
+  }
+
+  private static class SuppliedValue
+  {
+    private final String help;
+    private final LongSupplier supplier;
+
+    private SuppliedValue(String help, LongSupplier supplier)
+    {
+      this.help = help;
+      this.supplier = supplier;
+    }
+  }
+}
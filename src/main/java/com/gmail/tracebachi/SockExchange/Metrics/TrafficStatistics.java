@@ -0,0 +1,91 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the messages (and their bytes) received and sent on a channel or
+ * through a connection
+ * <p>
+ * The counted bytes are the message bytes, not the bytes of the frames that
+ * carry them.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class TrafficStatistics
+{
+  private final LongAdder messagesIn = new LongAdder();
+  private final LongAdder bytesIn = new LongAdder();
+  private final LongAdder messagesOut = new LongAdder();
+  private final LongAdder bytesOut = new LongAdder();
+
+  /**
+   * @return Number of received messages
+   */
+  public long getMessagesIn()
+  {
+    return messagesIn.sum();
+  }
+
+  /**
+   * @return Number of message bytes received
+   */
+  public long getBytesIn()
+  {
+    return bytesIn.sum();
+  }
+
+  /**
+   * @return Number of sent messages
+   */
+  public long getMessagesOut()
+  {
+    return messagesOut.sum();
+  }
+
+  /**
+   * @return Number of message bytes sent
+   */
+  public long getBytesOut()
+  {
+    return bytesOut.sum();
+  }
+
+  /**
+   * Called by the connections for every received message
+   *
+   * @param numBytes Number of message bytes
+   */
+  public void recordIn(int numBytes)
+  {
+    messagesIn.increment();
+    bytesIn.add(numBytes);
+  }
+
+  /**
+   * Called by the connections for every sent message
+   *
+   * @param numBytes Number of message bytes
+   */
+  public void recordOut(int numBytes)
+  {
+    messagesOut.increment();
+    bytesOut.add(numBytes);
+  }
+}
@@ -20,6 +20,9 @@ package com.gmail.tracebachi.SockExchange.Netty;
 import com.gmail.tracebachi.SockExchange.Netty.Packets.*;
 import com.google.common.base.Preconditions;
 import io.netty.channel.Channel;
+import io.netty.util.concurrent.FastThreadLocalThread;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
@@ -28,6 +31,10 @@ public abstract class AbstractPacketHandler
 {
   protected volatile Channel channel;
 
+  private final Object writabilityLock = new Object();
+  private volatile WriteLimitPolicy writeLimitPolicy = WriteLimitPolicy.FAIL_FAST;
+  private volatile long writeBlockTimeoutInMillis = 1000;
+
   /**
    * @return True if the handler has a channel or false if not
    */
@@ -36,6 +43,51 @@ public abstract class AbstractPacketHandler
     return channel != null;
   }
 
+  /**
+   * @return True if the handler has a channel and the write buffer of the
+   * channel is below its high water mark or false if not
+   */
+  public boolean isWritable()
+  {
+    Channel channel = this.channel;
+
+    return channel != null && channel.isWritable();
+  }
+
+  public WriteLimitPolicy getWriteLimitPolicy()
+  {
+    return writeLimitPolicy;
+  }
+
+  /**
+   * Sets what the handler does with messages while its channel is not writable
+   *
+   * @param writeLimitPolicy Policy to use
+   * @param writeBlockTimeoutInMillis Milliseconds to wait for the channel to
+   * become writable with {@link WriteLimitPolicy#BLOCK}
+   */
+  public void setWriteLimitPolicy(
+    WriteLimitPolicy writeLimitPolicy, long writeBlockTimeoutInMillis)
+  {
+    Preconditions.checkNotNull(writeLimitPolicy, "writeLimitPolicy");
+    Preconditions.checkArgument(writeBlockTimeoutInMillis > 0,
+      "writeBlockTimeoutInMillis must be > 0");
+
+    this.writeLimitPolicy = writeLimitPolicy;
+    this.writeBlockTimeoutInMillis = writeBlockTimeoutInMillis;
+  }
+
+  /**
+   * Informs the packet handler that the writability of the channel changed
+   */
+  public void onChannelWritabilityChanged()
+  {
+    synchronized (writabilityLock)
+    {
+      writabilityLock.notifyAll();
+    }
+  }
+
   /**
    * Informs the packet handler that the passed channel is now active
    */
@@ -55,6 +107,71 @@ public abstract class AbstractPacketHandler
     Preconditions.checkState(this.channel != null, "Channel is not active");
 
     this.channel = null;
+
+    // Wake up threads waiting for the channel to become writable
+    onChannelWritabilityChanged();
+  }
+
+  /**
+   * Checks if a message can be written to the channel
+   * <p>
+   * If the channel is not writable and the write limit policy is
+   * {@link WriteLimitPolicy#BLOCK}, the calling thread waits until the channel is
+   * writable (or the timeout passes). Only API caller threads wait: Netty event loop
+   * threads (including the one reading a request that Bungee relays to another
+   * server) never do, since waiting would stall every channel of the event loop.
+   * They fail fast instead.
+   *
+   * @param channel Channel to write to
+   *
+   * @return True if the message can be written or false if not
+   */
+  protected boolean awaitWritable(Channel channel)
+  {
+    if (channel.isWritable())
+    {
+      return true;
+    }
+
+    if (writeLimitPolicy != WriteLimitPolicy.BLOCK || isEventLoopThread(channel))
+    {
+      return false;
+    }
+
+    long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+      writeBlockTimeoutInMillis);
+
+    synchronized (writabilityLock)
+    {
+      while (!channel.isWritable() && channel.isActive())
+      {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+
+        if (remainingNanos <= 0)
+        {
+          return false;
+        }
+
+        try
+        {
+          TimeUnit.NANOSECONDS.timedWait(writabilityLock, remainingNanos);
+        }
+        catch (InterruptedException ex)
+        {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+    }
+
+    return channel.isWritable();
+  }
+
+  private static boolean isEventLoopThread(Channel channel)
+  {
+    // Netty creates the threads of its event loops with a FastThreadLocalThread
+    return channel.eventLoop().inEventLoop() ||
+      Thread.currentThread() instanceof FastThreadLocalThread;
   }
 
   /**
@@ -112,6 +229,39 @@ public abstract class AbstractPacketHandler
       "Received an unsupported packet. Type: " + PacketToBungeeForward.class.getName());
   }
 
+  /**
+   * Handles requests sent to many servers
+   *
+   * @param packet Packet to handle
+   */
+  public void handle(PacketToBungeeMulticastRequest packet)
+  {
+    throw new IllegalArgumentException(
+      "Received an unsupported packet. Type: " + PacketToBungeeMulticastRequest.class.getName());
+  }
+
+  /**
+   * Handles channel names that need IDs
+   *
+   * @param packet Packet to handle
+   */
+  public void handle(PacketToBungeeChannelNames packet)
+  {
+    throw new IllegalArgumentException(
+      "Received an unsupported packet. Type: " + PacketToBungeeChannelNames.class.getName());
+  }
+
+  /**
+   * Handles assigned channel IDs
+   *
+   * @param packet Packet to handle
+   */
+  public void handle(PacketToSpigotChannelIds packet)
+  {
+    throw new IllegalArgumentException(
+      "Received an unsupported packet. Type: " + PacketToSpigotChannelIds.class.getName());
+  }
+
   /**
    * Handles response packets
    *
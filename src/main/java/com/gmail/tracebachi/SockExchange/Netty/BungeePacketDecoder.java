@@ -17,10 +17,7 @@
  */
 package com.gmail.tracebachi.SockExchange.Netty;
 
-import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToAnyResponse;
-import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeForward;
-import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeRegister;
-import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeRequest;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketDirection;
 import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -28,13 +25,14 @@ import io.netty.handler.codec.MessageToMessageDecoder;
 
 import java.util.List;
 
-import static com.gmail.tracebachi.SockExchange.Netty.Packets.PacketIdMapping.isIdForPacket;
-
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class BungeePacketDecoder extends MessageToMessageDecoder<ByteBuf>
 {
+  private static final PacketDispatcher DISPATCHER =
+    new PacketDispatcher(PacketDirection.TO_BUNGEE);
+
   private volatile AbstractPacketHandler packetHandler;
 
   public BungeePacketDecoder(AbstractPacketHandler packetHandler)
@@ -57,37 +55,9 @@ public class BungeePacketDecoder extends MessageToMessageDecoder<ByteBuf>
   {
     byte packetId = in.readByte();
 
-    if (isIdForPacket(packetId, PacketToBungeeRegister.class))
-    {
-      PacketToBungeeRegister packet = new PacketToBungeeRegister();
-      packet.read(in);
-
-      packetHandler.handle(packet);
-    }
-    else if (isIdForPacket(packetId, PacketToBungeeRequest.class))
-    {
-      PacketToBungeeRequest packet = new PacketToBungeeRequest();
-      packet.read(in);
-
-      packetHandler.handle(packet);
-    }
-    else if (isIdForPacket(packetId, PacketToAnyResponse.class))
-    {
-      PacketToAnyResponse packet = new PacketToAnyResponse();
-      packet.read(in);
-
-      packetHandler.handle(packet);
-    }
-    else if (isIdForPacket(packetId, PacketToBungeeForward.class))
-    {
-      PacketToBungeeForward packet = new PacketToBungeeForward();
-      packet.read(in);
-
-      packetHandler.handle(packet);
-    }
-    else
+    if (!DISPATCHER.readAndDispatch(packetId, in, packetHandler))
     {
-      // All acceptable packet (IDs) have been checked.
+      // All acceptable packet (IDs) are in the dispatcher.
       System.err.println("[BungeePacketDecoder] Unexpected packetId: " + packetId);
       ctx.close();
     }
@@ -114,6 +84,13 @@ public class BungeePacketDecoder extends MessageToMessageDecoder<ByteBuf>
     super.channelInactive(ctx);
   }
 
+  @Override
+  public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception
+  {
+    packetHandler.onChannelWritabilityChanged();
+    super.channelWritabilityChanged(ctx);
+  }
+
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, Throwable throwable) throws Exception
   {
@@ -22,22 +22,21 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
-import static com.gmail.tracebachi.SockExchange.Netty.Packets.PacketIdMapping.isIdForPacket;
-
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class BungeePacketEncoder extends MessageToByteEncoder<AbstractPacket>
 {
+  private static final boolean[] ACCEPTED_IDS =
+    PacketIdMapping.newAcceptedIdTable(PacketDirection.TO_SPIGOT);
+
   @Override
   protected void encode(ChannelHandlerContext ctx, AbstractPacket packet, ByteBuf out)
     throws Exception
   {
     byte packetId = PacketIdMapping.packetToId(packet.getClass());
 
-    if (isIdForPacket(packetId, PacketToSpigotRegister.class) ||
-      isIdForPacket(packetId, PacketToSpigotRequest.class) ||
-      isIdForPacket(packetId, PacketToAnyResponse.class))
+    if (ACCEPTED_IDS[packetId])
     {
       out.writeByte(packetId);
       packet.write(out);
@@ -23,7 +23,6 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.codec.LengthFieldPrepender;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 
 import java.util.concurrent.TimeUnit;
@@ -33,9 +32,11 @@ import java.util.concurrent.TimeUnit;
  */
 public class BungeePipelineInitializer extends ChannelInitializer
 {
+  private static final String FLUSH_CONSOLIDATION_HANDLER = "flush-consolidation-handler";
   private static final String READ_TIMEOUT_HANDLER = "read-timeout-handler";
   private static final String FRAME_DECODER = "frame-decoder";
   private static final String FRAME_PREPENDER = "frame-prepender";
+  private static final String FRAME_COMPRESSION = "frame-compression";
   private static final String PACKET_DECODER = "packet-decoder";
   private static final String PACKET_ENCODER = "packet-encoder";
   private static final int MAX_FRAME_SIZE = 4 * 1024 * 1024; // 4 MB
@@ -44,12 +45,19 @@ public class BungeePipelineInitializer extends ChannelInitializer
   private static final int FRAME_LENGTH_ADJUSTMENT = 0;
 
   private final BungeeTieIn tieIn;
+  private final ChannelSettings channelSettings;
+  private final FlushStatistics flushStatistics;
 
-  public BungeePipelineInitializer(BungeeTieIn tieIn)
+  public BungeePipelineInitializer(
+    BungeeTieIn tieIn, ChannelSettings channelSettings, FlushStatistics flushStatistics)
   {
     Preconditions.checkNotNull(tieIn, "tieIn");
+    Preconditions.checkNotNull(channelSettings, "channelSettings");
+    Preconditions.checkNotNull(flushStatistics, "flushStatistics");
 
     this.tieIn = tieIn;
+    this.channelSettings = channelSettings;
+    this.flushStatistics = flushStatistics;
   }
 
   @Override
@@ -58,6 +66,15 @@ public class BungeePipelineInitializer extends ChannelInitializer
     ChannelPipeline pipeline = channel.pipeline();
     BungeeRegistrationPacketHandler packetHandler = new BungeeRegistrationPacketHandler(tieIn);
 
+    // Add a flush consolidation handler (first, so it sees reads before they are decoded)
+    if (channelSettings.isFlushConsolidation())
+    {
+      FlushConsolidationHandler flushHandler = new FlushConsolidationHandler(
+        channelSettings.getMaxMessagesPerFlush(), channelSettings.getMaxFlushDelayInMicros(),
+        flushStatistics);
+      pipeline.addLast(FLUSH_CONSOLIDATION_HANDLER, flushHandler);
+    }
+
     // Add a read timeout handler
     ReadTimeoutHandler timeoutHandler = new ReadTimeoutHandler(15, TimeUnit.SECONDS);
     pipeline.addLast(READ_TIMEOUT_HANDLER, timeoutHandler);
@@ -69,7 +86,13 @@ public class BungeePipelineInitializer extends ChannelInitializer
     pipeline.addLast(FRAME_DECODER, frameDecoder);
 
     // Add a frame prepender
-    pipeline.addLast(FRAME_PREPENDER, new LengthFieldPrepender(FRAME_LENGTH_FIELD_LENGTH, false));
+    pipeline.addLast(FRAME_PREPENDER, new FrameLengthPrepender());
+
+    // Add a frame compression codec (which passes frames through until registered)
+    FrameCompressionCodec compressionCodec = new FrameCompressionCodec(MAX_FRAME_SIZE,
+      channelSettings.getCompressionType(), channelSettings.getCompressionThreshold(),
+      channelSettings.getCompressionLevel());
+    pipeline.addLast(FRAME_COMPRESSION, compressionCodec);
 
     // Add a packet decoder and encoder
     pipeline.addLast(PACKET_DECODER, new BungeePacketDecoder(packetHandler));
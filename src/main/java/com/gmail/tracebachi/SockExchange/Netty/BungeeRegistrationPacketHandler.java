@@ -72,10 +72,34 @@ public class BungeeRegistrationPacketHandler extends AbstractPacketHandler
     // Set up the BungeeToSpigotConnection for incoming packets
     connection.onChannelActive(channel);
 
+    // Assign IDs to the channels of the server (which other servers are sent)
+    ChannelNameTable channelNameTable = bungeeTieIn.getChannelNameTable();
+    BungeeToSpigotConnection.assignChannelIds(channelNameTable, packet.getChannelNames(),
+      bungeeTieIn.getConnections());
+
     // Replace the decoder's packet handler with the BungeeToSpigotConnection
     channel.pipeline().get(BungeePacketDecoder.class).setPacketHandler(connection);
 
+    // Compress if the server offers the type of compression configured on Bungee
+    FrameCompressionCodec compressionCodec = channel.pipeline().get(FrameCompressionCodec.class);
+    CompressionType compressionType = CompressionType.NONE;
+
+    if (compressionCodec != null &&
+      compressionCodec.getCompressionType() == packet.getCompressionType())
+    {
+      compressionType = compressionCodec.getCompressionType();
+    }
+
     response.setResult(PacketToSpigotRegister.Result.SUCCESS);
+    response.setChannelNames(channelNameTable.getNames());
+    response.setCompressionType(compressionType);
     channel.writeAndFlush(response);
+
+    // The response is encoded before this point (this is the event loop of the channel),
+    // so only the frames after the response are compressed.
+    if (compressionType != CompressionType.NONE)
+    {
+      compressionCodec.enable();
+    }
   }
 }
@@ -19,19 +19,30 @@ package com.gmail.tracebachi.SockExchange.Netty;
 
 import com.gmail.tracebachi.SockExchange.Bungee.BungeeTieIn;
 import com.gmail.tracebachi.SockExchange.ExpirableConsumer;
+import com.gmail.tracebachi.SockExchange.Messages.MulticastResponse;
 import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessage;
 import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseConsumerMap;
 import com.gmail.tracebachi.SockExchange.Messages.ResponseMessage;
 import com.gmail.tracebachi.SockExchange.Messages.ResponseStatus;
+import com.gmail.tracebachi.SockExchange.Metrics.ResponseStatistics;
+import com.gmail.tracebachi.SockExchange.Metrics.SockExchangeMetrics;
+import com.gmail.tracebachi.SockExchange.Metrics.TrafficStatistics;
 import com.gmail.tracebachi.SockExchange.Netty.Packets.*;
 import com.gmail.tracebachi.SockExchange.Utilities.BasicLogger;
 import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
-import com.gmail.tracebachi.SockExchange.Utilities.LongIdCounterMap;
+import com.gmail.tracebachi.SockExchange.Utilities.LongIdSlotMap;
 import com.google.common.base.Preconditions;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 
 /**
@@ -42,14 +53,18 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
   private final String serverName;
   private final Executor executor;
   private final ReceivedMessageNotifier receivedMessageNotifier;
-  private final LongIdCounterMap<ExpirableConsumer<ResponseMessage>> waitingForResponse;
+  private final ResponseConsumerMap waitingForResponse;
   private final BasicLogger basicLogger;
   private final BungeeTieIn bungeeTieIn;
+  private final ChannelNameTable channelNameTable;
+  private final SockExchangeMetrics metrics;
+  private final TrafficStatistics connectionTraffic;
+  private final ResponseStatistics responseStatistics;
 
   public BungeeToSpigotConnection(
     String serverName, Executor executor, ReceivedMessageNotifier receivedMessageNotifier,
-    LongIdCounterMap<ExpirableConsumer<ResponseMessage>> waitingForResponse,
-    BasicLogger basicLogger, BungeeTieIn bungeeTieIn)
+    ResponseConsumerMap waitingForResponse,
+    BasicLogger basicLogger, BungeeTieIn bungeeTieIn, SockExchangeMetrics metrics)
   {
     ExtraPreconditions.checkNotEmpty(serverName, "serverName");
     Preconditions.checkNotNull(executor, "executor");
@@ -57,6 +72,7 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
     Preconditions.checkNotNull(waitingForResponse, "waitingForResponse");
     Preconditions.checkNotNull(basicLogger, "basicLogger");
     Preconditions.checkNotNull(bungeeTieIn, "bungeeTieIn");
+    Preconditions.checkNotNull(metrics, "metrics");
 
     this.serverName = serverName;
     this.executor = executor;
@@ -64,6 +80,10 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
     this.waitingForResponse = waitingForResponse;
     this.basicLogger = basicLogger;
     this.bungeeTieIn = bungeeTieIn;
+    this.channelNameTable = bungeeTieIn.getChannelNameTable();
+    this.metrics = metrics;
+    this.connectionTraffic = metrics.getConnectionTraffic(serverName);
+    this.responseStatistics = metrics.getResponseStatistics(serverName);
   }
 
   public String getServerName()
@@ -76,7 +96,8 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
   {
     super.onChannelActive(channel);
 
-    basicLogger.debug("[%s connection] Channel is now active", serverName);
+    basicLogger.debug("[%s connection] Channel is now active. Transport: '%s'.", serverName,
+      channel.getClass().getSimpleName());
   }
 
   @Override
@@ -94,17 +115,22 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
     Preconditions.checkState(channel != null, "Channel is not active");
 
     PacketToBungeeRequest.DestinationType destinationType = packet.getDestinationType();
-    Long consumerId = packet.getConsumerId();
+    String channelName = getChannelName(packet.getChannelId(), packet.getChannelName());
+    long consumerId = packet.getConsumerId();
+    int numBytes = packet.getMessageBuffer().readableBytes();
+
+    recordIn(channelName, numBytes);
 
     if (destinationType == PacketToBungeeRequest.DestinationType.BUNGEE)
     {
-      // Debug
-      basicLogger.debug(
-        "[%s connection] Received request. DestinationType: '%s'. ChannelName: '%s'. NumBytes: '%s'. ConsumerId: '%s'.",
-        serverName, destinationType.name(), packet.getChannelName(),
-        packet.getMessageBytes().length, consumerId);
+      if (basicLogger.isDebugEnabled())
+      {
+        basicLogger.debug(
+          "[%s connection] Received request. DestinationType: '%s'. ChannelName: '%s'. NumBytes: '%s'. ConsumerId: '%s'.",
+          serverName, destinationType.name(), channelName, numBytes, consumerId);
+      }
 
-      handleRequestForBungee(packet);
+      handleRequestForBungee(packet, channelName);
       return;
     }
 
@@ -112,11 +138,12 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
     {
       String destServerName = packet.getServerOrPlayerName();
 
-      // Debug
-      basicLogger.debug(
-        "[%s connection] Received request. DestinationType: '%s'. ServerName: '%s'. ChannelName: '%s'. NumBytes: '%s'. ConsumerId: '%s'.",
-        serverName, destinationType.name(), destServerName, packet.getChannelName(),
-        packet.getMessageBytes().length, consumerId);
+      if (basicLogger.isDebugEnabled())
+      {
+        basicLogger.debug(
+          "[%s connection] Received request. DestinationType: '%s'. ServerName: '%s'. ChannelName: '%s'. NumBytes: '%s'. ConsumerId: '%s'.",
+          serverName, destinationType.name(), destServerName, channelName, numBytes, consumerId);
+      }
 
       BungeeToSpigotConnection connection = bungeeTieIn.getConnection(destServerName);
 
@@ -125,7 +152,7 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
       {
         if (packet.hasConsumer())
         {
-          PacketToAnyResponse responsePacket = new PacketToAnyResponse();
+          PacketToAnyResponse responsePacket = PacketToAnyResponse.newInstance();
           responsePacket.setConsumerId(packet.getConsumerId());
           responsePacket.setResponseStatus(ResponseStatus.SERVER_NOT_FOUND);
           responsePacket.setMessageBytes(null);
@@ -135,7 +162,7 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
         return;
       }
 
-      handleRequestForSpigot(packet, connection);
+      handleRequestForSpigot(packet, connection, channelName, numBytes);
       return;
     }
 
@@ -143,11 +170,12 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
     {
       String playerName = packet.getServerOrPlayerName();
 
-      // Debug
-      basicLogger.debug(
-        "[%s connection] Received request. DestinationType: '%s'. PlayerName: '%s'. ChannelName: '%s'. NumBytes: '%s'. ConsumerId: '%s'.",
-        serverName, destinationType.name(), playerName, packet.getChannelName(),
-        packet.getMessageBytes().length, consumerId);
+      if (basicLogger.isDebugEnabled())
+      {
+        basicLogger.debug(
+          "[%s connection] Received request. DestinationType: '%s'. PlayerName: '%s'. ChannelName: '%s'. NumBytes: '%s'. ConsumerId: '%s'.",
+          serverName, destinationType.name(), playerName, channelName, numBytes, consumerId);
+      }
 
       String destServerName = bungeeTieIn.getServerNameForPlayer(playerName);
 
@@ -156,7 +184,7 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
       {
         if (packet.hasConsumer())
         {
-          PacketToAnyResponse responsePacket = new PacketToAnyResponse();
+          PacketToAnyResponse responsePacket = PacketToAnyResponse.newInstance();
           responsePacket.setConsumerId(packet.getConsumerId());
           responsePacket.setResponseStatus(ResponseStatus.PLAYER_NOT_FOUND);
           responsePacket.setMessageBytes(null);
@@ -173,7 +201,7 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
       {
         if (packet.hasConsumer())
         {
-          PacketToAnyResponse responsePacket = new PacketToAnyResponse();
+          PacketToAnyResponse responsePacket = PacketToAnyResponse.newInstance();
           responsePacket.setConsumerId(packet.getConsumerId());
           responsePacket.setResponseStatus(ResponseStatus.SERVER_NOT_FOUND);
           responsePacket.setMessageBytes(null);
@@ -183,7 +211,7 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
         return;
       }
 
-      handleRequestForSpigot(packet, connection);
+      handleRequestForSpigot(packet, connection, channelName, numBytes);
     }
   }
 
@@ -195,23 +223,25 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
 
     long consumerId = packet.getConsumerId();
     ResponseStatus responseStatus = packet.getResponseStatus();
-    byte[] messageBytes = packet.getMessageBytes();
+    ByteBuf messageBuffer = packet.getMessageBuffer();
     ExpirableConsumer<ResponseMessage> responseConsumer = waitingForResponse.remove(consumerId);
 
-    // Debug
-    int bytesLen = messageBytes == null ? -1 : messageBytes.length;
-    boolean foundConsumer = responseConsumer != null;
-    basicLogger.debug(
-      "[%s connection] Received response. ConsumerId: '%s'. ResponseStatus: '%s'. NumBytes: '%s'. FoundConsumer: '%s'.",
-      serverName, consumerId, responseStatus, bytesLen, foundConsumer);
+    if (basicLogger.isDebugEnabled())
+    {
+      int bytesLen = messageBuffer == null ? -1 : messageBuffer.readableBytes();
+      basicLogger.debug(
+        "[%s connection] Received response. ConsumerId: '%s'. ResponseStatus: '%s'. NumBytes: '%s'. FoundConsumer: '%s'.",
+        serverName, consumerId, responseStatus, bytesLen, responseConsumer != null);
+    }
 
-    if (foundConsumer)
+    if (responseConsumer != null)
     {
-      executor.execute(() ->
-      {
-        ResponseMessage responseMessage = new ResponseMessage(responseStatus, messageBytes);
-        responseConsumer.accept(responseMessage);
-      });
+      responseConsumer.recordResponse(responseStatus);
+
+      // The response keeps a retained slice of the frame until the consumer has run
+      ResponseMessage responseMessage = new ResponseMessage(responseStatus,
+        messageBuffer == null ? null : messageBuffer.retain());
+      executeResponseConsumer(responseConsumer, responseMessage);
     }
   }
 
@@ -221,19 +251,23 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
     Preconditions.checkNotNull(packet, "packet");
     Preconditions.checkState(channel != null, "Channel is not active");
 
-    String channelName = packet.getChannelName();
-    byte[] messageBytes = packet.getMessageBytes();
+    String channelName = getChannelName(packet.getChannelId(), packet.getChannelName());
+    int numBytes = packet.getMessageBuffer().readableBytes();
     List<String> serverNames = packet.getServerNames();
 
-    // Debug
-    basicLogger.debug(
-      "[%s connection] Received forward request. ChannelName: '%s'. NumBytes: '%s'. ServerNamesCount: '%s'.",
-      serverName, channelName, messageBytes.length, serverNames.size());
+    if (basicLogger.isDebugEnabled())
+    {
+      basicLogger.debug(
+        "[%s connection] Received forward request. ChannelName: '%s'. NumBytes: '%s'. ServerNamesCount: '%s'.",
+        serverName, channelName, numBytes, serverNames.size());
+    }
+
+    recordIn(channelName, numBytes);
 
-    PacketToSpigotRequest packetToForward = new PacketToSpigotRequest();
-    packetToForward.setChannelName(channelName);
-    packetToForward.setMessageBytes(messageBytes);
-    packetToForward.setConsumerId(null);
+    // The channel name and message bytes are passed through as they were received.
+    // Every destination writes its own duplicate of the frame since a write releases it.
+    ByteBuf frameToForward = PacketToSpigotRequest.newRelayFrame(channel.alloc(),
+      packet.getEncodedChannelAndMessage().retain(), LongIdSlotMap.NO_ID);
 
     if (serverNames.isEmpty())
     {
@@ -242,7 +276,7 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
       {
         if (connection != this)
         {
-          connection.sendPacket(packetToForward);
+          connection.sendFrame(frameToForward.duplicate().retain(), channelName, numBytes);
         }
       }
     }
@@ -255,66 +289,504 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
 
         if (connection != null)
         {
-          connection.sendPacket(packetToForward);
+          connection.sendFrame(frameToForward.duplicate().retain(), channelName, numBytes);
         }
       }
     }
+
+    frameToForward.release();
+  }
+
+  @Override
+  public void handle(PacketToBungeeMulticastRequest packet)
+  {
+    Preconditions.checkNotNull(packet, "packet");
+    Preconditions.checkState(channel != null, "Channel is not active");
+
+    String channelName = getChannelName(packet.getChannelId(), packet.getChannelName());
+    long consumerId = packet.getConsumerId();
+    long timeoutInMillis = packet.getTimeoutInMillis();
+    List<String> serverNames = packet.getServerNames();
+    int numBytes = packet.getMessageBuffer().readableBytes();
+
+    if (basicLogger.isDebugEnabled())
+    {
+      basicLogger.debug(
+        "[%s connection] Received multicast request. ChannelName: '%s'. NumBytes: '%s'. ServerNamesCount: '%s'. Quorum: '%s'. ConsumerId: '%s'.",
+        serverName, channelName, numBytes, serverNames.size(), packet.getQuorum(), consumerId);
+    }
+
+    recordIn(channelName, numBytes);
+
+    // An empty list should send to all servers excluding source.
+    if (serverNames.isEmpty())
+    {
+      serverNames = new ArrayList<>();
+      for (BungeeToSpigotConnection connection : bungeeTieIn.getConnections())
+      {
+        if (connection != this)
+        {
+          serverNames.add(connection.getServerName());
+        }
+      }
+    }
+
+    // Respond to the source server once the collector completes
+    MulticastResponseCollector collector = new MulticastResponseCollector(serverNames,
+      packet.getQuorum(), (multicastResponse) ->
+    {
+      PacketToAnyResponse responsePacket = PacketToAnyResponse.newInstance();
+      responsePacket.setConsumerId(consumerId);
+      responsePacket.setResponseStatus(ResponseStatus.OK);
+      responsePacket.setMessageBytes(multicastResponse.toBytes());
+
+      sendPacket(responsePacket);
+    });
+
+    // The channel name and message bytes are relayed to every server as they were
+    // received, each with its own consumer (and timeout) feeding the collector.
+    ByteBuf encodedChannelAndMessage = packet.getEncodedChannelAndMessage();
+    for (int i = 0; i < serverNames.size(); i++)
+    {
+      BungeeToSpigotConnection destConnection = bungeeTieIn.getConnection(serverNames.get(i));
+      Consumer<ResponseMessage> responseConsumer = collector.newResponseConsumer(i);
+
+      if (destConnection == null)
+      {
+        executeResponseConsumer(responseConsumer,
+          new ResponseMessage(ResponseStatus.SERVER_NOT_FOUND));
+      }
+      else
+      {
+        destConnection.relayToServer(encodedChannelAndMessage.retain(), channelName, numBytes,
+          responseConsumer, timeoutInMillis);
+      }
+    }
+  }
+
+  @Override
+  public void handle(PacketToBungeeChannelNames packet)
+  {
+    Preconditions.checkNotNull(packet, "packet");
+    Preconditions.checkState(channel != null, "Channel is not active");
+
+    basicLogger.debug("[%s connection] Received channel names. ChannelNames: '%s'.",
+      serverName, packet.getChannelNames());
+
+    assignChannelIds(channelNameTable, packet.getChannelNames(), bungeeTieIn.getConnections());
   }
 
   public void sendToServer(
     String channelName, byte[] messageBytes, Consumer<ResponseMessage> consumer,
     long timeoutInMillis)
   {
-    ExtraPreconditions.checkNotEmpty(channelName, "channelName");
     Preconditions.checkNotNull(messageBytes, "messageBytes");
 
+    sendToServer(channelName, Unpooled.wrappedBuffer(messageBytes), consumer, timeoutInMillis);
+  }
+
+  /**
+   * Sends a buffer to the server of this connection
+   * <p>
+   * The connection takes ownership of the buffer and releases it once it has been
+   * written (or could not be written).
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBuffer Buffer of bytes to send
+   * @param consumer Consumer to run once there is a response (or a failure) or null
+   * @param timeoutInMillis Milliseconds to wait for a response before returning a timeout response
+   */
+  public void sendToServer(
+    String channelName, ByteBuf messageBuffer, Consumer<ResponseMessage> consumer,
+    long timeoutInMillis)
+  {
+    ExtraPreconditions.checkNotEmpty(channelName, "channelName");
+    Preconditions.checkNotNull(messageBuffer, "messageBuffer");
+    Preconditions.checkArgument(consumer == null || timeoutInMillis > 0,
+      "timeoutInMillis must be > 0");
+
+    Channel channel = this.channel;
+
     // If the connection does not have a channel, the server is offline.
-    if (!hasChannel())
+    if (channel == null)
     {
+      messageBuffer.release();
+
       // If there is a consumer, respond with SERVER_OFFLINE.
       if (consumer != null)
       {
-        executor.execute(() ->
-        {
-          ResponseMessage responseMessage = new ResponseMessage(ResponseStatus.SERVER_OFFLINE);
-          consumer.accept(responseMessage);
-        });
+        ResponseMessage responseMessage = new ResponseMessage(ResponseStatus.SERVER_OFFLINE);
+        executeResponseConsumer(consumer, responseMessage);
       }
       return;
     }
 
-    PacketToSpigotRequest packetToSend = new PacketToSpigotRequest();
+    boolean writable = awaitWritable(channel);
+
+    // If the channel is not writable, respond with WRITE_LIMIT_REACHED (unless dropping).
+    if (!writable && executeConsumerIfFailingFast(consumer))
+    {
+      messageBuffer.release();
+      return;
+    }
+
+    PacketToSpigotRequest packetToSend = PacketToSpigotRequest.newInstance();
+    packetToSend.setChannelId(channelNameTable.getId(channelName));
     packetToSend.setChannelName(channelName);
-    packetToSend.setMessageBytes(messageBytes);
+    packetToSend.setMessageBuffer(messageBuffer);
 
     // If the consumer is specified, save the consumer.
     if (consumer != null)
     {
-      Preconditions.checkArgument(timeoutInMillis > 0, "timeoutInMillis must be > 0");
+      packetToSend.setConsumerId(waitingForResponse.put(consumer, timeoutInMillis,
+        responseStatistics));
+    }
+
+    // Send the packet (or drop it and let the consumer time out)
+    if (writable)
+    {
+      recordOut(channelName, messageBuffer.readableBytes());
+      channel.writeAndFlush(packetToSend);
+    }
+    else
+    {
+      packetToSend.release();
+    }
+  }
+
+  /**
+   * Sends bytes to multiple servers (if online)
+   * <p>
+   * The request is encoded once into a pooled frame and every connection writes
+   * a duplicate of that frame, instead of encoding the same bytes per server.
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param connections Connections of the servers to send bytes to
+   * @param channelNameTable Table of channel IDs known by the servers
+   */
+  public static void sendToServers(
+    String channelName, byte[] messageBytes, Iterable<BungeeToSpigotConnection> connections,
+    ChannelNameTable channelNameTable)
+  {
+    ExtraPreconditions.checkNotEmpty(channelName, "channelName");
+    Preconditions.checkNotNull(messageBytes, "messageBytes");
+    Preconditions.checkNotNull(connections, "connections");
+    Preconditions.checkNotNull(channelNameTable, "channelNameTable");
+
+    PacketToSpigotRequest packet = PacketToSpigotRequest.newInstance();
+    packet.setChannelId(channelNameTable.getId(channelName));
+    packet.setChannelName(channelName);
+    packet.setMessageBytes(messageBytes);
+
+    ByteBuf frame;
+
+    try
+    {
+      frame = packet.encodeFrame(PooledByteBufAllocator.DEFAULT);
+    }
+    finally
+    {
+      packet.release();
+    }
+
+    try
+    {
+      for (BungeeToSpigotConnection connection : connections)
+      {
+        connection.sendFrame(frame.duplicate().retain(), channelName, messageBytes.length);
+      }
+    }
+    finally
+    {
+      frame.release();
+    }
+  }
+
+  /**
+   * Sends bytes to multiple servers and collects their responses into one
+   * aggregated response
+   * <p>
+   * Every server gets its own request (with the same timeout), so the aggregated
+   * response is complete by the deadline with the missing responses timed out,
+   * or earlier if the quorum of OK responses is reached. Servers that are not
+   * known have a {@link ResponseStatus#SERVER_NOT_FOUND} response.
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param serverNames Names of the servers to send bytes to
+   * @param bungeeTieIn Tie-in to look up the connections of the servers with
+   * @param quorum Number of OK responses to complete with or 0 to wait for all servers
+   * @param consumer Consumer to run with the aggregated response
+   * @param timeoutInMillis Milliseconds to wait for the responses of the servers
+   */
+  public static void sendToServers(
+    String channelName, byte[] messageBytes, List<String> serverNames, BungeeTieIn bungeeTieIn,
+    int quorum, Consumer<MulticastResponse> consumer, long timeoutInMillis)
+  {
+    ExtraPreconditions.checkNotEmpty(channelName, "channelName");
+    Preconditions.checkNotNull(messageBytes, "messageBytes");
+    Preconditions.checkNotNull(serverNames, "serverNames");
+    Preconditions.checkNotNull(bungeeTieIn, "bungeeTieIn");
+    Preconditions.checkNotNull(consumer, "consumer");
+    Preconditions.checkArgument(timeoutInMillis > 0, "timeoutInMillis must be > 0");
+
+    MulticastResponseCollector collector = new MulticastResponseCollector(serverNames, quorum,
+      consumer);
+
+    for (int i = 0; i < serverNames.size(); i++)
+    {
+      BungeeToSpigotConnection connection = bungeeTieIn.getConnection(serverNames.get(i));
+      Consumer<ResponseMessage> responseConsumer = collector.newResponseConsumer(i);
+
+      if (connection == null)
+      {
+        // The consumer is a future which copies the response, so it is released here
+        ResponseMessage responseMessage = new ResponseMessage(ResponseStatus.SERVER_NOT_FOUND);
+        responseConsumer.accept(responseMessage);
+        responseMessage.release();
+      }
+      else
+      {
+        connection.sendToServer(channelName, messageBytes, responseConsumer, timeoutInMillis);
+      }
+    }
+  }
+
+  /**
+   * Assigns IDs to channels that do not have one and sends the new IDs to
+   * every connected server
+   * <p>
+   * The new IDs are only used by Bungee once they have been written to every
+   * server, so no server receives an ID before it knows the channel of the ID.
+   *
+   * @param channelNameTable Table to assign IDs in
+   * @param channelNames Names of the channels
+   * @param connections Connections of all servers
+   */
+  public static void assignChannelIds(
+    ChannelNameTable channelNameTable, Collection<String> channelNames,
+    Iterable<BungeeToSpigotConnection> connections)
+  {
+    Preconditions.checkNotNull(channelNameTable, "channelNameTable");
+    Preconditions.checkNotNull(channelNames, "channelNames");
+    Preconditions.checkNotNull(connections, "connections");
+
+    List<String> assignedNames = channelNameTable.assignIds(channelNames);
+
+    if (assignedNames.isEmpty())
+    {
+      return;
+    }
+
+    int firstChannelId = channelNameTable.getAssignedId(assignedNames.get(0));
 
-      ExpirableConsumer<ResponseMessage> responseConsumer = new ExpirableConsumer<>(consumer,
-        System.currentTimeMillis() + timeoutInMillis);
+    for (BungeeToSpigotConnection connection : connections)
+    {
+      Channel channel = connection.channel;
 
-      packetToSend.setConsumerId(waitingForResponse.put(responseConsumer));
+      if (channel != null)
+      {
+        PacketToSpigotChannelIds packet = new PacketToSpigotChannelIds();
+        packet.setFirstChannelId(firstChannelId);
+        packet.setChannelNames(assignedNames);
+
+        // Not subject to the write limit policy since the IDs are needed by later requests
+        channel.writeAndFlush(packet);
+      }
     }
 
-    // Send the packet
-    sendPacket(packetToSend);
+    channelNameTable.publishIds(assignedNames);
   }
 
   private void sendPacket(AbstractPacket packet)
   {
-    if (channel != null)
+    Channel channel = this.channel;
+
+    if (channel != null && awaitWritable(channel))
     {
+      // The packet is released by the encoder (or by Netty if the write fails)
       channel.writeAndFlush(packet);
     }
+    else
+    {
+      packet.release();
+    }
+  }
+
+  private void sendFrame(ByteBuf frame, String channelName, int numBytes)
+  {
+    Channel channel = this.channel;
+
+    if (channel != null && awaitWritable(channel))
+    {
+      recordOut(channelName, numBytes);
+      channel.writeAndFlush(frame);
+    }
+    else
+    {
+      frame.release();
+    }
+  }
+
+  /**
+   * Relays a request to the server of this connection without decoding or copying
+   * the message bytes (which is otherwise the same as sending it)
+   *
+   * @param encodedChannelAndMessage Encoded channel name and message bytes (owned by this method)
+   * @param channelName Name of the channel (or null if unknown) to record the traffic of
+   * @param numBytes Number of message bytes to record
+   * @param consumer Consumer to run once there is a response (or a failure) or null
+   * @param timeoutInMillis Milliseconds to wait for a response before returning a timeout response
+   */
+  private void relayToServer(
+    ByteBuf encodedChannelAndMessage, String channelName, int numBytes,
+    Consumer<ResponseMessage> consumer, long timeoutInMillis)
+  {
+    Channel channel = this.channel;
+
+    // If the connection does not have a channel, the server is offline.
+    if (channel == null)
+    {
+      encodedChannelAndMessage.release();
+
+      // If there is a consumer, respond with SERVER_OFFLINE.
+      if (consumer != null)
+      {
+        ResponseMessage responseMessage = new ResponseMessage(ResponseStatus.SERVER_OFFLINE);
+        executeResponseConsumer(consumer, responseMessage);
+      }
+      return;
+    }
+
+    boolean writable = awaitWritable(channel);
+
+    // If the channel is not writable, respond with WRITE_LIMIT_REACHED (unless dropping).
+    if (!writable && executeConsumerIfFailingFast(consumer))
+    {
+      encodedChannelAndMessage.release();
+      return;
+    }
+
+    long consumerId = LongIdSlotMap.NO_ID;
+
+    // If the consumer is specified, save the consumer.
+    if (consumer != null)
+    {
+      consumerId = waitingForResponse.put(consumer, timeoutInMillis, responseStatistics);
+    }
+
+    // Send the frame (or drop it and let the consumer time out)
+    if (writable)
+    {
+      recordOut(channelName, numBytes);
+      channel.writeAndFlush(
+        PacketToSpigotRequest.newRelayFrame(channel.alloc(), encodedChannelAndMessage, consumerId));
+    }
+    else
+    {
+      encodedChannelAndMessage.release();
+    }
+  }
+
+  /**
+   * Handles a request that can not be written since the channel is not writable
+   *
+   * @param consumer Consumer waiting for a response or null
+   *
+   * @return True if the request should be discarded (and a consumer was run with
+   * WRITE_LIMIT_REACHED) or false if the consumer should be saved to time out
+   */
+  private boolean executeConsumerIfFailingFast(Consumer<ResponseMessage> consumer)
+  {
+    if (consumer == null)
+    {
+      return true;
+    }
+
+    if (getWriteLimitPolicy() == WriteLimitPolicy.DROP)
+    {
+      return false;
+    }
+
+    ResponseMessage responseMessage = new ResponseMessage(ResponseStatus.WRITE_LIMIT_REACHED);
+    executeResponseConsumer(consumer, responseMessage);
+    return true;
   }
 
-  private void handleRequestForBungee(PacketToBungeeRequest packet)
+  private void executeResponseConsumer(
+    Consumer<ResponseMessage> consumer, ResponseMessage responseMessage)
+  {
+    try
+    {
+      executor.execute(() ->
+      {
+        try
+        {
+          consumer.accept(responseMessage);
+        }
+        finally
+        {
+          responseMessage.release();
+        }
+      });
+    }
+    catch (RejectedExecutionException ex)
+    {
+      // The pool rejects tasks once it is full (with the Abort policy) or shut down.
+      // The consumer has already been removed from the map, so it is run here since
+      // it would never be called otherwise.
+      try
+      {
+        consumer.accept(responseMessage);
+      }
+      catch (RuntimeException consumerEx)
+      {
+        basicLogger.severe("[%s connection] Response consumer failed: %s", serverName, consumerEx);
+      }
+      finally
+      {
+        responseMessage.release();
+      }
+    }
+  }
+
+  private String getChannelName(int channelId, String channelName)
+  {
+    return channelId == ChannelNameTable.NO_ID ? channelName : channelNameTable.getName(channelId);
+  }
+
+  private void recordIn(String channelName, int numBytes)
+  {
+    connectionTraffic.recordIn(numBytes);
+
+    if (channelName != null)
+    {
+      metrics.getChannelTraffic(channelName).recordIn(numBytes);
+    }
+  }
+
+  private void recordOut(String channelName, int numBytes)
+  {
+    connectionTraffic.recordOut(numBytes);
+
+    if (channelName != null)
+    {
+      metrics.getChannelTraffic(channelName).recordOut(numBytes);
+    }
+  }
+
+  private void handleRequestForBungee(PacketToBungeeRequest packet, String channelName)
   {
     Consumer<byte[]> onResponseConsumer = null;
-    String channelName = packet.getChannelName();
-    byte[] messageBytes = packet.getMessageBytes();
+    ByteBuf messageBuffer = packet.getMessageBuffer();
+
+    if (channelName == null)
+    {
+      basicLogger.severe("[%s connection] Received request with unknown ChannelId: '%s'",
+        serverName, packet.getChannelId());
+      return;
+    }
 
     // If there is no consumer, there is no need to construct a response consumer.
     if (packet.hasConsumer())
@@ -325,7 +797,7 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
       // server that sent the request
       onResponseConsumer = (bytes) ->
       {
-        PacketToAnyResponse responsePacket = new PacketToAnyResponse();
+        PacketToAnyResponse responsePacket = PacketToAnyResponse.newInstance();
         responsePacket.setConsumerId(consumerId);
         responsePacket.setResponseStatus(ResponseStatus.OK);
         responsePacket.setMessageBytes(bytes);
@@ -334,22 +806,25 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
       };
     }
 
-    // Notify channel listeners of the request
-    ReceivedMessage receivedMessage = new ReceivedMessage(channelName, messageBytes,
+    // Notify channel listeners of the request (which will release the retained slice)
+    ReceivedMessage receivedMessage = new ReceivedMessage(channelName, messageBuffer.retain(),
       onResponseConsumer);
     receivedMessageNotifier.notify(channelName, receivedMessage);
   }
 
   private void handleRequestForSpigot(
-    PacketToBungeeRequest packet, BungeeToSpigotConnection destConnection)
+    PacketToBungeeRequest packet, BungeeToSpigotConnection destConnection, String channelName,
+    int numBytes)
   {
-    String channelName = packet.getChannelName();
-    byte[] messageBytes = packet.getMessageBytes();
+    // Only the routing header has been decoded. The channel name and message bytes
+    // are relayed to the destination as they were received.
+    ByteBuf encodedChannelAndMessage = packet.getEncodedChannelAndMessage();
 
     // If the packet does not have a consumer ID, there is no need to create a consumer.
     if (!packet.hasConsumer())
     {
-      destConnection.sendToServer(channelName, messageBytes, null, 0);
+      destConnection.relayToServer(encodedChannelAndMessage.retain(), channelName, numBytes,
+        null, 0);
       return;
     }
 
@@ -357,10 +832,12 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
     long timeoutInMillis = packet.getTimeoutInMillis();
     Consumer<ResponseMessage> messageConsumer = (responseMessage) ->
     {
-      PacketToAnyResponse responsePacket = new PacketToAnyResponse();
+      ByteBuf responseBuffer = responseMessage.getMessageBuffer();
+
+      PacketToAnyResponse responsePacket = PacketToAnyResponse.newInstance();
       responsePacket.setConsumerId(consumerId);
       responsePacket.setResponseStatus(responseMessage.getResponseStatus());
-      responsePacket.setMessageBytes(responseMessage.getMessageBytes());
+      responsePacket.setMessageBuffer(responseBuffer == null ? null : responseBuffer.retain());
 
       // Send the response packet from this connection
       sendPacket(responsePacket);
@@ -370,6 +847,7 @@ public class BungeeToSpigotConnection extends AbstractPacketHandler
     // Bungee makes a request to ServerB on behalf of ServerA
     // ServerB responds to Bungee
     // Bungee responds to ServerA
-    destConnection.sendToServer(channelName, messageBytes, messageConsumer, timeoutInMillis);
+    destConnection.relayToServer(encodedChannelAndMessage.retain(), channelName, numBytes,
+      messageConsumer, timeoutInMillis);
   }
 }
@@ -0,0 +1,215 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty;
+
+import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of channel names and the compact IDs that are sent in place of them
+ * <p>
+ * Bungee is the only one that assigns IDs and it sends every assigned ID to
+ * every server, so an ID refers to the same channel on every connection and a
+ * relayed request can be written as it was received. A name looked up by ID is
+ * always the same String instance (so receiving an ID does not allocate).
+ * <p>
+ * IDs are never reassigned while the table exists. Channels without an ID
+ * (or that have more than {@link #MAX_ID} channels before them) are sent by name.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class ChannelNameTable
+{
+  public static final int NO_ID = 0;
+  public static final int MAX_ID = (1 << 14) - 1;
+
+  private final ConcurrentHashMap<String, Integer> publishedIds = new ConcurrentHashMap<>();
+  private final HashMap<String, Integer> assignedIds = new HashMap<>();
+  private volatile String[] idToName = new String[1];
+
+  /**
+   * @param channelName Name of the channel
+   *
+   * @return ID of the channel or {@link #NO_ID} if it does not have one (yet)
+   */
+  public int getId(String channelName)
+  {
+    Integer channelId = publishedIds.get(channelName);
+
+    return channelId != null ? channelId : NO_ID;
+  }
+
+  /**
+   * @param channelId ID of the channel
+   *
+   * @return Name of the channel or null if the ID is unknown
+   */
+  public String getName(int channelId)
+  {
+    String[] idToName = this.idToName;
+
+    return (channelId > 0 && channelId < idToName.length) ? idToName[channelId] : null;
+  }
+
+  /**
+   * @return Names of all channels with an ID where the ID of a channel is its
+   * index in the list plus 1
+   */
+  public synchronized List<String> getNames()
+  {
+    String[] idToName = this.idToName;
+
+    return new ArrayList<>(Arrays.asList(idToName).subList(1, idToName.length));
+  }
+
+  /**
+   * Assigns IDs to channels that do not have one (which is only done by Bungee)
+   * <p>
+   * The new IDs are not returned by {@link #getId(String)} until they are
+   * published with {@link #publishIds(List)}, which should be done once they
+   * have been sent to every connection.
+   *
+   * @param channelNames Names of the channels
+   *
+   * @return Names of the channels that were assigned IDs (in order of ID) which
+   * may be empty
+   */
+  public synchronized List<String> assignIds(Collection<String> channelNames)
+  {
+    Preconditions.checkNotNull(channelNames, "channelNames");
+
+    List<String> assignedNames = Collections.emptyList();
+    String[] idToName = this.idToName;
+    int nextId = idToName.length;
+
+    for (String channelName : channelNames)
+    {
+      ExtraPreconditions.checkNotEmpty(channelName, "channelName");
+
+      if (nextId > MAX_ID || assignedIds.containsKey(channelName))
+      {
+        continue;
+      }
+
+      if (assignedNames.isEmpty())
+      {
+        assignedNames = new ArrayList<>(channelNames.size());
+      }
+
+      assignedIds.put(channelName, nextId);
+      assignedNames.add(channelName);
+      nextId++;
+    }
+
+    if (!assignedNames.isEmpty())
+    {
+      String[] newIdToName = Arrays.copyOf(idToName, nextId);
+
+      for (int i = 0; i < assignedNames.size(); i++)
+      {
+        newIdToName[idToName.length + i] = assignedNames.get(i);
+      }
+
+      this.idToName = newIdToName;
+    }
+
+    return assignedNames;
+  }
+
+  /**
+   * @param channelName Name of the channel
+   *
+   * @return ID assigned to the channel (published or not) or {@link #NO_ID}
+   */
+  public synchronized int getAssignedId(String channelName)
+  {
+    Integer channelId = assignedIds.get(channelName);
+
+    return channelId != null ? channelId : NO_ID;
+  }
+
+  /**
+   * Publishes assigned IDs so they are returned by {@link #getId(String)}
+   *
+   * @param channelNames Names of channels that were assigned IDs
+   */
+  public synchronized void publishIds(List<String> channelNames)
+  {
+    Preconditions.checkNotNull(channelNames, "channelNames");
+
+    for (String channelName : channelNames)
+    {
+      Integer channelId = assignedIds.get(channelName);
+
+      if (channelId != null)
+      {
+        publishedIds.put(channelName, channelId);
+      }
+    }
+  }
+
+  /**
+   * Adds IDs that were assigned by Bungee (which is only done by servers)
+   *
+   * @param firstChannelId ID of the first channel
+   * @param channelNames Names of the channels with consecutive IDs
+   */
+  public synchronized void putIds(int firstChannelId, List<String> channelNames)
+  {
+    Preconditions.checkArgument(firstChannelId > 0, "firstChannelId must be > 0");
+    Preconditions.checkNotNull(channelNames, "channelNames");
+    Preconditions.checkArgument(firstChannelId + channelNames.size() - 1 <= MAX_ID,
+      "Channel ID is too large");
+
+    String[] idToName = this.idToName;
+    int length = Math.max(idToName.length, firstChannelId + channelNames.size());
+    String[] newIdToName = Arrays.copyOf(idToName, length);
+
+    for (int i = 0; i < channelNames.size(); i++)
+    {
+      String channelName = channelNames.get(i);
+      int channelId = firstChannelId + i;
+
+      ExtraPreconditions.checkNotEmpty(channelName, "channelName");
+
+      newIdToName[channelId] = channelName;
+      assignedIds.put(channelName, channelId);
+      publishedIds.put(channelName, channelId);
+    }
+
+    this.idToName = newIdToName;
+  }
+
+  /**
+   * Removes all IDs (which is done by servers when they connect to Bungee again)
+   */
+  public synchronized void clear()
+  {
+    idToName = new String[1];
+    assignedIds.clear();
+    publishedIds.clear();
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings applied to every channel created by a {@link SockExchangeServer}
+ * or {@link SockExchangeClient}
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class ChannelSettings
+{
+  private boolean nativeTransport = true;
+  private boolean tcpNoDelay = true;
+  private boolean reusePort = false;
+  private int sendBufferSize = 0;
+  private int receiveBufferSize = 0;
+  private boolean flushConsolidation = false;
+  private int maxMessagesPerFlush = 64;
+  private long maxFlushDelayInMicros = 0;
+  private int writeBufferLowWaterMark = 1024 * 1024;
+  private int writeBufferHighWaterMark = 4 * 1024 * 1024;
+  private WriteLimitPolicy writeLimitPolicy = WriteLimitPolicy.FAIL_FAST;
+  private long writeBlockTimeoutInMillis = 1000;
+  private CompressionType compressionType = CompressionType.NONE;
+  private int compressionThreshold = 1024;
+  private int compressionLevel = 1;
+
+  /**
+   * @return True if the native (epoll) transport is used where it is available
+   * or false to always use NIO
+   */
+  public boolean isNativeTransport()
+  {
+    return nativeTransport;
+  }
+
+  public void setNativeTransport(boolean nativeTransport)
+  {
+    this.nativeTransport = nativeTransport;
+  }
+
+  /**
+   * @return True if Nagle's algorithm is disabled (TCP_NODELAY)
+   */
+  public boolean isTcpNoDelay()
+  {
+    return tcpNoDelay;
+  }
+
+  public void setTcpNoDelay(boolean tcpNoDelay)
+  {
+    this.tcpNoDelay = tcpNoDelay;
+  }
+
+  /**
+   * @return True if the server socket is bound with SO_REUSEPORT (native transport only)
+   */
+  public boolean isReusePort()
+  {
+    return reusePort;
+  }
+
+  public void setReusePort(boolean reusePort)
+  {
+    this.reusePort = reusePort;
+  }
+
+  /**
+   * @return Size of the socket send buffer (SO_SNDBUF) or 0 for the OS default
+   */
+  public int getSendBufferSize()
+  {
+    return sendBufferSize;
+  }
+
+  public void setSendBufferSize(int sendBufferSize)
+  {
+    Preconditions.checkArgument(sendBufferSize >= 0, "sendBufferSize must be >= 0");
+
+    this.sendBufferSize = sendBufferSize;
+  }
+
+  /**
+   * @return Size of the socket receive buffer (SO_RCVBUF) or 0 for the OS default
+   */
+  public int getReceiveBufferSize()
+  {
+    return receiveBufferSize;
+  }
+
+  public void setReceiveBufferSize(int receiveBufferSize)
+  {
+    Preconditions.checkArgument(receiveBufferSize >= 0, "receiveBufferSize must be >= 0");
+
+    this.receiveBufferSize = receiveBufferSize;
+  }
+
+  /**
+   * @return True if flushes are consolidated or false if every write is flushed
+   */
+  public boolean isFlushConsolidation()
+  {
+    return flushConsolidation;
+  }
+
+  public void setFlushConsolidation(boolean flushConsolidation)
+  {
+    this.flushConsolidation = flushConsolidation;
+  }
+
+  /**
+   * @return Number of messages written before a flush is forced
+   */
+  public int getMaxMessagesPerFlush()
+  {
+    return maxMessagesPerFlush;
+  }
+
+  public void setMaxMessagesPerFlush(int maxMessagesPerFlush)
+  {
+    Preconditions.checkArgument(maxMessagesPerFlush > 0, "maxMessagesPerFlush must be > 0");
+
+    this.maxMessagesPerFlush = maxMessagesPerFlush;
+  }
+
+  /**
+   * @return Microseconds a write may wait for a flush or 0 to flush once the
+   * event loop has run the tasks that are already queued
+   */
+  public long getMaxFlushDelayInMicros()
+  {
+    return maxFlushDelayInMicros;
+  }
+
+  public void setMaxFlushDelayInMicros(long maxFlushDelayInMicros)
+  {
+    Preconditions.checkArgument(maxFlushDelayInMicros >= 0, "maxFlushDelayInMicros must be >= 0");
+
+    this.maxFlushDelayInMicros = maxFlushDelayInMicros;
+  }
+
+  /**
+   * @return Number of queued bytes below which a channel becomes writable again
+   */
+  public int getWriteBufferLowWaterMark()
+  {
+    return writeBufferLowWaterMark;
+  }
+
+  /**
+   * @return Number of queued bytes above which a channel is no longer writable
+   */
+  public int getWriteBufferHighWaterMark()
+  {
+    return writeBufferHighWaterMark;
+  }
+
+  public void setWriteBufferWaterMarks(int lowWaterMark, int highWaterMark)
+  {
+    Preconditions.checkArgument(lowWaterMark >= 0, "lowWaterMark must be >= 0");
+    Preconditions.checkArgument(highWaterMark >= lowWaterMark,
+      "highWaterMark must be >= lowWaterMark");
+
+    this.writeBufferLowWaterMark = lowWaterMark;
+    this.writeBufferHighWaterMark = highWaterMark;
+  }
+
+  /**
+   * @return What connections do with messages while their channel is not writable
+   */
+  public WriteLimitPolicy getWriteLimitPolicy()
+  {
+    return writeLimitPolicy;
+  }
+
+  public void setWriteLimitPolicy(WriteLimitPolicy writeLimitPolicy)
+  {
+    Preconditions.checkNotNull(writeLimitPolicy, "writeLimitPolicy");
+
+    this.writeLimitPolicy = writeLimitPolicy;
+  }
+
+  /**
+   * @return Milliseconds to wait for a channel to become writable with {@link WriteLimitPolicy#BLOCK}
+   */
+  public long getWriteBlockTimeoutInMillis()
+  {
+    return writeBlockTimeoutInMillis;
+  }
+
+  public void setWriteBlockTimeoutInMillis(long writeBlockTimeoutInMillis)
+  {
+    Preconditions.checkArgument(writeBlockTimeoutInMillis > 0,
+      "writeBlockTimeoutInMillis must be > 0");
+
+    this.writeBlockTimeoutInMillis = writeBlockTimeoutInMillis;
+  }
+
+  /**
+   * @return Type of compression offered (or accepted) during registration
+   */
+  public CompressionType getCompressionType()
+  {
+    return compressionType;
+  }
+
+  public void setCompressionType(CompressionType compressionType)
+  {
+    Preconditions.checkNotNull(compressionType, "compressionType");
+
+    this.compressionType = compressionType;
+  }
+
+  /**
+   * @return Number of bytes below which frames are sent without compression
+   */
+  public int getCompressionThreshold()
+  {
+    return compressionThreshold;
+  }
+
+  public void setCompressionThreshold(int compressionThreshold)
+  {
+    Preconditions.checkArgument(compressionThreshold >= 0, "compressionThreshold must be >= 0");
+
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  /**
+   * @return Compression level from 1 (fastest) to 9 (smallest)
+   */
+  public int getCompressionLevel()
+  {
+    return compressionLevel;
+  }
+
+  public void setCompressionLevel(int compressionLevel)
+  {
+    Preconditions.checkArgument(compressionLevel >= 1 && compressionLevel <= 9,
+      "compressionLevel must be in [1, 9]");
+
+    this.compressionLevel = compressionLevel;
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty;
+
+/**
+ * How frames are compressed on a connection (which is negotiated during
+ * registration)
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public enum CompressionType
+{
+  /**
+   * Frames are not compressed
+   */
+  NONE,
+
+  /**
+   * Frames at or above the compression threshold are compressed with deflate
+   */
+  DEFLATE;
+
+  /**
+   * @param ordinal Ordinal of the type
+   *
+   * @return Type with the ordinal or {@link #NONE} if there is none (so an
+   * unknown type offered by a peer falls back to no compression)
+   */
+  public static CompressionType fromOrdinal(int ordinal)
+  {
+    switch (ordinal)
+    {
+      case 1:
+        return DEFLATE;
+      default:
+        return NONE;
+    }
+  }
+}
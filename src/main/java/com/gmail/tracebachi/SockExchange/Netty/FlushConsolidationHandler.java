@@ -0,0 +1,153 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty;
+
+import com.google.common.base.Preconditions;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consolidates flushes so that many small writes share one syscall
+ * <p>
+ * This handler should be first in the pipeline so it sees reads before they are
+ * decoded. A flush is forwarded once the maximum number of messages has been written,
+ * once a read loop of the channel has completed, or once the maximum delay
+ * (0 meaning after the tasks that are already queued in the event loop) has passed.
+ * All state is only accessed from the event loop of the channel.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class FlushConsolidationHandler extends ChannelDuplexHandler
+{
+  private final int maxMessagesPerFlush;
+  private final long maxFlushDelayInMicros;
+  private final FlushStatistics flushStatistics;
+  private ChannelHandlerContext ctx;
+  private Runnable flushTask;
+  private int pendingMessages;
+  private boolean flushScheduled;
+  private boolean readInProgress;
+
+  public FlushConsolidationHandler(
+    int maxMessagesPerFlush, long maxFlushDelayInMicros, FlushStatistics flushStatistics)
+  {
+    Preconditions.checkArgument(maxMessagesPerFlush > 0, "maxMessagesPerFlush must be > 0");
+    Preconditions.checkArgument(maxFlushDelayInMicros >= 0, "maxFlushDelayInMicros must be >= 0");
+    Preconditions.checkNotNull(flushStatistics, "flushStatistics");
+
+    this.maxMessagesPerFlush = maxMessagesPerFlush;
+    this.maxFlushDelayInMicros = maxFlushDelayInMicros;
+    this.flushStatistics = flushStatistics;
+  }
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext ctx) throws Exception
+  {
+    this.ctx = ctx;
+    this.flushTask = () ->
+    {
+      flushScheduled = false;
+
+      if (pendingMessages > 0 && !readInProgress)
+      {
+        flushNow();
+      }
+    };
+  }
+
+  @Override
+  public void flush(ChannelHandlerContext ctx) throws Exception
+  {
+    // Every message is sent with writeAndFlush(), so each flush is one message
+    pendingMessages++;
+
+    if (pendingMessages >= maxMessagesPerFlush)
+    {
+      flushNow();
+    }
+    else if (!readInProgress && !flushScheduled)
+    {
+      // Flushes requested during a read are done once the read loop completes
+      flushScheduled = true;
+
+      if (maxFlushDelayInMicros == 0)
+      {
+        ctx.channel().eventLoop().execute(flushTask);
+      }
+      else
+      {
+        ctx.channel().eventLoop().schedule(flushTask, maxFlushDelayInMicros,
+          TimeUnit.MICROSECONDS);
+      }
+    }
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception
+  {
+    readInProgress = true;
+    ctx.fireChannelRead(msg);
+  }
+
+  @Override
+  public void channelReadComplete(ChannelHandlerContext ctx) throws Exception
+  {
+    readInProgress = false;
+
+    flushIfPending();
+    ctx.fireChannelReadComplete();
+  }
+
+  @Override
+  public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception
+  {
+    flushIfPending();
+    ctx.close(promise);
+  }
+
+  @Override
+  public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception
+  {
+    flushIfPending();
+    ctx.disconnect(promise);
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) throws Exception
+  {
+    flushIfPending();
+  }
+
+  private void flushIfPending()
+  {
+    if (pendingMessages > 0)
+    {
+      flushNow();
+    }
+  }
+
+  private void flushNow()
+  {
+    flushStatistics.recordFlush(pendingMessages);
+    pendingMessages = 0;
+    ctx.flush();
+  }
+}
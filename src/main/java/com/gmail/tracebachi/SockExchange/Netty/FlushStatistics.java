@@ -0,0 +1,63 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the flushes (and the messages written by them) of consolidated channels
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class FlushStatistics
+{
+  private final LongAdder flushCount = new LongAdder();
+  private final LongAdder messageCount = new LongAdder();
+
+  void recordFlush(int messages)
+  {
+    flushCount.increment();
+    messageCount.add(messages);
+  }
+
+  /**
+   * @return Number of flushes
+   */
+  public long getFlushCount()
+  {
+    return flushCount.sum();
+  }
+
+  /**
+   * @return Number of messages written by the flushes
+   */
+  public long getMessageCount()
+  {
+    return messageCount.sum();
+  }
+
+  /**
+   * @return Average number of messages per flush or 0 if nothing was flushed
+   */
+  public double getAverageMessagesPerFlush()
+  {
+    long flushes = flushCount.sum();
+
+    return flushes == 0 ? 0 : (double) messageCount.sum() / flushes;
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty;
+
+import com.google.common.base.Preconditions;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.handler.codec.compression.DecompressionException;
+
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses and decompresses frames between the frame codec and the packet codec
+ * <p>
+ * Frames pass through unchanged until compression is enabled, which happens once
+ * both sides have agreed on it during registration (so peers that do not offer
+ * compression keep working). Once enabled, every frame starts with a flag byte.
+ * Frames below the threshold (or that do not get smaller) are sent raw after the
+ * flag. Compressed frames have their uncompressed length after the flag, which may
+ * not exceed the maximum frame length.
+ * <p>
+ * The handler is only used by the event loop of its channel.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class FrameCompressionCodec extends MessageToMessageCodec<ByteBuf, ByteBuf>
+{
+  private static final byte RAW_FRAME = 0;
+  private static final byte COMPRESSED_FRAME = 1;
+  private static final int COMPRESSED_HEADER_LENGTH = 5;
+  private static final int MIN_DECOMPRESS_CAPACITY = 256;
+
+  private final int maxFrameLength;
+  private final CompressionType compressionType;
+  private final int compressionThreshold;
+  private final int compressionLevel;
+  private Deflater deflater;
+  private Inflater inflater;
+  private boolean enabled;
+
+  public FrameCompressionCodec(
+    int maxFrameLength, CompressionType compressionType, int compressionThreshold,
+    int compressionLevel)
+  {
+    Preconditions.checkArgument(maxFrameLength > 0, "maxFrameLength must be > 0");
+    Preconditions.checkNotNull(compressionType, "compressionType");
+    Preconditions.checkArgument(compressionThreshold >= 0, "compressionThreshold must be >= 0");
+    Preconditions.checkArgument(compressionLevel >= Deflater.BEST_SPEED &&
+      compressionLevel <= Deflater.BEST_COMPRESSION, "compressionLevel must be in [1, 9]");
+
+    this.maxFrameLength = maxFrameLength;
+    this.compressionType = compressionType;
+    this.compressionThreshold = compressionThreshold;
+    this.compressionLevel = compressionLevel;
+  }
+
+  /**
+   * @return Type of compression this side offers (or accepts) during registration
+   */
+  public CompressionType getCompressionType()
+  {
+    return compressionType;
+  }
+
+  /**
+   * @return True if frames are compressed or false if they pass through
+   */
+  public boolean isEnabled()
+  {
+    return enabled;
+  }
+
+  /**
+   * Enables compression for all following frames (in both directions)
+   * <p>
+   * Must be called by the event loop of the channel, between the last frame
+   * that is not compressed and the first that is.
+   */
+  public void enable()
+  {
+    if (enabled || compressionType == CompressionType.NONE)
+    {
+      return;
+    }
+
+    deflater = new Deflater(compressionLevel);
+    inflater = new Inflater();
+    enabled = true;
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) throws Exception
+  {
+    if (deflater != null)
+    {
+      deflater.end();
+      deflater = null;
+    }
+
+    if (inflater != null)
+    {
+      inflater.end();
+      inflater = null;
+    }
+
+    enabled = false;
+
+    super.handlerRemoved(ctx);
+  }
+
+  @Override
+  protected void encode(ChannelHandlerContext ctx, ByteBuf frame, List<Object> out)
+    throws Exception
+  {
+    if (!enabled)
+    {
+      out.add(frame.retain());
+      return;
+    }
+
+    int length = frame.readableBytes();
+
+    if (length >= compressionThreshold)
+    {
+      ByteBuf compressed = compress(ctx, frame, length);
+
+      if (compressed != null)
+      {
+        out.add(compressed);
+        return;
+      }
+    }
+
+    // The flag and the frame are written as one buffer so they are prepended one length
+    ByteBuf flag = ctx.alloc().buffer(1);
+    flag.writeByte(RAW_FRAME);
+    out.add(Unpooled.wrappedBuffer(flag, frame.retain()));
+  }
+
+  @Override
+  protected void decode(ChannelHandlerContext ctx, ByteBuf frame, List<Object> out)
+    throws Exception
+  {
+    if (!enabled)
+    {
+      out.add(frame.retain());
+      return;
+    }
+
+    byte flag = frame.readByte();
+
+    if (flag == RAW_FRAME)
+    {
+      out.add(frame.retain());
+    }
+    else if (flag == COMPRESSED_FRAME)
+    {
+      out.add(decompress(ctx, frame));
+    }
+    else
+    {
+      throw new DecompressionException("Unknown frame compression flag: " + flag);
+    }
+  }
+
+  /**
+   * @return Compressed frame or null if compressing did not make the frame smaller
+   */
+  private ByteBuf compress(ChannelHandlerContext ctx, ByteBuf frame, int length)
+  {
+    ByteBuf compressed = ctx.alloc().heapBuffer(COMPRESSED_HEADER_LENGTH + length);
+    boolean success = false;
+
+    try
+    {
+      compressed.writeByte(COMPRESSED_FRAME);
+      compressed.writeInt(length);
+
+      if (frame.hasArray())
+      {
+        deflater.setInput(frame.array(), frame.arrayOffset() + frame.readerIndex(), length);
+      }
+      else
+      {
+        byte[] bytes = new byte[length];
+        frame.getBytes(frame.readerIndex(), bytes);
+        deflater.setInput(bytes);
+      }
+
+      deflater.finish();
+
+      // Stop once the output is as large as the raw frame (since it would be sent raw)
+      while (!deflater.finished() && compressed.isWritable())
+      {
+        int numBytes = deflater.deflate(compressed.array(),
+          compressed.arrayOffset() + compressed.writerIndex(), compressed.writableBytes());
+        compressed.writerIndex(compressed.writerIndex() + numBytes);
+      }
+
+      success = deflater.finished() && compressed.readableBytes() < length + 1;
+      return success ? compressed : null;
+    }
+    finally
+    {
+      deflater.reset();
+
+      if (!success)
+      {
+        compressed.release();
+      }
+    }
+  }
+
+  private ByteBuf decompress(ChannelHandlerContext ctx, ByteBuf frame) throws DataFormatException
+  {
+    int length = frame.readInt();
+
+    // Reject the untrusted length before anything is allocated for it
+    if (length < 0 || length > maxFrameLength)
+    {
+      throw new DecompressionException("Invalid uncompressed frame length: " + length);
+    }
+
+    // Start small and grow with the inflated output, so a tiny frame that claims a
+    // large length cannot make the receiver allocate that length up front
+    int compressedLength = frame.readableBytes();
+    int initialCapacity = (int) Math.min(length,
+      Math.max(MIN_DECOMPRESS_CAPACITY, compressedLength * 4L));
+    ByteBuf decompressed = ctx.alloc().heapBuffer(initialCapacity, length);
+    boolean success = false;
+
+    try
+    {
+      if (frame.hasArray())
+      {
+        inflater.setInput(frame.array(), frame.arrayOffset() + frame.readerIndex(),
+          compressedLength);
+      }
+      else
+      {
+        byte[] bytes = new byte[compressedLength];
+        frame.getBytes(frame.readerIndex(), bytes);
+        inflater.setInput(bytes);
+      }
+
+      while (!inflater.finished())
+      {
+        if (!decompressed.isWritable())
+        {
+          if (decompressed.writerIndex() == length)
+          {
+            break;
+          }
+
+          decompressed.ensureWritable(
+            Math.min(decompressed.capacity(), length - decompressed.writerIndex()));
+        }
+
+        int numBytes = inflater.inflate(decompressed.array(),
+          decompressed.arrayOffset() + decompressed.writerIndex(), decompressed.writableBytes());
+
+        if (numBytes == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+        {
+          break;
+        }
+
+        decompressed.writerIndex(decompressed.writerIndex() + numBytes);
+      }
+
+      if (!inflater.finished() || decompressed.readableBytes() != length)
+      {
+        throw new DecompressionException("Compressed frame does not match its length: " + length);
+      }
+
+      frame.skipBytes(compressedLength);
+      success = true;
+      return decompressed;
+    }
+    finally
+    {
+      inflater.reset();
+
+      if (!success)
+      {
+        decompressed.release();
+      }
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.util.List;
+
+/**
+ * Prepends a 3 byte length to every outbound frame
+ * <p>
+ * Unlike the {@link io.netty.handler.codec.LengthFieldPrepender} of Netty 4.0, the
+ * frame is passed on as is (after a separate length buffer) instead of being copied
+ * into a new buffer. This keeps relayed payloads (which are slices of received
+ * frames) from being copied on the way out.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class FrameLengthPrepender extends MessageToMessageEncoder<ByteBuf>
+{
+  private static final int MAX_FRAME_LENGTH = (1 << 24) - 1;
+
+  @Override
+  protected void encode(ChannelHandlerContext ctx, ByteBuf frame, List<Object> out)
+    throws Exception
+  {
+    int length = frame.readableBytes();
+
+    if (length > MAX_FRAME_LENGTH)
+    {
+      throw new EncoderException("Frame length (" + length + ") exceeds " + MAX_FRAME_LENGTH);
+    }
+
+    out.add(ctx.alloc().buffer(3).writeMedium(length));
+    out.add(frame.retain());
+  }
+}
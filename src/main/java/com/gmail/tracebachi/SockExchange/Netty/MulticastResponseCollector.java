@@ -0,0 +1,156 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty;
+
+import com.gmail.tracebachi.SockExchange.Messages.MulticastResponse;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseFuture;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseMessage;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseStatus;
+import com.google.common.base.Preconditions;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Collects the responses of a request sent to many servers and completes once
+ * every server has a response or the quorum of OK responses is reached
+ * <p>
+ * Each server gets its own response consumer (with its own timeout), so the
+ * request also completes by the deadline with the missing responses timed out.
+ * The consumers are futures, so the ones still waiting once the collector
+ * completes are cancelled (which removes them from the map of pending responses
+ * and cancels their timeouts).
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+class MulticastResponseCollector
+{
+  private final List<String> serverNames;
+  private final int quorum;
+  private final Consumer<MulticastResponse> onComplete;
+  private final AtomicReferenceArray<ResponseMessage> responses;
+  private final AtomicReferenceArray<ResponseFuture> responseFutures;
+  private final AtomicInteger remainingCount;
+  private final AtomicInteger okCount = new AtomicInteger(0);
+  private final AtomicBoolean completed = new AtomicBoolean(false);
+
+  /**
+   * @param serverNames Names of the servers the request is sent to
+   * @param quorum Number of OK responses to complete with or 0 to wait for all
+   * @param onComplete Consumer to run with the aggregated response
+   */
+  MulticastResponseCollector(
+    List<String> serverNames, int quorum, Consumer<MulticastResponse> onComplete)
+  {
+    Preconditions.checkNotNull(serverNames, "serverNames");
+    Preconditions.checkArgument(quorum >= 0, "quorum must be >= 0");
+    Preconditions.checkNotNull(onComplete, "onComplete");
+
+    this.serverNames = serverNames;
+    this.quorum = quorum;
+    this.onComplete = onComplete;
+    this.responses = new AtomicReferenceArray<>(serverNames.size());
+    this.responseFutures = new AtomicReferenceArray<>(serverNames.size());
+    this.remainingCount = new AtomicInteger(serverNames.size());
+
+    if (serverNames.isEmpty())
+    {
+      complete();
+    }
+  }
+
+  /**
+   * @param index Index of the server in the list of server names
+   *
+   * @return Consumer of the response of the server
+   */
+  Consumer<ResponseMessage> newResponseConsumer(int index)
+  {
+    ResponseFuture responseFuture = new ResponseFuture();
+    responseFuture.thenAccept((responseMessage) -> onResponse(index, responseMessage));
+    responseFutures.set(index, responseFuture);
+
+    // The collector may have completed before the consumer was created
+    if (completed.get())
+    {
+      responseFuture.cancel(false);
+    }
+
+    return responseFuture;
+  }
+
+  private void onResponse(int index, ResponseMessage responseMessage)
+  {
+    if (completed.get())
+    {
+      return;
+    }
+
+    // The future completes with a copy, so the response stays readable
+    ResponseStatus responseStatus = responseMessage.getResponseStatus();
+    responses.set(index, responseMessage);
+
+    int currentOkCount = responseStatus.isOk() ? okCount.incrementAndGet() : okCount.get();
+    int currentRemainingCount = remainingCount.decrementAndGet();
+
+    if ((quorum > 0 && currentOkCount >= quorum) || currentRemainingCount == 0)
+    {
+      complete();
+    }
+  }
+
+  private void complete()
+  {
+    if (!completed.compareAndSet(false, true))
+    {
+      return;
+    }
+
+    // Servers that have not responded once the quorum is reached are not waited for
+    for (int i = 0; i < responseFutures.length(); i++)
+    {
+      ResponseFuture responseFuture = responseFutures.get(i);
+
+      if (responseFuture != null)
+      {
+        responseFuture.cancel(false);
+      }
+    }
+
+    Map<String, ResponseMessage> responseMap = new LinkedHashMap<>(serverNames.size() * 2);
+    for (int i = 0; i < serverNames.size(); i++)
+    {
+      ResponseMessage responseMessage = responses.get(i);
+
+      if (responseMessage != null)
+      {
+        responseMap.put(serverNames.get(i), responseMessage);
+      }
+    }
+
+    int requiredOkCount = quorum > 0 ? quorum : serverNames.size();
+    boolean quorumReached = okCount.get() >= requiredOkCount;
+
+    onComplete.accept(new MulticastResponse(ResponseStatus.OK, responseMap, quorumReached));
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty;
+
+import com.gmail.tracebachi.SockExchange.Netty.Packets.AbstractPacket;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketDirection;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketIdMapping;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Table (indexed by packet ID) of how to create and handle the packets a
+ * decoder accepts, derived from the {@link PacketIdMapping} entries of a direction
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+class PacketDispatcher
+{
+  private final PacketIdMapping.Entry<?>[] entries;
+
+  /**
+   * @param direction Direction of the packets the decoder accepts
+   */
+  PacketDispatcher(PacketDirection direction)
+  {
+    this.entries = PacketIdMapping.newEntryTable(direction);
+  }
+
+  /**
+   * Reads a packet and passes it to the handler (releasing it after)
+   *
+   * @param packetId ID of the packet to read
+   * @param in Buffer to read the packet from
+   * @param packetHandler Handler to pass the packet to
+   *
+   * @return True if the packet ID is accepted or false if not (nothing is read)
+   */
+  boolean readAndDispatch(byte packetId, ByteBuf in, AbstractPacketHandler packetHandler)
+  {
+    if (packetId < 0 || packetId >= entries.length || entries[packetId] == null)
+    {
+      return false;
+    }
+
+    readAndDispatch(entries[packetId], in, packetHandler);
+    return true;
+  }
+
+  private static <T extends AbstractPacket> void readAndDispatch(
+    PacketIdMapping.Entry<T> entry, ByteBuf in, AbstractPacketHandler packetHandler)
+  {
+    T packet = entry.newPacket();
+
+    try
+    {
+      packet.read(in);
+      entry.handle(packetHandler, packet);
+    }
+    finally
+    {
+      packet.release();
+    }
+  }
+}
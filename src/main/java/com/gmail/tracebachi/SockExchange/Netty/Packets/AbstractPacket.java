@@ -17,15 +17,37 @@
  */
 package com.gmail.tracebachi.SockExchange.Netty.Packets;
 
+import com.gmail.tracebachi.SockExchange.Netty.ChannelNameTable;
+import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.ReferenceCounted;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
+ * Packets are reference counted so that Netty releases them (and any payload
+ * buffer they hold) once they have been encoded or their write has failed.
+ * A packet starts with a reference count of 1.
+ * <p>
+ * Frequently sent packets are pooled (see their {@code newInstance()} methods).
+ * Once the reference count reaches 0, a packet is cleared through {@link #clear()}
+ * and returned to its pool through {@link #recycle()}, so it must not be used after
+ * its last release.
+ *
  * @author GeeItsZee (tracebachi@gmail.com)
  */
-public abstract class AbstractPacket
+public abstract class AbstractPacket implements ReferenceCounted
 {
+  private static final AtomicIntegerFieldUpdater<AbstractPacket> REF_CNT_UPDATER =
+    AtomicIntegerFieldUpdater.newUpdater(AbstractPacket.class, "refCnt");
+
+  private volatile int refCnt = 1;
+
   /**
    * Reads the packet from a {@link ByteBuf}
    *
@@ -40,6 +62,147 @@ public abstract class AbstractPacket
    */
   public abstract void write(ByteBuf out);
 
+  /**
+   * Encodes the packet (packet ID included) into a new buffer
+   * <p>
+   * This is used to encode a packet once when it is going to be written to
+   * multiple channels, each of which can write a duplicate of the returned frame.
+   *
+   * @param allocator Allocator for the frame
+   *
+   * @return Frame to write to a channel
+   */
+  public ByteBuf encodeFrame(ByteBufAllocator allocator)
+  {
+    Preconditions.checkNotNull(allocator, "allocator");
+
+    ByteBuf frame = allocator.buffer();
+
+    try
+    {
+      frame.writeByte(PacketIdMapping.packetToId(getClass()));
+      write(frame);
+      return frame;
+    }
+    catch (RuntimeException ex)
+    {
+      frame.release();
+      throw ex;
+    }
+  }
+
+  /**
+   * Called once the reference count of the packet reaches 0 (before it is
+   * recycled) to reset all fields
+   * <p>
+   * Packets holding a payload buffer must release it here.
+   */
+  protected void clear()
+  {
+  }
+
+  /**
+   * Called once the packet has been cleared to return it to its pool
+   * <p>
+   * Packets that are not pooled do nothing.
+   */
+  protected void recycle()
+  {
+  }
+
+  /**
+   * Called by pools before handing out a recycled packet
+   */
+  protected final void resetRefCnt()
+  {
+    REF_CNT_UPDATER.set(this, 1);
+  }
+
+  @Override
+  public int refCnt()
+  {
+    return refCnt;
+  }
+
+  @Override
+  public AbstractPacket retain()
+  {
+    return retain(1);
+  }
+
+  @Override
+  public AbstractPacket retain(int increment)
+  {
+    Preconditions.checkArgument(increment > 0, "increment must be > 0");
+
+    while (true)
+    {
+      int current = refCnt;
+
+      if (current <= 0 || current > Integer.MAX_VALUE - increment)
+      {
+        throw new IllegalReferenceCountException(current, increment);
+      }
+
+      if (REF_CNT_UPDATER.compareAndSet(this, current, current + increment))
+      {
+        return this;
+      }
+    }
+  }
+
+  @Override
+  public boolean release()
+  {
+    return release(1);
+  }
+
+  @Override
+  public boolean release(int decrement)
+  {
+    Preconditions.checkArgument(decrement > 0, "decrement must be > 0");
+
+    while (true)
+    {
+      int current = refCnt;
+
+      if (current < decrement)
+      {
+        throw new IllegalReferenceCountException(current, -decrement);
+      }
+
+      if (REF_CNT_UPDATER.compareAndSet(this, current, current - decrement))
+      {
+        if (current == decrement)
+        {
+          clear();
+          recycle();
+          return true;
+        }
+
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Not an override with Netty 4.0, but required when running with Netty 4.1
+   * (which added this method to {@link ReferenceCounted} and calls it for leak detection)
+   */
+  public ReferenceCounted touch()
+  {
+    return this;
+  }
+
+  /**
+   * Not an override with Netty 4.0, but required when running with Netty 4.1
+   * (which added this method to {@link ReferenceCounted} and calls it for leak detection)
+   */
+  public ReferenceCounted touch(Object hint)
+  {
+    return this;
+  }
+
   /**
    * Helper method to write a VarShort
    *
@@ -58,7 +221,7 @@ public abstract class AbstractPacket
    * @param out Output ByteBuf
    * @param value Value to write
    */
-  private static void writeVarInt(ByteBuf out, int value)
+  protected static void writeVarInt(ByteBuf out, int value)
   {
     // Long conversion required for AND-ing with 64 bits
     writeVarLong(out, (((long) 1 << 32) - 1) & value);
@@ -101,13 +264,50 @@ public abstract class AbstractPacket
       throw new NullPointerException("str");
     }
 
-    int length = str.length();
-    writeVarInt(out, length);
-
+    // The length is the number of encoded bytes (not chars) so non-ASCII strings round trip
     byte[] strBytes = str.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(out, strBytes.length);
     out.writeBytes(strBytes);
   }
 
+  /**
+   * Helper method to write a list of strings
+   *
+   * @param out Output ByteBuf
+   * @param list Value to write
+   */
+  protected static void writeStringList(ByteBuf out, List<String> list)
+  {
+    if (list == null)
+    {
+      throw new NullPointerException("list");
+    }
+
+    writeVarInt(out, list.size());
+
+    for (String str : list)
+    {
+      writeString(out, str);
+    }
+  }
+
+  /**
+   * Helper method to write a channel as its ID (or as its name if it has no ID)
+   *
+   * @param out Output ByteBuf
+   * @param channelId ID of the channel or {@link ChannelNameTable#NO_ID}
+   * @param channelName Name of the channel (only written if there is no ID)
+   */
+  protected static void writeChannel(ByteBuf out, int channelId, String channelName)
+  {
+    writeVarInt(out, channelId);
+
+    if (channelId == ChannelNameTable.NO_ID)
+    {
+      writeString(out, channelName);
+    }
+  }
+
   /**
    * Helper method to read a VarShort
    *
@@ -127,7 +327,7 @@ public abstract class AbstractPacket
    *
    * @return Integer
    */
-  private static int readVarInt(ByteBuf in)
+  protected static int readVarInt(ByteBuf in)
   {
     return (int) readVarLong(in, 5);
   }
@@ -160,6 +360,63 @@ public abstract class AbstractPacket
     return new String(bytes, StandardCharsets.UTF_8);
   }
 
+  /**
+   * Helper method to read a list of strings
+   *
+   * @param in Input ByteBuf
+   *
+   * @return List of strings
+   */
+  protected static List<String> readStringList(ByteBuf in)
+  {
+    int size = readVarInt(in);
+    List<String> list = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++)
+    {
+      list.add(readString(in));
+    }
+
+    return list;
+  }
+
+  /**
+   * Helper method to write a length-prefixed buffer
+   * <p>
+   * The reader index of the passed buffer is not modified, so the same buffer
+   * can be written by multiple packets concurrently.
+   *
+   * @param out Output ByteBuf
+   * @param buffer Value to write
+   */
+  protected static void writeBuffer(ByteBuf out, ByteBuf buffer)
+  {
+    if (buffer == null)
+    {
+      throw new NullPointerException("buffer");
+    }
+
+    int length = buffer.readableBytes();
+    out.writeInt(length);
+    out.writeBytes(buffer, buffer.readerIndex(), length);
+  }
+
+  /**
+   * Helper method to read a length-prefixed buffer without copying
+   * <p>
+   * The returned buffer is a retained slice of the input and must be released
+   * by the caller.
+   *
+   * @param in Input ByteBuf
+   *
+   * @return Retained slice of the input
+   */
+  protected static ByteBuf readRetainedBuffer(ByteBuf in)
+  {
+    int length = in.readInt();
+    return in.readSlice(length).retain();
+  }
+
   private static long readVarLong(ByteBuf out, int maxBytes)
   {
     long value = 0;
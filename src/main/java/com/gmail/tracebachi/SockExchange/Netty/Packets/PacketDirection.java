@@ -0,0 +1,51 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty.Packets;
+
+/**
+ * Which side of a connection a packet is sent to
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public enum PacketDirection
+{
+  /**
+   * Sent by a Spigot server to Bungee
+   */
+  TO_BUNGEE,
+
+  /**
+   * Sent by Bungee to a Spigot server
+   */
+  TO_SPIGOT,
+
+  /**
+   * Sent by either side to the other
+   */
+  TO_ANY;
+
+  /**
+   * @param direction Direction of the packets a codec handles
+   *
+   * @return True if packets of this direction are sent in the given direction
+   */
+  public boolean includes(PacketDirection direction)
+  {
+    return this == TO_ANY || this == direction;
+  }
+}
@@ -17,42 +17,84 @@
  */
 package com.gmail.tracebachi.SockExchange.Netty.Packets;
 
+import com.gmail.tracebachi.SockExchange.Netty.AbstractPacketHandler;
 import com.google.common.base.Preconditions;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
+ * Registry of every packet (its ID, class, factory, handle method and direction)
+ * <p>
+ * The tables of the packet decoders and encoders are derived from this registry,
+ * so adding a packet only needs a new entry here (and a handle method in
+ * {@link AbstractPacketHandler}). Lookups use array indexing, so the lookups done
+ * for every packet do not hash or box the IDs.
+ *
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class PacketIdMapping
 {
-  private static final Map<Byte, Class<? extends AbstractPacket>> idToPacket = new HashMap<>();
-  private static final Map<Class<? extends AbstractPacket>, Byte> packetToId = new HashMap<>();
+  public static final int MAX_PACKET_ID = 15;
+
+  private static final Entry<?>[] idToEntry = new Entry<?>[MAX_PACKET_ID + 1];
+  private static final ClassValue<Integer> packetToId = new ClassValue<Integer>()
+  {
+    @Override
+    protected Integer computeValue(Class<?> clazz)
+    {
+      for (Entry<?> entry : idToEntry)
+      {
+        if (entry != null && entry.packetClass == clazz)
+        {
+          return (int) entry.packetId;
+        }
+      }
+
+      return -1;
+    }
+  };
 
   static
   {
     byte packetId = 0;
 
     // Registration packets
-    addIdAndPacketClassPair(++packetId, PacketToBungeeRegister.class);
-    addIdAndPacketClassPair(++packetId, PacketToSpigotRegister.class);
+    addEntry(++packetId, PacketToBungeeRegister.class, PacketToBungeeRegister::new,
+      AbstractPacketHandler::handle, PacketDirection.TO_BUNGEE);
+    addEntry(++packetId, PacketToSpigotRegister.class, PacketToSpigotRegister::new,
+      AbstractPacketHandler::handle, PacketDirection.TO_SPIGOT);
 
     // Request and response packets
-    addIdAndPacketClassPair(++packetId, PacketToBungeeRequest.class);
-    addIdAndPacketClassPair(++packetId, PacketToSpigotRequest.class);
-    addIdAndPacketClassPair(++packetId, PacketToAnyResponse.class);
+    addEntry(++packetId, PacketToBungeeRequest.class, PacketToBungeeRequest::newInstance,
+      AbstractPacketHandler::handle, PacketDirection.TO_BUNGEE);
+    addEntry(++packetId, PacketToSpigotRequest.class, PacketToSpigotRequest::newInstance,
+      AbstractPacketHandler::handle, PacketDirection.TO_SPIGOT);
+    addEntry(++packetId, PacketToAnyResponse.class, PacketToAnyResponse::newInstance,
+      AbstractPacketHandler::handle, PacketDirection.TO_ANY);
 
     // Forward packet
-    addIdAndPacketClassPair(++packetId, PacketToBungeeForward.class);
+    addEntry(++packetId, PacketToBungeeForward.class, PacketToBungeeForward::newInstance,
+      AbstractPacketHandler::handle, PacketDirection.TO_BUNGEE);
+
+    // Channel ID packets
+    addEntry(++packetId, PacketToBungeeChannelNames.class, PacketToBungeeChannelNames::new,
+      AbstractPacketHandler::handle, PacketDirection.TO_BUNGEE);
+    addEntry(++packetId, PacketToSpigotChannelIds.class, PacketToSpigotChannelIds::new,
+      AbstractPacketHandler::handle, PacketDirection.TO_SPIGOT);
+
+    // Multicast request packet
+    addEntry(++packetId, PacketToBungeeMulticastRequest.class,
+      PacketToBungeeMulticastRequest::new, AbstractPacketHandler::handle,
+      PacketDirection.TO_BUNGEE);
   }
 
   public static Class<? extends AbstractPacket> idToPacket(byte id)
   {
-    Class<? extends AbstractPacket> clazz = idToPacket.get(id);
-    if (clazz != null)
+    Entry<?> entry = (id >= 0 && id <= MAX_PACKET_ID) ? idToEntry[id] : null;
+    if (entry != null)
     {
-      return clazz;
+      return entry.packetClass;
     }
 
     throw new IllegalArgumentException("Unknown packet ID: " + id);
@@ -60,10 +102,10 @@ public class PacketIdMapping
 
   public static byte packetToId(Class<? extends AbstractPacket> clazz)
   {
-    Byte b = packetToId.get(clazz);
-    if (b != null)
+    int id = packetToId.get(clazz);
+    if (id >= 0)
     {
-      return b;
+      return (byte) id;
     }
 
     throw new IllegalArgumentException("Unknown packet class: " + clazz);
@@ -74,12 +116,128 @@ public class PacketIdMapping
     return packetToId(clazz) == id;
   }
 
-  private static void addIdAndPacketClassPair(byte b, Class<? extends AbstractPacket> clazz)
+  /**
+   * Creates a table (indexed by packet ID) of the packets sent in a direction
+   *
+   * @param direction Direction of the packets
+   *
+   * @return Table with the entry of every packet sent in the direction (and null
+   * for every other ID)
+   */
+  public static Entry<?>[] newEntryTable(PacketDirection direction)
+  {
+    Preconditions.checkNotNull(direction, "direction");
+
+    Entry<?>[] table = new Entry<?>[MAX_PACKET_ID + 1];
+
+    for (Entry<?> entry : idToEntry)
+    {
+      if (entry != null && entry.direction.includes(direction))
+      {
+        table[entry.packetId] = entry;
+      }
+    }
+
+    return table;
+  }
+
+  /**
+   * Creates a table (indexed by packet ID) of which packets are sent in a direction
+   *
+   * @param direction Direction of the packets
+   *
+   * @return Table where the entry for the ID of every packet sent in the direction
+   * is true
+   */
+  public static boolean[] newAcceptedIdTable(PacketDirection direction)
+  {
+    Entry<?>[] entries = newEntryTable(direction);
+    boolean[] table = new boolean[entries.length];
+
+    for (int id = 0; id < entries.length; id++)
+    {
+      table[id] = entries[id] != null;
+    }
+
+    return table;
+  }
+
+  private static <T extends AbstractPacket> void addEntry(
+    byte b, Class<T> clazz, Supplier<T> factory,
+    BiConsumer<AbstractPacketHandler, T> handleMethod, PacketDirection direction)
+  {
+    Preconditions.checkArgument(b >= 0 && b <= MAX_PACKET_ID);
+    Preconditions.checkArgument(idToEntry[b] == null);
+
+    for (Entry<?> existing : idToEntry)
+    {
+      Preconditions.checkArgument(existing == null || existing.packetClass != clazz);
+    }
+
+    idToEntry[b] = new Entry<>(b, clazz, factory, handleMethod, direction);
+  }
+
+  /**
+   * How a packet is identified, created and handled
+   *
+   * @param <T> Type of the packet
+   */
+  public static final class Entry<T extends AbstractPacket>
   {
-    Preconditions.checkArgument(!idToPacket.containsKey(b));
-    Preconditions.checkArgument(!packetToId.containsKey(clazz));
+    private final byte packetId;
+    private final Class<T> packetClass;
+    private final Supplier<T> factory;
+    private final BiConsumer<AbstractPacketHandler, T> handleMethod;
+    private final PacketDirection direction;
+
+    private Entry(
+      byte packetId, Class<T> packetClass, Supplier<T> factory,
+      BiConsumer<AbstractPacketHandler, T> handleMethod, PacketDirection direction)
+    {
+      Preconditions.checkNotNull(packetClass, "packetClass");
+      Preconditions.checkNotNull(factory, "factory");
+      Preconditions.checkNotNull(handleMethod, "handleMethod");
+      Preconditions.checkNotNull(direction, "direction");
+
+      this.packetId = packetId;
+      this.packetClass = packetClass;
+      this.factory = factory;
+      this.handleMethod = handleMethod;
+      this.direction = direction;
+    }
+
+    public byte getPacketId()
+    {
+      return packetId;
+    }
+
+    public Class<T> getPacketClass()
+    {
+      return packetClass;
+    }
+
+    public PacketDirection getDirection()
+    {
+      return direction;
+    }
+
+    /**
+     * @return New (or pooled) packet to read into
+     */
+    public T newPacket()
+    {
+      return factory.get();
+    }
 
-    idToPacket.put(b, clazz);
-    packetToId.put(clazz, b);
+    /**
+     * Passes a packet to the matching handle method of a handler
+     *
+     * @param packetHandler Handler to pass the packet to
+     * @param packet Packet to handle
+     */
+    public void handle(AbstractPacketHandler packetHandler, T packet)
+    {
+      handleMethod.accept(packetHandler, packet);
+    }
   }
 }
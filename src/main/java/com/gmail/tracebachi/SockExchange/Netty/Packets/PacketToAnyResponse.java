@@ -18,17 +18,56 @@
 package com.gmail.tracebachi.SockExchange.Netty.Packets;
 
 import com.gmail.tracebachi.SockExchange.Messages.ResponseStatus;
+import com.gmail.tracebachi.SockExchange.Utilities.BufferUtil;
 import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.Recycler;
 
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class PacketToAnyResponse extends AbstractPacket
 {
+  private static final Recycler<PacketToAnyResponse> RECYCLER = new Recycler<PacketToAnyResponse>()
+  {
+    @Override
+    protected PacketToAnyResponse newObject(Handle handle)
+    {
+      return new PacketToAnyResponse(handle);
+    }
+  };
+
+  private final Recycler.Handle recyclerHandle;
   private long consumerId;
   private ResponseStatus responseStatus;
-  private byte[] messageBytes;
+  private ByteBuf messageBuffer;
+
+  /**
+   * Creates a packet that is not pooled
+   * <p>
+   * Prefer {@link #newInstance()} for packets that are sent often.
+   */
+  public PacketToAnyResponse()
+  {
+    this(null);
+  }
+
+  private PacketToAnyResponse(Recycler.Handle recyclerHandle)
+  {
+    this.recyclerHandle = recyclerHandle;
+  }
+
+  /**
+   * @return Packet taken from the pool of the current thread which returns to
+   * the pool once it is released
+   */
+  public static PacketToAnyResponse newInstance()
+  {
+    PacketToAnyResponse packet = RECYCLER.get();
+    packet.resetRefCnt();
+    return packet;
+  }
 
   public long getConsumerId()
   {
@@ -50,14 +89,41 @@ public class PacketToAnyResponse extends AbstractPacket
     this.responseStatus = responseStatus;
   }
 
+  /**
+   * @return Buffer of the message bytes which is owned by this packet
+   * (retain it to use it after the packet is released)
+   */
+  public ByteBuf getMessageBuffer()
+  {
+    return messageBuffer;
+  }
+
+  /**
+   * @param messageBuffer Buffer of the message bytes which this packet will
+   * take ownership of (and release when the packet is released)
+   */
+  public void setMessageBuffer(ByteBuf messageBuffer)
+  {
+    if (this.messageBuffer != null)
+    {
+      this.messageBuffer.release();
+    }
+
+    this.messageBuffer = messageBuffer;
+  }
+
+  /**
+   * @return Copy of the message bytes (or the wrapped array if the buffer was
+   * created from one)
+   */
   public byte[] getMessageBytes()
   {
-    return messageBytes;
+    return messageBuffer == null ? null : BufferUtil.toByteArray(messageBuffer);
   }
 
   public void setMessageBytes(byte[] messageBytes)
   {
-    this.messageBytes = messageBytes;
+    setMessageBuffer(messageBytes == null ? null : Unpooled.wrappedBuffer(messageBytes));
   }
 
   @Override
@@ -72,13 +138,11 @@ public class PacketToAnyResponse extends AbstractPacket
     // Read the message bytes only if ResponseStatus was OK
     if (responseStatus.isOk())
     {
-      int messageBytesCount = in.readInt();
-      messageBytes = new byte[messageBytesCount];
-      in.readBytes(messageBytes);
+      messageBuffer = readRetainedBuffer(in);
     }
     else
     {
-      messageBytes = null;
+      messageBuffer = null;
     }
   }
 
@@ -96,10 +160,26 @@ public class PacketToAnyResponse extends AbstractPacket
     // Write the message bytes only if ResponseStatus is OK
     if (responseStatus.isOk())
     {
-      Preconditions.checkNotNull(messageBytes, "messageBytes");
+      Preconditions.checkNotNull(messageBuffer, "messageBuffer");
+
+      writeBuffer(out, messageBuffer);
+    }
+  }
 
-      out.writeInt(messageBytes.length);
-      out.writeBytes(messageBytes);
+  @Override
+  protected void clear()
+  {
+    consumerId = 0;
+    responseStatus = null;
+    setMessageBuffer(null);
+  }
+
+  @Override
+  protected void recycle()
+  {
+    if (recyclerHandle != null)
+    {
+      RECYCLER.recycle(this, recyclerHandle);
     }
   }
 }
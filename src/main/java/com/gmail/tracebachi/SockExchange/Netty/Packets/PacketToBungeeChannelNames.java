@@ -0,0 +1,59 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty.Packets;
+
+import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
+import io.netty.buffer.ByteBuf;
+
+import java.util.List;
+
+/**
+ * Sent by a server when a channel is registered on it after registration, so
+ * Bungee assigns the channel an ID (if it does not have one yet)
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class PacketToBungeeChannelNames extends AbstractPacket
+{
+  private List<String> channelNames;
+
+  public List<String> getChannelNames()
+  {
+    return channelNames;
+  }
+
+  public void setChannelNames(List<String> channelNames)
+  {
+    this.channelNames = channelNames;
+  }
+
+  @Override
+  public void read(ByteBuf in)
+  {
+    channelNames = readStringList(in);
+  }
+
+  @Override
+  public void write(ByteBuf out)
+  {
+    ExtraPreconditions.checkElements(channelNames, (str) -> str != null && !str.isEmpty(),
+      "Null or empty string in channelNames");
+
+    writeStringList(out, channelNames);
+  }
+}
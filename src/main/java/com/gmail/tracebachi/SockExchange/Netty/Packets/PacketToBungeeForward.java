@@ -17,9 +17,13 @@
  */
 package com.gmail.tracebachi.SockExchange.Netty.Packets;
 
+import com.gmail.tracebachi.SockExchange.Netty.ChannelNameTable;
+import com.gmail.tracebachi.SockExchange.Utilities.BufferUtil;
 import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
 import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.Recycler;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -29,9 +33,47 @@ import java.util.List;
  */
 public class PacketToBungeeForward extends AbstractPacket
 {
+  private static final Recycler<PacketToBungeeForward> RECYCLER = new Recycler<PacketToBungeeForward>()
+  {
+    @Override
+    protected PacketToBungeeForward newObject(Handle handle)
+    {
+      return new PacketToBungeeForward(handle);
+    }
+  };
+
+  private final Recycler.Handle recyclerHandle;
   private List<String> serverNames;
+  private int channelId;
   private String channelName;
-  private byte[] messageBytes;
+  private ByteBuf messageBuffer;
+  private ByteBuf encodedChannelAndMessage;
+
+  /**
+   * Creates a packet that is not pooled
+   * <p>
+   * Prefer {@link #newInstance()} for packets that are sent often.
+   */
+  public PacketToBungeeForward()
+  {
+    this(null);
+  }
+
+  private PacketToBungeeForward(Recycler.Handle recyclerHandle)
+  {
+    this.recyclerHandle = recyclerHandle;
+  }
+
+  /**
+   * @return Packet taken from the pool of the current thread which returns to
+   * the pool once it is released
+   */
+  public static PacketToBungeeForward newInstance()
+  {
+    PacketToBungeeForward packet = RECYCLER.get();
+    packet.resetRefCnt();
+    return packet;
+  }
 
   public List<String> getServerNames()
   {
@@ -43,6 +85,24 @@ public class PacketToBungeeForward extends AbstractPacket
     this.serverNames = serverNames;
   }
 
+  /**
+   * @return ID of the channel or {@link ChannelNameTable#NO_ID} if the channel
+   * name is sent instead
+   */
+  public int getChannelId()
+  {
+    return channelId;
+  }
+
+  public void setChannelId(int channelId)
+  {
+    this.channelId = channelId;
+  }
+
+  /**
+   * @return Name of the channel or null if the packet was received with a
+   * channel ID (which is resolved through a {@link ChannelNameTable})
+   */
   public String getChannelName()
   {
     return channelName;
@@ -53,14 +113,52 @@ public class PacketToBungeeForward extends AbstractPacket
     this.channelName = channelName;
   }
 
+  /**
+   * @return Buffer of the message bytes which is owned by this packet
+   * (retain it to use it after the packet is released)
+   */
+  public ByteBuf getMessageBuffer()
+  {
+    return messageBuffer;
+  }
+
+  /**
+   * @param messageBuffer Buffer of the message bytes which this packet will
+   * take ownership of (and release when the packet is released)
+   */
+  public void setMessageBuffer(ByteBuf messageBuffer)
+  {
+    if (this.messageBuffer != null)
+    {
+      this.messageBuffer.release();
+    }
+
+    this.messageBuffer = messageBuffer;
+    this.encodedChannelAndMessage = null;
+  }
+
+  /**
+   * @return Encoded channel name and message bytes exactly as they were read
+   * (sharing the reference count of the message buffer) or null if the packet
+   * was not read from a buffer
+   */
+  public ByteBuf getEncodedChannelAndMessage()
+  {
+    return encodedChannelAndMessage;
+  }
+
+  /**
+   * @return Copy of the message bytes (or the wrapped array if the buffer was
+   * created from one)
+   */
   public byte[] getMessageBytes()
   {
-    return messageBytes;
+    return messageBuffer == null ? null : BufferUtil.toByteArray(messageBuffer);
   }
 
   public void setMessageBytes(byte[] messageBytes)
   {
-    this.messageBytes = messageBytes;
+    setMessageBuffer(messageBytes == null ? null : Unpooled.wrappedBuffer(messageBytes));
   }
 
   @Override
@@ -74,21 +172,25 @@ public class PacketToBungeeForward extends AbstractPacket
       serverNames.add(readString(in));
     }
 
-    // Read the channel name
-    channelName = readString(in);
+    // Read the channel ID (or name if it does not have one)
+    int channelNameIndex = in.readerIndex();
+    channelId = readVarInt(in);
+    channelName = (channelId == ChannelNameTable.NO_ID) ? readString(in) : null;
 
     // Read the message bytes
-    int messageBytesCount = in.readInt();
-    messageBytes = new byte[messageBytesCount];
-    in.readBytes(messageBytes);
+    messageBuffer = readRetainedBuffer(in);
+
+    // Keep the encoded form so a relay can write it without encoding it again
+    encodedChannelAndMessage = in.slice(channelNameIndex, in.readerIndex() - channelNameIndex);
   }
 
   @Override
   public void write(ByteBuf out)
   {
     Preconditions.checkNotNull(serverNames, "serverNames");
-    ExtraPreconditions.checkNotEmpty(channelName, "channelName");
-    Preconditions.checkNotNull(messageBytes, "messageBytes");
+    Preconditions.checkArgument(channelId != ChannelNameTable.NO_ID || channelName != null,
+      "channelId or channelName is required");
+    Preconditions.checkNotNull(messageBuffer, "messageBuffer");
 
     // Write the server names
     out.writeInt(serverNames.size());
@@ -98,12 +200,29 @@ public class PacketToBungeeForward extends AbstractPacket
       writeString(out, serverName);
     }
 
-    // Write the channel name
-    writeString(out, channelName);
+    // Write the channel ID (or name if it does not have one)
+    writeChannel(out, channelId, channelName);
 
     // Write the message bytes
-    out.writeInt(messageBytes.length);
-    out.writeBytes(messageBytes);
+    writeBuffer(out, messageBuffer);
+  }
+
+  @Override
+  protected void clear()
+  {
+    serverNames = null;
+    channelId = ChannelNameTable.NO_ID;
+    channelName = null;
+    setMessageBuffer(null);
+  }
+
+  @Override
+  protected void recycle()
+  {
+    if (recyclerHandle != null)
+    {
+      RECYCLER.recycle(this, recyclerHandle);
+    }
   }
 }
 
@@ -0,0 +1,218 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty.Packets;
+
+import com.gmail.tracebachi.SockExchange.Netty.ChannelNameTable;
+import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
+import com.gmail.tracebachi.SockExchange.Utilities.LongIdSlotMap;
+import com.google.common.base.Preconditions;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.List;
+
+/**
+ * Sent by a server to request a response from many servers, which Bungee
+ * collects into one aggregated response
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class PacketToBungeeMulticastRequest extends AbstractPacket
+{
+  private List<String> serverNames;
+  private int channelId;
+  private String channelName;
+  private ByteBuf messageBuffer;
+  private ByteBuf encodedChannelAndMessage;
+  private long consumerId;
+  private long timeoutInMillis;
+  private int quorum;
+
+  /**
+   * @return Names of the servers to send to or an empty list for all servers
+   * except the source
+   */
+  public List<String> getServerNames()
+  {
+    return serverNames;
+  }
+
+  public void setServerNames(List<String> serverNames)
+  {
+    this.serverNames = serverNames;
+  }
+
+  /**
+   * @return ID of the channel or {@link ChannelNameTable#NO_ID} if the channel
+   * name is sent instead
+   */
+  public int getChannelId()
+  {
+    return channelId;
+  }
+
+  public void setChannelId(int channelId)
+  {
+    this.channelId = channelId;
+  }
+
+  /**
+   * @return Name of the channel or null if the packet was received with a
+   * channel ID (which is resolved through a {@link ChannelNameTable})
+   */
+  public String getChannelName()
+  {
+    return channelName;
+  }
+
+  public void setChannelName(String channelName)
+  {
+    this.channelName = channelName;
+  }
+
+  /**
+   * @return Buffer of the message bytes which is owned by this packet
+   * (retain it to use it after the packet is released)
+   */
+  public ByteBuf getMessageBuffer()
+  {
+    return messageBuffer;
+  }
+
+  /**
+   * @param messageBuffer Buffer of the message bytes which this packet will
+   * take ownership of (and release when the packet is released)
+   */
+  public void setMessageBuffer(ByteBuf messageBuffer)
+  {
+    if (this.messageBuffer != null)
+    {
+      this.messageBuffer.release();
+    }
+
+    this.messageBuffer = messageBuffer;
+    this.encodedChannelAndMessage = null;
+  }
+
+  public void setMessageBytes(byte[] messageBytes)
+  {
+    setMessageBuffer(messageBytes == null ? null : Unpooled.wrappedBuffer(messageBytes));
+  }
+
+  /**
+   * @return Encoded channel name and message bytes exactly as they were read
+   * (sharing the reference count of the message buffer) or null if the packet
+   * was not read from a buffer
+   */
+  public ByteBuf getEncodedChannelAndMessage()
+  {
+    return encodedChannelAndMessage;
+  }
+
+  public long getConsumerId()
+  {
+    return consumerId;
+  }
+
+  public void setConsumerId(long consumerId)
+  {
+    this.consumerId = consumerId;
+  }
+
+  /**
+   * @return Milliseconds to wait for the responses of the servers
+   */
+  public long getTimeoutInMillis()
+  {
+    return timeoutInMillis;
+  }
+
+  public void setTimeoutInMillis(long timeoutInMillis)
+  {
+    this.timeoutInMillis = timeoutInMillis;
+  }
+
+  /**
+   * @return Number of OK responses to respond with or 0 to wait for all servers
+   */
+  public int getQuorum()
+  {
+    return quorum;
+  }
+
+  public void setQuorum(int quorum)
+  {
+    this.quorum = quorum;
+  }
+
+  @Override
+  public void read(ByteBuf in)
+  {
+    // Read the server names
+    serverNames = readStringList(in);
+
+    // Read the channel ID (or name if it does not have one)
+    int channelNameIndex = in.readerIndex();
+    channelId = readVarInt(in);
+    channelName = (channelId == ChannelNameTable.NO_ID) ? readString(in) : null;
+
+    // Read the message bytes
+    messageBuffer = readRetainedBuffer(in);
+
+    // Keep the encoded form so a relay can write it without encoding it again
+    encodedChannelAndMessage = in.slice(channelNameIndex, in.readerIndex() - channelNameIndex);
+
+    // Read the consumer ID, timeout and quorum
+    consumerId = in.readLong();
+    timeoutInMillis = in.readLong();
+    quorum = readVarInt(in);
+  }
+
+  @Override
+  public void write(ByteBuf out)
+  {
+    ExtraPreconditions.checkElements(serverNames, (str) -> str != null && !str.isEmpty(),
+      "Null or empty string in serverNames");
+    Preconditions.checkArgument(channelId != ChannelNameTable.NO_ID || channelName != null,
+      "channelId or channelName is required");
+    Preconditions.checkNotNull(messageBuffer, "messageBuffer");
+    Preconditions.checkArgument(consumerId != LongIdSlotMap.NO_ID, "consumerId is required");
+    Preconditions.checkArgument(timeoutInMillis > 0, "timeoutInMillis must be > 0");
+    Preconditions.checkArgument(quorum >= 0, "quorum must be >= 0");
+
+    // Write the server names
+    writeStringList(out, serverNames);
+
+    // Write the channel ID (or name if it does not have one)
+    writeChannel(out, channelId, channelName);
+
+    // Write the message bytes
+    writeBuffer(out, messageBuffer);
+
+    // Write the consumer ID, timeout and quorum
+    out.writeLong(consumerId);
+    out.writeLong(timeoutInMillis);
+    writeVarInt(out, quorum);
+  }
+
+  @Override
+  protected void clear()
+  {
+    setMessageBuffer(null);
+  }
+}
@@ -17,9 +17,13 @@
  */
 package com.gmail.tracebachi.SockExchange.Netty.Packets;
 
+import com.gmail.tracebachi.SockExchange.Netty.CompressionType;
 import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
 import io.netty.buffer.ByteBuf;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
  */
@@ -27,6 +31,8 @@ public class PacketToBungeeRegister extends AbstractPacket
 {
   private String password;
   private String serverName;
+  private List<String> channelNames = Collections.emptyList();
+  private CompressionType compressionType = CompressionType.NONE;
 
   public String getPassword()
   {
@@ -48,19 +54,68 @@ public class PacketToBungeeRegister extends AbstractPacket
     this.serverName = serverName;
   }
 
+  /**
+   * @return Names of the channels registered on the server (which Bungee assigns
+   * IDs to if they do not have one yet)
+   */
+  public List<String> getChannelNames()
+  {
+    return channelNames;
+  }
+
+  public void setChannelNames(List<String> channelNames)
+  {
+    this.channelNames = channelNames;
+  }
+
+  /**
+   * @return Type of compression the server offers
+   */
+  public CompressionType getCompressionType()
+  {
+    return compressionType;
+  }
+
+  public void setCompressionType(CompressionType compressionType)
+  {
+    this.compressionType = compressionType;
+  }
+
   @Override
   public void read(ByteBuf in)
   {
     password = readString(in);
     serverName = readString(in);
+
+    // Servers before channel IDs end the packet here (and cannot decode the new encoding)
+    if (!in.isReadable())
+    {
+      throw new IllegalArgumentException("Server " + serverName + " runs an older " +
+        "SockExchange protocol. Bungee and all servers must run the same version.");
+    }
+
+    channelNames = readStringList(in);
+
+    // Peers that do not offer compression do not write the type
+    compressionType = in.isReadable()
+      ? CompressionType.fromOrdinal(in.readByte())
+      : CompressionType.NONE;
   }
 
   @Override
   public void write(ByteBuf out)
   {
     ExtraPreconditions.checkNotEmpty(serverName, "serverName");
+    ExtraPreconditions.checkElements(channelNames, (str) -> str != null && !str.isEmpty(),
+      "Null or empty string in channelNames");
 
     writeString(out, password);
     writeString(out, serverName);
+    writeStringList(out, channelNames);
+
+    if (compressionType != null && compressionType != CompressionType.NONE)
+    {
+      out.writeByte(compressionType.ordinal());
+    }
   }
 }
@@ -17,21 +17,64 @@
  */
 package com.gmail.tracebachi.SockExchange.Netty.Packets;
 
+import com.gmail.tracebachi.SockExchange.Netty.ChannelNameTable;
+import com.gmail.tracebachi.SockExchange.Utilities.BufferUtil;
+import com.gmail.tracebachi.SockExchange.Utilities.LongIdSlotMap;
 import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.Recycler;
 
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class PacketToBungeeRequest extends AbstractPacket
 {
+  private static final Recycler<PacketToBungeeRequest> RECYCLER = new Recycler<PacketToBungeeRequest>()
+  {
+    @Override
+    protected PacketToBungeeRequest newObject(Handle handle)
+    {
+      return new PacketToBungeeRequest(handle);
+    }
+  };
+
+  private final Recycler.Handle recyclerHandle;
   private DestinationType destinationType;
   private String serverOrPlayerName;
+  private int channelId;
   private String channelName;
-  private byte[] messageBytes;
-  private Long consumerId;
+  private ByteBuf messageBuffer;
+  private ByteBuf encodedChannelAndMessage;
+  private long consumerId;
   private long timeoutInMillis;
 
+  /**
+   * Creates a packet that is not pooled
+   * <p>
+   * Prefer {@link #newInstance()} for packets that are sent often.
+   */
+  public PacketToBungeeRequest()
+  {
+    this(null);
+  }
+
+  private PacketToBungeeRequest(Recycler.Handle recyclerHandle)
+  {
+    this.recyclerHandle = recyclerHandle;
+  }
+
+  /**
+   * @return Packet taken from the pool of the current thread which returns to
+   * the pool once it is released
+   */
+  public static PacketToBungeeRequest newInstance()
+  {
+    PacketToBungeeRequest packet = RECYCLER.get();
+    packet.resetRefCnt();
+    return packet;
+  }
+
   public DestinationType getDestinationType()
   {
     return destinationType;
@@ -52,6 +95,24 @@ public class PacketToBungeeRequest extends AbstractPacket
     this.serverOrPlayerName = serverOrPlayerName;
   }
 
+  /**
+   * @return ID of the channel or {@link ChannelNameTable#NO_ID} if the channel
+   * name is sent instead
+   */
+  public int getChannelId()
+  {
+    return channelId;
+  }
+
+  public void setChannelId(int channelId)
+  {
+    this.channelId = channelId;
+  }
+
+  /**
+   * @return Name of the channel or null if the packet was received with a
+   * channel ID (which is resolved through a {@link ChannelNameTable})
+   */
   public String getChannelName()
   {
     return channelName;
@@ -62,27 +123,69 @@ public class PacketToBungeeRequest extends AbstractPacket
     this.channelName = channelName;
   }
 
+  /**
+   * @return Buffer of the message bytes which is owned by this packet
+   * (retain it to use it after the packet is released)
+   */
+  public ByteBuf getMessageBuffer()
+  {
+    return messageBuffer;
+  }
+
+  /**
+   * @param messageBuffer Buffer of the message bytes which this packet will
+   * take ownership of (and release when the packet is released)
+   */
+  public void setMessageBuffer(ByteBuf messageBuffer)
+  {
+    if (this.messageBuffer != null)
+    {
+      this.messageBuffer.release();
+    }
+
+    this.messageBuffer = messageBuffer;
+    this.encodedChannelAndMessage = null;
+  }
+
+  /**
+   * @return Encoded channel name and message bytes exactly as they were read
+   * (sharing the reference count of the message buffer) or null if the packet
+   * was not read from a buffer
+   */
+  public ByteBuf getEncodedChannelAndMessage()
+  {
+    return encodedChannelAndMessage;
+  }
+
+  /**
+   * @return Copy of the message bytes (or the wrapped array if the buffer was
+   * created from one)
+   */
   public byte[] getMessageBytes()
   {
-    return messageBytes;
+    return messageBuffer == null ? null : BufferUtil.toByteArray(messageBuffer);
   }
 
   public void setMessageBytes(byte[] messageBytes)
   {
-    this.messageBytes = messageBytes;
+    setMessageBuffer(messageBytes == null ? null : Unpooled.wrappedBuffer(messageBytes));
   }
 
-  public Long getConsumerId()
+  /**
+   * @return ID of the consumer waiting for a response or
+   * {@link LongIdSlotMap#NO_ID} if there is none
+   */
+  public long getConsumerId()
   {
     return consumerId;
   }
 
   public boolean hasConsumer()
   {
-    return consumerId != null;
+    return consumerId != LongIdSlotMap.NO_ID;
   }
 
-  public void setConsumerId(Long consumerId)
+  public void setConsumerId(long consumerId)
   {
     this.consumerId = consumerId;
   }
@@ -109,13 +212,16 @@ public class PacketToBungeeRequest extends AbstractPacket
       serverOrPlayerName = readString(in);
     }
 
-    // Read the channel name
-    channelName = readString(in);
+    // Read the channel ID (or name if it does not have one)
+    int channelNameIndex = in.readerIndex();
+    channelId = readVarInt(in);
+    channelName = (channelId == ChannelNameTable.NO_ID) ? readString(in) : null;
 
     // Read the message bytes
-    int messageBytesCount = in.readInt();
-    messageBytes = new byte[messageBytesCount];
-    in.readBytes(messageBytes);
+    messageBuffer = readRetainedBuffer(in);
+
+    // Keep the encoded form so a relay can write it without encoding it again
+    encodedChannelAndMessage = in.slice(channelNameIndex, in.readerIndex() - channelNameIndex);
 
     // Read the consumer ID and timeout if there is a consumer for a response
     if (in.readBoolean())
@@ -125,7 +231,7 @@ public class PacketToBungeeRequest extends AbstractPacket
     }
     else
     {
-      consumerId = null;
+      consumerId = LongIdSlotMap.NO_ID;
       timeoutInMillis = 0;
     }
   }
@@ -134,8 +240,9 @@ public class PacketToBungeeRequest extends AbstractPacket
   public void write(ByteBuf out)
   {
     Preconditions.checkNotNull(destinationType, "destinationType");
-    Preconditions.checkNotNull(channelName, "channelName");
-    Preconditions.checkNotNull(messageBytes, "messageBytes");
+    Preconditions.checkArgument(channelId != ChannelNameTable.NO_ID || channelName != null,
+      "channelId or channelName is required");
+    Preconditions.checkNotNull(messageBuffer, "messageBuffer");
 
     // Write the DestinationType
     out.writeByte(destinationType.ordinal());
@@ -148,22 +255,42 @@ public class PacketToBungeeRequest extends AbstractPacket
       writeString(out, serverOrPlayerName);
     }
 
-    // Write the channel name
-    writeString(out, channelName);
+    // Write the channel ID (or name if it does not have one)
+    writeChannel(out, channelId, channelName);
 
     // Write the message bytes
-    out.writeInt(messageBytes.length);
-    out.writeBytes(messageBytes);
+    writeBuffer(out, messageBuffer);
 
     // Write the consumer ID and timeout if there is a consumer for a response
-    out.writeBoolean(consumerId != null);
-    if (consumerId != null)
+    out.writeBoolean(consumerId != LongIdSlotMap.NO_ID);
+    if (consumerId != LongIdSlotMap.NO_ID)
     {
       out.writeLong(consumerId);
       out.writeLong(timeoutInMillis);
     }
   }
 
+  @Override
+  protected void clear()
+  {
+    destinationType = null;
+    serverOrPlayerName = null;
+    channelId = ChannelNameTable.NO_ID;
+    channelName = null;
+    setMessageBuffer(null);
+    consumerId = LongIdSlotMap.NO_ID;
+    timeoutInMillis = 0;
+  }
+
+  @Override
+  protected void recycle()
+  {
+    if (recyclerHandle != null)
+    {
+      RECYCLER.recycle(this, recyclerHandle);
+    }
+  }
+
   public enum DestinationType
   {
     BUNGEE,
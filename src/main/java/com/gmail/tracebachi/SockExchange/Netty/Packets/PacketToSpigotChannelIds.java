@@ -0,0 +1,75 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty.Packets;
+
+import com.google.common.base.Preconditions;
+import io.netty.buffer.ByteBuf;
+
+import java.util.List;
+
+/**
+ * Sent by Bungee to every server when channels are assigned IDs
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class PacketToSpigotChannelIds extends AbstractPacket
+{
+  private int firstChannelId;
+  private List<String> channelNames;
+
+  /**
+   * @return ID of the first channel where the following channels have
+   * consecutive IDs
+   */
+  public int getFirstChannelId()
+  {
+    return firstChannelId;
+  }
+
+  public void setFirstChannelId(int firstChannelId)
+  {
+    this.firstChannelId = firstChannelId;
+  }
+
+  public List<String> getChannelNames()
+  {
+    return channelNames;
+  }
+
+  public void setChannelNames(List<String> channelNames)
+  {
+    this.channelNames = channelNames;
+  }
+
+  @Override
+  public void read(ByteBuf in)
+  {
+    firstChannelId = readVarInt(in);
+    channelNames = readStringList(in);
+  }
+
+  @Override
+  public void write(ByteBuf out)
+  {
+    Preconditions.checkArgument(firstChannelId > 0, "firstChannelId must be > 0");
+    Preconditions.checkNotNull(channelNames, "channelNames");
+
+    writeVarInt(out, firstChannelId);
+    writeStringList(out, channelNames);
+  }
+}
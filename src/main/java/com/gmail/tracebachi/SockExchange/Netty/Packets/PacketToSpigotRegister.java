@@ -17,9 +17,13 @@
  */
 package com.gmail.tracebachi.SockExchange.Netty.Packets;
 
+import com.gmail.tracebachi.SockExchange.Netty.CompressionType;
 import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
  */
@@ -56,6 +60,8 @@ public class PacketToSpigotRegister extends AbstractPacket
   }
 
   private Result result;
+  private List<String> channelNames = Collections.emptyList();
+  private CompressionType compressionType = CompressionType.NONE;
 
   public Result getResult()
   {
@@ -67,17 +73,65 @@ public class PacketToSpigotRegister extends AbstractPacket
     this.result = result;
   }
 
+  /**
+   * @return Names of all channels that have an ID where the ID of a channel
+   * is its index in the list plus 1
+   */
+  public List<String> getChannelNames()
+  {
+    return channelNames;
+  }
+
+  public void setChannelNames(List<String> channelNames)
+  {
+    this.channelNames = channelNames;
+  }
+
+  /**
+   * @return Type of compression used by both sides once registered
+   */
+  public CompressionType getCompressionType()
+  {
+    return compressionType;
+  }
+
+  public void setCompressionType(CompressionType compressionType)
+  {
+    this.compressionType = compressionType;
+  }
+
   @Override
   public void read(ByteBuf in)
   {
     result = Result.fromOrdinal(in.readByte());
+
+    // Bungee before channel IDs ends the packet here (and cannot decode the new encoding)
+    if (!in.isReadable())
+    {
+      throw new IllegalArgumentException("Bungee runs an older SockExchange protocol. " +
+        "Bungee and all servers must run the same version.");
+    }
+
+    channelNames = readStringList(in);
+
+    // Peers that do not compress do not write the type
+    compressionType = in.isReadable()
+      ? CompressionType.fromOrdinal(in.readByte())
+      : CompressionType.NONE;
   }
 
   @Override
   public void write(ByteBuf out)
   {
     Preconditions.checkNotNull(result, "result");
+    Preconditions.checkNotNull(channelNames, "channelNames");
 
     out.writeByte(result.ordinal());
+    writeStringList(out, channelNames);
+
+    if (compressionType != null && compressionType != CompressionType.NONE)
+    {
+      out.writeByte(compressionType.ordinal());
+    }
   }
 }
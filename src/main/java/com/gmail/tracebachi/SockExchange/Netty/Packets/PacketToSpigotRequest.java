@@ -17,18 +17,79 @@
  */
 package com.gmail.tracebachi.SockExchange.Netty.Packets;
 
+import com.gmail.tracebachi.SockExchange.Netty.ChannelNameTable;
+import com.gmail.tracebachi.SockExchange.Utilities.BufferUtil;
+import com.gmail.tracebachi.SockExchange.Utilities.LongIdSlotMap;
 import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.Recycler;
 
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class PacketToSpigotRequest extends AbstractPacket
 {
+  private static final Recycler<PacketToSpigotRequest> RECYCLER = new Recycler<PacketToSpigotRequest>()
+  {
+    @Override
+    protected PacketToSpigotRequest newObject(Handle handle)
+    {
+      return new PacketToSpigotRequest(handle);
+    }
+  };
+
+  private final Recycler.Handle recyclerHandle;
+  private int channelId;
   private String channelName;
-  private byte[] messageBytes;
-  private Long consumerId;
+  private ByteBuf messageBuffer;
+  private long consumerId;
+
+  /**
+   * Creates a packet that is not pooled
+   * <p>
+   * Prefer {@link #newInstance()} for packets that are sent often.
+   */
+  public PacketToSpigotRequest()
+  {
+    this(null);
+  }
+
+  private PacketToSpigotRequest(Recycler.Handle recyclerHandle)
+  {
+    this.recyclerHandle = recyclerHandle;
+  }
+
+  /**
+   * @return Packet taken from the pool of the current thread which returns to
+   * the pool once it is released
+   */
+  public static PacketToSpigotRequest newInstance()
+  {
+    PacketToSpigotRequest packet = RECYCLER.get();
+    packet.resetRefCnt();
+    return packet;
+  }
 
+  /**
+   * @return ID of the channel or {@link ChannelNameTable#NO_ID} if the channel
+   * name is sent instead
+   */
+  public int getChannelId()
+  {
+    return channelId;
+  }
+
+  public void setChannelId(int channelId)
+  {
+    this.channelId = channelId;
+  }
+
+  /**
+   * @return Name of the channel or null if the packet was received with a
+   * channel ID (which is resolved through a {@link ChannelNameTable})
+   */
   public String getChannelName()
   {
     return channelName;
@@ -39,27 +100,58 @@ public class PacketToSpigotRequest extends AbstractPacket
     this.channelName = channelName;
   }
 
+  /**
+   * @return Buffer of the message bytes which is owned by this packet
+   * (retain it to use it after the packet is released)
+   */
+  public ByteBuf getMessageBuffer()
+  {
+    return messageBuffer;
+  }
+
+  /**
+   * @param messageBuffer Buffer of the message bytes which this packet will
+   * take ownership of (and release when the packet is released)
+   */
+  public void setMessageBuffer(ByteBuf messageBuffer)
+  {
+    if (this.messageBuffer != null)
+    {
+      this.messageBuffer.release();
+    }
+
+    this.messageBuffer = messageBuffer;
+  }
+
+  /**
+   * @return Copy of the message bytes (or the wrapped array if the buffer was
+   * created from one)
+   */
   public byte[] getMessageBytes()
   {
-    return messageBytes;
+    return messageBuffer == null ? null : BufferUtil.toByteArray(messageBuffer);
   }
 
   public void setMessageBytes(byte[] messageBytes)
   {
-    this.messageBytes = messageBytes;
+    setMessageBuffer(messageBytes == null ? null : Unpooled.wrappedBuffer(messageBytes));
   }
 
-  public Long getConsumerId()
+  /**
+   * @return ID of the consumer waiting for a response or
+   * {@link LongIdSlotMap#NO_ID} if there is none
+   */
+  public long getConsumerId()
   {
     return consumerId;
   }
 
   public boolean hasConsumer()
   {
-    return consumerId != null;
+    return consumerId != LongIdSlotMap.NO_ID;
   }
 
-  public void setConsumerId(Long consumerId)
+  public void setConsumerId(long consumerId)
   {
     this.consumerId = consumerId;
   }
@@ -67,13 +159,12 @@ public class PacketToSpigotRequest extends AbstractPacket
   @Override
   public void read(ByteBuf in)
   {
-    // Read the channel name
-    channelName = readString(in);
+    // Read the channel ID (or name if it does not have one)
+    channelId = readVarInt(in);
+    channelName = (channelId == ChannelNameTable.NO_ID) ? readString(in) : null;
 
     // Read the message bytes
-    int messageBytesCount = in.readInt();
-    messageBytes = new byte[messageBytesCount];
-    in.readBytes(messageBytes);
+    messageBuffer = readRetainedBuffer(in);
 
     // Read the consumer ID and timeout if there is a consumer for a response
     if (in.readBoolean())
@@ -82,29 +173,81 @@ public class PacketToSpigotRequest extends AbstractPacket
     }
     else
     {
-      consumerId = null;
+      consumerId = LongIdSlotMap.NO_ID;
     }
   }
 
   @Override
   public void write(ByteBuf out)
   {
-    Preconditions.checkNotNull(channelName, "channelName");
-    Preconditions.checkNotNull(messageBytes, "messageBytes");
+    Preconditions.checkArgument(channelId != ChannelNameTable.NO_ID || channelName != null,
+      "channelId or channelName is required");
+    Preconditions.checkNotNull(messageBuffer, "messageBuffer");
 
-    // Write the channel name
-    writeString(out, channelName);
+    // Write the channel ID (or name if it does not have one)
+    writeChannel(out, channelId, channelName);
 
     // Write the message bytes
-    out.writeInt(messageBytes.length);
-    out.writeBytes(messageBytes);
+    writeBuffer(out, messageBuffer);
 
     // Write the consumer ID and timeout if there is a consumer for a response
-    out.writeBoolean(consumerId != null);
-    if (consumerId != null)
+    out.writeBoolean(consumerId != LongIdSlotMap.NO_ID);
+    if (consumerId != LongIdSlotMap.NO_ID)
     {
       out.writeLong(consumerId);
     }
   }
+
+  @Override
+  protected void clear()
+  {
+    channelId = ChannelNameTable.NO_ID;
+    channelName = null;
+    setMessageBuffer(null);
+    consumerId = LongIdSlotMap.NO_ID;
+  }
+
+  @Override
+  protected void recycle()
+  {
+    if (recyclerHandle != null)
+    {
+      RECYCLER.recycle(this, recyclerHandle);
+    }
+  }
+
+  /**
+   * Creates a frame (packet ID included) for a request whose channel name and
+   * message bytes are already encoded, which is the case when a request is relayed
+   * <p>
+   * The frame is a composite of a small header, the encoded buffer and a small
+   * trailer, so the message bytes are never copied. The frame takes ownership of
+   * the encoded buffer.
+   *
+   * @param allocator Allocator for the header and trailer
+   * @param encodedChannelAndMessage Encoded channel name and message bytes
+   * @param consumerId ID of the consumer waiting for a response or
+   * {@link LongIdSlotMap#NO_ID}
+   *
+   * @return Frame to write to a channel
+   */
+  public static ByteBuf newRelayFrame(
+    ByteBufAllocator allocator, ByteBuf encodedChannelAndMessage, long consumerId)
+  {
+    Preconditions.checkNotNull(allocator, "allocator");
+    Preconditions.checkNotNull(encodedChannelAndMessage, "encodedChannelAndMessage");
+
+    ByteBuf header = allocator.buffer(1);
+    header.writeByte(PacketIdMapping.packetToId(PacketToSpigotRequest.class));
+
+    ByteBuf trailer = allocator.buffer(consumerId != LongIdSlotMap.NO_ID ? 9 : 1);
+    trailer.writeBoolean(consumerId != LongIdSlotMap.NO_ID);
+    if (consumerId != LongIdSlotMap.NO_ID)
+    {
+      trailer.writeLong(consumerId);
+    }
+
+    return Unpooled.wrappedBuffer(header, encodedChannelAndMessage, trailer);
+  }
 }
 
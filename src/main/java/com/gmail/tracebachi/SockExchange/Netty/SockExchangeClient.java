@@ -20,9 +20,8 @@ package com.gmail.tracebachi.SockExchange.Netty;
 import com.google.common.base.Preconditions;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.util.concurrent.Future;
 
 import java.net.ConnectException;
@@ -35,26 +34,60 @@ import java.util.concurrent.TimeUnit;
  */
 public class SockExchangeClient
 {
+  private static final int DEFAULT_HIGH_WATER_MARK = 64 * 1024;
+
   private final String hostname;
   private final int port;
+  private final Transport transport;
   private final Bootstrap bootstrap;
-  private final EventLoopGroup workerGroup = new NioEventLoopGroup(1);
+  private final EventLoopGroup workerGroup;
   private final ScheduledExecutorService executorService = new ScheduledThreadPoolExecutor(1);
 
   private ConnectionState connectionState = ConnectionState.INITIAL;
 
-  public SockExchangeClient(String hostname, int port, AbstractPacketHandler packetHandler)
+  public SockExchangeClient(
+    String hostname, int port, AbstractPacketHandler packetHandler,
+    ChannelSettings channelSettings, FlushStatistics flushStatistics)
   {
     Preconditions.checkArgument(hostname != null && !hostname.isEmpty(), "hostname");
     Preconditions.checkArgument(port > 0, "port");
     Preconditions.checkNotNull(packetHandler, "packetHandler");
+    Preconditions.checkNotNull(channelSettings, "channelSettings");
+    Preconditions.checkNotNull(flushStatistics, "flushStatistics");
 
     this.hostname = hostname;
     this.port = port;
+    this.transport = Transport.select(channelSettings.isNativeTransport());
+    this.workerGroup = transport.newEventLoopGroup(1);
     this.bootstrap = new Bootstrap()
       .group(workerGroup)
-      .channel(NioSocketChannel.class)
-      .handler(new SpigotPipelineInitializer(packetHandler));
+      .handler(new SpigotPipelineInitializer(packetHandler, channelSettings, flushStatistics));
+
+    // Set the channel class and socket options of the transport
+    transport.configure(bootstrap, channelSettings);
+
+    // Netty rejects a low water mark above the current high water mark, so the
+    // order in which the (ordered) options are applied depends on the new values.
+    int lowWaterMark = channelSettings.getWriteBufferLowWaterMark();
+    int highWaterMark = channelSettings.getWriteBufferHighWaterMark();
+    if (lowWaterMark <= DEFAULT_HIGH_WATER_MARK)
+    {
+      bootstrap.option(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, lowWaterMark);
+      bootstrap.option(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, highWaterMark);
+    }
+    else
+    {
+      bootstrap.option(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, highWaterMark);
+      bootstrap.option(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, lowWaterMark);
+    }
+  }
+
+  /**
+   * @return Transport that was selected for the client
+   */
+  public Transport getTransport()
+  {
+    return transport;
   }
 
   public synchronized void start() throws Exception
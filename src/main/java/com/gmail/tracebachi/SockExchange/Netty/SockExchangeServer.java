@@ -23,32 +23,63 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class SockExchangeServer
 {
+  private static final int DEFAULT_HIGH_WATER_MARK = 64 * 1024;
+
   private final int port;
+  private final Transport transport;
   private final ServerBootstrap bootstrap;
   private final EventLoopGroup bossAndWorkerGroup;
 
   private boolean started = false;
 
-  public SockExchangeServer(int port, int threads, BungeeTieIn tieIn)
+  public SockExchangeServer(
+    int port, int threads, BungeeTieIn tieIn, ChannelSettings channelSettings,
+    FlushStatistics flushStatistics)
   {
     Preconditions.checkArgument(port > 0, "port");
     Preconditions.checkNotNull(tieIn, "tieIn");
+    Preconditions.checkNotNull(channelSettings, "channelSettings");
+    Preconditions.checkNotNull(flushStatistics, "flushStatistics");
 
     this.port = port;
-    this.bossAndWorkerGroup = new NioEventLoopGroup(Math.max(1, threads));
+    this.transport = Transport.select(channelSettings.isNativeTransport());
+    this.bossAndWorkerGroup = transport.newEventLoopGroup(Math.max(1, threads));
     this.bootstrap = new ServerBootstrap()
       .group(bossAndWorkerGroup)
-      .channel(NioServerSocketChannel.class)
-      .childHandler(new BungeePipelineInitializer(tieIn))
+      .childHandler(new BungeePipelineInitializer(tieIn, channelSettings, flushStatistics))
       .option(ChannelOption.SO_BACKLOG, 16);
+
+    // Set the channel class and socket options of the transport
+    transport.configure(bootstrap, channelSettings);
+
+    // Netty rejects a low water mark above the current high water mark, so the
+    // order in which the (ordered) options are applied depends on the new values.
+    int lowWaterMark = channelSettings.getWriteBufferLowWaterMark();
+    int highWaterMark = channelSettings.getWriteBufferHighWaterMark();
+    if (lowWaterMark <= DEFAULT_HIGH_WATER_MARK)
+    {
+      bootstrap.childOption(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, lowWaterMark);
+      bootstrap.childOption(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, highWaterMark);
+    }
+    else
+    {
+      bootstrap.childOption(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, highWaterMark);
+      bootstrap.childOption(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, lowWaterMark);
+    }
+  }
+
+  /**
+   * @return Transport that was selected for the server
+   */
+  public Transport getTransport()
+  {
+    return transport;
   }
 
   public synchronized void start() throws Exception
@@ -17,9 +17,7 @@
  */
 package com.gmail.tracebachi.SockExchange.Netty;
 
-import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToAnyResponse;
-import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToSpigotRegister;
-import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToSpigotRequest;
+import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketDirection;
 import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -27,13 +25,14 @@ import io.netty.handler.codec.MessageToMessageDecoder;
 
 import java.util.List;
 
-import static com.gmail.tracebachi.SockExchange.Netty.Packets.PacketIdMapping.isIdForPacket;
-
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class SpigotPacketDecoder extends MessageToMessageDecoder<ByteBuf>
 {
+  private static final PacketDispatcher DISPATCHER =
+    new PacketDispatcher(PacketDirection.TO_SPIGOT);
+
   private final AbstractPacketHandler packetHandler;
 
   public SpigotPacketDecoder(AbstractPacketHandler packetHandler)
@@ -48,30 +47,9 @@ public class SpigotPacketDecoder extends MessageToMessageDecoder<ByteBuf>
   {
     byte packetId = in.readByte();
 
-    if (isIdForPacket(packetId, PacketToSpigotRegister.class))
-    {
-      PacketToSpigotRegister packet = new PacketToSpigotRegister();
-      packet.read(in);
-
-      packetHandler.handle(packet);
-    }
-    else if (isIdForPacket(packetId, PacketToSpigotRequest.class))
-    {
-      PacketToSpigotRequest packet = new PacketToSpigotRequest();
-      packet.read(in);
-
-      packetHandler.handle(packet);
-    }
-    else if (isIdForPacket(packetId, PacketToAnyResponse.class))
+    if (!DISPATCHER.readAndDispatch(packetId, in, packetHandler))
     {
-      PacketToAnyResponse packet = new PacketToAnyResponse();
-      packet.read(in);
-
-      packetHandler.handle(packet);
-    }
-    else
-    {
-      // All acceptable packet (IDs) have been checked.
+      // All acceptable packet (IDs) are in the dispatcher.
       System.err.println("[SpigotPacketDecoder] Unexpected packetId: " + packetId);
       ctx.close();
     }
@@ -98,6 +76,13 @@ public class SpigotPacketDecoder extends MessageToMessageDecoder<ByteBuf>
     super.channelInactive(ctx);
   }
 
+  @Override
+  public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception
+  {
+    packetHandler.onChannelWritabilityChanged();
+    super.channelWritabilityChanged(ctx);
+  }
+
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, Throwable throwable) throws Exception
   {
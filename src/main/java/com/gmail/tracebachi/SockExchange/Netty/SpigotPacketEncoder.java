@@ -22,23 +22,21 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
-import static com.gmail.tracebachi.SockExchange.Netty.Packets.PacketIdMapping.isIdForPacket;
-
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class SpigotPacketEncoder extends MessageToByteEncoder<AbstractPacket>
 {
+  private static final boolean[] ACCEPTED_IDS =
+    PacketIdMapping.newAcceptedIdTable(PacketDirection.TO_BUNGEE);
+
   @Override
   protected void encode(ChannelHandlerContext ctx, AbstractPacket packet, ByteBuf out)
     throws Exception
   {
     byte packetId = PacketIdMapping.packetToId(packet.getClass());
 
-    if (isIdForPacket(packetId, PacketToBungeeRegister.class) ||
-      isIdForPacket(packetId, PacketToBungeeRequest.class) ||
-      isIdForPacket(packetId, PacketToAnyResponse.class) ||
-      isIdForPacket(packetId, PacketToBungeeForward.class))
+    if (ACCEPTED_IDS[packetId])
     {
       out.writeByte(packetId);
       packet.write(out);
@@ -22,7 +22,6 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.codec.LengthFieldPrepender;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 
 import java.util.concurrent.TimeUnit;
@@ -32,9 +31,11 @@ import java.util.concurrent.TimeUnit;
  */
 public class SpigotPipelineInitializer extends ChannelInitializer
 {
+  private static final String FLUSH_CONSOLIDATION_HANDLER = "flush-consolidation-handler";
   private static final String READ_TIMEOUT_HANDLER = "read-timeout-handler";
   private static final String FRAME_DECODER = "frame-decoder";
   private static final String FRAME_PREPENDER = "frame-prepender";
+  private static final String FRAME_COMPRESSION = "frame-compression";
   private static final String PACKET_DECODER = "packet-decoder";
   private static final String PACKET_ENCODER = "packet-encoder";
   private static final int MAX_FRAME_SIZE = 4 * 1024 * 1024; // 4 MB
@@ -43,12 +44,19 @@ public class SpigotPipelineInitializer extends ChannelInitializer
   private static final int FRAME_LENGTH_ADJUSTMENT = 0;
 
   private final AbstractPacketHandler packetHandler;
+  private final ChannelSettings channelSettings;
+  private final FlushStatistics flushStatistics;
 
-  public SpigotPipelineInitializer(AbstractPacketHandler packetHandler)
+  public SpigotPipelineInitializer(
+    AbstractPacketHandler packetHandler, ChannelSettings channelSettings, FlushStatistics flushStatistics)
   {
     Preconditions.checkNotNull(packetHandler, "packetHandler");
+    Preconditions.checkNotNull(channelSettings, "channelSettings");
+    Preconditions.checkNotNull(flushStatistics, "flushStatistics");
 
     this.packetHandler = packetHandler;
+    this.channelSettings = channelSettings;
+    this.flushStatistics = flushStatistics;
   }
 
   @Override
@@ -56,6 +64,15 @@ public class SpigotPipelineInitializer extends ChannelInitializer
   {
     ChannelPipeline pipeline = channel.pipeline();
 
+    // Add a flush consolidation handler (first, so it sees reads before they are decoded)
+    if (channelSettings.isFlushConsolidation())
+    {
+      FlushConsolidationHandler flushHandler = new FlushConsolidationHandler(
+        channelSettings.getMaxMessagesPerFlush(), channelSettings.getMaxFlushDelayInMicros(),
+        flushStatistics);
+      pipeline.addLast(FLUSH_CONSOLIDATION_HANDLER, flushHandler);
+    }
+
     // Add a read timeout handler
     ReadTimeoutHandler timeoutHandler = new ReadTimeoutHandler(15, TimeUnit.SECONDS);
     pipeline.addLast(READ_TIMEOUT_HANDLER, timeoutHandler);
@@ -67,7 +84,13 @@ public class SpigotPipelineInitializer extends ChannelInitializer
     pipeline.addLast(FRAME_DECODER, frameDecoder);
 
     // Add a frame prepender
-    pipeline.addLast(FRAME_PREPENDER, new LengthFieldPrepender(FRAME_LENGTH_FIELD_LENGTH, false));
+    pipeline.addLast(FRAME_PREPENDER, new FrameLengthPrepender());
+
+    // Add a frame compression codec (which passes frames through until registered)
+    FrameCompressionCodec compressionCodec = new FrameCompressionCodec(MAX_FRAME_SIZE,
+      channelSettings.getCompressionType(), channelSettings.getCompressionThreshold(),
+      channelSettings.getCompressionLevel());
+    pipeline.addLast(FRAME_COMPRESSION, compressionCodec);
 
     // Add a packet decoder and encoder
     pipeline.addLast(PACKET_DECODER, new SpigotPacketDecoder(packetHandler));
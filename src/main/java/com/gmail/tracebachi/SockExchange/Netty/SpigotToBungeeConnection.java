@@ -18,21 +18,28 @@
 package com.gmail.tracebachi.SockExchange.Netty;
 
 import com.gmail.tracebachi.SockExchange.ExpirableConsumer;
+import com.gmail.tracebachi.SockExchange.Messages.MulticastResponse;
 import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessage;
 import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseConsumerMap;
 import com.gmail.tracebachi.SockExchange.Messages.ResponseMessage;
 import com.gmail.tracebachi.SockExchange.Messages.ResponseStatus;
+import com.gmail.tracebachi.SockExchange.Metrics.ResponseStatistics;
+import com.gmail.tracebachi.SockExchange.Metrics.SockExchangeMetrics;
+import com.gmail.tracebachi.SockExchange.Metrics.TrafficStatistics;
 import com.gmail.tracebachi.SockExchange.Netty.Packets.*;
 import com.gmail.tracebachi.SockExchange.Netty.Packets.PacketToBungeeRequest.DestinationType;
 import com.gmail.tracebachi.SockExchange.Utilities.BasicLogger;
 import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
-import com.gmail.tracebachi.SockExchange.Utilities.LongIdCounterMap;
 import com.google.common.base.Preconditions;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 
 /**
@@ -40,18 +47,25 @@ import java.util.function.Consumer;
  */
 public class SpigotToBungeeConnection extends AbstractPacketHandler
 {
+  private static final long MULTICAST_RESPONSE_GRACE_IN_MILLIS = 1000;
+
   private final String serverName;
   private final String password;
   private final Executor executor;
   private final ReceivedMessageNotifier messageNotifier;
-  private final LongIdCounterMap<ExpirableConsumer<ResponseMessage>> responseConsumerMap;
+  private final ResponseConsumerMap responseConsumerMap;
   private final BasicLogger basicLogger;
+  private final ChannelNameTable channelNameTable;
+  private final SockExchangeMetrics metrics;
+  private final TrafficStatistics connectionTraffic;
+  private final ResponseStatistics bungeeResponseStatistics;
+  private final ResponseStatistics serverOfPlayerResponseStatistics;
+  private final ResponseStatistics multicastResponseStatistics;
   private volatile boolean registered;
 
   public SpigotToBungeeConnection(
     String serverName, String password, Executor executor, ReceivedMessageNotifier messageNotifier,
-    LongIdCounterMap<ExpirableConsumer<ResponseMessage>> responseConsumerMap,
-    BasicLogger basicLogger)
+    ResponseConsumerMap responseConsumerMap, BasicLogger basicLogger, SockExchangeMetrics metrics)
   {
     ExtraPreconditions.checkNotEmpty(serverName, "serverName");
     ExtraPreconditions.checkNotEmpty(password, "password");
@@ -59,6 +73,7 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
     Preconditions.checkNotNull(messageNotifier, "messageNotifier");
     Preconditions.checkNotNull(responseConsumerMap, "responseConsumerMap");
     Preconditions.checkNotNull(basicLogger, "basicLogger");
+    Preconditions.checkNotNull(metrics, "metrics");
 
     this.serverName = serverName;
     this.password = password;
@@ -66,6 +81,17 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
     this.messageNotifier = messageNotifier;
     this.responseConsumerMap = responseConsumerMap;
     this.basicLogger = basicLogger;
+    this.channelNameTable = new ChannelNameTable();
+    this.metrics = metrics;
+    this.connectionTraffic = metrics.getConnectionTraffic(SockExchangeMetrics.BUNGEE);
+    this.bungeeResponseStatistics = metrics.getResponseStatistics(SockExchangeMetrics.BUNGEE);
+    this.serverOfPlayerResponseStatistics = metrics.getResponseStatistics(
+      SockExchangeMetrics.SERVER_OF_PLAYER);
+    this.multicastResponseStatistics = metrics.getResponseStatistics(
+      SockExchangeMetrics.MULTICAST);
+
+    // Channels registered after registration need an ID from Bungee
+    messageNotifier.addChannelListener(this::onChannelRegistered);
   }
 
   public String getServerName()
@@ -78,13 +104,25 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
   {
     super.onChannelActive(channel);
 
+    // IDs assigned by Bungee are only valid for as long as Bungee is running
+    channelNameTable.clear();
+
     PacketToBungeeRegister packet = new PacketToBungeeRegister();
     packet.setPassword(password);
     packet.setServerName(serverName);
+    packet.setChannelNames(new ArrayList<>(messageNotifier.getChannelNames()));
+
+    // Offer the type of compression configured for the channel
+    FrameCompressionCodec compressionCodec = channel.pipeline().get(FrameCompressionCodec.class);
+    if (compressionCodec != null)
+    {
+      packet.setCompressionType(compressionCodec.getCompressionType());
+    }
 
     this.channel.writeAndFlush(packet);
 
-    basicLogger.debug("Channel is now active.");
+    basicLogger.debug("Channel is now active. Transport: '%s'.",
+      channel.getClass().getSimpleName());
   }
 
   @Override
@@ -115,30 +153,65 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
     }
     else
     {
+      // Bungee compresses every frame after the response (if compression was agreed on)
+      if (!enableCompression(packet.getCompressionType()))
+      {
+        return;
+      }
+
+      channelNameTable.putIds(1, packet.getChannelNames());
       registered = true;
-      basicLogger.debug("Channel is now registered.");
+      basicLogger.debug("Channel is now registered. ChannelIds: '%s'.",
+        packet.getChannelNames().size());
     }
   }
 
+  @Override
+  public void handle(PacketToSpigotChannelIds packet)
+  {
+    Preconditions.checkNotNull(packet, "packet");
+    Preconditions.checkState(channel != null, "Channel is not active");
+
+    // IDs can be sent before the registration response (if they are assigned
+    // while the server registers), so they are accepted while not registered
+    channelNameTable.putIds(packet.getFirstChannelId(), packet.getChannelNames());
+
+    basicLogger.debug("Received channel IDs. FirstChannelId: '%s'. ChannelNames: '%s'.",
+      packet.getFirstChannelId(), packet.getChannelNames());
+  }
+
   @Override
   public void handle(PacketToSpigotRequest packet)
   {
     checkPacketAndRegistered(packet);
 
     Consumer<byte[]> onResponseConsumer = null;
-    String channelName = packet.getChannelName();
-    byte[] messageBytes = packet.getMessageBytes();
-    Long consumerId = packet.getConsumerId();
+    String channelName = getChannelName(packet.getChannelId(), packet.getChannelName());
+    ByteBuf messageBuffer = packet.getMessageBuffer();
+    long consumerId = packet.getConsumerId();
 
-    basicLogger.debug("Received request. ChannelName '%s'. NumBytes: '%s'. ConsumerId: '%s'.",
-      channelName, messageBytes.length, consumerId);
+    if (channelName == null)
+    {
+      basicLogger.severe("Received request with unknown ChannelId: '%s'",
+        packet.getChannelId());
+      return;
+    }
+
+    if (basicLogger.isDebugEnabled())
+    {
+      basicLogger.debug("Received request. ChannelName '%s'. NumBytes: '%s'. ConsumerId: '%s'.",
+        channelName, messageBuffer.readableBytes(), consumerId);
+    }
+
+    connectionTraffic.recordIn(messageBuffer.readableBytes());
+    metrics.getChannelTraffic(channelName).recordIn(messageBuffer.readableBytes());
 
     // If there is a consumer, construct a response consumer.
     if (packet.hasConsumer())
     {
       onResponseConsumer = (bytes) ->
       {
-        PacketToAnyResponse responsePacket = new PacketToAnyResponse();
+        PacketToAnyResponse responsePacket = PacketToAnyResponse.newInstance();
         responsePacket.setConsumerId(consumerId);
         responsePacket.setResponseStatus(ResponseStatus.OK);
         responsePacket.setMessageBytes(bytes);
@@ -147,7 +220,9 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
       };
     }
 
-    ReceivedMessage message = new ReceivedMessage(channelName, messageBytes, onResponseConsumer);
+    // The notifier releases the retained slice once all consumers have run
+    ReceivedMessage message = new ReceivedMessage(channelName, messageBuffer.retain(),
+      onResponseConsumer);
     messageNotifier.notify(channelName, message);
   }
 
@@ -158,23 +233,26 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
 
     long consumerId = packet.getConsumerId();
     ResponseStatus responseStatus = packet.getResponseStatus();
-    byte[] messageBytes = packet.getMessageBytes();
-    int numBytes = messageBytes != null ? messageBytes.length : -1;
+    ByteBuf messageBuffer = packet.getMessageBuffer();
     ExpirableConsumer<ResponseMessage> responseConsumer = responseConsumerMap.remove(consumerId);
     boolean hasConsumer = responseConsumer != null;
 
-    basicLogger.debug(
-      "Received response. ConsumerId: '%s'. ResponseStatus: '%s'. NumBytes: '%s'. HasConsumer: '%s'.",
-      consumerId, responseStatus, numBytes, hasConsumer);
+    if (basicLogger.isDebugEnabled())
+    {
+      int numBytes = messageBuffer != null ? messageBuffer.readableBytes() : -1;
+      basicLogger.debug(
+        "Received response. ConsumerId: '%s'. ResponseStatus: '%s'. NumBytes: '%s'. HasConsumer: '%s'.",
+        consumerId, responseStatus, numBytes, hasConsumer);
+    }
 
     // If there is a consumer, execute it with the response.
     if (hasConsumer)
     {
-      executor.execute(() ->
-      {
-        ResponseMessage responseMessage = new ResponseMessage(responseStatus, messageBytes);
-        responseConsumer.accept(responseMessage);
-      });
+      responseConsumer.recordResponse(responseStatus);
+
+      ResponseMessage responseMessage = new ResponseMessage(responseStatus,
+        messageBuffer != null ? messageBuffer.retain() : null);
+      executeResponseConsumer(responseConsumer, responseMessage);
     }
   }
 
@@ -185,23 +263,28 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
     ExtraPreconditions.checkNotEmpty(channelName, "channelName");
     Preconditions.checkNotNull(messageBytes, "messageBytes");
 
-    PacketToBungeeRequest packet = new PacketToBungeeRequest();
+    PacketToBungeeRequest packet = PacketToBungeeRequest.newInstance();
     packet.setDestinationType(DestinationType.BUNGEE);
+    packet.setChannelId(channelNameTable.getId(channelName));
     packet.setChannelName(channelName);
     packet.setMessageBytes(messageBytes);
 
+    // Writability is only checked (and waited for with BLOCK) once per request
+    Channel writableChannel = getWritableChannel();
+
     // Check if there is a consumer for a response
     if (consumer != null)
     {
-      if (executeConsumerIfNotConnected(consumer))
+      if (executeConsumerIfNotWritable(consumer, writableChannel))
       {
+        packet.release();
         return;
       }
 
       saveConsumerAndUpdatePacket(consumer, timeoutInMillis, packet);
     }
 
-    sendPacketIfRegistered(packet);
+    sendPacket(packet, writableChannel, channelName, messageBytes.length);
   }
 
   public void sendToServer(
@@ -219,24 +302,29 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
       return;
     }
 
-    PacketToBungeeRequest packet = new PacketToBungeeRequest();
+    PacketToBungeeRequest packet = PacketToBungeeRequest.newInstance();
     packet.setDestinationType(DestinationType.SERVER_NAME);
     packet.setServerOrPlayerName(destServerName);
+    packet.setChannelId(channelNameTable.getId(channelName));
     packet.setChannelName(channelName);
     packet.setMessageBytes(messageBytes);
 
+    // Writability is only checked (and waited for with BLOCK) once per request
+    Channel writableChannel = getWritableChannel();
+
     // Check if there is a consumer for a response
     if (consumer != null)
     {
-      if (executeConsumerIfNotConnected(consumer))
+      if (executeConsumerIfNotWritable(consumer, writableChannel))
       {
+        packet.release();
         return;
       }
 
       saveConsumerAndUpdatePacket(consumer, timeoutInMillis, packet);
     }
 
-    sendPacketIfRegistered(packet);
+    sendPacket(packet, writableChannel, channelName, messageBytes.length);
   }
 
   public void sendToServerOfPlayer(
@@ -247,24 +335,29 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
     Preconditions.checkNotNull(messageBytes, "messageBytes");
     ExtraPreconditions.checkNotEmpty(playerName, "playerName");
 
-    PacketToBungeeRequest packet = new PacketToBungeeRequest();
+    PacketToBungeeRequest packet = PacketToBungeeRequest.newInstance();
     packet.setDestinationType(DestinationType.PLAYER_NAME);
     packet.setServerOrPlayerName(playerName);
+    packet.setChannelId(channelNameTable.getId(channelName));
     packet.setChannelName(channelName);
     packet.setMessageBytes(messageBytes);
 
+    // Writability is only checked (and waited for with BLOCK) once per request
+    Channel writableChannel = getWritableChannel();
+
     // Check if there is a consumer for a response
     if (consumer != null)
     {
-      if (executeConsumerIfNotConnected(consumer))
+      if (executeConsumerIfNotWritable(consumer, writableChannel))
       {
+        packet.release();
         return;
       }
 
       saveConsumerAndUpdatePacket(consumer, timeoutInMillis, packet);
     }
 
-    sendPacketIfRegistered(packet);
+    sendPacket(packet, writableChannel, channelName, messageBytes.length);
   }
 
   public void sendToServers(
@@ -279,12 +372,105 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
     ExtraPreconditions.checkElements(serverNameList, (str) -> str != null && !str.isEmpty(),
       "Null or empty string in serverNameList");
 
-    PacketToBungeeForward packet = new PacketToBungeeForward();
+    PacketToBungeeForward packet = PacketToBungeeForward.newInstance();
     packet.setServerNames(serverNameList);
+    packet.setChannelId(channelNameTable.getId(channelName));
     packet.setChannelName(channelName);
     packet.setMessageBytes(messageBytes);
 
-    sendPacketIfRegistered(packet);
+    sendPacket(packet, getWritableChannel(), channelName, messageBytes.length);
+  }
+
+  public void sendToServers(
+    String channelName, byte[] messageBytes, List<String> serverNameList, int quorum,
+    Consumer<MulticastResponse> consumer, long timeoutInMillis)
+  {
+    ExtraPreconditions.checkNotEmpty(channelName, "channelName");
+    Preconditions.checkNotNull(messageBytes, "messageBytes");
+    Preconditions.checkArgument(quorum >= 0, "quorum must be >= 0");
+    Preconditions.checkNotNull(consumer, "consumer");
+    Preconditions.checkArgument(timeoutInMillis > 0, "timeoutInMillis must be > 0");
+
+    // Null or empty lists are used to send to all connected servers.
+    serverNameList = serverNameList == null ? Collections.emptyList() : serverNameList;
+
+    ExtraPreconditions.checkElements(serverNameList, (str) -> str != null && !str.isEmpty(),
+      "Null or empty string in serverNameList");
+
+    Consumer<ResponseMessage> responseConsumer = (responseMessage) ->
+      consumer.accept(MulticastResponse.fromResponse(responseMessage));
+
+    // Writability is only checked (and waited for with BLOCK) once per request
+    Channel writableChannel = getWritableChannel();
+
+    if (executeConsumerIfNotWritable(responseConsumer, writableChannel))
+    {
+      return;
+    }
+
+    PacketToBungeeMulticastRequest packet = new PacketToBungeeMulticastRequest();
+    packet.setServerNames(serverNameList);
+    packet.setChannelId(channelNameTable.getId(channelName));
+    packet.setChannelName(channelName);
+    packet.setMessageBytes(messageBytes);
+    packet.setQuorum(quorum);
+    packet.setTimeoutInMillis(timeoutInMillis);
+
+    // Bungee responds with a partial result by the deadline, so the consumer only
+    // times out here if Bungee itself does not respond.
+    packet.setConsumerId(responseConsumerMap.put(responseConsumer,
+      timeoutInMillis + MULTICAST_RESPONSE_GRACE_IN_MILLIS, multicastResponseStatistics));
+
+    sendPacket(packet, writableChannel, channelName, messageBytes.length);
+  }
+
+  private String getChannelName(int channelId, String channelName)
+  {
+    return channelId == ChannelNameTable.NO_ID ? channelName : channelNameTable.getName(channelId);
+  }
+
+  private boolean enableCompression(CompressionType compressionType)
+  {
+    if (compressionType == CompressionType.NONE)
+    {
+      return true;
+    }
+
+    FrameCompressionCodec compressionCodec = channel.pipeline().get(FrameCompressionCodec.class);
+
+    if (compressionCodec == null || compressionCodec.getCompressionType() != compressionType)
+    {
+      channel.close();
+      basicLogger.severe("Registration failed: unsupported compression %s", compressionType);
+      return false;
+    }
+
+    compressionCodec.enable();
+    basicLogger.debug("Compression is now enabled. CompressionType: '%s'.", compressionType);
+    return true;
+  }
+
+  private void onChannelRegistered(String channelName)
+  {
+    if (!registered || channelNameTable.getId(channelName) != ChannelNameTable.NO_ID)
+    {
+      return;
+    }
+
+    PacketToBungeeChannelNames packet = new PacketToBungeeChannelNames();
+    packet.setChannelNames(Collections.singletonList(channelName));
+
+    Channel channel = this.channel;
+
+    if (channel != null)
+    {
+      // Not subject to the write limit policy since the ID is needed by every later request
+      channel.writeAndFlush(packet);
+    }
+    else
+    {
+      packet.release();
+    }
   }
 
   private void checkPacketAndRegistered(AbstractPacket packet)
@@ -303,10 +489,52 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
 
   private void sendPacketIfRegistered(AbstractPacket packet)
   {
-    if (registered && channel != null)
+    Channel channel = this.channel;
+
+    if (registered && channel != null && awaitWritable(channel))
     {
+      // The packet is released by the encoder (or by Netty if the write fails)
       channel.writeAndFlush(packet);
     }
+    else
+    {
+      packet.release();
+    }
+  }
+
+  /**
+   * @return Channel if the connection is registered and the channel is writable
+   * (waiting for it with {@link WriteLimitPolicy#BLOCK}) or null if not
+   */
+  private Channel getWritableChannel()
+  {
+    Channel channel = this.channel;
+
+    return (registered && channel != null && awaitWritable(channel)) ? channel : null;
+  }
+
+  /**
+   * @param packet Packet to send (which is released if it is not sent)
+   * @param writableChannel Channel from {@link #getWritableChannel()} or null to
+   * not send the packet
+   * @param channelName Name of the channel to record the traffic of
+   * @param numBytes Number of message bytes to record
+   */
+  private void sendPacket(
+    AbstractPacket packet, Channel writableChannel, String channelName, int numBytes)
+  {
+    if (writableChannel != null)
+    {
+      connectionTraffic.recordOut(numBytes);
+      metrics.getChannelTraffic(channelName).recordOut(numBytes);
+
+      // The packet is released by the encoder (or by Netty if the write fails)
+      writableChannel.writeAndFlush(packet);
+    }
+    else
+    {
+      packet.release();
+    }
   }
 
   private void sendMessageToCurrentServer(
@@ -318,10 +546,8 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
     // If there is a consumer, save it and construct a response consumer.
     if (consumer != null)
     {
-      long expiresAtMillis = System.currentTimeMillis() + timeoutInMillis;
-      ExpirableConsumer<ResponseMessage> responseConsumer = new ExpirableConsumer<>(consumer,
-        expiresAtMillis);
-      long consumerId = responseConsumerMap.put(responseConsumer);
+      long consumerId = responseConsumerMap.put(consumer, timeoutInMillis,
+        metrics.getResponseStatistics(serverName));
 
       onResponseConsumer = (bytes) ->
       {
@@ -329,11 +555,9 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
 
         if (foundConsumer != null)
         {
-          executor.execute(() ->
-          {
-            ResponseMessage responseMessage = new ResponseMessage(ResponseStatus.OK, bytes);
-            foundConsumer.accept(responseMessage);
-          });
+          foundConsumer.recordResponse(ResponseStatus.OK);
+
+          executeResponseConsumer(foundConsumer, new ResponseMessage(ResponseStatus.OK, bytes));
         }
       };
     }
@@ -342,29 +566,97 @@ public class SpigotToBungeeConnection extends AbstractPacketHandler
     messageNotifier.notify(channelName, message);
   }
 
-  private boolean executeConsumerIfNotConnected(Consumer<ResponseMessage> consumer)
+  /**
+   * Runs the consumer of a request that can not be sent with NOT_CONNECTED or
+   * WRITE_LIMIT_REACHED
+   *
+   * @param consumer Consumer waiting for a response
+   * @param writableChannel Channel from {@link #getWritableChannel()}
+   *
+   * @return True if the request should be discarded or false if it should be
+   * sent (or dropped, so the saved consumer times out)
+   */
+  private boolean executeConsumerIfNotWritable(
+    Consumer<ResponseMessage> consumer, Channel writableChannel)
   {
-    if (registered && channel != null)
+    if (writableChannel != null)
     {
       return false;
     }
 
-    executor.execute(() ->
+    if (!registered || channel == null)
     {
-      consumer.accept(new ResponseMessage(ResponseStatus.NOT_CONNECTED));
-    });
+      executeResponseConsumer(consumer, new ResponseMessage(ResponseStatus.NOT_CONNECTED));
+      return true;
+    }
+
+    // Dropped requests are sent as usual so the consumer is saved and times out
+    if (getWriteLimitPolicy() == WriteLimitPolicy.DROP)
+    {
+      return false;
+    }
 
+    executeResponseConsumer(consumer, new ResponseMessage(ResponseStatus.WRITE_LIMIT_REACHED));
     return true;
   }
 
+  private void executeResponseConsumer(
+    Consumer<ResponseMessage> consumer, ResponseMessage responseMessage)
+  {
+    try
+    {
+      executor.execute(() ->
+      {
+        try
+        {
+          consumer.accept(responseMessage);
+        }
+        finally
+        {
+          responseMessage.release();
+        }
+      });
+    }
+    catch (RejectedExecutionException ex)
+    {
+      // The pool rejects tasks once it is full (with the Abort policy) or shut down.
+      // The consumer has already been removed from the map, so it is run here since
+      // it would never be called otherwise.
+      try
+      {
+        consumer.accept(responseMessage);
+      }
+      catch (RuntimeException consumerEx)
+      {
+        basicLogger.severe("Response consumer failed: %s", consumerEx);
+      }
+      finally
+      {
+        responseMessage.release();
+      }
+    }
+  }
+
+  private ResponseStatistics getResponseStatistics(PacketToBungeeRequest packet)
+  {
+    switch (packet.getDestinationType())
+    {
+      case SERVER_NAME:
+        return metrics.getResponseStatistics(packet.getServerOrPlayerName());
+      case PLAYER_NAME:
+        return serverOfPlayerResponseStatistics;
+      default:
+        return bungeeResponseStatistics;
+    }
+  }
+
   private void saveConsumerAndUpdatePacket(
     Consumer<ResponseMessage> consumer, long timeoutInMillis, PacketToBungeeRequest packet)
   {
     Preconditions.checkArgument(timeoutInMillis > 0, "timeoutInMillis must be > 0");
 
-    ExpirableConsumer<ResponseMessage> responseConsumer = new ExpirableConsumer<>(
-      consumer, System.currentTimeMillis() + timeoutInMillis);
-    long assignedConsumerId = responseConsumerMap.put(responseConsumer);
+    long assignedConsumerId = responseConsumerMap.put(consumer, timeoutInMillis,
+      getResponseStatistics(packet));
 
     // Update the packet
     packet.setConsumerId(assignedConsumerId);
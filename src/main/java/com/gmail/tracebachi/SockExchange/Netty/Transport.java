@@ -0,0 +1,167 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty;
+
+import io.netty.bootstrap.AbstractBootstrap;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Netty transport used by a {@link SockExchangeServer} or {@link SockExchangeClient}
+ * <p>
+ * Selecting a transport is safe where the native library can not be loaded, since
+ * {@link Epoll#isAvailable()} never throws (it reports the cause instead). Epoll is
+ * also not selected where Netty can not access the memory of direct buffers, which
+ * its native reads and writes need.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public enum Transport
+{
+  /**
+   * Native epoll transport (Linux only)
+   */
+  EPOLL
+    {
+      @Override
+      EventLoopGroup newEventLoopGroup(int threads)
+      {
+        return new EpollEventLoopGroup(threads);
+      }
+
+      @Override
+      void configure(ServerBootstrap bootstrap, ChannelSettings channelSettings)
+      {
+        bootstrap.channel(EpollServerSocketChannel.class);
+        bootstrap.option(EpollChannelOption.SO_REUSEPORT, channelSettings.isReusePort());
+        configureChild(bootstrap, channelSettings);
+      }
+
+      @Override
+      void configure(Bootstrap bootstrap, ChannelSettings channelSettings)
+      {
+        bootstrap.channel(EpollSocketChannel.class);
+        configureSocket(bootstrap, channelSettings);
+      }
+    },
+
+  /**
+   * Java NIO transport (every platform)
+   */
+  NIO
+    {
+      @Override
+      EventLoopGroup newEventLoopGroup(int threads)
+      {
+        return new NioEventLoopGroup(threads);
+      }
+
+      @Override
+      void configure(ServerBootstrap bootstrap, ChannelSettings channelSettings)
+      {
+        bootstrap.channel(NioServerSocketChannel.class);
+        configureChild(bootstrap, channelSettings);
+      }
+
+      @Override
+      void configure(Bootstrap bootstrap, ChannelSettings channelSettings)
+      {
+        bootstrap.channel(NioSocketChannel.class);
+        configureSocket(bootstrap, channelSettings);
+      }
+    };
+
+  /**
+   * Selects the transport to use
+   *
+   * @param preferNative True to use epoll if it is available
+   *
+   * @return {@link #EPOLL} if native transport is preferred and available or
+   * {@link #NIO} if not
+   */
+  public static Transport select(boolean preferNative)
+  {
+    return (preferNative && getNativeUnavailabilityReason() == null) ? EPOLL : NIO;
+  }
+
+  /**
+   * @return Reason the epoll transport is not available or null if it is
+   */
+  public static String getNativeUnavailabilityReason()
+  {
+    if (!Epoll.isAvailable())
+    {
+      return String.valueOf(Epoll.unavailabilityCause());
+    }
+
+    if (!PlatformDependent.hasUnsafe())
+    {
+      return "direct buffer memory addresses are not accessible";
+    }
+
+    return null;
+  }
+
+  abstract EventLoopGroup newEventLoopGroup(int threads);
+
+  abstract void configure(ServerBootstrap bootstrap, ChannelSettings channelSettings);
+
+  abstract void configure(Bootstrap bootstrap, ChannelSettings channelSettings);
+
+  private static void configureChild(ServerBootstrap bootstrap, ChannelSettings channelSettings)
+  {
+    bootstrap.childOption(ChannelOption.TCP_NODELAY, channelSettings.isTcpNoDelay());
+
+    if (channelSettings.getSendBufferSize() > 0)
+    {
+      bootstrap.childOption(ChannelOption.SO_SNDBUF, channelSettings.getSendBufferSize());
+    }
+
+    if (channelSettings.getReceiveBufferSize() > 0)
+    {
+      bootstrap.childOption(ChannelOption.SO_RCVBUF, channelSettings.getReceiveBufferSize());
+    }
+  }
+
+  private static void configureSocket(
+    AbstractBootstrap<?, ?> bootstrap, ChannelSettings channelSettings)
+  {
+    bootstrap.option(ChannelOption.TCP_NODELAY, channelSettings.isTcpNoDelay());
+
+    if (channelSettings.getSendBufferSize() > 0)
+    {
+      bootstrap.option(ChannelOption.SO_SNDBUF, channelSettings.getSendBufferSize());
+    }
+
+    if (channelSettings.getReceiveBufferSize() > 0)
+    {
+      bootstrap.option(ChannelOption.SO_RCVBUF, channelSettings.getReceiveBufferSize());
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Netty;
+
+/**
+ * What a connection does with a message when its write buffer is above the
+ * high water mark (the channel is not writable)
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public enum WriteLimitPolicy
+{
+  /**
+   * The message is dropped (a consumer waiting for a response will time out)
+   */
+  DROP,
+
+  /**
+   * The message is not sent and a consumer waiting for a response is run with
+   * {@link com.gmail.tracebachi.SockExchange.Messages.ResponseStatus#WRITE_LIMIT_REACHED}
+   */
+  FAIL_FAST,
+
+  /**
+   * The sending thread waits for the channel to become writable (up to a timeout)
+   * and fails fast if it does not
+   * <p>
+   * Only threads that call the API wait. Messages sent from a Netty event loop
+   * thread (such as requests that Bungee relays between servers) fail fast.
+   */
+  BLOCK
+}
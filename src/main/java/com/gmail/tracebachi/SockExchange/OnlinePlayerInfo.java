@@ -0,0 +1,58 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange;
+
+import java.util.UUID;
+
+/**
+ * Player which was last known to be online and the server they are on
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class OnlinePlayerInfo
+{
+  private final String playerName;
+  private final UUID playerUuid;
+  private final String serverName;
+
+  public OnlinePlayerInfo(String playerName, UUID playerUuid, String serverName)
+  {
+    this.playerName = playerName;
+    this.playerUuid = playerUuid;
+    this.serverName = serverName;
+  }
+
+  public String getPlayerName()
+  {
+    return playerName;
+  }
+
+  public UUID getPlayerUuid()
+  {
+    return playerUuid;
+  }
+
+  /**
+   * @return Name of the server the player is on or null if the player has not
+   * finished connecting to a server
+   */
+  public String getServerName()
+  {
+    return serverName;
+  }
+}
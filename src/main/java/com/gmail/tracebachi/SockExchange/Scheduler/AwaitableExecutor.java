@@ -19,40 +19,55 @@ package com.gmail.tracebachi.SockExchange.Scheduler;
 
 import com.google.common.base.Preconditions;
 
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * Executor that can stop accepting tasks and then wait for the submitted tasks
+ * to finish
+ * <p>
+ * Submitting a task never takes a lock: the state is an atomic integer and the
+ * submitted tasks are counted with a {@link LongAdder}. Only waiting for the
+ * tasks uses a monitor, which finishing tasks signal once the executor has
+ * stopped accepting tasks.
+ *
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class AwaitableExecutor implements Executor
 {
-  private static final byte ACCEPTING = 1;
-  private static final byte NOT_ACCEPTING = 2;
-  private static final byte SHUTDOWN = 3;
+  private static final int ACCEPTING = 1;
+  private static final int NOT_ACCEPTING = 2;
+  private static final int SHUTDOWN = 3;
 
-  private final Object lock = new Object();
+  private final Object awaitLock = new Object();
   private final ExecutorService executorService;
-  private final ConcurrentHashMap.KeySetView<Integer, Boolean> submittedTaskSet;
-  private int taskCounter = 1;
-  private byte stateByte = ACCEPTING;
+  private final AtomicInteger state = new AtomicInteger(ACCEPTING);
+  private final LongAdder submittedTaskCount = new LongAdder();
 
   public AwaitableExecutor(ExecutorService executorService)
   {
     Preconditions.checkNotNull(executorService, "executorService");
 
     this.executorService = executorService;
-    this.submittedTaskSet = ConcurrentHashMap.newKeySet();
   }
 
   /**
    * @param runnable Task to execute
+   *
+   * @throws RejectedExecutionException If the executor is not accepting tasks, so
+   * callers can release what the task would have released
    */
   @Override
   public void execute(Runnable runnable)
   {
-    submit(runnable);
+    if (!submit(runnable))
+    {
+      throw new RejectedExecutionException("AwaitableExecutor is not accepting tasks");
+    }
   }
 
   /**
@@ -61,27 +76,34 @@ public class AwaitableExecutor implements Executor
    */
   public boolean submit(Runnable runnable)
   {
-    synchronized (lock)
+    Preconditions.checkNotNull(runnable, "runnable");
+
+    // The task is counted before the state is checked, so a task that sees
+    // ACCEPTING is always counted by a later await.
+    submittedTaskCount.increment();
+
+    if (state.get() != ACCEPTING)
     {
-      if (stateByte != ACCEPTING)
-      {
-        return false;
-      }
+      onTaskFinished();
+      return false;
+    }
 
+    try
+    {
+      executorService.execute(wrapTask(runnable));
+      return true;
+    }
+    catch (RejectedExecutionException ex)
+    {
       // If the underlying executorService has shutdown, we must shutdown
       // this executor.
       if (executorService.isShutdown())
       {
         shutdown();
-        return false;
       }
 
-      int taskId = taskCounter++;
-      Runnable wrappedTask = wrapTask(runnable, taskId);
-
-      submittedTaskSet.add(taskId);
-      executorService.execute(wrappedTask);
-      return true;
+      onTaskFinished();
+      return false;
     }
   }
 
@@ -90,10 +112,7 @@ public class AwaitableExecutor implements Executor
    */
   public boolean isAcceptingTasks()
   {
-    synchronized (lock)
-    {
-      return stateByte == ACCEPTING;
-    }
+    return state.get() == ACCEPTING;
   }
 
   /**
@@ -101,19 +120,25 @@ public class AwaitableExecutor implements Executor
    */
   public void setAcceptingTasks(boolean acceptingTasks)
   {
-    synchronized (lock)
+    int newState = (acceptingTasks) ? ACCEPTING : NOT_ACCEPTING;
+    int currentState;
+
+    do
     {
-      if (stateByte == SHUTDOWN)
+      currentState = state.get();
+
+      // If the new value was going to stop accepting tasks, then
+      // shutdown is like a successful value change.
+      // If the new value was going to start accepting tasks, then
+      // shutdown is like a failed value change.
+      if (currentState == SHUTDOWN)
       {
-        // If the new value was going to stop accepting tasks, then
-        // shutdown is like a successful value change.
-        // If the new value was going to start accepting tasks, then
-        // shutdown is like a failed value change.
         return;
       }
-
-      stateByte = (acceptingTasks) ? ACCEPTING : NOT_ACCEPTING;
     }
+    while (!state.compareAndSet(currentState, newState));
+
+    signalIfNoTasks();
   }
 
   /**
@@ -121,10 +146,7 @@ public class AwaitableExecutor implements Executor
    */
   public boolean isShutdown()
   {
-    synchronized (lock)
-    {
-      return stateByte == SHUTDOWN;
-    }
+    return state.get() == SHUTDOWN;
   }
 
   /**
@@ -137,44 +159,54 @@ public class AwaitableExecutor implements Executor
    */
   public void shutdown()
   {
-    synchronized (lock)
-    {
-      stateByte = SHUTDOWN;
-      submittedTaskSet.clear();
-    }
+    state.set(SHUTDOWN);
+    signalIfNoTasks();
   }
 
   /**
-   * Sleep to wait for tasks to finish
+   * @return Number of submitted tasks that have not finished
+   */
+  public long getSubmittedTaskCount()
+  {
+    return Math.max(0, submittedTaskCount.sum());
+  }
+
+  /**
+   * Waits for the submitted tasks to finish (which should be done after the
+   * executor stops accepting tasks, since new tasks are otherwise also waited for)
    *
-   * @param maxLoops Number of times to run the check-sleep loop
-   * @param millisToSleep Milliseconds to sleep when waiting
+   * @param timeout Maximum time to wait
+   * @param timeUnit Unit of the timeout
    *
    * @return True if there are no more tasks running or false otherwise
    *
-   * @throws InterruptedException If {@link Thread#sleep(long)} is interrupted
+   * @throws InterruptedException If the wait is interrupted
    */
-  public boolean awaitTasksWithSleep(int maxLoops, long millisToSleep) throws InterruptedException
+  public boolean awaitTasks(long timeout, TimeUnit timeUnit) throws InterruptedException
   {
-    int remainingTasks = submittedTaskSet.size();
+    Preconditions.checkNotNull(timeUnit, "timeUnit");
 
-    if (remainingTasks <= 0)
-    {
-      return true;
-    }
+    long deadlineNanos = System.nanoTime() + timeUnit.toNanos(timeout);
 
-    for (int i = 0; i < maxLoops && remainingTasks > 0; i++)
+    synchronized (awaitLock)
     {
-      // It is documented that we are using a blocking call to Thread.sleep()
-      Thread.sleep(millisToSleep);
+      while (submittedTaskCount.sum() > 0)
+      {
+        long remainingNanos = deadlineNanos - System.nanoTime();
 
-      remainingTasks = submittedTaskSet.size();
+        if (remainingNanos <= 0)
+        {
+          return false;
+        }
+
+        TimeUnit.NANOSECONDS.timedWait(awaitLock, remainingNanos);
+      }
     }
 
-    return remainingTasks <= 0;
+    return true;
   }
 
-  private Runnable wrapTask(Runnable task, int taskId)
+  private Runnable wrapTask(Runnable task)
   {
     return () -> {
       try
@@ -187,8 +219,31 @@ public class AwaitableExecutor implements Executor
       }
       finally
       {
-        submittedTaskSet.remove(taskId);
+        onTaskFinished();
       }
     };
   }
+
+  private void onTaskFinished()
+  {
+    submittedTaskCount.decrement();
+
+    // Waiting only happens once tasks are no longer accepted, so the lock is
+    // never taken while the executor is accepting tasks.
+    if (state.get() != ACCEPTING)
+    {
+      signalIfNoTasks();
+    }
+  }
+
+  private void signalIfNoTasks()
+  {
+    if (submittedTaskCount.sum() <= 0)
+    {
+      synchronized (awaitLock)
+      {
+        awaitLock.notifyAll();
+      }
+    }
+  }
 }
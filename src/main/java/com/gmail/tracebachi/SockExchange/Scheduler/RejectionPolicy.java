@@ -0,0 +1,64 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Scheduler;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * What the worker pool does with a task when all of its threads are busy and
+ * its queue is full
+ * <p>
+ * Both policies reject tasks once the pool is shut down, so the submitter
+ * always learns that a task will not run (and can release what it holds).
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public enum RejectionPolicy implements RejectedExecutionHandler
+{
+  /**
+   * The task is rejected with a {@link RejectedExecutionException}
+   */
+  ABORT
+    {
+      @Override
+      public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor)
+      {
+        throw new RejectedExecutionException("Worker pool is full");
+      }
+    },
+
+  /**
+   * The task is run by the submitting thread, which slows down the submitter
+   * (and the network thread stops reading) until the pool catches up
+   */
+  CALLER_RUNS
+    {
+      @Override
+      public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor)
+      {
+        if (executor.isShutdown())
+        {
+          throw new RejectedExecutionException("Worker pool is shut down");
+        }
+
+        runnable.run();
+      }
+    }
+}
@@ -24,45 +24,63 @@ import java.util.List;
 import java.util.concurrent.*;
 
 /**
+ * Scheduled executor that cannot be shut down by the plugins using it
+ * <p>
+ * Delayed and periodic tasks run on a small timer while every other task runs
+ * on a separate worker pool, so periodic tasks are not delayed by a burst of
+ * work (and should be kept short, or hand their work to {@link #execute(Runnable)}).
+ *
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class ScheduledExecutorServiceWrapper implements ScheduledExecutorService
 {
-  private final ScheduledThreadPoolExecutor executor;
+  private final ScheduledExecutorService timer;
+  private final ExecutorService workers;
+
+  public ScheduledExecutorServiceWrapper(ScheduledExecutorService executor)
+  {
+    this(executor, executor);
+  }
 
-  public ScheduledExecutorServiceWrapper(ScheduledThreadPoolExecutor executor)
+  /**
+   * @param timer Executor for delayed and periodic tasks
+   * @param workers Executor for every other task
+   */
+  public ScheduledExecutorServiceWrapper(ScheduledExecutorService timer, ExecutorService workers)
   {
-    Preconditions.checkNotNull(executor, "executor");
+    Preconditions.checkNotNull(timer, "timer");
+    Preconditions.checkNotNull(workers, "workers");
 
-    this.executor = executor;
+    this.timer = timer;
+    this.workers = workers;
   }
 
   @Override
   public ScheduledFuture<?> schedule(
     Runnable runnable, long delay, TimeUnit timeUnit)
   {
-    return executor.schedule(runnable, delay ,timeUnit);
+    return timer.schedule(runnable, delay, timeUnit);
   }
 
   @Override
   public <V> ScheduledFuture<V> schedule(
     Callable<V> callable, long delay, TimeUnit timeUnit)
   {
-    return executor.schedule(callable, delay, timeUnit);
+    return timer.schedule(callable, delay, timeUnit);
   }
 
   @Override
   public ScheduledFuture<?> scheduleAtFixedRate(
     Runnable runnable, long initialDelay, long period, TimeUnit timeUnit)
   {
-    return executor.scheduleWithFixedDelay(runnable, initialDelay, period, timeUnit);
+    return timer.scheduleAtFixedRate(runnable, initialDelay, period, timeUnit);
   }
 
   @Override
   public ScheduledFuture<?> scheduleWithFixedDelay(
     Runnable runnable, long initialDelay, long periodDelay, TimeUnit timeUnit)
   {
-    return scheduleWithFixedDelay(runnable, initialDelay, periodDelay, timeUnit);
+    return timer.scheduleWithFixedDelay(runnable, initialDelay, periodDelay, timeUnit);
   }
 
   @Override
@@ -80,13 +98,13 @@ public class ScheduledExecutorServiceWrapper implements ScheduledExecutorService
   @Override
   public boolean isShutdown()
   {
-    return executor.isShutdown();
+    return timer.isShutdown() || workers.isShutdown();
   }
 
   @Override
   public boolean isTerminated()
   {
-    return executor.isTerminated();
+    return timer.isTerminated() && workers.isTerminated();
   }
 
   @Override
@@ -98,26 +116,26 @@ public class ScheduledExecutorServiceWrapper implements ScheduledExecutorService
   @Override
   public <T> Future<T> submit(Callable<T> callable)
   {
-    return executor.submit(callable);
+    return workers.submit(callable);
   }
 
   @Override
   public <T> Future<T> submit(Runnable runnable, T t)
   {
-    return executor.submit(runnable, t);
+    return workers.submit(runnable, t);
   }
 
   @Override
   public Future<?> submit(Runnable runnable)
   {
-    return executor.submit(runnable);
+    return workers.submit(runnable);
   }
 
   @Override
   public <T> List<Future<T>> invokeAll(
     Collection<? extends Callable<T>> collection) throws InterruptedException
   {
-    return executor.invokeAll(collection);
+    return workers.invokeAll(collection);
   }
 
   @Override
@@ -125,14 +143,14 @@ public class ScheduledExecutorServiceWrapper implements ScheduledExecutorService
     Collection<? extends Callable<T>> collection, long l, TimeUnit timeUnit)
     throws InterruptedException
   {
-    return executor.invokeAll(collection, l, timeUnit);
+    return workers.invokeAll(collection, l, timeUnit);
   }
 
   @Override
   public <T> T invokeAny(Collection<? extends Callable<T>> collection)
     throws InterruptedException, ExecutionException
   {
-    return executor.invokeAny(collection);
+    return workers.invokeAny(collection);
   }
 
   @Override
@@ -140,12 +158,12 @@ public class ScheduledExecutorServiceWrapper implements ScheduledExecutorService
     Collection<? extends Callable<T>> collection, long l, TimeUnit timeUnit)
     throws InterruptedException, ExecutionException, TimeoutException
   {
-    return executor.invokeAny(collection, l, timeUnit);
+    return workers.invokeAny(collection, l, timeUnit);
   }
 
   @Override
   public void execute(Runnable runnable)
   {
-    executor.execute(runnable);
+    workers.execute(runnable);
   }
 }
@@ -0,0 +1,124 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Scheduler;
+
+import com.google.common.base.Preconditions;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that run every task on a new virtual thread, where the JVM
+ * supports them (Java 21 or newer)
+ * <p>
+ * The virtual thread API is looked up with reflection, so SockExchange still
+ * builds for (and runs on) Java 8 and the executors are only chosen at runtime.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public final class VirtualThreads
+{
+  private static final Method OF_VIRTUAL;
+  private static final Method BUILDER_NAME;
+  private static final Method BUILDER_FACTORY;
+  private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+  private static final String UNAVAILABILITY_REASON;
+
+  static
+  {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderFactory = null;
+    Method newThreadPerTaskExecutor = null;
+    String unavailabilityReason = null;
+
+    try
+    {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      builderName = builderClass.getMethod("name", String.class, long.class);
+      builderFactory = builderClass.getMethod("factory");
+      newThreadPerTaskExecutor = Executors.class.getMethod(
+        "newThreadPerTaskExecutor", ThreadFactory.class);
+
+      // Virtual threads are a preview feature on some JVMs, which fails here
+      ofVirtual.invoke(null);
+    }
+    catch (ReflectiveOperationException | LinkageError ex)
+    {
+      unavailabilityReason = "virtual threads are not supported by Java " +
+        System.getProperty("java.specification.version");
+    }
+
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_FACTORY = builderFactory;
+    NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    UNAVAILABILITY_REASON = unavailabilityReason;
+  }
+
+  private VirtualThreads()
+  {
+  }
+
+  /**
+   * @return True if the JVM supports virtual threads
+   */
+  public static boolean isAvailable()
+  {
+    return UNAVAILABILITY_REASON == null;
+  }
+
+  /**
+   * @return Reason virtual threads are not available or null if they are
+   */
+  public static String getUnavailabilityReason()
+  {
+    return UNAVAILABILITY_REASON;
+  }
+
+  /**
+   * @param namePrefix Prefix of the thread names (followed by a counter)
+   *
+   * @return New executor that starts a virtual thread for every task
+   *
+   * @throws UnsupportedOperationException If virtual threads are not available
+   */
+  public static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix)
+  {
+    Preconditions.checkNotNull(namePrefix, "namePrefix");
+
+    if (!isAvailable())
+    {
+      throw new UnsupportedOperationException(UNAVAILABILITY_REASON);
+    }
+
+    try
+    {
+      Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+      ThreadFactory threadFactory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+      return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+    }
+    catch (ReflectiveOperationException ex)
+    {
+      throw new UnsupportedOperationException("Virtual thread executor could not be created", ex);
+    }
+  }
+}
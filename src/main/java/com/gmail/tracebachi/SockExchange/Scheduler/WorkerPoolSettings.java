@@ -0,0 +1,175 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Scheduler;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings for the pool of threads that runs message consumers and other
+ * submitted tasks
+ * <p>
+ * The pool starts threads up to the core size for every task, queues tasks once
+ * the core threads are busy and starts threads up to the maximum size only once
+ * the queue is full. Threads above the core size (and the core threads, if
+ * allowed) stop after being idle for the keep alive time.
+ * <p>
+ * If virtual threads are preferred and the JVM supports them, every task runs on
+ * a new virtual thread instead and the other settings are not used.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class WorkerPoolSettings
+{
+  private int coreThreads = 2;
+  private int maxThreads = 8;
+  private int queueCapacity = 8192;
+  private long keepAliveInSeconds = 60;
+  private boolean coreThreadTimeout = false;
+  private RejectionPolicy rejectionPolicy = RejectionPolicy.CALLER_RUNS;
+  private boolean virtualThreads = false;
+
+  /**
+   * @return Number of threads kept even when idle (unless core threads time out)
+   */
+  public int getCoreThreads()
+  {
+    return coreThreads;
+  }
+
+  /**
+   * @return Number of threads the pool grows to once its queue is full
+   */
+  public int getMaxThreads()
+  {
+    return maxThreads;
+  }
+
+  public void setThreads(int coreThreads, int maxThreads)
+  {
+    Preconditions.checkArgument(coreThreads >= 1, "coreThreads must be >= 1");
+    Preconditions.checkArgument(maxThreads >= coreThreads, "maxThreads must be >= coreThreads");
+
+    this.coreThreads = coreThreads;
+    this.maxThreads = maxThreads;
+  }
+
+  /**
+   * @return Number of tasks queued before the pool grows above the core size or
+   * 0 for an unbounded queue (which never grows the pool above the core size)
+   */
+  public int getQueueCapacity()
+  {
+    return queueCapacity;
+  }
+
+  public void setQueueCapacity(int queueCapacity)
+  {
+    Preconditions.checkArgument(queueCapacity >= 0, "queueCapacity must be >= 0");
+
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * @return Seconds an idle thread above the core size waits for a task before stopping
+   */
+  public long getKeepAliveInSeconds()
+  {
+    return keepAliveInSeconds;
+  }
+
+  public void setKeepAliveInSeconds(long keepAliveInSeconds)
+  {
+    Preconditions.checkArgument(keepAliveInSeconds >= 1, "keepAliveInSeconds must be >= 1");
+
+    this.keepAliveInSeconds = keepAliveInSeconds;
+  }
+
+  /**
+   * @return True if idle core threads also stop after the keep alive time
+   */
+  public boolean isCoreThreadTimeout()
+  {
+    return coreThreadTimeout;
+  }
+
+  public void setCoreThreadTimeout(boolean coreThreadTimeout)
+  {
+    this.coreThreadTimeout = coreThreadTimeout;
+  }
+
+  /**
+   * @return What the pool does with a task once its threads are busy and its queue is full
+   */
+  public RejectionPolicy getRejectionPolicy()
+  {
+    return rejectionPolicy;
+  }
+
+  public void setRejectionPolicy(RejectionPolicy rejectionPolicy)
+  {
+    Preconditions.checkNotNull(rejectionPolicy, "rejectionPolicy");
+
+    this.rejectionPolicy = rejectionPolicy;
+  }
+
+  /**
+   * @return True if tasks run on virtual threads where they are available
+   */
+  public boolean isVirtualThreads()
+  {
+    return virtualThreads;
+  }
+
+  public void setVirtualThreads(boolean virtualThreads)
+  {
+    this.virtualThreads = virtualThreads;
+  }
+
+  /**
+   * @param threadFactory Factory for the threads of the pool (not used for
+   * virtual threads)
+   *
+   * @return New pool with these settings
+   */
+  public ExecutorService newWorkerPool(ThreadFactory threadFactory)
+  {
+    Preconditions.checkNotNull(threadFactory, "threadFactory");
+
+    if (virtualThreads && VirtualThreads.isAvailable())
+    {
+      return VirtualThreads.newVirtualThreadPerTaskExecutor("SockExchange-Virtual-Thread-");
+    }
+
+    BlockingQueue<Runnable> queue = (queueCapacity == 0)
+      ? new LinkedBlockingQueue<>()
+      : new ArrayBlockingQueue<>(queueCapacity);
+
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(coreThreads, maxThreads,
+      keepAliveInSeconds, TimeUnit.SECONDS, queue, threadFactory, rejectionPolicy);
+    pool.allowCoreThreadTimeOut(coreThreadTimeout);
+    return pool;
+  }
+}
@@ -29,6 +29,20 @@ public class SockExchangeConstants
     public static final String MOVE_PLAYERS = "MovePlayers";
     public static final String CHAT_MESSAGES = "ChatMessages";
     public static final String PLAYER_UPDATE = "PlayerUpdate";
+    public static final String PLAYER_UPDATE_RESYNC = "PlayerUpdateResync";
+  }
+
+  /**
+   * Types of {@link Channels#PLAYER_UPDATE} messages and of the changes in a delta
+   */
+  public static class PlayerUpdates
+  {
+    public static final byte SNAPSHOT = 0;
+    public static final byte DELTA = 1;
+
+    public static final byte JOIN = 0;
+    public static final byte LEAVE = 1;
+    public static final byte SERVER = 2;
   }
 
   public static class FormatNames
@@ -41,5 +55,6 @@ public class SockExchangeConstants
     public static final String ONLINE_SERVER_LIST = "OnlineServerList";
     public static final String SERVER_NOT_FOUND = "ServerNotFound";
     public static final String SERVER_NOT_ONLINE = "ServerNotOnline";
+    public static final String STATS = "Stats";
   }
 }
@@ -17,6 +17,7 @@
  */
 package com.gmail.tracebachi.SockExchange.Spigot;
 
+import com.gmail.tracebachi.SockExchange.Messages.DispatchMode;
 import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessage;
 import com.gmail.tracebachi.SockExchange.SockExchangeConstants.Channels;
 import com.gmail.tracebachi.SockExchange.SpigotServerInfo;
@@ -51,6 +52,8 @@ public class KeepAliveChannelListener implements Registerable
   @Override
   public void register()
   {
+    // Keep-alives only replace a map, so they can run on the I/O thread
+    api.getMessageNotifier().setDispatchMode(Channels.KEEP_ALIVE, DispatchMode.INLINE);
     api.getMessageNotifier().register(Channels.KEEP_ALIVE, onChannelMessage);
   }
 
@@ -17,64 +17,279 @@
  */
 package com.gmail.tracebachi.SockExchange.Spigot;
 
+import com.gmail.tracebachi.SockExchange.Messages.DispatchMode;
 import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessage;
+import com.gmail.tracebachi.SockExchange.OnlinePlayerInfo;
 import com.gmail.tracebachi.SockExchange.SockExchangeConstants.Channels;
+import com.gmail.tracebachi.SockExchange.SockExchangeConstants.PlayerUpdates;
+import com.gmail.tracebachi.SockExchange.Utilities.CaseInsensitiveMap;
 import com.gmail.tracebachi.SockExchange.Utilities.Registerable;
 import com.google.common.base.Preconditions;
 import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
 
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
+ * Keeps an index of the online players (by name and UUID) and the server each
+ * of them is on up to date from the snapshots and deltas sent by Bungee
+ * <p>
+ * Deltas are applied to the index in place. Server names are shared by the
+ * players on the same server, so the index holds one small object per player.
+ * If a delta does not follow the last applied sequence number (or is from a new
+ * stream), it is still applied and a snapshot is requested, which is requested
+ * again every resync period until it arrives.
+ *
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class PlayerUpdateChannelListener implements Registerable
 {
   private final SockExchangeApi api;
+  private final long resyncPeriodMillis;
   private final Consumer<ReceivedMessage> onChannelMessage;
-  private volatile Set<String> onlinePlayerNames = Collections.emptySet();
+  private final Set<String> onlinePlayerNames = ConcurrentHashMap.newKeySet();
+  private final Set<String> unmodifiableOnlinePlayerNames =
+    Collections.unmodifiableSet(onlinePlayerNames);
+  private final CaseInsensitiveMap<OnlinePlayerInfo> playersByName =
+    new CaseInsensitiveMap<>(new ConcurrentHashMap<>());
+  private final ConcurrentHashMap<UUID, OnlinePlayerInfo> playersByUuid =
+    new ConcurrentHashMap<>();
+  private final Collection<OnlinePlayerInfo> unmodifiablePlayers =
+    Collections.unmodifiableCollection(playersByUuid.values());
+  private final ConcurrentHashMap<String, String> sharedServerNames = new ConcurrentHashMap<>();
+  private volatile boolean resyncNeeded = true;
+  private ScheduledFuture<?> resyncFuture;
+
+  // Only accessed by the serial dispatch of the channel
+  private long streamId;
+  private long sequence;
 
-  public PlayerUpdateChannelListener(SockExchangeApi api)
+  public PlayerUpdateChannelListener(SockExchangeApi api, long resyncPeriodMillis)
   {
     Preconditions.checkNotNull(api, "api");
+    Preconditions.checkArgument(resyncPeriodMillis > 0, "resyncPeriodMillis");
 
     this.api = api;
-    this.onChannelMessage = this::onServerInfoUpdateChannelMessage;
+    this.resyncPeriodMillis = resyncPeriodMillis;
+    this.onChannelMessage = this::onPlayerUpdateChannelMessage;
   }
 
   @Override
   public void register()
   {
+    // Deltas change the set of online players, so they must run in order
+    api.getMessageNotifier().setDispatchMode(Channels.PLAYER_UPDATE, DispatchMode.SERIAL);
     api.getMessageNotifier().register(Channels.PLAYER_UPDATE, onChannelMessage);
+
+    resyncFuture = api.getScheduledExecutorService().scheduleAtFixedRate(
+      this::requestResyncIfNeeded, 0, resyncPeriodMillis, TimeUnit.MILLISECONDS);
   }
 
   @Override
   public void unregister()
   {
+    if (resyncFuture != null)
+    {
+      resyncFuture.cancel(false);
+      resyncFuture = null;
+    }
+
     api.getMessageNotifier().unregister(Channels.PLAYER_UPDATE, onChannelMessage);
   }
 
+  /**
+   * @return Unmodifiable view of the names of the players which were last known
+   * to be online
+   */
   public Set<String> getOnlinePlayerNames()
   {
-    return onlinePlayerNames;
+    return unmodifiableOnlinePlayerNames;
+  }
+
+  /**
+   * @param playerName Name of the player (case insensitive)
+   *
+   * @return Info of the player or null if the player was not last known to be online
+   */
+  public OnlinePlayerInfo getOnlinePlayer(String playerName)
+  {
+    return playersByName.get(playerName);
   }
 
-  private void onServerInfoUpdateChannelMessage(ReceivedMessage receivedMessage)
+  /**
+   * @param playerUuid UUID of the player
+   *
+   * @return Info of the player or null if the player was not last known to be online
+   */
+  public OnlinePlayerInfo getOnlinePlayer(UUID playerUuid)
+  {
+    return playersByUuid.get(playerUuid);
+  }
+
+  /**
+   * @return Unmodifiable view of the info of the players which were last known
+   * to be online
+   */
+  public Collection<OnlinePlayerInfo> getOnlinePlayers()
+  {
+    return unmodifiablePlayers;
+  }
+
+  private void onPlayerUpdateChannelMessage(ReceivedMessage receivedMessage)
   {
     ByteArrayDataInput in = receivedMessage.getDataInput();
+    byte type = in.readByte();
+    long messageStreamId = in.readLong();
+    long messageSequence = in.readLong();
+
+    if (type == PlayerUpdates.SNAPSHOT)
+    {
+      applySnapshot(in);
+      resyncNeeded = false;
+    }
+    else
+    {
+      if (messageStreamId != streamId || messageSequence != sequence + 1)
+      {
+        resyncNeeded = true;
+        requestResyncIfNeeded();
+      }
+
+      applyDelta(in);
+    }
+
+    streamId = messageStreamId;
+    sequence = messageSequence;
+  }
+
+  private void applySnapshot(ByteArrayDataInput in)
+  {
     int count = in.readInt();
-    HashSet<String> set = new HashSet<>();
+    HashMap<String, OnlinePlayerInfo> snapshot = new HashMap<>(count * 2);
 
     for (int i = 0; i < count; i++)
     {
       String playerName = in.readUTF();
-      set.add(playerName);
+      UUID playerUuid = new UUID(in.readLong(), in.readLong());
+      String serverName = in.readUTF();
+
+      snapshot.put(playerName,
+        new OnlinePlayerInfo(playerName, playerUuid, shareServerName(serverName)));
     }
 
-    // Swap with new collection
-    onlinePlayerNames = Collections.unmodifiableSet(set);
+    // Only the differences are applied, so the index is never empty in between
+    Iterator<String> iterator = onlinePlayerNames.iterator();
+    while (iterator.hasNext())
+    {
+      String playerName = iterator.next();
+      if (!snapshot.containsKey(playerName))
+      {
+        removePlayer(playerName);
+      }
+    }
+
+    for (OnlinePlayerInfo playerInfo : snapshot.values())
+    {
+      putPlayer(playerInfo);
+    }
+  }
+
+  private void applyDelta(ByteArrayDataInput in)
+  {
+    int count = in.readInt();
+
+    for (int i = 0; i < count; i++)
+    {
+      byte changeType = in.readByte();
+      String playerName = in.readUTF();
+
+      if (changeType == PlayerUpdates.JOIN)
+      {
+        UUID playerUuid = new UUID(in.readLong(), in.readLong());
+        putPlayer(new OnlinePlayerInfo(playerName, playerUuid, null));
+      }
+      else if (changeType == PlayerUpdates.SERVER)
+      {
+        String serverName = in.readUTF();
+        OnlinePlayerInfo playerInfo = playersByName.get(playerName);
+
+        // A player that is not known was missed in a gap (which is resynced)
+        if (playerInfo != null)
+        {
+          putPlayer(new OnlinePlayerInfo(playerInfo.getPlayerName(), playerInfo.getPlayerUuid(),
+            shareServerName(serverName)));
+        }
+      }
+      else
+      {
+        UUID playerUuid = new UUID(in.readLong(), in.readLong());
+        OnlinePlayerInfo playerInfo = playersByName.get(playerName);
+
+        // The leave of a player kicked by a login with the same name must not
+        // remove the player that replaced it
+        if (playerInfo != null && playerInfo.getPlayerUuid().equals(playerUuid))
+        {
+          removePlayer(playerName);
+        }
+      }
+    }
+  }
+
+  private void putPlayer(OnlinePlayerInfo playerInfo)
+  {
+    OnlinePlayerInfo previous = playersByName.put(playerInfo.getPlayerName(), playerInfo);
+
+    if (previous != null && !previous.getPlayerUuid().equals(playerInfo.getPlayerUuid()))
+    {
+      playersByUuid.remove(previous.getPlayerUuid());
+    }
+
+    playersByUuid.put(playerInfo.getPlayerUuid(), playerInfo);
+    onlinePlayerNames.add(playerInfo.getPlayerName());
+  }
+
+  private void removePlayer(String playerName)
+  {
+    OnlinePlayerInfo previous = playersByName.remove(playerName);
+
+    if (previous != null)
+    {
+      playersByUuid.remove(previous.getPlayerUuid());
+    }
+
+    onlinePlayerNames.remove(playerName);
+  }
+
+  private String shareServerName(String serverName)
+  {
+    if (serverName.isEmpty())
+    {
+      return null;
+    }
+
+    String sharedServerName = sharedServerNames.putIfAbsent(serverName, serverName);
+    return sharedServerName != null ? sharedServerName : serverName;
+  }
+
+  private void requestResyncIfNeeded()
+  {
+    if (resyncNeeded && api.isWritable())
+    {
+      ByteArrayDataOutput out = ByteStreams.newDataOutput(32);
+      out.writeUTF(api.getServerName());
+
+      api.sendToBungee(Channels.PLAYER_UPDATE_RESYNC, out.toByteArray());
+    }
   }
 }
@@ -17,9 +17,14 @@
  */
 package com.gmail.tracebachi.SockExchange.Spigot;
 
+import com.gmail.tracebachi.SockExchange.Messages.MulticastResponse;
 import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseFuture;
 import com.gmail.tracebachi.SockExchange.Messages.ResponseMessage;
+import com.gmail.tracebachi.SockExchange.Metrics.SockExchangeMetrics;
+import com.gmail.tracebachi.SockExchange.Netty.FlushStatistics;
 import com.gmail.tracebachi.SockExchange.Netty.SpigotToBungeeConnection;
+import com.gmail.tracebachi.SockExchange.OnlinePlayerInfo;
 import com.gmail.tracebachi.SockExchange.SockExchangeConstants.Channels;
 import com.gmail.tracebachi.SockExchange.SpigotServerInfo;
 import com.gmail.tracebachi.SockExchange.Utilities.ExtraPreconditions;
@@ -28,6 +33,8 @@ import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 
@@ -56,20 +63,27 @@ public class SockExchangeApi
   private final ScheduledExecutorService scheduledExecutorService;
   private final ReceivedMessageNotifier messageNotifier;
   private final SpigotToBungeeConnection connection;
+  private final FlushStatistics flushStatistics;
+  private final SockExchangeMetrics metrics;
 
   protected SockExchangeApi(
     SpigotTieIn spigotTieIn, ScheduledExecutorService scheduledExecutorService,
-    ReceivedMessageNotifier messageNotifier, SpigotToBungeeConnection connection)
+    ReceivedMessageNotifier messageNotifier, SpigotToBungeeConnection connection,
+    FlushStatistics flushStatistics, SockExchangeMetrics metrics)
   {
     Preconditions.checkNotNull(spigotTieIn, "spigotTieIn");
     Preconditions.checkNotNull(scheduledExecutorService, "scheduledExecutorService");
     Preconditions.checkNotNull(messageNotifier, "messageNotifier");
     Preconditions.checkNotNull(connection, "connection");
+    Preconditions.checkNotNull(flushStatistics, "flushStatistics");
+    Preconditions.checkNotNull(metrics, "metrics");
 
     this.spigotTieIn = spigotTieIn;
     this.scheduledExecutorService = scheduledExecutorService;
     this.messageNotifier = messageNotifier;
     this.connection = connection;
+    this.flushStatistics = flushStatistics;
+    this.metrics = metrics;
   }
 
   /**
@@ -101,7 +115,8 @@ public class SockExchangeApi
   }
 
   /**
-   * @return Set of player names which were last known to be online
+   * @return Unmodifiable view of the player names which were last known to be
+   * online (kept up to date as players join and leave)
    */
   public Set<String> getOnlinePlayerNames()
   {
@@ -109,7 +124,64 @@ public class SockExchangeApi
   }
 
   /**
-   * @return {@link ScheduledExecutorService} managed by SockExchange
+   * Finds a player without asking Bungee, which allows sending bytes directly
+   * to the server of the player with {@link #sendToServer(String, byte[], String)}
+   * <p>
+   * The index is updated as players join, switch servers and leave, so it can
+   * be behind Bungee for a moment. Use {@link #sendToServerOfPlayer(String, byte[], String)}
+   * where the bytes must reach the server the player is on when they are sent.
+   *
+   * @param playerName Name of the player (case insensitive)
+   *
+   * @return {@link OnlinePlayerInfo} of the player or null if the player was
+   * not last known to be online
+   */
+  public OnlinePlayerInfo getOnlinePlayer(String playerName)
+  {
+    Preconditions.checkNotNull(playerName, "playerName");
+
+    return spigotTieIn.getOnlinePlayer(playerName);
+  }
+
+  /**
+   * @param playerUuid UUID of the player
+   *
+   * @return {@link OnlinePlayerInfo} of the player or null if the player was
+   * not last known to be online
+   *
+   * @see #getOnlinePlayer(String)
+   */
+  public OnlinePlayerInfo getOnlinePlayer(UUID playerUuid)
+  {
+    Preconditions.checkNotNull(playerUuid, "playerUuid");
+
+    return spigotTieIn.getOnlinePlayer(playerUuid);
+  }
+
+  /**
+   * @return Unmodifiable view of the {@link OnlinePlayerInfo} of the players
+   * which were last known to be online
+   */
+  public Collection<OnlinePlayerInfo> getOnlinePlayers()
+  {
+    return spigotTieIn.getOnlinePlayers();
+  }
+
+  /**
+   * Checks if messages can be sent to Bungee without exceeding the write limit
+   * of the connection, which plugins can use to throttle what they send
+   *
+   * @return True if connected and the connection is writable or false if not
+   */
+  public boolean isWritable()
+  {
+    return connection.isWritable();
+  }
+
+  /**
+   * @return {@link ScheduledExecutorService} managed by SockExchange whose
+   * delayed and periodic tasks run on a single timer thread (keep them short)
+   * and whose other tasks run on the worker pool
    */
   public ScheduledExecutorService getScheduledExecutorService()
   {
@@ -125,6 +197,24 @@ public class SockExchangeApi
     return messageNotifier;
   }
 
+  /**
+   * @return {@link FlushStatistics} of SockExchange connections (which are only
+   * counted if flush consolidation is enabled)
+   */
+  public FlushStatistics getFlushStatistics()
+  {
+    return flushStatistics;
+  }
+
+  /**
+   * @return {@link SockExchangeMetrics} of the channels, connections, responses
+   * and executors of SockExchange
+   */
+  public SockExchangeMetrics getMetrics()
+  {
+    return metrics;
+  }
+
   /**
    * Sends bytes to Bungee (if connected)
    * <p>
@@ -157,6 +247,49 @@ public class SockExchangeApi
     connection.sendToBungee(channelName, messageBytes, consumer, timeoutInMillis);
   }
 
+  /**
+   * Sends bytes to Bungee (if connected) and returns a future of the response
+   * <p>
+   * To avoid extra memory usage, the API assumes the following parameters
+   * are not modified after this method is called: messageBytes
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param timeoutInMillis Milliseconds to wait for a response before completing with a timeout response
+   *
+   * @return Future which completes on the SockExchange executor with the response
+   * (or a failure) and removes the pending response if it is cancelled
+   */
+  public CompletableFuture<ResponseMessage> sendToBungee(
+    String channelName, byte[] messageBytes, long timeoutInMillis)
+  {
+    return sendToBungee(channelName, messageBytes, timeoutInMillis, null);
+  }
+
+  /**
+   * Sends bytes to Bungee (if connected) and returns a future of the response
+   * <p>
+   * To avoid extra memory usage, the API assumes the following parameters
+   * are not modified after this method is called: messageBytes
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param timeoutInMillis Milliseconds to wait for a response before completing with a timeout response
+   * @param completionExecutor Executor to complete the future on (such as one that
+   * runs tasks on the main thread) or null for the SockExchange executor
+   *
+   * @return Future which completes with the response (or a failure) and removes
+   * the pending response if it is cancelled
+   */
+  public CompletableFuture<ResponseMessage> sendToBungee(
+    String channelName, byte[] messageBytes, long timeoutInMillis,
+    Executor completionExecutor)
+  {
+    ResponseFuture future = new ResponseFuture(completionExecutor);
+    sendToBungee(channelName, messageBytes, future, timeoutInMillis);
+    return future;
+  }
+
   /**
    * Sends bytes to a server (if online)
    * <p>
@@ -191,6 +324,51 @@ public class SockExchangeApi
     connection.sendToServer(channelName, messageBytes, destServerName, consumer, timeoutInMillis);
   }
 
+  /**
+   * Sends bytes to a server (if online) and returns a future of the response
+   * <p>
+   * To avoid extra memory usage, the API assumes the following parameters
+   * are not modified after this method is called: messageBytes
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param destServerName Name of the server to send bytes to
+   * @param timeoutInMillis Milliseconds to wait for a response before completing with a timeout response
+   *
+   * @return Future which completes on the SockExchange executor with the response
+   * (or a failure) and removes the pending response if it is cancelled
+   */
+  public CompletableFuture<ResponseMessage> sendToServer(
+    String channelName, byte[] messageBytes, String destServerName, long timeoutInMillis)
+  {
+    return sendToServer(channelName, messageBytes, destServerName, timeoutInMillis, null);
+  }
+
+  /**
+   * Sends bytes to a server (if online) and returns a future of the response
+   * <p>
+   * To avoid extra memory usage, the API assumes the following parameters
+   * are not modified after this method is called: messageBytes
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param destServerName Name of the server to send bytes to
+   * @param timeoutInMillis Milliseconds to wait for a response before completing with a timeout response
+   * @param completionExecutor Executor to complete the future on (such as one that
+   * runs tasks on the main thread) or null for the SockExchange executor
+   *
+   * @return Future which completes with the response (or a failure) and removes
+   * the pending response if it is cancelled
+   */
+  public CompletableFuture<ResponseMessage> sendToServer(
+    String channelName, byte[] messageBytes, String destServerName, long timeoutInMillis,
+    Executor completionExecutor)
+  {
+    ResponseFuture future = new ResponseFuture(completionExecutor);
+    sendToServer(channelName, messageBytes, destServerName, future, timeoutInMillis);
+    return future;
+  }
+
   /**
    * Sends bytes to a server (if online)
    * <p>
@@ -238,6 +416,51 @@ public class SockExchangeApi
     });
   }
 
+  /**
+   * Sends bytes to the server of a player (if online) and returns a future of the response
+   * <p>
+   * To avoid extra memory usage, the API assumes the following parameters
+   * are not modified after this method is called: messageBytes
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param playerName Name of the player to find and then their server to send bytes to
+   * @param timeoutInMillis Milliseconds to wait for a response before completing with a timeout response
+   *
+   * @return Future which completes on the SockExchange executor with the response
+   * (or a failure) and removes the pending response if it is cancelled
+   */
+  public CompletableFuture<ResponseMessage> sendToServerOfPlayer(
+    String channelName, byte[] messageBytes, String playerName, long timeoutInMillis)
+  {
+    return sendToServerOfPlayer(channelName, messageBytes, playerName, timeoutInMillis, null);
+  }
+
+  /**
+   * Sends bytes to the server of a player (if online) and returns a future of the response
+   * <p>
+   * To avoid extra memory usage, the API assumes the following parameters
+   * are not modified after this method is called: messageBytes
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param playerName Name of the player to find and then their server to send bytes to
+   * @param timeoutInMillis Milliseconds to wait for a response before completing with a timeout response
+   * @param completionExecutor Executor to complete the future on (such as one that
+   * runs tasks on the main thread) or null for the SockExchange executor
+   *
+   * @return Future which completes with the response (or a failure) and removes
+   * the pending response if it is cancelled
+   */
+  public CompletableFuture<ResponseMessage> sendToServerOfPlayer(
+    String channelName, byte[] messageBytes, String playerName, long timeoutInMillis,
+    Executor completionExecutor)
+  {
+    ResponseFuture future = new ResponseFuture(completionExecutor);
+    sendToServerOfPlayer(channelName, messageBytes, playerName, future, timeoutInMillis);
+    return future;
+  }
+
   /**
    * Sends bytes to all online servers
    * <p>
@@ -268,6 +491,34 @@ public class SockExchangeApi
     connection.sendToServers(channelName, messageBytes, serverNames);
   }
 
+  /**
+   * Sends bytes to a list of servers (if online) through Bungee, which collects
+   * their responses into one aggregated response
+   * <p>
+   * The consumer runs once every server has responded (servers that did not
+   * respond in time have a timeout response) or once the quorum of OK responses
+   * is reached. If the request can not be sent (or Bungee does not respond), the
+   * aggregated response has the failure status and no responses.
+   * <p>
+   * To avoid extra memory usage, the API assumes the following parameters
+   * are not modified after this method is called: messageBytes, serverNames
+   *
+   * @param channelName Name of channel to send bytes to
+   * @param messageBytes Bytes to send
+   * @param serverNames List of server names to send bytes to (or null or empty
+   * for all servers except the current one)
+   * @param quorum Number of OK responses to run the consumer with or 0 to wait for all servers
+   * @param consumer Consumer to run with the aggregated responses
+   * @param timeoutInMillis Milliseconds to wait for the responses before using timeout responses
+   */
+  public void sendToServers(
+    String channelName, byte[] messageBytes, List<String> serverNames, int quorum,
+    Consumer<MulticastResponse> consumer, long timeoutInMillis)
+  {
+    connection.sendToServers(channelName, messageBytes, serverNames, quorum, consumer,
+      timeoutInMillis);
+  }
+
   /**
    * Sends players (if they are online) to the server (if the server is online)
    *
@@ -17,6 +17,11 @@
  */
 package com.gmail.tracebachi.SockExchange.Spigot;
 
+import com.gmail.tracebachi.SockExchange.Netty.ChannelSettings;
+import com.gmail.tracebachi.SockExchange.Netty.CompressionType;
+import com.gmail.tracebachi.SockExchange.Netty.WriteLimitPolicy;
+import com.gmail.tracebachi.SockExchange.Scheduler.RejectionPolicy;
+import com.gmail.tracebachi.SockExchange.Scheduler.WorkerPoolSettings;
 import com.gmail.tracebachi.SockExchange.Utilities.MessageFormatMap;
 import net.md_5.bungee.api.ChatColor;
 import org.bukkit.configuration.ConfigurationSection;
@@ -30,8 +35,14 @@ class SockExchangeConfiguration
   private int port;
   private String serverName;
   private String registrationPassword;
+  private ChannelSettings channelSettings;
+  private WorkerPoolSettings workerPoolSettings;
   private MessageFormatMap messageFormatMap;
+  private boolean prometheusEnabled;
+  private String prometheusHost;
+  private int prometheusPort;
   private boolean debugMode;
+  private int maxDebugMessagesPerSecond;
 
   void read(ConfigurationSection configuration)
   {
@@ -39,7 +50,14 @@ class SockExchangeConfiguration
     port = configuration.getInt("SockExchangeClient.Port", 20000);
     serverName = configuration.getString("SockExchangeClient.ServerName", "");
     registrationPassword = configuration.getString("SockExchangeClient.Password", "FreshSocks");
+    channelSettings = readChannelSettings(configuration);
+    workerPoolSettings = readWorkerPoolSettings(configuration);
+    prometheusEnabled = configuration.getBoolean("Prometheus.Enabled", false);
+    prometheusHost = configuration.getString("Prometheus.Host", "127.0.0.1");
+    prometheusPort = configuration.getInt("Prometheus.Port", 9226);
     debugMode = configuration.getBoolean("DebugMode", false);
+    maxDebugMessagesPerSecond = Math.max(0,
+      configuration.getInt("DebugMaxMessagesPerSecond", 0));
     messageFormatMap = new MessageFormatMap();
 
     ConfigurationSection formats = configuration.getConfigurationSection("Formats");
@@ -73,13 +91,138 @@ class SockExchangeConfiguration
     return registrationPassword;
   }
 
+  ChannelSettings getChannelSettings()
+  {
+    return channelSettings;
+  }
+
+  WorkerPoolSettings getWorkerPoolSettings()
+  {
+    return workerPoolSettings;
+  }
+
   MessageFormatMap getMessageFormatMap()
   {
     return messageFormatMap;
   }
 
+  boolean isPrometheusEnabled()
+  {
+    return prometheusEnabled;
+  }
+
+  String getPrometheusHost()
+  {
+    return prometheusHost;
+  }
+
+  int getPrometheusPort()
+  {
+    return prometheusPort;
+  }
+
   boolean inDebugMode()
   {
     return debugMode;
   }
+
+  int getMaxDebugMessagesPerSecond()
+  {
+    return maxDebugMessagesPerSecond;
+  }
+
+  private static ChannelSettings readChannelSettings(ConfigurationSection configuration)
+  {
+    ChannelSettings settings = new ChannelSettings();
+    settings.setNativeTransport(
+      configuration.getBoolean("SockExchangeClient.Transport.Native", true));
+    settings.setTcpNoDelay(
+      configuration.getBoolean("SockExchangeClient.Transport.TcpNoDelay", true));
+    settings.setSendBufferSize(Math.max(0,
+      configuration.getInt("SockExchangeClient.Transport.SendBufferSize", 0)));
+    settings.setReceiveBufferSize(Math.max(0,
+      configuration.getInt("SockExchangeClient.Transport.ReceiveBufferSize", 0)));
+
+    settings.setFlushConsolidation(
+      configuration.getBoolean("SockExchangeClient.FlushConsolidation.Enabled", false));
+    settings.setMaxMessagesPerFlush(Math.max(1,
+      configuration.getInt("SockExchangeClient.FlushConsolidation.MaxMessagesPerFlush", 64)));
+    settings.setMaxFlushDelayInMicros(Math.max(0,
+      configuration.getLong("SockExchangeClient.FlushConsolidation.MaxDelayInMicros", 0)));
+
+    int lowWaterMark = configuration.getInt("SockExchangeClient.WriteBuffer.LowWaterMark", 1048576);
+    int highWaterMark = configuration.getInt("SockExchangeClient.WriteBuffer.HighWaterMark", 4194304);
+    settings.setWriteBufferWaterMarks(Math.max(0, lowWaterMark),
+      Math.max(Math.max(0, lowWaterMark), highWaterMark));
+    settings.setWriteLimitPolicy(readWriteLimitPolicy(
+      configuration.getString("SockExchangeClient.WriteBuffer.Policy", "FAIL_FAST")));
+    settings.setWriteBlockTimeoutInMillis(Math.max(1,
+      configuration.getLong("SockExchangeClient.WriteBuffer.BlockTimeoutInMillis", 1000)));
+
+    settings.setCompressionType(readCompressionType(
+      configuration.getString("SockExchangeClient.Compression.Type", "NONE")));
+    settings.setCompressionThreshold(Math.max(0,
+      configuration.getInt("SockExchangeClient.Compression.Threshold", 1024)));
+    settings.setCompressionLevel(Math.min(9, Math.max(1,
+      configuration.getInt("SockExchangeClient.Compression.Level", 1))));
+    return settings;
+  }
+
+  private static WorkerPoolSettings readWorkerPoolSettings(ConfigurationSection configuration)
+  {
+    WorkerPoolSettings settings = new WorkerPoolSettings();
+    int coreThreads = Math.max(1, configuration.getInt("SockExchangeClient.WorkerPool.CoreThreads", 2));
+    int maxThreads = configuration.getInt("SockExchangeClient.WorkerPool.MaxThreads", 8);
+    settings.setThreads(coreThreads, Math.max(coreThreads, maxThreads));
+    settings.setQueueCapacity(Math.max(0,
+      configuration.getInt("SockExchangeClient.WorkerPool.QueueCapacity", 8192)));
+    settings.setKeepAliveInSeconds(Math.max(1,
+      configuration.getLong("SockExchangeClient.WorkerPool.KeepAliveInSeconds", 60)));
+    settings.setCoreThreadTimeout(
+      configuration.getBoolean("SockExchangeClient.WorkerPool.CoreThreadTimeout", false));
+    settings.setRejectionPolicy(readRejectionPolicy(
+      configuration.getString("SockExchangeClient.WorkerPool.RejectionPolicy", "CALLER_RUNS")));
+    settings.setVirtualThreads(
+      configuration.getBoolean("SockExchangeClient.WorkerPool.VirtualThreads", false));
+    return settings;
+  }
+
+  private static WriteLimitPolicy readWriteLimitPolicy(String policyName)
+  {
+    for (WriteLimitPolicy policy : WriteLimitPolicy.values())
+    {
+      if (policy.name().replace("_", "").equalsIgnoreCase(policyName.replace("_", "")))
+      {
+        return policy;
+      }
+    }
+
+    return WriteLimitPolicy.FAIL_FAST;
+  }
+
+  private static CompressionType readCompressionType(String typeName)
+  {
+    for (CompressionType type : CompressionType.values())
+    {
+      if (type.name().equalsIgnoreCase(typeName))
+      {
+        return type;
+      }
+    }
+
+    return CompressionType.NONE;
+  }
+
+  private static RejectionPolicy readRejectionPolicy(String policyName)
+  {
+    for (RejectionPolicy policy : RejectionPolicy.values())
+    {
+      if (policy.name().replace("_", "").equalsIgnoreCase(policyName.replace("_", "")))
+      {
+        return policy;
+      }
+    }
+
+    return RejectionPolicy.CALLER_RUNS;
+  }
 }
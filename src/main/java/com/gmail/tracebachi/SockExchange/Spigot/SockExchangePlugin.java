@@ -17,18 +17,23 @@
  */
 package com.gmail.tracebachi.SockExchange.Spigot;
 
-import com.gmail.tracebachi.SockExchange.ExpirableConsumer;
 import com.gmail.tracebachi.SockExchange.Messages.ReceivedMessageNotifier;
-import com.gmail.tracebachi.SockExchange.Messages.ResponseMessage;
-import com.gmail.tracebachi.SockExchange.Messages.ResponseStatus;
+import com.gmail.tracebachi.SockExchange.Messages.ResponseConsumerMap;
+import com.gmail.tracebachi.SockExchange.Metrics.PrometheusExporter;
+import com.gmail.tracebachi.SockExchange.Metrics.SockExchangeMetrics;
+import com.gmail.tracebachi.SockExchange.Netty.ChannelSettings;
+import com.gmail.tracebachi.SockExchange.Netty.FlushStatistics;
 import com.gmail.tracebachi.SockExchange.Netty.SockExchangeClient;
 import com.gmail.tracebachi.SockExchange.Netty.SpigotToBungeeConnection;
+import com.gmail.tracebachi.SockExchange.Netty.Transport;
+import com.gmail.tracebachi.SockExchange.OnlinePlayerInfo;
 import com.gmail.tracebachi.SockExchange.Scheduler.AwaitableExecutor;
 import com.gmail.tracebachi.SockExchange.Scheduler.ScheduledExecutorServiceWrapper;
+import com.gmail.tracebachi.SockExchange.Scheduler.VirtualThreads;
+import com.gmail.tracebachi.SockExchange.Scheduler.WorkerPoolSettings;
 import com.gmail.tracebachi.SockExchange.SpigotServerInfo;
 import com.gmail.tracebachi.SockExchange.Utilities.BasicLogger;
 import com.gmail.tracebachi.SockExchange.Utilities.JulBasicLogger;
-import com.gmail.tracebachi.SockExchange.Utilities.LongIdCounterMap;
 import com.gmail.tracebachi.SockExchange.Utilities.MessageFormatMap;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -39,9 +44,9 @@ import org.bukkit.plugin.java.JavaPlugin;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ScheduledFuture;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -52,20 +57,24 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
 {
   private final SockExchangeConfiguration configuration = new SockExchangeConfiguration();
 
-  private ScheduledThreadPoolExecutor threadPoolExecutor;
+  private ScheduledThreadPoolExecutor timerExecutor;
+  private ExecutorService workerPool;
   private AwaitableExecutor awaitableExecutor;
   private BasicLogger basicLogger;
   private ReceivedMessageNotifier messageNotifier;
-  private LongIdCounterMap<ExpirableConsumer<ResponseMessage>> responseConsumerMap;
+  private ResponseConsumerMap responseConsumerMap;
   private SpigotToBungeeConnection connection;
+  private FlushStatistics flushStatistics;
+  private SockExchangeMetrics metrics;
+  private PrometheusExporter prometheusExporter;
   private SockExchangeClient sockExchangeClient;
-  private ScheduledFuture<?> consumerTimeoutCleanupFuture;
 
   private PlayerUpdateChannelListener playerUpdateChannelListener;
   private KeepAliveChannelListener keepAliveChannelListener;
   private MoveOtherToCommand moveOtherToCommand;
   private MoveToCommand moveToCommand;
   private RunCmdCommand runCmdCommand;
+  private SockExchangeCommand sockExchangeCommand;
   private ChatMessageChannelListener chatMessageChannelListener;
   private RunCmdChannelListener runCmdChannelListener;
   private SpigotKeepAliveSender spigotKeepAliveSender;
@@ -87,40 +96,51 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
     int port = configuration.getPort();
     String serverName = configuration.getServerName();
     String registrationPassword = configuration.getRegistrationPassword();
+    ChannelSettings channelSettings = configuration.getChannelSettings();
+    WorkerPoolSettings workerPoolSettings = configuration.getWorkerPoolSettings();
     MessageFormatMap messageFormatMap = configuration.getMessageFormatMap();
 
     // Create the logger based on Java.Util.Logging
-    basicLogger = new JulBasicLogger(getLogger(), debugMode);
+    JulBasicLogger julBasicLogger = new JulBasicLogger(getLogger(), debugMode);
+    julBasicLogger.setMaxDebugMessagesPerSecond(configuration.getMaxDebugMessagesPerSecond());
+    basicLogger = julBasicLogger;
 
-    // Create the shared thread pool executor
-    buildThreadPoolExecutor();
+    // Create the timer for periodic tasks and the pool for everything else
+    buildExecutors(workerPoolSettings);
     ScheduledExecutorServiceWrapper wrappedThreadPool =
-      new ScheduledExecutorServiceWrapper(threadPoolExecutor);
+      new ScheduledExecutorServiceWrapper(timerExecutor, workerPool);
 
     // Create the AwaitableExecutor
-    awaitableExecutor = new AwaitableExecutor(wrappedThreadPool);
+    awaitableExecutor = new AwaitableExecutor(workerPool);
 
     // Create the message notifier which will run consumers on SockExchange messages
     messageNotifier = new ReceivedMessageNotifier(awaitableExecutor);
 
-    // Create the map that manages consumers for responses to sent message
-    responseConsumerMap = new LongIdCounterMap<>();
+    // Create the map that manages consumers for responses to sent message (and their timeouts)
+    responseConsumerMap = new ResponseConsumerMap(awaitableExecutor);
 
-    // Schedule a task to clean up the responseConsumerMap (handling timeouts)
-    consumerTimeoutCleanupFuture = threadPoolExecutor.scheduleWithFixedDelay(
-      this::checkForConsumerTimeouts, 5, 5, TimeUnit.SECONDS);
+    // Create the metrics that the connection records to
+    metrics = new SockExchangeMetrics();
 
     // Create the Spigot-to-Bungee connection
     connection = new SpigotToBungeeConnection(
       serverName, registrationPassword, awaitableExecutor, messageNotifier, responseConsumerMap,
-      basicLogger);
+      basicLogger, metrics);
+    connection.setWriteLimitPolicy(channelSettings.getWriteLimitPolicy(),
+      channelSettings.getWriteBlockTimeoutInMillis());
+
+    // Create the statistics of the connection
+    flushStatistics = new FlushStatistics();
+
+    // Add the gauges and counters that are read when the metrics are displayed
+    addGauges();
 
     // Create the API
     SockExchangeApi api = new SockExchangeApi(
-      this, threadPoolExecutor, messageNotifier, connection);
+      this, wrappedThreadPool, messageNotifier, connection, flushStatistics, metrics);
     SockExchangeApi.setInstance(api);
 
-    playerUpdateChannelListener = new PlayerUpdateChannelListener(api);
+    playerUpdateChannelListener = new PlayerUpdateChannelListener(api, 5000);
     playerUpdateChannelListener.register();
 
     keepAliveChannelListener = new KeepAliveChannelListener(api);
@@ -138,6 +158,9 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
     runCmdCommand = new RunCmdCommand(this, runCmdChannelListener, messageFormatMap, api);
     runCmdCommand.register();
 
+    sockExchangeCommand = new SockExchangeCommand(this, messageFormatMap, api);
+    sockExchangeCommand.register();
+
     chatMessageChannelListener = new ChatMessageChannelListener(this, api);
     chatMessageChannelListener.register();
 
@@ -146,7 +169,9 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
 
     try
     {
-      sockExchangeClient = new SockExchangeClient(hostName, port, connection);
+      sockExchangeClient = new SockExchangeClient(hostName, port, connection, channelSettings,
+        flushStatistics);
+      logTransport(sockExchangeClient.getTransport(), channelSettings);
       sockExchangeClient.start();
     }
     catch (Exception e)
@@ -157,6 +182,11 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
       e.printStackTrace();
       getLogger().severe("============================================================");
     }
+
+    if (configuration.isPrometheusEnabled())
+    {
+      startPrometheusExporter();
+    }
   }
 
   @Override
@@ -176,6 +206,12 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
       sockExchangeClient = null;
     }
 
+    if (prometheusExporter != null)
+    {
+      prometheusExporter.shutdown();
+      prometheusExporter = null;
+    }
+
     if (spigotKeepAliveSender != null)
     {
       spigotKeepAliveSender.unregister();
@@ -188,6 +224,12 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
       chatMessageChannelListener = null;
     }
 
+    if (sockExchangeCommand != null)
+    {
+      sockExchangeCommand.unregister();
+      sockExchangeCommand = null;
+    }
+
     if (runCmdCommand != null)
     {
       runCmdCommand.unregister();
@@ -227,26 +269,28 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
     SockExchangeApi.setInstance(null);
 
     connection = null;
-
-    if (consumerTimeoutCleanupFuture != null)
-    {
-      consumerTimeoutCleanupFuture.cancel(false);
-      consumerTimeoutCleanupFuture = null;
-    }
+    flushStatistics = null;
+    metrics = null;
 
     if (responseConsumerMap != null)
     {
-      responseConsumerMap.clear();
+      responseConsumerMap.shutdown();
       responseConsumerMap = null;
     }
 
     messageNotifier = null;
     basicLogger = null;
 
-    if (threadPoolExecutor != null)
+    if (timerExecutor != null)
     {
-      shutdownThreadPoolExecutor();
-      threadPoolExecutor = null;
+      shutdownExecutor(timerExecutor, "Timer");
+      timerExecutor = null;
+    }
+
+    if (workerPool != null)
+    {
+      shutdownExecutor(workerPool, "Worker pool");
+      workerPool = null;
     }
   }
 
@@ -268,6 +312,24 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
     return playerUpdateChannelListener.getOnlinePlayerNames();
   }
 
+  @Override
+  public OnlinePlayerInfo getOnlinePlayer(String playerName)
+  {
+    return playerUpdateChannelListener.getOnlinePlayer(playerName);
+  }
+
+  @Override
+  public OnlinePlayerInfo getOnlinePlayer(UUID playerUuid)
+  {
+    return playerUpdateChannelListener.getOnlinePlayer(playerUuid);
+  }
+
+  @Override
+  public Collection<OnlinePlayerInfo> getOnlinePlayers()
+  {
+    return playerUpdateChannelListener.getOnlinePlayers();
+  }
+
   @Override
   public void sendChatMessagesToConsole(List<String> messages)
   {
@@ -298,29 +360,54 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
     getServer().getScheduler().runTask(this, runnable);
   }
 
-  private void checkForConsumerTimeouts()
+  private void addGauges()
   {
-    long currentTimeMillis = System.currentTimeMillis();
+    SpigotToBungeeConnection connection = this.connection;
+
+    metrics.addConnectionState(SockExchangeMetrics.BUNGEE, connection::hasChannel);
+    metrics.addGauge("PendingResponses", "Requests that are waiting for a response",
+      responseConsumerMap::getPendingCount);
+    metrics.addGauge("ExecutorTasks", "Submitted tasks that have not finished",
+      awaitableExecutor::getSubmittedTaskCount);
+    metrics.addCounter("Flushes", "Flushes of the connections", flushStatistics::getFlushCount);
+    metrics.addCounter("FlushedMessages", "Messages written by the flushes of the connections",
+      flushStatistics::getMessageCount);
+    metrics.addWorkerPoolGauges(workerPool);
+  }
 
-    responseConsumerMap.removeIf((entry) ->
-    {
-      ExpirableConsumer<ResponseMessage> responseConsumer = entry.getValue();
+  private void startPrometheusExporter()
+  {
+    String host = configuration.getPrometheusHost();
+    int port = configuration.getPrometheusPort();
 
-      if (responseConsumer.getExpiresAtMillis() > currentTimeMillis)
-      {
-        // Keep the entry
-        return false;
-      }
+    try
+    {
+      PrometheusExporter exporter = new PrometheusExporter(host, port, metrics, messageNotifier);
+      exporter.start();
+      prometheusExporter = exporter;
 
-      awaitableExecutor.execute(() ->
-      {
-        ResponseMessage responseMessage = new ResponseMessage(ResponseStatus.TIMED_OUT);
-        responseConsumer.accept(responseMessage);
-      });
+      getLogger().info("Serving Prometheus metrics at http://" + host + ":" + port + "/metrics");
+    }
+    catch (Exception e)
+    {
+      getLogger().severe("============================================================");
+      getLogger().severe("The Prometheus exporter could not be started. Refer to the stacktrace below.");
+      e.printStackTrace();
+      getLogger().severe("============================================================");
+    }
+  }
 
-      // Remove the entry
-      return true;
-    });
+  private void logTransport(Transport transport, ChannelSettings channelSettings)
+  {
+    if (transport == Transport.NIO && channelSettings.isNativeTransport())
+    {
+      basicLogger.info("Using the %s transport (native transport is not available: %s)",
+        transport, Transport.getNativeUnavailabilityReason());
+    }
+    else
+    {
+      basicLogger.info("Using the %s transport", transport);
+    }
   }
 
   private void shutdownAwaitableExecutor()
@@ -328,7 +415,7 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
     try
     {
       awaitableExecutor.setAcceptingTasks(false);
-      awaitableExecutor.awaitTasksWithSleep(10, 1000);
+      awaitableExecutor.awaitTasks(10, TimeUnit.SECONDS);
       awaitableExecutor.shutdown();
     }
     catch (InterruptedException ex)
@@ -337,53 +424,71 @@ public class SockExchangePlugin extends JavaPlugin implements SpigotTieIn
     }
   }
 
-  private void buildThreadPoolExecutor()
+  private void buildExecutors(WorkerPoolSettings workerPoolSettings)
   {
-    ThreadFactoryBuilder factoryBuilder = new ThreadFactoryBuilder();
-    factoryBuilder.setNameFormat("SockExchange-Scheduler-Thread-%d");
+    ThreadFactoryBuilder timerFactoryBuilder = new ThreadFactoryBuilder();
+    timerFactoryBuilder.setNameFormat("SockExchange-Timer-Thread-%d");
+
+    timerExecutor = new ScheduledThreadPoolExecutor(1, timerFactoryBuilder.build());
+    timerExecutor.setRemoveOnCancelPolicy(true);
+    timerExecutor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+    timerExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+    ThreadFactoryBuilder workerFactoryBuilder = new ThreadFactoryBuilder();
+    workerFactoryBuilder.setNameFormat("SockExchange-Worker-Thread-%d");
 
-    ThreadFactory threadFactory = factoryBuilder.build();
-    threadPoolExecutor = new ScheduledThreadPoolExecutor(2, threadFactory);
+    workerPool = workerPoolSettings.newWorkerPool(workerFactoryBuilder.build());
 
-    threadPoolExecutor.setMaximumPoolSize(8);
-    threadPoolExecutor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
-    threadPoolExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    if (!workerPoolSettings.isVirtualThreads())
+    {
+      return;
+    }
+
+    if (VirtualThreads.isAvailable())
+    {
+      basicLogger.info("Running tasks on virtual threads");
+    }
+    else
+    {
+      basicLogger.info("Running tasks on the worker pool (virtual threads are not available: %s)",
+        VirtualThreads.getUnavailabilityReason());
+    }
   }
 
-  private void shutdownThreadPoolExecutor()
+  private void shutdownExecutor(ExecutorService executor, String name)
   {
-    if (!threadPoolExecutor.isShutdown())
+    if (!executor.isShutdown())
     {
       // Disable new tasks from being submitted to service
-      threadPoolExecutor.shutdown();
+      executor.shutdown();
 
-      getLogger().info("ScheduledThreadPoolExecutor being shutdown()");
+      getLogger().info(name + " being shutdown()");
 
       try
       {
         // Await termination for a minute
-        if (!threadPoolExecutor.awaitTermination(60, TimeUnit.SECONDS))
+        if (!executor.awaitTermination(60, TimeUnit.SECONDS))
         {
           // Force shutdown
-          threadPoolExecutor.shutdownNow();
+          executor.shutdownNow();
 
-          getLogger().severe("ScheduledThreadPoolExecutor being shutdownNow()");
+          getLogger().severe(name + " being shutdownNow()");
 
           // Await termination again for another minute
-          if (!threadPoolExecutor.awaitTermination(60, TimeUnit.SECONDS))
+          if (!executor.awaitTermination(60, TimeUnit.SECONDS))
           {
-            getLogger().severe("ScheduledThreadPoolExecutor not shutdown after shutdownNow()");
+            getLogger().severe(name + " not shutdown after shutdownNow()");
           }
         }
       }
       catch (InterruptedException ex)
       {
-        getLogger().severe("ScheduledThreadPoolExecutor shutdown interrupted");
+        getLogger().severe(name + " shutdown interrupted");
 
         // Re-cancel if current thread also interrupted
-        threadPoolExecutor.shutdownNow();
+        executor.shutdownNow();
 
-        getLogger().severe("ScheduledThreadPoolExecutor being shutdownNow()");
+        getLogger().severe(name + " being shutdownNow()");
 
         // Preserve interrupt status
         Thread.currentThread().interrupt();
@@ -17,11 +17,13 @@
  */
 package com.gmail.tracebachi.SockExchange.Spigot;
 
+import com.gmail.tracebachi.SockExchange.OnlinePlayerInfo;
 import com.gmail.tracebachi.SockExchange.SpigotServerInfo;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.function.Consumer;
 
 /**
@@ -35,6 +37,12 @@ public interface SpigotTieIn
 
   Set<String> getOnlinePlayerNames();
 
+  OnlinePlayerInfo getOnlinePlayer(String playerName);
+
+  OnlinePlayerInfo getOnlinePlayer(UUID playerUuid);
+
+  Collection<OnlinePlayerInfo> getOnlinePlayers();
+
   void sendChatMessagesToConsole(List<String> messages);
 
   void isPlayerOnServer(String playerName, Consumer<Boolean> consumer);
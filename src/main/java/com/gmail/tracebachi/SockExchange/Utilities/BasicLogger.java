@@ -17,6 +17,8 @@
  */
 package com.gmail.tracebachi.SockExchange.Utilities;
 
+import java.util.function.Supplier;
+
 /**
  * @author GeeItsZee (tracebachi@gmail.com)
  */
@@ -30,6 +32,17 @@ public interface BasicLogger
    */
   void info(String format, Object... params);
 
+  /**
+   * Checks if debug messages are logged, which should guard debug calls on hot
+   * paths so the varargs array and boxed parameters are not created when they are not
+   *
+   * @return True if debug messages are logged
+   */
+  default boolean isDebugEnabled()
+  {
+    return true;
+  }
+
   /**
    * Logs message as debug
    *
@@ -38,6 +51,19 @@ public interface BasicLogger
    */
   void debug(String format, Object... params);
 
+  /**
+   * Logs message as debug with a message that is only built if it is logged
+   *
+   * @param messageSupplier Supplier of the message
+   */
+  default void debug(Supplier<String> messageSupplier)
+  {
+    if (isDebugEnabled())
+    {
+      debug(messageSupplier.get());
+    }
+  }
+
   /**
    * Logs message as sever
    *
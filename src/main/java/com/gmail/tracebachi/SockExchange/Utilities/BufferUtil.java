@@ -0,0 +1,63 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Utilities;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class BufferUtil
+{
+  private static final byte[] EMPTY_BYTES = new byte[0];
+
+  private BufferUtil()
+  {
+  }
+
+  /**
+   * Returns the readable bytes of a buffer as a byte array
+   * <p>
+   * If the buffer wraps an entire array, that array is returned without a copy.
+   * The reader index of the buffer is not modified.
+   *
+   * @param buffer Buffer to read from
+   *
+   * @return Byte array of the readable bytes
+   */
+  public static byte[] toByteArray(ByteBuf buffer)
+  {
+    int length = buffer.readableBytes();
+
+    if (length == 0)
+    {
+      return EMPTY_BYTES;
+    }
+
+    if (buffer.hasArray() &&
+      buffer.arrayOffset() + buffer.readerIndex() == 0 &&
+      buffer.array().length == length)
+    {
+      return buffer.array();
+    }
+
+    byte[] bytes = new byte[length];
+    buffer.getBytes(buffer.readerIndex(), bytes);
+    return bytes;
+  }
+}
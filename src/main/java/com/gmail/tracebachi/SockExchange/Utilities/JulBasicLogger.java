@@ -19,16 +19,32 @@ package com.gmail.tracebachi.SockExchange.Utilities;
 
 import com.google.common.base.Preconditions;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Logger that logs to a Java.Util.Logging logger
+ * <p>
+ * Debug messages can be sampled by limiting how many are logged per second.
+ * Messages over the limit are dropped and counted, and the count is logged once
+ * the next second starts.
+ *
  * @author GeeItsZee (tracebachi@gmail.com)
  */
 public class JulBasicLogger implements BasicLogger
 {
+  private static final long SAMPLE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
   private final Logger logger;
+  private final AtomicLong sampleWindowStart = new AtomicLong(System.nanoTime());
+  private final AtomicInteger sampledInWindow = new AtomicInteger(0);
+  private final LongAdder droppedInWindow = new LongAdder();
   private volatile boolean debugMode;
+  private volatile int maxDebugMessagesPerSecond = 0;
 
   public JulBasicLogger(Logger logger, boolean debugMode)
   {
@@ -48,6 +64,32 @@ public class JulBasicLogger implements BasicLogger
     this.debugMode = debugMode;
   }
 
+  /**
+   * @return Maximum number of debug messages logged per second or 0 if there
+   * is no limit
+   */
+  public int getMaxDebugMessagesPerSecond()
+  {
+    return maxDebugMessagesPerSecond;
+  }
+
+  /**
+   * @param maxDebugMessagesPerSecond Maximum number of debug messages logged per
+   * second or 0 to log every debug message
+   */
+  public void setMaxDebugMessagesPerSecond(int maxDebugMessagesPerSecond)
+  {
+    Preconditions.checkArgument(maxDebugMessagesPerSecond >= 0, "maxDebugMessagesPerSecond");
+
+    this.maxDebugMessagesPerSecond = maxDebugMessagesPerSecond;
+  }
+
+  @Override
+  public boolean isDebugEnabled()
+  {
+    return debugMode;
+  }
+
   @Override
   public void info(String format, Object... params)
   {
@@ -57,7 +99,7 @@ public class JulBasicLogger implements BasicLogger
   @Override
   public void debug(String format, Object... params)
   {
-    if (debugMode)
+    if (debugMode && isDebugSampled())
     {
       logger.log(Level.INFO, formatWithParams(format, true, params));
     }
@@ -69,11 +111,43 @@ public class JulBasicLogger implements BasicLogger
     logger.log(Level.SEVERE, formatWithParams(format, false, params));
   }
 
+  private boolean isDebugSampled()
+  {
+    int maxPerSecond = maxDebugMessagesPerSecond;
+    if (maxPerSecond <= 0)
+    {
+      return true;
+    }
+
+    long now = System.nanoTime();
+    long windowStart = sampleWindowStart.get();
+
+    // The first thread to see that the window is over starts the next one
+    if (now - windowStart >= SAMPLE_WINDOW_NANOS && sampleWindowStart.compareAndSet(windowStart, now))
+    {
+      sampledInWindow.set(0);
+
+      long dropped = droppedInWindow.sumThenReset();
+      if (dropped > 0)
+      {
+        logger.log(Level.INFO, "[Debug] " + dropped + " debug messages were dropped by sampling");
+      }
+    }
+
+    if (sampledInWindow.incrementAndGet() <= maxPerSecond)
+    {
+      return true;
+    }
+
+    droppedInWindow.increment();
+    return false;
+  }
+
   private static String formatWithParams(String format, boolean prefixWithDebug, Object... params)
   {
     if (format == null || params == null || params.length == 0)
     {
-      return format;
+      return prefixWithDebug ? "[Debug] " + format : format;
     }
 
     StringBuilder builder;
@@ -0,0 +1,222 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Utilities;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values (such as latencies in nanoseconds) that can
+ * be recorded to by many threads without locking or allocating
+ * <p>
+ * Values are counted in log-linear buckets: every power of two is split into
+ * {@link #SUB_BUCKET_COUNT} buckets, so a value read back from the histogram is
+ * within about 3% of the recorded value regardless of its magnitude. Percentiles
+ * report the highest value that is equivalent to the bucket they fall in.
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class LatencyHistogram
+{
+  public static final int SUB_BUCKET_BITS = 5;
+  public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder totalCount = new LongAdder();
+  private final LongAdder totalSum = new LongAdder();
+  private final AtomicLong maxValue = new AtomicLong(0);
+
+  /**
+   * @param value Value to record (negative values are recorded as 0)
+   */
+  public void record(long value)
+  {
+    value = Math.max(0, value);
+
+    counts.incrementAndGet(indexOf(value));
+    totalCount.increment();
+    totalSum.add(value);
+
+    long currentMax = maxValue.get();
+    while (value > currentMax && !maxValue.compareAndSet(currentMax, value))
+    {
+      currentMax = maxValue.get();
+    }
+  }
+
+  /**
+   * @return Number of recorded values
+   */
+  public long getCount()
+  {
+    return totalCount.sum();
+  }
+
+  /**
+   * @return Highest recorded value or 0 if nothing was recorded
+   */
+  public long getMax()
+  {
+    return maxValue.get();
+  }
+
+  /**
+   * @return Sum of the recorded values
+   */
+  public long getSum()
+  {
+    return totalSum.sum();
+  }
+
+  /**
+   * @return Mean of the recorded values or 0 if nothing was recorded
+   */
+  public double getMean()
+  {
+    long count = totalCount.sum();
+
+    return count == 0 ? 0 : (double) totalSum.sum() / count;
+  }
+
+  /**
+   * @param percentile Percentile between 0 and 100 (such as 99.9)
+   *
+   * @return Value at the percentile or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile)
+  {
+    Preconditions.checkArgument(percentile >= 0 && percentile <= 100,
+      "percentile must be between 0 and 100");
+
+    long[] snapshot = new long[BUCKET_COUNT];
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++)
+    {
+      snapshot[i] = counts.get(i);
+      count += snapshot[i];
+    }
+
+    if (count == 0)
+    {
+      return 0;
+    }
+
+    long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++)
+    {
+      seen += snapshot[i];
+      if (seen >= countAtPercentile)
+      {
+        return Math.min(highestEquivalentValue(i), maxValue.get());
+      }
+    }
+
+    return maxValue.get();
+  }
+
+  /**
+   * Counts the recorded values at or below each of the upper bounds in a single
+   * pass over the buckets (so the cost does not depend on the number of values)
+   * <p>
+   * A bucket is counted for a bound if its highest equivalent value is at or
+   * below the bound, so values in the bucket that straddles a bound are counted
+   * for the next bound.
+   *
+   * @param upperBounds Upper bounds in ascending order
+   *
+   * @return Cumulative count for every bound followed by the total count
+   */
+  public long[] getCumulativeCounts(long[] upperBounds)
+  {
+    Preconditions.checkNotNull(upperBounds, "upperBounds");
+
+    long[] result = new long[upperBounds.length + 1];
+    int boundIndex = 0;
+    long seen = 0;
+
+    for (int i = 0; i < BUCKET_COUNT; i++)
+    {
+      long highestValue = highestEquivalentValue(i);
+      while (boundIndex < upperBounds.length && highestValue > upperBounds[boundIndex])
+      {
+        result[boundIndex++] = seen;
+      }
+
+      seen += counts.get(i);
+    }
+
+    while (boundIndex < upperBounds.length)
+    {
+      result[boundIndex++] = seen;
+    }
+
+    result[upperBounds.length] = seen;
+    return result;
+  }
+
+  /**
+   * Removes all recorded values
+   * <p>
+   * Values recorded while the histogram is being reset may be partially kept.
+   */
+  public void reset()
+  {
+    for (int i = 0; i < BUCKET_COUNT; i++)
+    {
+      counts.set(i, 0);
+    }
+
+    totalCount.reset();
+    totalSum.reset();
+    maxValue.set(0);
+  }
+
+  static int indexOf(long value)
+  {
+    if (value < SUB_BUCKET_COUNT)
+    {
+      return (int) value;
+    }
+
+    // Position of the highest bit picks the power of two and the next
+    // SUB_BUCKET_BITS bits pick the bucket inside of it
+    int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+
+    return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long highestEquivalentValue(int index)
+  {
+    if (index < SUB_BUCKET_COUNT)
+    {
+      return index;
+    }
+
+    int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+    long subBucket = SUB_BUCKET_COUNT + (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * SockExchange - Server and Client for BungeeCord and Spigot communication
+ * Copyright (C) 2017 tracebachi@gmail.com (GeeItsZee)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.gmail.tracebachi.SockExchange.Utilities;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent map of values to IDs from a counter which does not box IDs
+ * <p>
+ * A value is saved in the slot indexed by the low bits of its ID. The slot keeps
+ * the whole ID, so the high bits act as a generation: an ID from an earlier lap
+ * of the slots no longer matches and is rejected. If the slot of a new ID is still
+ * taken (a value has waited longer than a full lap), the next few IDs are tried
+ * before the value is saved in an overflow map instead.
+ * <p>
+ * IDs start at 1, so {@link #NO_ID} can be used to mean "no value".
+ *
+ * @author GeeItsZee (tracebachi@gmail.com)
+ */
+public class LongIdSlotMap<V>
+{
+  public static final long NO_ID = 0;
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  private static final int MAX_SLOT_ATTEMPTS = 4;
+  private static final long FREE = 0;
+  private static final long CLAIMED = -1;
+
+  private final AtomicLong idCounter = new AtomicLong(0L);
+  private final AtomicLongArray slotIds;
+  private final AtomicReferenceArray<V> slotValues;
+  private final int slotMask;
+  private final ConcurrentHashMap<Long, V> overflowMap = new ConcurrentHashMap<>();
+
+  public LongIdSlotMap()
+  {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity Number of slots which is rounded up to a power of two
+   */
+  public LongIdSlotMap(int capacity)
+  {
+    Preconditions.checkArgument(capacity > 0 && capacity <= (1 << 30),
+      "capacity must be > 0 and <= 2^30");
+
+    int slotCount = Integer.highestOneBit(capacity);
+    if (slotCount < capacity)
+    {
+      slotCount <<= 1;
+    }
+
+    this.slotIds = new AtomicLongArray(slotCount);
+    this.slotValues = new AtomicReferenceArray<>(slotCount);
+    this.slotMask = slotCount - 1;
+  }
+
+  public long put(V value)
+  {
+    Preconditions.checkNotNull(value, "value");
+
+    // IDs whose slots are still taken are skipped a few times before overflowing
+    for (int attempt = 0; attempt < MAX_SLOT_ATTEMPTS; attempt++)
+    {
+      long id = idCounter.incrementAndGet();
+      int slot = (int) (id & slotMask);
+
+      if (slotIds.compareAndSet(slot, FREE, CLAIMED))
+      {
+        // The ID is published last so a reader that sees it also sees the value
+        slotValues.set(slot, value);
+        slotIds.set(slot, id);
+        return id;
+      }
+    }
+
+    long id = idCounter.incrementAndGet();
+    overflowMap.put(id, value);
+    return id;
+  }
+
+  public V remove(long id)
+  {
+    if (id <= NO_ID)
+    {
+      return null;
+    }
+
+    int slot = (int) (id & slotMask);
+    if (slotIds.get(slot) == id && slotIds.compareAndSet(slot, id, CLAIMED))
+    {
+      return freeSlot(slot);
+    }
+
+    return overflowMap.isEmpty() ? null : overflowMap.remove(id);
+  }
+
+  public void clear()
+  {
+    idCounter.set(0);
+
+    for (int slot = 0; slot <= slotMask; slot++)
+    {
+      long id = slotIds.get(slot);
+      if (id > NO_ID && slotIds.compareAndSet(slot, id, CLAIMED))
+      {
+        freeSlot(slot);
+      }
+    }
+
+    overflowMap.clear();
+  }
+
+  public void removeIf(Predicate<Map.Entry<Long, V>> predicate)
+  {
+    for (int slot = 0; slot <= slotMask; slot++)
+    {
+      long id = slotIds.get(slot);
+      if (id <= NO_ID)
+      {
+        continue;
+      }
+
+      V value = slotValues.get(slot);
+
+      try
+      {
+        // The value is only used if the slot still has the same ID
+        if (value != null && slotIds.get(slot) == id &&
+          predicate.test(new AbstractMap.SimpleImmutableEntry<>(id, value)) &&
+          slotIds.compareAndSet(slot, id, CLAIMED))
+        {
+          freeSlot(slot);
+        }
+      }
+      catch (Exception ex)
+      {
+        ex.printStackTrace();
+      }
+    }
+
+    Iterator<Map.Entry<Long, V>> iterator = overflowMap.entrySet().iterator();
+    while (iterator.hasNext())
+    {
+      try
+      {
+        if (predicate.test(iterator.next()))
+        {
+          iterator.remove();
+        }
+      }
+      catch (Exception ex)
+      {
+        ex.printStackTrace();
+      }
+    }
+  }
+
+  private V freeSlot(int slot)
+  {
+    V value = slotValues.get(slot);
+    slotValues.set(slot, null);
+    slotIds.set(slot, FREE);
+    return value;
+  }
+}